@@ -0,0 +1,156 @@
+package com.everis.jpmorgancc;
+
+import com.everis.jpmorgancc.api.JPMorganApi;
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.dataset.RaceDatasetGenerator;
+import com.everis.jpmorgancc.state.JPMorganState;
+import com.everis.jpmorgancc.store.ResultColumns;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.corda.client.jackson.JacksonSupport;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.testing.driver.DriverParameters;
+import net.corda.testing.driver.NodeHandle;
+import net.corda.testing.driver.NodeParameters;
+import net.corda.testing.node.NotarySpec;
+import net.corda.testing.node.User;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.Response;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static net.corda.testing.driver.Driver.driver;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Submits a dataset spanning four years through the [JPMorganApi] of a webserver routing to two shards, each with its
+ * own pair of nodes and notary, and checks that every result lands on the shard owning its year and names that
+ * shard's notary, which Corda 3 does not ask to sign issuances. The reads of the API then fan out to both shards.
+ */
+public class ShardedDeploymentTests {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedDeploymentTests.class);
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+
+    private final CordaX500Name notaryA = new CordaX500Name("NotaryA", "London", "GB");
+    private final CordaX500Name notaryB = new CordaX500Name("NotaryB", "Frankfurt", "DE");
+    private final CordaX500Name partyA = new CordaX500Name("PartyA", "London", "GB");
+    private final CordaX500Name partyB = new CordaX500Name("PartyB", "New York", "US");
+    private final CordaX500Name partyC = new CordaX500Name("PartyC", "Paris", "FR");
+    private final CordaX500Name partyD = new CordaX500Name("PartyD", "Madrid", "ES");
+    private final User user = new User("user1", "test", ImmutableSet.of("ALL"));
+
+    @Test
+    public void resultsAreRecordedByTheOwningShard() {
+        driver(new DriverParameters()
+                .withStartNodesInProcess(true)
+                .withExtraCordappPackagesToScan(ImmutableList.of("com.everis.jpmorgancc"))
+                .withNotarySpecs(ImmutableList.of(new NotarySpec(notaryA, false), new NotarySpec(notaryB, false))), dsl -> {
+            try {
+                final NodeHandle a = dsl.startNode(new NodeParameters().withProvidedName(partyA).withRpcUsers(ImmutableList.of(user))).get();
+                final NodeHandle c = dsl.startNode(new NodeParameters().withProvidedName(partyC).withRpcUsers(ImmutableList.of(user))).get();
+                dsl.startNode(new NodeParameters().withProvidedName(partyB)).get();
+                dsl.startNode(new NodeParameters().withProvidedName(partyD)).get();
+
+                final Path dir = Files.createTempDirectory("sharded");
+                final Properties properties = new Properties();
+                properties.setProperty("shard.early.rpc", a.getRpcAddress().toString());
+                properties.setProperty("shard.early.counterparty", partyB.toString());
+                properties.setProperty("shard.early.notary", notaryA.toString());
+                properties.setProperty("shard.early.years", "2015,2016");
+                properties.setProperty("shard.late.rpc", c.getRpcAddress().toString());
+                properties.setProperty("shard.late.counterparty", partyD.toString());
+                properties.setProperty("shard.late.notary", notaryB.toString());
+                try (OutputStream out = Files.newOutputStream(dir.resolve("shards.properties"))) {
+                    properties.store(out, null);
+                }
+                System.setProperty("jpmorgancc.shards", dir.resolve("shards.properties").toString());
+                System.setProperty("jpmorgancc.store.snapshotFile", dir.resolve("result-store.snapshot").toString());
+                final JPMorganApi api = new JPMorganApi(a.getRpc());
+
+                final long started = System.nanoTime();
+                int submitted = 0;
+                for (ResultRow row : new RaceDatasetGenerator(42, CHALLENGE, 2015, 4, 25)) {
+                    final Response response = api.addResult(row.getChallengeName(), row.getChallengeYear(),
+                            row.getPlaceCity(), row.getPlaceGender(), row.getBibNumber(), row.getFirstName(),
+                            row.getLastName(), row.getTime(), row.getGender(), null, null);
+                    assertEquals(response.getEntity().toString(), 201, response.getStatus());
+                    submitted++;
+                }
+                logger.info("Recorded {} results across two shards in {} ms", submitted, (System.nanoTime() - started) / 1_000_000);
+                final int total = submitted;
+
+                assertEquals(ImmutableSet.of(2015, 2016), years(a.getRpc()));
+                assertEquals(ImmutableSet.of(2017, 2018), years(c.getRpc()));
+                assertEquals(ImmutableSet.of(notaryA), notaries(a.getRpc()));
+                assertEquals(ImmutableSet.of(notaryB), notaries(c.getRpc()));
+                assertEquals(50, a.getRpc().vaultQuery(JPMorganState.class).getStates().size());
+                assertEquals(50, c.getRpc().vaultQuery(JPMorganState.class).getStates().size());
+
+                final Response results = api.getResults();
+                assertEquals(200, results.getStatus());
+                assertEquals(total, JacksonSupport.createDefaultMapper(a.getRpc()).readTree((byte[]) results.getEntity()).size());
+
+                // The result stores follow their nodes in the background, so the analytics catch up shortly after.
+                await(() -> finishers(api) == total);
+                final List<?> years = (List<?>) api.getYears(CHALLENGE, null).getEntity();
+                assertEquals(ImmutableList.of(2015, 2016, 2017, 2018), years.stream()
+                        .map(year -> ((ResultColumns.YearSummary) year).getChallengeYear()).collect(Collectors.toList()));
+                final long[] counts = (long[]) ((Map<?, ?>) api.getDistribution(CHALLENGE, 0, null, 60).getEntity()).get("counts");
+                assertEquals(total, LongStream.of(counts).sum());
+                final long[] late = (long[]) ((Map<?, ?>) api.getDistribution(CHALLENGE, 2018, null, 60).getEntity()).get("counts");
+                assertEquals(25, LongStream.of(late).sum());
+            } catch (Exception e) {
+                throw new RuntimeException("Caught exception during test", e);
+            } finally {
+                System.clearProperty("jpmorgancc.shards");
+                System.clearProperty("jpmorgancc.store.snapshotFile");
+            }
+            return null;
+        });
+    }
+
+    private static int finishers(JPMorganApi api) {
+        final Response response = api.getYears(CHALLENGE, null);
+        if (response.getStatus() != 200) {
+            return 0;
+        }
+        return ((List<?>) response.getEntity()).stream()
+                .mapToInt(year -> ((ResultColumns.YearSummary) year).getFinishers()).sum();
+    }
+
+    private static void await(Supplier<Boolean> condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (!condition.get()) {
+            assertTrue("Timed out waiting for the result stores", System.nanoTime() < deadline);
+            Thread.sleep(200);
+        }
+    }
+
+    private static Set<CordaX500Name> notaries(CordaRPCOps rpc) {
+        return rpc.vaultQuery(JPMorganState.class).getStates().stream()
+                .map(state -> state.getState().getNotary().getName())
+                .collect(Collectors.toSet());
+    }
+
+    private static Set<Integer> years(CordaRPCOps rpc) {
+        return rpc.vaultQuery(JPMorganState.class).getStates().stream()
+                .map(StateAndRef::getState)
+                .map(state -> state.getData().getChallengeYear())
+                .collect(Collectors.toSet());
+    }
+}
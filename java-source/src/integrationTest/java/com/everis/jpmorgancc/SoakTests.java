@@ -0,0 +1,226 @@
+package com.everis.jpmorgancc;
+
+import com.everis.jpmorgancc.flow.JPMorganFlow;
+import com.everis.jpmorgancc.flow.NodeMetricsFlow;
+import com.everis.jpmorgancc.state.JPMorganState;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.RateLimiter;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.testing.driver.DriverParameters;
+import net.corda.testing.driver.NodeHandle;
+import net.corda.testing.driver.NodeParameters;
+import net.corda.testing.node.User;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.corda.testing.driver.Driver.driver;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Submits results at a steady rate between out-of-process PartyA, PartyB and PartyC nodes for -Dsoak.minutes, sampling
+ * each node's heap, GC time, checkpoint table and vault query latency every -Dsoak.sampleSeconds.
+ *
+ * Skipped unless soak.minutes is set. The samples are written to build/reports/soak/soak-samples.csv, and the test fails
+ * on sustained heap growth, a growing checkpoint table or vault query latency drifting from its early level.
+ */
+public class SoakTests {
+    private static final Logger logger = LoggerFactory.getLogger(SoakTests.class);
+
+    private final int minutes = Integer.getInteger("soak.minutes", 0);
+    private final int sampleSeconds = Integer.getInteger("soak.sampleSeconds", 30);
+    private final double rate = Double.parseDouble(System.getProperty("soak.rate", "10"));
+    private final int inFlight = Integer.getInteger("soak.inFlight", 32);
+    private final double maxHeapGrowthMbPerHour = Double.parseDouble(System.getProperty("soak.maxHeapGrowthMbPerHour", "64"));
+    private final int maxCheckpoints = Integer.getInteger("soak.maxCheckpoints", 2 * inFlight);
+    private final double maxLatencyDrift = Double.parseDouble(System.getProperty("soak.maxLatencyDrift", "3.0"));
+
+    private final List<CordaX500Name> names = ImmutableList.of(
+            new CordaX500Name("PartyA", "London", "GB"),
+            new CordaX500Name("PartyB", "New York", "US"),
+            new CordaX500Name("PartyC", "Paris", "FR"));
+    private final User user = new User("soak", "test", ImmutableSet.of("ALL"));
+
+    @Test
+    public void sustainedSubmission() {
+        assumeTrue("Set -Dsoak.minutes to run the soak test", minutes > 0);
+        driver(new DriverParameters()
+                .withStartNodesInProcess(false)
+                .withExtraCordappPackagesToScan(ImmutableList.of("com.everis.jpmorgancc")), dsl -> {
+            try {
+                final List<NodeHandle> nodes = new ArrayList<>();
+                for (CordaX500Name name : names) {
+                    nodes.add(dsl.startNode(new NodeParameters()
+                            .withProvidedName(name)
+                            .withRpcUsers(ImmutableList.of(user))).get());
+                }
+                final List<Sample> samples = soak(nodes);
+                writeSamples(samples);
+                verify(samples);
+            } catch (Exception e) {
+                throw new RuntimeException("Caught exception during soak test", e);
+            }
+            return null;
+        });
+    }
+
+    private List<Sample> soak(List<NodeHandle> nodes) throws Exception {
+        final RateLimiter limiter = RateLimiter.create(rate);
+        final Semaphore slots = new Semaphore(inFlight);
+        final AtomicLong failures = new AtomicLong();
+        final List<Sample> samples = new ArrayList<>();
+        final long start = System.nanoTime();
+        final long end = start + TimeUnit.MINUTES.toNanos(minutes);
+        long nextSample = start;
+        int submitted = 0;
+
+        while (System.nanoTime() < end) {
+            if (System.nanoTime() >= nextSample) {
+                for (NodeHandle node : nodes) {
+                    samples.add(sample(node, (System.nanoTime() - start) / 1e9, submitted, failures.get()));
+                }
+                nextSample += TimeUnit.SECONDS.toNanos(sampleSeconds);
+            }
+            limiter.acquire();
+            slots.acquire();
+            final CordaRPCOps initiator = nodes.get(submitted % nodes.size()).getRpc();
+            final Party counterparty = nodes.get((submitted + 1) % nodes.size()).getNodeInfo().getLegalIdentities().get(0);
+            final int bib = ++submitted;
+            initiator.startFlowDynamic(JPMorganFlow.Initiator.class, "J.P.Morgan Corporate Challenge", 2018, bib, bib, bib,
+                    "Soak", "Runner " + bib, 1200.0 + bib % 2400, bib % 2 == 0 ? "M" : "F", counterparty)
+                    .getReturnValue().toCompletableFuture()
+                    .whenComplete((stx, error) -> {
+                        if (error != null) {
+                            failures.incrementAndGet();
+                            logger.warn("Soak flow {} failed", bib, error);
+                        }
+                        slots.release();
+                    });
+        }
+        slots.tryAcquire(inFlight, 5, TimeUnit.MINUTES);
+        for (NodeHandle node : nodes) {
+            samples.add(sample(node, (System.nanoTime() - start) / 1e9, submitted, failures.get()));
+        }
+        assertTrue(failures.get() + " of " + submitted + " flows failed", failures.get() == 0);
+        return samples;
+    }
+
+    private Sample sample(NodeHandle node, double seconds, int submitted, long failures) throws Exception {
+        final CordaRPCOps rpc = node.getRpc();
+        final NodeMetricsFlow.NodeMetrics metrics = rpc.startFlowDynamic(NodeMetricsFlow.class).getReturnValue().get();
+        final long queryStart = System.nanoTime();
+        rpc.vaultQueryBy(new QueryCriteria.VaultQueryCriteria(), new PageSpecification(1, 200),
+                new Sort(ImmutableSet.of()), JPMorganState.class);
+        final double queryMillis = (System.nanoTime() - queryStart) / 1e6;
+        return new Sample(node.getNodeInfo().getLegalIdentities().get(0).getName().getOrganisation(),
+                seconds, submitted, failures, metrics, queryMillis);
+    }
+
+    private void verify(List<Sample> samples) {
+        final List<String> problems = new ArrayList<>();
+        for (CordaX500Name name : names) {
+            final List<Sample> series = new ArrayList<>();
+            for (Sample sample : samples) {
+                if (sample.node.equals(name.getOrganisation())) series.add(sample);
+            }
+            // Ignore the first quarter of the run, while the JIT, caches and connection pools warm up.
+            final List<Sample> steady = series.subList(series.size() / 4, series.size());
+            if (steady.size() < 4) {
+                logger.warn("Too few samples for {} to judge trends; run for longer or sample more often", name);
+                continue;
+            }
+
+            final double mbPerHour = slope(steady) * 3600 / (1024 * 1024);
+            if (mbPerHour > maxHeapGrowthMbPerHour) {
+                problems.add(String.format("%s: heap after GC grew %.1f MB/hour (limit %.1f)", name.getOrganisation(), mbPerHour, maxHeapGrowthMbPerHour));
+            }
+            final long checkpoints = series.get(series.size() - 1).metrics.getCheckpoints();
+            if (checkpoints > maxCheckpoints) {
+                problems.add(String.format("%s: %d checkpoints left at the end (limit %d)", name.getOrganisation(), checkpoints, maxCheckpoints));
+            }
+            final int quarter = steady.size() / 4;
+            final double early = medianLatency(steady.subList(0, Math.max(1, quarter)));
+            final double late = medianLatency(steady.subList(steady.size() - Math.max(1, quarter), steady.size()));
+            if (late > early * maxLatencyDrift) {
+                problems.add(String.format("%s: vault query latency drifted from %.1f ms to %.1f ms", name.getOrganisation(), early, late));
+            }
+        }
+        assertTrue("Soak test found problems:\n" + String.join("\n", problems), problems.isEmpty());
+    }
+
+    /** Least-squares slope of heap-after-GC in bytes per second. */
+    private static double slope(List<Sample> series) {
+        double meanX = 0, meanY = 0;
+        for (Sample s : series) {
+            meanX += s.seconds;
+            meanY += s.metrics.getHeapAfterGc();
+        }
+        meanX /= series.size();
+        meanY /= series.size();
+        double covariance = 0, variance = 0;
+        for (Sample s : series) {
+            covariance += (s.seconds - meanX) * (s.metrics.getHeapAfterGc() - meanY);
+            variance += (s.seconds - meanX) * (s.seconds - meanX);
+        }
+        return variance == 0 ? 0 : covariance / variance;
+    }
+
+    private static double medianLatency(List<Sample> series) {
+        final double[] latencies = new double[series.size()];
+        for (int i = 0; i < latencies.length; i++) latencies[i] = series.get(i).queryMillis;
+        Arrays.sort(latencies);
+        return latencies[latencies.length / 2];
+    }
+
+    private static void writeSamples(List<Sample> samples) throws IOException {
+        final Path file = Paths.get(System.getProperty("soak.reportDir", "build/reports/soak"), "soak-samples.csv");
+        Files.createDirectories(file.getParent());
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("node,seconds,submitted,failures,heapUsed,heapAfterGc,gcCount,gcMillis,checkpoints,checkpointBytes,vaultQueryMillis");
+            for (Sample s : samples) {
+                out.printf("%s,%.1f,%d,%d,%d,%d,%d,%d,%d,%d,%.2f%n", s.node, s.seconds, s.submitted, s.failures,
+                        s.metrics.getHeapUsed(), s.metrics.getHeapAfterGc(), s.metrics.getGcCount(), s.metrics.getGcMillis(),
+                        s.metrics.getCheckpoints(), s.metrics.getCheckpointBytes(), s.queryMillis);
+            }
+        }
+        logger.info("Wrote {} soak samples to {}", samples.size(), file.toAbsolutePath());
+    }
+
+    private static class Sample {
+        final String node;
+        final double seconds;
+        final int submitted;
+        final long failures;
+        final NodeMetricsFlow.NodeMetrics metrics;
+        final double queryMillis;
+
+        Sample(String node, double seconds, int submitted, long failures, NodeMetricsFlow.NodeMetrics metrics, double queryMillis) {
+            this.node = node;
+            this.seconds = seconds;
+            this.submitted = submitted;
+            this.failures = failures;
+            this.metrics = metrics;
+            this.queryMillis = queryMillis;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.everis.jpmorgancc.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+import net.corda.core.serialization.CordaSerializable;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Reports the node's JVM memory, GC totals and checkpoint table size, so that [SoakTests] can observe out-of-process
+ * nodes over RPC. It lives with the integration tests, which the driver scans into the test nodes' CorDapp, so that
+ * production nodes never expose their internals or raw checkpoint SQL to RPC users.
+ *
+ * It neither sends messages nor suspends, so the only checkpoint it causes is the one the node may write as it starts
+ * the flow, which the count can include.
+ */
+@StartableByRPC
+public class NodeMetricsFlow extends FlowLogic<NodeMetricsFlow.NodeMetrics> {
+    @Suspendable
+    @Override
+    public NodeMetrics call() throws FlowException {
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        // The usage after the last collection is the signal for leaks; plain heap usage mostly tracks allocation rate.
+        long heapAfterGc = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && afterGc != null) {
+                heapAfterGc += afterGc.getUsed();
+            }
+        }
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcMillis += Math.max(0, gc.getCollectionTime());
+        }
+
+        try (Statement statement = getServiceHub().jdbcSession().createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT COUNT(*), COALESCE(SUM(LENGTH(checkpoint_value)), 0) FROM node_checkpoints")) {
+            rs.next();
+            return new NodeMetrics(heapUsed, heapAfterGc, gcCount, gcMillis, rs.getLong(1), rs.getLong(2));
+        } catch (SQLException e) {
+            throw new FlowException("Could not read the checkpoint table", e);
+        }
+    }
+
+    @CordaSerializable
+    public static class NodeMetrics {
+        private final long heapUsed;
+        private final long heapAfterGc;
+        private final long gcCount;
+        private final long gcMillis;
+        private final long checkpoints;
+        private final long checkpointBytes;
+
+        public NodeMetrics(long heapUsed, long heapAfterGc, long gcCount, long gcMillis, long checkpoints, long checkpointBytes) {
+            this.heapUsed = heapUsed;
+            this.heapAfterGc = heapAfterGc;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+            this.checkpoints = checkpoints;
+            this.checkpointBytes = checkpointBytes;
+        }
+
+        public long getHeapUsed() { return heapUsed; }
+        public long getHeapAfterGc() { return heapAfterGc; }
+        public long getGcCount() { return gcCount; }
+        public long getGcMillis() { return gcMillis; }
+        public long getCheckpoints() { return checkpoints; }
+        public long getCheckpointBytes() { return checkpointBytes; }
+    }
+}
@@ -0,0 +1,58 @@
+package com.everis.jpmorgancc.bench;
+
+import com.everis.jpmorgancc.contract.JPMorganContract;
+import com.everis.jpmorgancc.flow.JPMorganFlow;
+import net.corda.core.transactions.LedgerTransaction;
+import net.corda.core.transactions.SignedTransaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-transaction checks every node runs: [JPMorganContract.verify] and the [JPMorganFlow.Acceptor]'s
+ * transaction check, on an issuance of [outputs] results. The transaction is verified once during set-up, so a
+ * change to the contract that rejects it fails the run instead of timing the rejection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ContractBenchmark {
+    @Param({"1", "1000"})
+    public int outputs;
+
+    @Param({"false", "true"})
+    public boolean compact;
+
+    private ResultFixtures fixtures;
+    private SignedTransaction stx;
+    private LedgerTransaction ltx;
+    private final JPMorganContract contract = new JPMorganContract();
+
+    @Setup
+    public void setUp() {
+        fixtures = new ResultFixtures();
+        stx = fixtures.issue(ResultFixtures.results(outputs, compact));
+        ltx = fixtures.resolve(stx);
+        contract.verify(ltx);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixtures.close();
+    }
+
+    @Benchmark
+    public LedgerTransaction contractVerify() {
+        contract.verify(ltx);
+        return ltx;
+    }
+
+    @Benchmark
+    public SignedTransaction acceptorCheckTransaction() {
+        JPMorganFlow.Acceptor.checkResult(stx);
+        return stx;
+    }
+}
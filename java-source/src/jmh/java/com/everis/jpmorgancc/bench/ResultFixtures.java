@@ -0,0 +1,70 @@
+package com.everis.jpmorgancc.bench;
+
+import com.everis.jpmorgancc.contract.JPMorganContract;
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.dataset.RaceDatasetGenerator;
+import com.everis.jpmorgancc.state.CompactJPMorganState;
+import com.everis.jpmorgancc.state.JPMorganState;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.contracts.Command;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.transactions.LedgerTransaction;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.testing.core.TestIdentity;
+import net.corda.testing.internal.GlobalSerializationEnvironment;
+import net.corda.testing.internal.InternalSerializationTestHelpersKt;
+import net.corda.testing.node.MockServices;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the states and transactions the benchmarks run against, in an in-memory [MockServices] with the
+ * serialisation environment a node would have.
+ */
+class ResultFixtures implements AutoCloseable {
+    static final TestIdentity megaCorp = new TestIdentity(new CordaX500Name("MegaCorp", "London", "GB"));
+    static final TestIdentity miniCorp = new TestIdentity(new CordaX500Name("MiniCorp", "London", "GB"));
+    static final TestIdentity notary = new TestIdentity(new CordaX500Name("Notary", "London", "GB"));
+
+    private final GlobalSerializationEnvironment serialization = InternalSerializationTestHelpersKt.setGlobalSerialization(true);
+    final MockServices services = new MockServices(
+            ImmutableList.of("com.everis.jpmorgancc.contract"), megaCorp, miniCorp.getKeyPair());
+
+    /**
+     * @return the first [count] finishers of the shared benchmark dataset.
+     */
+    static List<ContractState> results(int count, boolean compact) {
+        final List<ContractState> states = new ArrayList<>(count);
+        for (ResultRow row : new RaceDatasetGenerator(42, "J.P.Morgan Corporate Challenge", 2018, 1, count)) {
+            final JPMorganState state = row.toState(megaCorp.getParty(), miniCorp.getParty());
+            states.add(compact ? CompactJPMorganState.of(state) : state);
+        }
+        return states;
+    }
+
+    /**
+     * @return a transaction issuing [states], signed by both parties.
+     */
+    SignedTransaction issue(List<ContractState> states) {
+        final TransactionBuilder builder = new TransactionBuilder(notary.getParty());
+        for (ContractState state : states) {
+            builder.addOutputState(state, JPMorganContract.JPM_CONTRACT_ID);
+        }
+        builder.addCommand(new Command<>(new JPMorganContract.Commands.Create(),
+                ImmutableList.of(megaCorp.getPublicKey(), miniCorp.getPublicKey())));
+        final SignedTransaction signedByMegaCorp = services.signInitialTransaction(builder, megaCorp.getPublicKey());
+        return services.addSignature(signedByMegaCorp, miniCorp.getPublicKey());
+    }
+
+    LedgerTransaction resolve(SignedTransaction stx) {
+        return stx.toLedgerTransaction(services, false);
+    }
+
+    @Override
+    public void close() {
+        serialization.unset();
+    }
+}
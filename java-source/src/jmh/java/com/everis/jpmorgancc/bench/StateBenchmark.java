@@ -0,0 +1,79 @@
+package com.everis.jpmorgancc.bench;
+
+import com.everis.jpmorgancc.schema.JPMorganSchemaV1;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.schemas.QueryableState;
+import net.corda.core.serialization.SerializationAPIKt;
+import net.corda.core.serialization.SerializationFactory;
+import net.corda.core.serialization.SerializedBytes;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.WireTransaction;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping results onto [JPMorganSchemaV1] rows, as the vault does on every recorded transaction, and serialising
+ * and deserialising results and whole transactions, as every flow, checkpoint and RPC call does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class StateBenchmark {
+    @Param({"1", "1000"})
+    public int outputs;
+
+    @Param({"false", "true"})
+    public boolean compact;
+
+    private ResultFixtures fixtures;
+    private final JPMorganSchemaV1 schema = new JPMorganSchemaV1();
+    private List<ContractState> states;
+    private WireTransaction wtx;
+    private SerializedBytes<WireTransaction> serialisedTx;
+    private SerializationFactory factory;
+
+    @Setup
+    public void setUp() {
+        fixtures = new ResultFixtures();
+        states = ResultFixtures.results(outputs, compact);
+        final SignedTransaction stx = fixtures.issue(states);
+        wtx = stx.getTx();
+        factory = SerializationFactory.Companion.getDefaultFactory();
+        serialisedTx = SerializationAPIKt.serialize(wtx, factory, factory.getDefaultContext());
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixtures.close();
+    }
+
+    @Benchmark
+    public void generateMappedObject(Blackhole blackhole) {
+        for (ContractState state : states) {
+            blackhole.consume(((QueryableState) state).generateMappedObject(schema));
+        }
+    }
+
+    @Benchmark
+    public void serialiseStates(Blackhole blackhole) {
+        for (ContractState state : states) {
+            blackhole.consume(SerializationAPIKt.serialize(state, factory, factory.getDefaultContext()));
+        }
+    }
+
+    @Benchmark
+    public SerializedBytes<WireTransaction> serialiseTransaction() {
+        return SerializationAPIKt.serialize(wtx, factory, factory.getDefaultContext());
+    }
+
+    @Benchmark
+    public WireTransaction deserialiseTransaction() {
+        return factory.deserialize(serialisedTx, WireTransaction.class, factory.getDefaultContext());
+    }
+}
@@ -0,0 +1,144 @@
+package com.everis.jpmorgancc.api;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Compresses API responses with gzip or deflate when the client accepts it and the body reaches
+ * -Djpmorgancc.compression.minBytes (1024 by default). Smaller bodies are sent as they are, since the encoding
+ * overhead would outweigh the saving.
+ *
+ * The body is buffered until the threshold is reached, so nothing is committed before the encoding is decided, and
+ * compression then streams through a pooled [Deflater] (see [DeflaterPool]). Bodies that already carry a
+ * Content-Encoding, such as the precompressed [StaticAssets], pass through untouched.
+ */
+@Provider
+@Priority(Priorities.ENTITY_CODER)
+public class CompressionInterceptor implements WriterInterceptor {
+    static final int MIN_BYTES = Integer.getInteger("jpmorgancc.compression.minBytes", 1024);
+    private static final int LEVEL = Integer.getInteger("jpmorgancc.compression.level", 6);
+    private static final int POOL_SIZE = Integer.getInteger("jpmorgancc.compression.poolSize", 32);
+
+    private final DeflaterPool gzipPool = new DeflaterPool(true, LEVEL, POOL_SIZE);
+    private final DeflaterPool deflatePool = new DeflaterPool(false, LEVEL, POOL_SIZE);
+
+    @Context
+    private HttpHeaders requestHeaders;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        final MultivaluedMap<String, Object> headers = context.getHeaders();
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        final String encoding = headers.containsKey(HttpHeaders.CONTENT_ENCODING)
+                ? null : negotiate(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            context.proceed();
+            return;
+        }
+
+        final DeflaterPool pool = encoding.equals("gzip") ? gzipPool : deflatePool;
+        final ThresholdStream body = new ThresholdStream(context.getOutputStream(), () -> {
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+        }, pool);
+        context.setOutputStream(body);
+        try {
+            context.proceed();
+        } finally {
+            // Also gives the deflater back to the pool when writing the entity fails.
+            body.finish();
+        }
+    }
+
+    /**
+     * @return "gzip" or "deflate", whichever [acceptEncoding] allows first in that order of preference, or null.
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        final String[] accepted = Arrays.stream(acceptEncoding.split(","))
+                .filter(coding -> !coding.replace(" ", "").matches(".*;q=0(\\.0*)?$"))
+                .map(coding -> coding.split(";")[0].trim().toLowerCase())
+                .toArray(String[]::new);
+        for (String preferred : new String[]{"gzip", "deflate"}) {
+            for (String coding : accepted) {
+                if (coding.equals(preferred) || coding.equals("*")) {
+                    return preferred;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Holds the first [MIN_BYTES] of the body back, then either compresses everything or, if the body ends first,
+     * writes it as it is.
+     */
+    static class ThresholdStream extends OutputStream {
+        private final OutputStream out;
+        private final Runnable onCompress;
+        private final DeflaterPool pool;
+        private final byte[] held = new byte[MIN_BYTES];
+        private int heldBytes = 0;
+        private DeflaterPool.Encoder encoder = null;
+        private boolean finished = false;
+
+        ThresholdStream(OutputStream out, Runnable onCompress, DeflaterPool pool) {
+            this.out = out;
+            this.onCompress = onCompress;
+            this.pool = pool;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (encoder == null && heldBytes + len < held.length) {
+                System.arraycopy(b, off, held, heldBytes, len);
+                heldBytes += len;
+                return;
+            }
+            if (encoder == null) {
+                onCompress.run();
+                encoder = pool.open(out);
+                encoder.write(held, 0, heldBytes);
+            }
+            encoder.write(b, off, len);
+        }
+
+        // Writers flush as they go; holding the flush back keeps small bodies uncompressed and whole.
+        @Override
+        public void flush() { }
+
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (encoder != null) {
+                encoder.finish();
+            } else {
+                out.write(held, 0, heldBytes);
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+    }
+}
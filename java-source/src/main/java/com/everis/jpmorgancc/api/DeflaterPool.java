@@ -0,0 +1,125 @@
+package com.everis.jpmorgancc.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Reuses [Deflater]s across responses. A deflater holds a few hundred kilobytes of native memory that is only
+ * released by end() or finalization, so creating one per response is expensive under load.
+ */
+class DeflaterPool {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final boolean gzip;
+    private final int level;
+    private final BlockingQueue<Deflater> idle;
+
+    /**
+     * @param gzip whether to write the gzip format rather than the zlib format of the "deflate" content coding.
+     * @param level the compression level, from 1 (fastest) to 9 (smallest).
+     * @param capacity the number of idle deflaters kept.
+     */
+    DeflaterPool(boolean gzip, int level, int capacity) {
+        this.gzip = gzip;
+        this.level = level;
+        this.idle = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * @return a stream writing the encoding of its input to [out], which gives its deflater back on [Encoder.finish].
+     */
+    Encoder open(OutputStream out) throws IOException {
+        Deflater deflater = idle.poll();
+        if (deflater == null) {
+            // The gzip header and trailer are written by the encoder, so the deflater only produces raw deflate data.
+            deflater = new Deflater(level, gzip);
+        }
+        return new Encoder(out, deflater);
+    }
+
+    private void release(Deflater deflater) {
+        deflater.reset();
+        if (!idle.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Compresses everything written to it onto the underlying stream, which it never closes.
+     */
+    class Encoder extends OutputStream {
+        private final OutputStream out;
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[8192];
+        private boolean finished = false;
+
+        private Encoder(OutputStream out, Deflater deflater) throws IOException {
+            this.out = out;
+            this.deflater = deflater;
+            if (gzip) {
+                out.write(GZIP_HEADER);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                throw new IOException("Stream already finished");
+            }
+            if (gzip) {
+                crc.update(b, off, len);
+            }
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                final int n = deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH);
+                out.write(buffer, 0, n);
+            }
+        }
+
+        /**
+         * Writes the remaining compressed data and the trailer, and returns the deflater to the pool.
+         */
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    final int n = deflater.deflate(buffer);
+                    out.write(buffer, 0, n);
+                }
+                if (gzip) {
+                    writeIntLE(crc.getValue());
+                    writeIntLE(deflater.getBytesRead());
+                }
+                out.flush();
+            } finally {
+                release(deflater);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        private void writeIntLE(long value) throws IOException {
+            out.write((int) value & 0xff);
+            out.write((int) (value >>> 8) & 0xff);
+            out.write((int) (value >>> 16) & 0xff);
+            out.write((int) (value >>> 24) & 0xff);
+        }
+    }
+}
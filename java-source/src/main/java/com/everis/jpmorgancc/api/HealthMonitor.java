@@ -0,0 +1,179 @@
+package com.everis.jpmorgancc.api;
+
+import com.everis.jpmorgancc.client.RpcConnectionPool;
+import com.everis.jpmorgancc.shard.Shard;
+import com.everis.jpmorgancc.shard.ShardRouter;
+import com.everis.jpmorgancc.store.ResultQueries;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.identity.Party;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.Sort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the node's saturation signals every -Djpmorgancc.health.intervalSeconds on a background thread, so that
+ * load balancer probes are answered from memory and never add load themselves.
+ *
+ * The node is ready when the last sample is recent, RPC answered within -Djpmorgancc.health.maxRpcMillis, fewer than
+ * -Djpmorgancc.health.maxInFlightFlows flows are running, every shard's [ResultStore] has loaded, every notary is
+ * in the network map and the [WarmUp] has finished.
+ */
+public class HealthMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(HealthMonitor.class);
+    private static final Duration INTERVAL = Duration.ofSeconds(Long.getLong("jpmorgancc.health.intervalSeconds", 5));
+    private static final long MAX_RPC_MILLIS = Long.getLong("jpmorgancc.health.maxRpcMillis", 1000);
+    private static final int MAX_IN_FLIGHT_FLOWS = Integer.getInteger("jpmorgancc.health.maxInFlightFlows", 500);
+
+    private final RpcConnectionPool rpc;
+    private final ShardRouter shards;
+    private final WarmUp warmUp;
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "health-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Health latest = Health.starting();
+
+    private HealthMonitor(RpcConnectionPool rpc, ShardRouter shards, WarmUp warmUp) {
+        this.rpc = rpc;
+        this.shards = shards;
+        this.warmUp = warmUp;
+    }
+
+    static HealthMonitor start(RpcConnectionPool rpc, ShardRouter shards, WarmUp warmUp) {
+        HealthMonitor monitor = new HealthMonitor(rpc, shards, warmUp);
+        monitor.sampler.scheduleWithFixedDelay(monitor::sample, 0, INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        return monitor;
+    }
+
+    /**
+     * @return the last sample, marked unready if sampling has stalled.
+     */
+    public Health getHealth() {
+        final Health health = latest;
+        if (health.checkedAt != null && Duration.between(health.checkedAt, Instant.now()).compareTo(INTERVAL.multipliedBy(3)) > 0) {
+            return health.withReason("The last health check ran at " + health.checkedAt + ".");
+        }
+        return health;
+    }
+
+    public void stop() {
+        sampler.shutdownNow();
+    }
+
+    private void sample() {
+        final List<String> reasons = new ArrayList<>();
+        long rpcMillis = -1;
+        int inFlightFlows = -1;
+        long results = -1;
+        final Map<String, Boolean> notaries = new LinkedHashMap<>();
+        try {
+            final long started = System.nanoTime();
+            rpc.call(CordaRPCOps::currentNodeTime);
+            rpcMillis = (System.nanoTime() - started) / 1_000_000;
+            if (rpcMillis > MAX_RPC_MILLIS) {
+                reasons.add("RPC took " + rpcMillis + " ms.");
+            }
+
+            inFlightFlows = rpc.call(CordaRPCOps::stateMachinesSnapshot).size();
+            if (inFlightFlows >= MAX_IN_FLIGHT_FLOWS) {
+                reasons.add(inFlightFlows + " flows are in flight.");
+            }
+
+            results = rpc.call(ops -> ops.vaultQueryBy(ResultQueries.allResults(), new PageSpecification(1, 1),
+                    new Sort(Collections.emptySet()), ContractState.class)).getTotalStatesAvailable();
+
+            for (Party notary : rpc.call(CordaRPCOps::notaryIdentities)) {
+                final boolean known = rpc.call(ops -> ops.nodeInfoFromParty(notary)) != null;
+                notaries.put(notary.getName().toString(), known);
+                if (!known) {
+                    reasons.add("Notary " + notary.getName() + " is not in the network map.");
+                }
+            }
+            if (notaries.isEmpty()) {
+                reasons.add("No notary is known.");
+            }
+        } catch (Exception ex) {
+            logger.warn("Health check failed", ex);
+            reasons.add("RPC failed: " + ex.getMessage());
+        }
+
+        boolean storesReady = true;
+        for (Shard shard : shards.getShards()) {
+            if (!shard.store().isReady()) {
+                storesReady = false;
+                reasons.add("The result store of shard " + shard.getName() + " is still loading.");
+            }
+        }
+        if (!warmUp.isDone()) {
+            reasons.add("The API is still warming up.");
+        }
+        latest = new Health(Instant.now(), rpcMillis, inFlightFlows, results, storesReady, notaries,
+                warmUp.getTotalMillis(), warmUp.getPhaseMillis(), reasons);
+    }
+
+    /**
+     * One sample of the node's health.
+     */
+    public static class Health {
+        private final Instant checkedAt;
+        private final long rpcMillis;
+        private final int inFlightFlows;
+        private final long results;
+        private final boolean storesReady;
+        private final Map<String, Boolean> notaries;
+        private final long warmUpMillis;
+        private final Map<String, Long> warmUpPhases;
+        private final List<String> reasons;
+
+        Health(Instant checkedAt, long rpcMillis, int inFlightFlows, long results, boolean storesReady,
+               Map<String, Boolean> notaries, long warmUpMillis, Map<String, Long> warmUpPhases, List<String> reasons) {
+            this.checkedAt = checkedAt;
+            this.rpcMillis = rpcMillis;
+            this.inFlightFlows = inFlightFlows;
+            this.results = results;
+            this.storesReady = storesReady;
+            this.notaries = notaries;
+            this.warmUpMillis = warmUpMillis;
+            this.warmUpPhases = warmUpPhases;
+            this.reasons = reasons;
+        }
+
+        static Health starting() {
+            return new Health(null, -1, -1, -1, false, Collections.emptyMap(), -1, Collections.emptyMap(),
+                    Collections.singletonList("The first health check has not run yet."));
+        }
+
+        Health withReason(String reason) {
+            final List<String> more = new ArrayList<>(reasons);
+            more.add(reason);
+            return new Health(checkedAt, rpcMillis, inFlightFlows, results, storesReady, notaries, warmUpMillis,
+                    warmUpPhases, more);
+        }
+
+        public boolean isReady() { return reasons.isEmpty(); }
+        public String getCheckedAt() { return checkedAt == null ? null : checkedAt.toString(); }
+        public long getRpcMillis() { return rpcMillis; }
+        public int getInFlightFlows() { return inFlightFlows; }
+        public long getResults() { return results; }
+        public boolean isStoresReady() { return storesReady; }
+        public Map<String, Boolean> getNotaries() { return notaries; }
+        /** The duration of the warm-up, or -1 while it runs. */
+        public long getWarmUpMillis() { return warmUpMillis; }
+        public Map<String, Long> getWarmUpPhases() { return warmUpPhases; }
+        public List<String> getReasons() { return reasons; }
+    }
+}
@@ -1,14 +1,36 @@
 package com.everis.jpmorgancc.api;
 
+import com.everis.jpmorgancc.client.RpcConnectionPool;
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.csv.ResultSheet;
 import com.everis.jpmorgancc.flow.JPMorganFlow;
-import com.everis.jpmorgancc.state.JPMorganState;
+import com.everis.jpmorgancc.flow.LeaderboardFlows;
+import com.everis.jpmorgancc.flow.ResultSheetFlow;
+import com.everis.jpmorgancc.flow.ShareResultsFlow;
+import com.everis.jpmorgancc.flow.TimingLog;
+import com.everis.jpmorgancc.service.LeaderboardService;
+import com.everis.jpmorgancc.shard.Shard;
+import com.everis.jpmorgancc.shard.ShardRouter;
+import com.everis.jpmorgancc.state.CompactJPMorganState;
+import com.everis.jpmorgancc.state.RunnerKey;
+import com.everis.jpmorgancc.store.ResultColumns;
+import com.everis.jpmorgancc.store.ResultCursor;
+import com.everis.jpmorgancc.store.ResultQueries;
+import com.everis.jpmorgancc.store.ResultStore;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import net.corda.client.jackson.JacksonSupport;
+import net.corda.core.contracts.ContractState;
 import net.corda.core.contracts.StateAndRef;
+import net.corda.core.crypto.SecureHash;
 import net.corda.core.identity.CordaX500Name;
 import net.corda.core.identity.Party;
 import net.corda.core.messaging.CordaRPCOps;
 import net.corda.core.node.NodeInfo;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
 import net.corda.core.transactions.SignedTransaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,27 +38,66 @@ import org.slf4j.LoggerFactory;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
 
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.CONFLICT;
 import static javax.ws.rs.core.Response.Status.CREATED;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.Status.OK;
+import static javax.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
 
 // This API is accessible from /api/example. All paths specified below are relative to it.
 @Path("example")
 public class JPMorganApi {
-    private final CordaRPCOps rpcOps;
-    private final CordaX500Name myLegalName;
+    private final RpcConnectionPool rpc;
+    // Resolved by the warm-up rather than in the constructor, which the webserver waits for.
+    private final Supplier<CordaX500Name> myLegalName;
+    private final ShardRouter shards;
+    private final HealthMonitor health;
+    private final WarmUp warmUp;
+    // Null when -Djpmorgancc.batch.maxSize is 1 or less, each submission then being recorded on its own.
+    private final SubmissionBatcher batcher;
+    private final ReadCoalescer reads;
 
     private final List<String> serviceNames = ImmutableList.of("Notary", "Network Map Service");
 
+    private static final String CORRELATION_HEADER = "X-Correlation-Id";
+    private static final int MAX_CHANGES = 5000;
+    // Recorded times are taken before commit, so a result can become visible after one recorded later than it.
+    // Changes newer than this are held back until such commits have landed.
+    private static final Duration CHANGES_SETTLE = Duration.ofMillis(Long.getLong("jpmorgancc.api.changesSettleMillis", 2000));
+
     static private final Logger logger = LoggerFactory.getLogger(JPMorganApi.class);
 
     public JPMorganApi(CordaRPCOps rpcOps) {
-        this.rpcOps = rpcOps;
-        this.myLegalName = rpcOps.nodeInfo().getLegalIdentities().get(0).getName();
+        this.rpc = RpcConnectionPool.fromSystemProperties(rpcOps);
+        this.myLegalName = Suppliers.memoize(() -> rpc.call(CordaRPCOps::nodeInfo).getLegalIdentities().get(0).getName());
+        this.batcher = SubmissionBatcher.isEnabled() ? new SubmissionBatcher(myLegalName) : null;
+        this.shards = ShardRouter.fromSystemProperties(rpc);
+        this.reads = new ReadCoalescer(JacksonSupport.createDefaultMapper(rpcOps));
+        shards.getShards().forEach(Shard::store);
+        this.warmUp = new WarmUp(this, rpcOps, shards);
+        this.health = HealthMonitor.start(rpc, shards, warmUp);
+        warmUp.start();
     }
 
     /**
@@ -46,7 +107,29 @@ public class JPMorganApi {
     @Path("me")
     @Produces(MediaType.APPLICATION_JSON)
     public Map<String, CordaX500Name> whoami() {
-        return ImmutableMap.of("me", myLegalName);
+        return ImmutableMap.of("me", myLegalName.get());
+    }
+
+    /**
+     * Returns the last health sample: RPC round-trip time, flows in flight, results in the vault, whether the result
+     * stores have loaded and which notaries are known. Always answered from memory; see [HealthMonitor].
+     */
+    @GET
+    @Path("health")
+    @Produces(MediaType.APPLICATION_JSON)
+    public HealthMonitor.Health getHealth() {
+        return health.getHealth();
+    }
+
+    /**
+     * Answers 200 when this webserver can take traffic and 503, with the reasons, when it is saturated or degraded.
+     */
+    @GET
+    @Path("ready")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getReady() {
+        final HealthMonitor.Health current = health.getHealth();
+        return Response.status(current.isReady() ? OK : SERVICE_UNAVAILABLE).entity(current).build();
     }
 
     /**
@@ -57,22 +140,241 @@ public class JPMorganApi {
     @Path("peers")
     @Produces(MediaType.APPLICATION_JSON)
     public Map<String, List<CordaX500Name>> getPeers() {
-        List<NodeInfo> nodeInfoSnapshot = rpcOps.networkMapSnapshot();
+        List<NodeInfo> nodeInfoSnapshot = rpc.call(CordaRPCOps::networkMapSnapshot);
         return ImmutableMap.of("peers", nodeInfoSnapshot
                 .stream()
                 .map(node -> node.getLegalIdentities().get(0).getName())
-                .filter(name -> !name.equals(myLegalName) && !serviceNames.contains(name.getOrganisation()))
+                .filter(name -> !name.equals(myLegalName.get()) && !serviceNames.contains(name.getOrganisation()))
                 .collect(toList()));
     }
 
     /**
-     * Displays all JPM states that exist in the node's vault.
+     * Displays all JPM states that exist in the vaults of every shard. Concurrent calls share one read; see
+     * [ReadCoalescer].
      */
     @GET
     @Path("results")
     @Produces(MediaType.APPLICATION_JSON)
-    public List<StateAndRef<JPMorganState>> getResults() {
-        return rpcOps.vaultQuery(JPMorganState.class).getStates();
+    public Response getResults() {
+        return reads.read("results", () -> Response.ok(shards.getShards().stream()
+                .flatMap(shard -> shard.getRpc().call(ops -> ops.vaultQueryByCriteria(ResultQueries.allResults(),
+                        ContractState.class).getStates()).stream())
+                .distinct()
+                .collect(toList())).build());
+    }
+
+    /**
+     * Returns up to [limit] results recorded after [cursor], oldest first, with the cursor to resume from and whether
+     * more changes are waiting. Without a cursor it starts from the first result, so a client can mirror the vault
+     * with one full sync followed by incremental ones. Cursors are positions in one vault, so this reads the
+     * webserver's own node only; mirrors of a sharded deployment sync from each shard's webserver.
+     */
+    @GET
+    @Path("results/changes")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getResultChanges(@QueryParam("cursor") String cursor,
+                                     @QueryParam("limit") @DefaultValue("500") int limit) {
+        if (limit <= 0 || limit > MAX_CHANGES) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'limit' must be between 1 and " + MAX_CHANGES + ".\n").build();
+        }
+        final ResultCursor from;
+        try {
+            from = ResultCursor.decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'cursor' is not a valid cursor.\n").build();
+        }
+
+        final Instant until = Instant.now().minus(CHANGES_SETTLE);
+        final List<StateAndRef<ContractState>> changes = new ArrayList<>();
+        ResultCursor next = from;
+        boolean hasMore = false;
+        // Only the results sharing the cursor's recorded time can be skipped, so few pages are read past [limit].
+        for (int pageNumber = 1; !hasMore && !from.getRecordedTime().isAfter(until); pageNumber++) {
+            final int page = pageNumber;
+            final Vault.Page<ContractState> results = rpc.call(ops -> ops.vaultQueryBy(
+                    ResultQueries.recordedBetween(from.getRecordedTime(), until), new PageSpecification(page, limit),
+                    ResultQueries.RECORDED_ORDER, ContractState.class));
+            for (int i = 0; i < results.getStates().size(); i++) {
+                final StateAndRef<ContractState> result = results.getStates().get(i);
+                final Instant recordedTime = results.getStatesMetadata().get(i).getRecordedTime();
+                if (!from.isBefore(recordedTime, result.getRef())) {
+                    continue;
+                }
+                if (changes.size() == limit) {
+                    hasMore = true;
+                    break;
+                }
+                changes.add(result);
+                next = new ResultCursor(recordedTime, result.getRef());
+            }
+            if (results.getStates().size() < limit) {
+                break;
+            }
+        }
+        return Response.ok(ImmutableMap.of("changes", changes, "cursor", next.encode(), "hasMore", hasMore)).build();
+    }
+
+    /**
+     * Counts the results in each time bucket of width [bucket], at least 0.01, optionally restricted to a challenge, a
+     * year and a gender. At most [ResultColumns.MAX_BUCKETS] buckets are returned, the last one counting every slower
+     * result. Served from the [ResultStore] of each shard that may hold such results.
+     */
+    @GET
+    @Path("analytics/distribution")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getDistribution(@QueryParam("challengeName") String challengeName,
+                                    @QueryParam("challengeYear") int challengeYear,
+                                    @QueryParam("gender") String gender,
+                                    @QueryParam("bucket") @DefaultValue("60") double bucket) {
+        final List<Shard> candidates = shards.candidates(challengeName, challengeYear);
+        if (!ready(candidates)) {
+            return Response.status(SERVICE_UNAVAILABLE).entity("Results are still being loaded.\n").build();
+        }
+        // Times are held in hundredths, so a bucket rounding to none of them would be empty.
+        final int bucketWidth = CompactJPMorganState.toHundredths(bucket);
+        if (bucketWidth <= 0) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'bucket' must be at least 0.01.\n").build();
+        }
+
+        final ResultColumns.Filter filter = new ResultColumns.Filter(challengeName, challengeYear, gender);
+        long[] counts = new long[0];
+        for (Shard shard : candidates) {
+            counts = ResultColumns.combineDistributions(counts, shard.store().getColumns().distribution(filter, bucketWidth));
+        }
+        return Response.ok(ImmutableMap.of("bucket", bucket, "counts", counts)).build();
+    }
+
+    /**
+     * Returns the place a [time] would take among the results of a challenge, a year and a gender.
+     */
+    @GET
+    @Path("analytics/rank")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRank(@QueryParam("challengeName") String challengeName,
+                            @QueryParam("challengeYear") int challengeYear,
+                            @QueryParam("gender") String gender,
+                            @QueryParam("time") Double time) {
+        final List<Shard> candidates = shards.candidates(challengeName, challengeYear);
+        if (!ready(candidates)) {
+            return Response.status(SERVICE_UNAVAILABLE).entity("Results are still being loaded.\n").build();
+        }
+        if (time == null || time <= 0) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'time' must be positive.\n").build();
+        }
+
+        final ResultColumns.Filter filter = new ResultColumns.Filter(challengeName, challengeYear, gender);
+        int rank = 1;
+        int of = 0;
+        for (Shard shard : candidates) {
+            final ResultColumns columns = shard.store().getColumns();
+            rank = ResultColumns.combineRanks(rank, columns.rank(filter, CompactJPMorganState.toHundredths(time)));
+            of += columns.count(filter);
+        }
+        return Response.ok(ImmutableMap.of("rank", rank, "of", of)).build();
+    }
+
+    /**
+     * Returns the finishers, best and mean time of every year of a challenge.
+     */
+    @GET
+    @Path("analytics/years")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getYears(@QueryParam("challengeName") String challengeName,
+                             @QueryParam("gender") String gender) {
+        final List<Shard> candidates = shards.candidates(challengeName, 0);
+        if (!ready(candidates)) {
+            return Response.status(SERVICE_UNAVAILABLE).entity("Results are still being loaded.\n").build();
+        }
+
+        final ResultColumns.Filter filter = new ResultColumns.Filter(challengeName, 0, gender);
+        List<ResultColumns.YearSummary> years = new ArrayList<>();
+        for (Shard shard : candidates) {
+            years = ResultColumns.combineYears(years, shard.store().getColumns().perYear(filter));
+        }
+        return Response.ok(years).build();
+    }
+
+    /**
+     * Returns a page of the standings of a challenge and a year, read from the leaderboard the owning node keeps; see
+     * [LeaderboardService]. Rows of result sheets rank alongside results recorded on their own. Concurrent calls for
+     * the same page share one read.
+     */
+    @GET
+    @Path("analytics/standings")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStandings(@QueryParam("challengeName") String challengeName,
+                                 @QueryParam("challengeYear") int challengeYear,
+                                 @QueryParam("gender") String gender,
+                                 @QueryParam("offset") @DefaultValue("0") int offset,
+                                 @QueryParam("limit") @DefaultValue("100") int limit) {
+        if (offset < 0 || limit <= 0 || limit > MAX_CHANGES) {
+            return Response.status(BAD_REQUEST).entity("Query parameters 'offset' and 'limit' are out of range.\n").build();
+        }
+        final Shard shard;
+        try {
+            shard = shards.route(challengeName, challengeYear);
+        } catch (IllegalArgumentException ex) {
+            return Response.status(BAD_REQUEST).entity(ex.getMessage() + "\n").build();
+        }
+        final String key = String.join("/", "standings", challengeName, String.valueOf(challengeYear),
+                String.valueOf(gender), String.valueOf(offset), String.valueOf(limit));
+        return reads.read(key, () -> readStandings(shard, challengeName, challengeYear, gender, offset, limit));
+    }
+
+    private static Response readStandings(Shard shard, String challengeName, int challengeYear, String gender, int offset,
+                                          int limit) {
+        try {
+            final List<LeaderboardService.Standing> standings = shard.getRpc()
+                    .start(ops -> gender == null
+                            ? ops.startFlowDynamic(LeaderboardFlows.Standings.class, challengeName, challengeYear, offset, limit)
+                            : ops.startFlowDynamic(LeaderboardFlows.Standings.class, challengeName, challengeYear, gender, offset, limit))
+                    .getReturnValue()
+                    .get();
+            return Response.ok(standings).build();
+        } catch (InterruptedException | ExecutionException ex) {
+            logger.error("Could not read the standings", ex);
+            return Response.status(SERVICE_UNAVAILABLE).entity("Could not read the standings.\n").build();
+        }
+    }
+
+    /**
+     * Returns every result of the runner with [key], as derived by [RunnerKey], and their personal best. Each shard
+     * answers from an index, which includes the rows of result sheets, and the histories are merged. Concurrent calls
+     * for the same runner share one read.
+     */
+    @GET
+    @Path("runners/{key}/history")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getRunnerHistory(@PathParam("key") String key) {
+        final String runnerKey = RunnerKey.normalise(key);
+        if (runnerKey.isEmpty()) {
+            return Response.status(BAD_REQUEST).entity("Path parameter 'key' must name a runner.\n").build();
+        }
+
+        return reads.read("history/" + runnerKey, () -> readRunnerHistory(runnerKey));
+    }
+
+    private Response readRunnerHistory(String runnerKey) {
+        LeaderboardService.RunnerHistory history = new LeaderboardService.RunnerHistory(runnerKey, null, null, 0, new ArrayList<>());
+        try {
+            for (Shard shard : shards.getShards()) {
+                history = history.combine(shard.getRpc()
+                        .start(ops -> ops.startFlowDynamic(LeaderboardFlows.History.class, runnerKey))
+                        .getReturnValue()
+                        .get());
+            }
+        } catch (InterruptedException | ExecutionException ex) {
+            logger.error("Could not read the history of {}", runnerKey, ex);
+            return Response.status(SERVICE_UNAVAILABLE).entity("Could not read the runner history.\n").build();
+        }
+        if (history.getResults().isEmpty()) {
+            return Response.status(NOT_FOUND).entity("No results for runner " + runnerKey + ".\n").build();
+        }
+        return Response.ok(history).build();
+    }
+
+    private static boolean ready(List<Shard> candidates) {
+        return candidates.stream().allMatch(shard -> shard.store().isReady());
     }
 
     /**
@@ -82,9 +384,20 @@ public class JPMorganApi {
      * see it when calling /api/example/results on their respective nodes.
      *
      * This end-point takes a Party name parameter as part of the path. If the serving node can't find the other party
-     * in its network map cache, it will return an HTTP bad request.
+     * in its network map cache, it will return an HTTP bad request. In a sharded deployment the result is recorded by
+     * the shard owning its challenge and year, with that shard's counterparty and notary; the Party name may then be
+     * left out.
      *
      * The flow is invoked asynchronously. It returns a future when the flow's call() method returns.
+     *
+     * The call is tagged with the caller's X-Correlation-Id header, or a new id, which is passed to the flow and to the
+     * counterparty and returned in the response; see [TimingLog].
+     *
+     * A bib already recorded for the challenge year, on its own or in a result sheet, is refused with 409. The shard's [BibFilter] rules most bibs out
+     * without a vault query; see [isRecorded].
+     *
+     * Unless -Djpmorgancc.batch.maxSize is 1, the result is recorded by the [SubmissionBatcher] together with other
+     * submissions for the same counterparty, and the correlation id is logged against the batch's.
      */
     @PUT
     @Path("add-result")
@@ -97,7 +410,11 @@ public class JPMorganApi {
                               @QueryParam("lastName") String lastName,
                               @QueryParam("time") Double time,
                               @QueryParam("gender") String gender,
-                              @QueryParam("partyName") CordaX500Name partyName) throws InterruptedException, ExecutionException {
+                              @QueryParam("partyName") CordaX500Name partyName,
+                              @HeaderParam(CORRELATION_HEADER) String requestedCorrelationId) throws InterruptedException, ExecutionException {
+        final long started = System.currentTimeMillis();
+        final String correlationId = TimingLog.correlationId(requestedCorrelationId);
+        TimingLog.stage(correlationId, myLegalName.get().toString(), "Api", "received", started);
 
 
         if (challengeName.isEmpty()) {
@@ -128,29 +445,282 @@ public class JPMorganApi {
             return Response.status(BAD_REQUEST).entity("Query parameter 'gender' must be non-blank.\n").build();
         }
 
-        if (partyName == null) {
+        final Shard shard;
+        try {
+            shard = shards.route(challengeName, challengeYear);
+        } catch (IllegalArgumentException ex) {
+            return Response.status(BAD_REQUEST).entity(ex.getMessage() + "\n").build();
+        }
+        final boolean recorded;
+        try {
+            recorded = isRecorded(shard, challengeName, challengeYear, bibNumber);
+        } catch (IOException ex) {
+            logger.error("Could not read the result sheets of {} {}", challengeName, challengeYear, ex);
+            return Response.status(SERVICE_UNAVAILABLE).entity("Could not check the result sheets for bib " + bibNumber + ".\n")
+                    .header(CORRELATION_HEADER, correlationId).build();
+        }
+        if (recorded) {
+            TimingLog.stage(correlationId, myLegalName.get().toString(), "Api", "duplicate", started);
+            final String msg = String.format("Bib %d is already recorded for %s %d.\n", bibNumber, challengeName, challengeYear);
+            return Response.status(CONFLICT).entity(msg).header(CORRELATION_HEADER, correlationId).build();
+        }
+        final CordaX500Name counterpartyName = partyName != null ? partyName : shard.getCounterparty();
+        if (counterpartyName == null) {
             return Response.status(BAD_REQUEST).entity("Query parameter 'partyName' missing or has wrong format.\n").build();
         }
 
-        final Party otherParty = rpcOps.wellKnownPartyFromX500Name(partyName);
+        final Party otherParty = shard.getRpc().call(ops -> ops.wellKnownPartyFromX500Name(counterpartyName));
         if (otherParty == null) {
-            return Response.status(BAD_REQUEST).entity("Party named " + partyName + "cannot be found.\n").build();
+            return Response.status(BAD_REQUEST).entity("Party named " + counterpartyName + "cannot be found.\n").build();
         }
+        final Party notary = shard.getNotary() == null ? null : shard.getRpc().call(ops -> ops.wellKnownPartyFromX500Name(shard.getNotary()));
 
         try {
-            final SignedTransaction signedTx = rpcOps
-                    .startTrackedFlowDynamic(JPMorganFlow.Initiator.class, challengeName, challengeYear, placeCity, placeGender, bibNumber, firstName, lastName, time, gender, otherParty)
-                    .getReturnValue()
-                    .get();
+            final SecureHash txId;
+            if (batcher != null) {
+                final ResultRow row = new ResultRow(challengeName, challengeYear, placeCity, placeGender, bibNumber,
+                        firstName, lastName, time, gender);
+                txId = batcher.submit(shard, otherParty, notary, row, correlationId).get().getTxhash();
+            } else {
+                txId = shard.getRpc()
+                        .start(ops -> ops.startTrackedFlowDynamic(JPMorganFlow.Initiator.class, challengeName, challengeYear, placeCity, placeGender, bibNumber, firstName, lastName, time, gender, otherParty, notary, correlationId))
+                        .getReturnValue()
+                        .get()
+                        .getId();
+            }
+            // Catch retries of this submission before the store has caught up with it.
+            shard.store().getBibs().put(challengeName, challengeYear, bibNumber);
+            reads.invalidateAll();
+            TimingLog.stage(correlationId, myLegalName.get().toString(), "Api", "completed", started);
 
+            final String msg = String.format("Transaction id %s committed to ledger.\n", txId);
+            return Response.status(CREATED).entity(msg).header(CORRELATION_HEADER, correlationId).build();
 
-            final String msg = String.format("Transaction id %s committed to ledger.\n", signedTx.getId());
-            return Response.status(CREATED).entity(msg).build();
+        } catch (ExecutionException ex) {
+            if (!(ex.getCause() instanceof SubmissionBatcher.DuplicateSubmissionException)) {
+                return failed(ex, correlationId, started);
+            }
+            TimingLog.stage(correlationId, myLegalName.get().toString(), "Api", "duplicate", started);
+            return Response.status(CONFLICT).entity(ex.getCause().getMessage() + "\n").header(CORRELATION_HEADER, correlationId).build();
+        } catch (Throwable ex) {
+            return failed(ex, correlationId, started);
+        }
+    }
+
+    private Response failed(Throwable ex, String correlationId, long started) {
+        TimingLog.stage(correlationId, myLegalName.get().toString(), "Api", "failed", started);
+        final String msg = ex.getMessage();
+        logger.error(ex.getMessage(), ex);
+        return Response.status(BAD_REQUEST).entity(msg).header(CORRELATION_HEADER, correlationId).build();
+    }
+
+    /**
+     * Records a complete result sheet of a challenge year, a zip in the [ResultSheet] layout sent as the request body,
+     * as a single [ResultSheetState] referencing the sheet as an attachment. The sheet is checked before it is
+     * uploaded, and is not uploaded again if the shard's node already holds it. It is recorded by the shard owning the
+     * challenge and year, as in [addResult].
+     */
+    @PUT
+    @Path("sheets")
+    @Consumes({"application/zip", MediaType.APPLICATION_OCTET_STREAM})
+    public Response addSheet(@QueryParam("challengeName") String challengeName,
+                             @QueryParam("challengeYear") int challengeYear,
+                             @QueryParam("partyName") CordaX500Name partyName,
+                             InputStream body) throws IOException {
+        if (challengeName == null || challengeName.isEmpty()) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'challengeName' must be non-blank.\n").build();
+        }
+        if (challengeYear <= 0) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'challengeYear' must be non-negative.\n").build();
+        }
+        final Shard shard;
+        try {
+            shard = shards.route(challengeName, challengeYear);
+        } catch (IllegalArgumentException ex) {
+            return Response.status(BAD_REQUEST).entity(ex.getMessage() + "\n").build();
+        }
+        final CordaX500Name counterpartyName = partyName != null ? partyName : shard.getCounterparty();
+        if (counterpartyName == null) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'partyName' missing or has wrong format.\n").build();
+        }
+        final Party otherParty = shard.getRpc().call(ops -> ops.wellKnownPartyFromX500Name(counterpartyName));
+        if (otherParty == null) {
+            return Response.status(BAD_REQUEST).entity("Party named " + counterpartyName + " cannot be found.\n").build();
+        }
+        final Party notary = shard.getNotary() == null ? null : shard.getRpc().call(ops -> ops.wellKnownPartyFromX500Name(shard.getNotary()));
 
+        // Buffered on disk, so that the sheet can be hashed and checked before it is uploaded, without holding it in
+        // memory.
+        final java.nio.file.Path file = Files.createTempFile("sheet", ".zip");
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(body, digest)) {
+                Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            final SecureHash hash = new SecureHash.SHA256(digest.digest());
+            try (InputStream in = Files.newInputStream(file)) {
+                ResultSheet.verify(in, challengeName, challengeYear);
+            } catch (IllegalArgumentException ex) {
+                return Response.status(BAD_REQUEST).entity("The result sheet is invalid: " + ex.getMessage() + "\n").build();
+            }
+            if (!shard.getRpc().call(ops -> ops.attachmentExists(hash))) {
+                shard.getRpc().call(ops -> {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        return ops.uploadAttachment(in);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+
+            final SignedTransaction signedTx = shard.getRpc()
+                    .start(ops -> notary == null
+                            ? ops.startTrackedFlowDynamic(ResultSheetFlow.Initiator.class, hash, challengeName, challengeYear, otherParty)
+                            : ops.startTrackedFlowDynamic(ResultSheetFlow.Initiator.class, hash, challengeName, challengeYear, otherParty, notary))
+                    .getReturnValue()
+                    .get();
+            reads.invalidateAll();
+            final String msg = String.format("Result sheet %s committed to ledger in transaction %s.\n", hash, signedTx.getId());
+            return Response.status(CREATED).entity(msg).build();
         } catch (Throwable ex) {
-            final String msg = ex.getMessage();
             logger.error(ex.getMessage(), ex);
-            return Response.status(BAD_REQUEST).entity(msg).build();
+            return Response.status(BAD_REQUEST).entity(ex.getMessage()).build();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Lists the result sheets recorded for a challenge, optionally for one year only. Served from the sheet index of the
+     * [ResultStore] of each shard that may hold such sheets.
+     */
+    @GET
+    @Path("sheets")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSheets(@QueryParam("challengeName") String challengeName,
+                              @QueryParam("challengeYear") Integer challengeYear) {
+        final List<Shard> candidates = shards.candidates(challengeName, challengeYear == null ? 0 : challengeYear);
+        if (!ready(candidates)) {
+            return Response.status(SERVICE_UNAVAILABLE).entity("Results are still being loaded.\n").build();
+        }
+        return Response.ok(candidates.stream()
+                .flatMap(shard -> shard.store().listSheets(challengeName, challengeYear).stream())
+                .distinct()
+                .collect(toList())).build();
+    }
+
+    /**
+     * Returns up to [limit] rows of the sheet [hash] in finishing order, from place [offset] + 1 on. Served from the
+     * shard's [ResultSheetCache], so the attachment is only downloaded and parsed once.
+     */
+    @GET
+    @Path("sheets/{hash}/results")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSheetResults(@PathParam("hash") String hash,
+                                    @QueryParam("offset") @DefaultValue("0") int offset,
+                                    @QueryParam("limit") @DefaultValue("100") int limit) {
+        if (offset < 0 || limit <= 0 || limit > MAX_CHANGES) {
+            return Response.status(BAD_REQUEST).entity("Query parameters 'offset' and 'limit' are out of range.\n").build();
+        }
+        return withSheet(hash, sheet -> Response.ok(ImmutableMap.of(
+                "size", sheet.size(), "results", sheet.page(offset, limit))).build());
+    }
+
+    /**
+     * Returns the row of bib [bibNumber] in the sheet [hash].
+     */
+    @GET
+    @Path("sheets/{hash}/bibs/{bibNumber}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSheetResult(@PathParam("hash") String hash, @PathParam("bibNumber") int bibNumber) {
+        return withSheet(hash, sheet -> {
+            final ResultRow row = sheet.byBib(bibNumber);
+            return row == null
+                    ? Response.status(NOT_FOUND).entity("No bib " + bibNumber + " in sheet " + hash + ".\n").build()
+                    : Response.ok(row).build();
+        });
+    }
+
+    private Response withSheet(String hash, Function<ResultSheet, Response> read) {
+        final SecureHash sheetHash;
+        try {
+            sheetHash = SecureHash.parse(hash);
+        } catch (IllegalArgumentException ex) {
+            return Response.status(BAD_REQUEST).entity("Path parameter 'hash' is not a SHA-256 hash.\n").build();
+        }
+        for (Shard shard : shards.getShards()) {
+            if (shard.store().findSheet(sheetHash) == null) {
+                continue;
+            }
+            try {
+                return read.apply(shard.store().getSheets().get(sheetHash));
+            } catch (IOException ex) {
+                logger.error("Could not read result sheet {}", sheetHash, ex);
+                return Response.status(SERVICE_UNAVAILABLE).entity("Could not read the result sheet.\n").build();
+            }
+        }
+        if (!ready(shards.getShards())) {
+            return Response.status(SERVICE_UNAVAILABLE).entity("Results are still being loaded.\n").build();
+        }
+        return Response.status(NOT_FOUND).entity("No result sheet " + hash + " is recorded.\n").build();
+    }
+
+    /**
+     * Shares the transactions [txId] of this webserver's node with the party [partyName], such as a sponsor or an
+     * auditor, as filtered transactions holding only the [component]s requested, by default the outputs. See
+     * [ShareResultsFlow].
+     */
+    @PUT
+    @Path("share")
+    public Response share(@QueryParam("partyName") CordaX500Name partyName,
+                          @QueryParam("txId") List<String> txIds,
+                          @QueryParam("component") List<String> components) {
+        if (partyName == null) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'partyName' missing or has wrong format.\n").build();
+        }
+        if (txIds.isEmpty()) {
+            return Response.status(BAD_REQUEST).entity("Query parameter 'txId' must be given at least once.\n").build();
+        }
+        final List<SecureHash> ids;
+        final Set<ShareResultsFlow.Component> shared;
+        try {
+            ids = txIds.stream().map(SecureHash::parse).collect(toList());
+            shared = components.isEmpty()
+                    ? EnumSet.of(ShareResultsFlow.Component.OUTPUTS)
+                    : components.stream().map(name -> ShareResultsFlow.Component.valueOf(name.toUpperCase())).collect(toSet());
+        } catch (IllegalArgumentException ex) {
+            return Response.status(BAD_REQUEST).entity("Query parameters 'txId' or 'component' are invalid.\n").build();
+        }
+        final Party observer = rpc.call(ops -> ops.wellKnownPartyFromX500Name(partyName));
+        if (observer == null) {
+            return Response.status(BAD_REQUEST).entity("Party named " + partyName + " cannot be found.\n").build();
+        }
+
+        try {
+            final int count = rpc.start(ops -> ops.startFlowDynamic(ShareResultsFlow.Initiator.class, ids, observer, new HashSet<>(shared)))
+                    .getReturnValue()
+                    .get();
+            return Response.ok(String.format("Shared %d transactions with %s.\n", count, partyName)).build();
+        } catch (InterruptedException | ExecutionException ex) {
+            logger.error("Could not share transactions with {}", partyName, ex);
+            return Response.status(BAD_REQUEST).entity(ex.getMessage()).build();
+        }
+    }
+
+    /**
+     * @return true if the shard's vault holds a result of the challenge year with [bibNumber], on its own or as a row of
+     * a result sheet. Queries the vault and the sheets only if the shard's [BibFilter] reports a possible hit, or before
+     * its store has loaded.
+     * @throws IOException if a result sheet of the challenge year cannot be read.
+     */
+    private static boolean isRecorded(Shard shard, String challengeName, int challengeYear, int bibNumber) throws IOException {
+        final ResultStore store = shard.store();
+        if (store.isReady() && !store.getBibs().mightContain(challengeName, challengeYear, bibNumber)) {
+            return false;
         }
+        return shard.getRpc().call(ops -> ops.vaultQueryBy(ResultQueries.byBib(challengeName, challengeYear, bibNumber),
+                new PageSpecification(1, 1), ResultQueries.RECORDED_ORDER, ContractState.class))
+                .getTotalStatesAvailable() > 0
+                || store.isInSheet(challengeName, challengeYear, bibNumber);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+package com.everis.jpmorgancc.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical read requests share one answer, so that a burst of spectators asking for the same standings
+ * costs the node one query instead of hundreds.
+ *
+ * The first request for a key runs the read and serialises its entity once; requests for the same key arriving
+ * meanwhile wait for it and are sent the same bytes. Successful answers are also kept for
+ * -Djpmorgancc.api.readCacheMillis (0 by default, sharing only reads in flight); other answers are never kept. Writes
+ * call [invalidateAll], which starts a new epoch: reads started before it are neither joined by later requests nor
+ * kept, so a caller reads its own submissions back even while an older read of the same key is still running.
+ */
+class ReadCoalescer {
+    static final long TTL_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("jpmorgancc.api.readCacheMillis", 0));
+    private static final int MAX_KEPT = 10_000;
+
+    private final ObjectMapper mapper;
+    private final long ttlNanos;
+    /** Keyed by epoch and read key. */
+    private final ConcurrentMap<String, CompletableFuture<Answer>> answers = new ConcurrentHashMap<>();
+    private final AtomicLong epoch = new AtomicLong();
+
+    ReadCoalescer(ObjectMapper mapper) {
+        this(mapper, TTL_NANOS);
+    }
+
+    ReadCoalescer(ObjectMapper mapper, long ttlNanos) {
+        this.mapper = mapper;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /**
+     * @return the answer to the read [key], from [read] if no answer is in flight or kept.
+     */
+    Response read(String key, Supplier<Response> read) {
+        while (true) {
+            final long started = epoch.get();
+            final String epochKey = started + "/" + key;
+            final CompletableFuture<Answer> existing = answers.get(epochKey);
+            if (existing != null) {
+                if (!existing.isDone()) {
+                    return await(existing).toResponse();
+                }
+                final Answer answer = existing.isCompletedExceptionally() ? null : existing.join();
+                if (answer != null && answer.isFresh()) {
+                    return answer.toResponse();
+                }
+                answers.remove(epochKey, existing);
+                continue;
+            }
+
+            final CompletableFuture<Answer> mine = new CompletableFuture<>();
+            if (answers.putIfAbsent(epochKey, mine) != null) {
+                continue;
+            }
+            try {
+                final Answer answer = serialise(read.get());
+                mine.complete(answer);
+                // An answer that may predate a write is still sent to its waiters, but never to later requests.
+                if (!answer.isFresh() || epoch.get() != started) {
+                    answers.remove(epochKey, mine);
+                }
+                evictExpired();
+                return answer.toResponse();
+            } catch (RuntimeException ex) {
+                mine.completeExceptionally(ex);
+                answers.remove(epochKey, mine);
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Starts a new epoch and drops every kept answer. Reads in flight still complete for their waiters, but later
+     * requests start reads of their own.
+     */
+    void invalidateAll() {
+        epoch.incrementAndGet();
+        answers.values().removeIf(CompletableFuture::isDone);
+    }
+
+    private Answer serialise(Response response) {
+        final Object entity = response.getEntity();
+        final byte[] body;
+        final MediaType type;
+        if (entity == null) {
+            body = null;
+            type = null;
+        } else if (entity instanceof String) {
+            body = ((String) entity).getBytes(StandardCharsets.UTF_8);
+            type = MediaType.TEXT_PLAIN_TYPE;
+        } else {
+            try {
+                body = mapper.writeValueAsBytes(entity);
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Could not serialise the answer", ex);
+            }
+            type = MediaType.APPLICATION_JSON_TYPE;
+        }
+        final boolean keep = response.getStatus() == Response.Status.OK.getStatusCode() && ttlNanos > 0;
+        return new Answer(response.getStatus(), body, type, keep ? System.nanoTime() + ttlNanos : 0);
+    }
+
+    private void evictExpired() {
+        if (answers.size() > MAX_KEPT) {
+            answers.values().removeIf(answer -> answer.isDone() && !answer.isCompletedExceptionally()
+                    && !answer.join().isFresh());
+        }
+    }
+
+    private static Answer await(CompletableFuture<Answer> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private static class Answer {
+        private final int status;
+        private final byte[] body;
+        private final MediaType type;
+        private final long expiresAt;
+
+        private Answer(int status, byte[] body, MediaType type, long expiresAt) {
+            this.status = status;
+            this.body = body;
+            this.type = type;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isFresh() {
+            return expiresAt != 0 && System.nanoTime() - expiresAt < 0;
+        }
+
+        private Response toResponse() {
+            return body == null ? Response.status(status).build() : Response.status(status).entity(body).type(type).build();
+        }
+    }
+}
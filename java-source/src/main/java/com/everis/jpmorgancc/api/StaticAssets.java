@@ -0,0 +1,116 @@
+package com.everis.jpmorgancc.api;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPOutputStream;
+
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.Status.NOT_MODIFIED;
+
+/**
+ * Serves the web front end under /api/web/example, like Jetty serves it under /web/example, but with each file
+ * gzip-compressed once at maximum compression and kept in memory, and with ETags and Cache-Control headers so that
+ * browsers revalidate instead of downloading again. Pages are always revalidated; scripts and stylesheets are cached
+ * for -Djpmorgancc.web.maxAgeSeconds.
+ */
+@Path("web/example")
+public class StaticAssets {
+    private static final String ROOT = "exampleWeb/";
+    private static final long MAX_AGE_SECONDS = Long.getLong("jpmorgancc.web.maxAgeSeconds", 3600);
+    private static final Map<String, String> MEDIA_TYPES = ImmutableMap.<String, String>builder()
+            .put("html", "text/html; charset=utf-8")
+            .put("js", "application/javascript; charset=utf-8")
+            .put("css", "text/css; charset=utf-8")
+            .put("json", "application/json; charset=utf-8")
+            .put("svg", "image/svg+xml")
+            .put("png", "image/png")
+            .put("ico", "image/x-icon")
+            .build();
+
+    private final ConcurrentMap<String, Asset> assets = new ConcurrentHashMap<>();
+
+    @GET
+    @Path("{path: .*}")
+    public Response get(@PathParam("path") String path, @Context HttpHeaders headers) {
+        final String name = path.isEmpty() || path.endsWith("/") ? path + "index.html" : path;
+        if (name.contains("..")) {
+            return Response.status(NOT_FOUND).build();
+        }
+        final Asset asset = assets.computeIfAbsent(name, StaticAssets::load);
+        if (asset == null) {
+            return Response.status(NOT_FOUND).build();
+        }
+
+        final boolean gzip = asset.gzipped != null
+                && "gzip".equals(CompressionInterceptor.negotiate(headers.getHeaderString(HttpHeaders.ACCEPT_ENCODING)));
+        final String etag = gzip ? asset.etag + "-gz\"" : asset.etag + "\"";
+        final Response.ResponseBuilder response;
+        if (etag.equals(headers.getHeaderString(HttpHeaders.IF_NONE_MATCH))) {
+            response = Response.status(NOT_MODIFIED);
+        } else {
+            response = Response.ok(gzip ? asset.gzipped : asset.raw, asset.mediaType);
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+        }
+        return response
+                .header(HttpHeaders.ETAG, etag)
+                .header(HttpHeaders.CACHE_CONTROL, asset.mediaType.startsWith("text/html") ? "no-cache" : "public, max-age=" + MAX_AGE_SECONDS)
+                .build();
+    }
+
+    /**
+     * @return the asset [name], compressed if that makes it smaller, or null if there is no such asset.
+     */
+    private static Asset load(String name) {
+        try (InputStream in = StaticAssets.class.getClassLoader().getResourceAsStream(ROOT + name)) {
+            if (in == null) {
+                return null;
+            }
+            final byte[] raw = ByteStreams.toByteArray(in);
+            byte[] gzipped = null;
+            if (raw.length >= CompressionInterceptor.MIN_BYTES) {
+                final ByteArrayOutputStream buffer = new ByteArrayOutputStream(raw.length / 2);
+                try (GZIPOutputStream out = new GZIPOutputStream(buffer) {{ def.setLevel(9); }}) {
+                    out.write(raw);
+                }
+                gzipped = buffer.size() < raw.length ? buffer.toByteArray() : null;
+            }
+            final String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+            return new Asset(raw, gzipped, MEDIA_TYPES.getOrDefault(extension, "application/octet-stream"),
+                    "\"" + Hashing.sha256().hashBytes(raw).toString().substring(0, 16));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read web asset " + name, ex);
+        }
+    }
+
+    private static class Asset {
+        final byte[] raw;
+        final byte[] gzipped;
+        final String mediaType;
+        /** The opening quote and hash of the ETag, completed with a variant suffix and closing quote. */
+        final String etag;
+
+        Asset(byte[] raw, byte[] gzipped, String mediaType, String etag) {
+            this.raw = raw;
+            this.gzipped = gzipped;
+            this.mediaType = mediaType;
+            this.etag = etag;
+        }
+    }
+}
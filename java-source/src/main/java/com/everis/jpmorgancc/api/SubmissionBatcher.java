@@ -0,0 +1,319 @@
+package com.everis.jpmorgancc.api;
+
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.flow.ResultBatchFlow;
+import com.everis.jpmorgancc.flow.TimingLog;
+import com.everis.jpmorgancc.shard.Shard;
+import com.google.common.base.Supplier;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.FlowException;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces single result submissions into shared transactions, so that concurrent callers of the one-result API share
+ * the signing, notarisation and recording of one [ResultBatchFlow].
+ *
+ * Submissions are buffered per shard and counterparty. A buffer is flushed when it holds -Djpmorgancc.batch.maxSize
+ * results, or -Djpmorgancc.batch.maxDelayMillis after its first one arrived, whichever comes first; each caller's
+ * future then completes with the reference of its own output. Flushes run on -Djpmorgancc.batch.flushThreads threads
+ * of their own, so a slow flow start does not hold back the timers of other buffers. A batch rejected by a flow or the
+ * contract is retried one result per transaction, so that one rejected result does not fail the others; any other
+ * failure, such as a lost connection, fails every caller. A bib already waiting in a buffer is refused, since the
+ * contract rejects a transaction issuing a bib twice. Once the batcher is stopped, every result it has not yet
+ * handed to a flow fails.
+ *
+ * Each submission logs a [TimingLog] line with its correlation id and the id of the batch it joined.
+ */
+class SubmissionBatcher {
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionBatcher.class);
+    static final int MAX_SIZE = Integer.getInteger("jpmorgancc.batch.maxSize", 50);
+    static final long MAX_DELAY_MILLIS = Long.getLong("jpmorgancc.batch.maxDelayMillis", 25);
+    private static final int FLUSH_THREADS = Integer.getInteger("jpmorgancc.batch.flushThreads", 4);
+
+    private final Supplier<CordaX500Name> node;
+    private final int maxSize;
+    private final long maxDelayMillis;
+    private final Map<Key, Batch> pending = new HashMap<>();
+    private boolean stopped = false;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "submission-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService flushes = Executors.newFixedThreadPool(FLUSH_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "submission-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param node the name of the webserver's node, for the [TimingLog] lines.
+     */
+    SubmissionBatcher(Supplier<CordaX500Name> node) {
+        this(node, MAX_SIZE, MAX_DELAY_MILLIS);
+    }
+
+    SubmissionBatcher(Supplier<CordaX500Name> node, int maxSize, long maxDelayMillis) {
+        this.node = node;
+        this.maxSize = maxSize;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * @return whether submissions should go through the batcher at all.
+     */
+    static boolean isEnabled() {
+        return MAX_SIZE > 1;
+    }
+
+    /**
+     * Queues [row] for recording by [shard] with [otherParty].
+     *
+     * @param notary the shard's notary, or null for the first notary on the network.
+     * @return the future reference of the recorded result, failed with a [DuplicateSubmissionException] if its bib is
+     * already queued.
+     */
+    CompletableFuture<StateRef> submit(Shard shard, Party otherParty, Party notary, ResultRow row, String correlationId) {
+        final Key key = new Key(shard, otherParty, notary);
+        final Submission submission = new Submission(row, correlationId);
+        final Batch full;
+        synchronized (this) {
+            if (stopped) {
+                submission.future.completeExceptionally(stoppedException());
+                return submission.future;
+            }
+            Batch batch = pending.get(key);
+            if (batch != null && batch.holds(row)) {
+                submission.future.completeExceptionally(new DuplicateSubmissionException(row));
+                return submission.future;
+            }
+            if (batch == null) {
+                batch = new Batch();
+                pending.put(key, batch);
+                final Batch scheduled = batch;
+                batch.timeout = timer.schedule(() -> flushes.execute(() -> flushIfPending(key, scheduled)),
+                        maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+            batch.submissions.add(submission);
+            if (batch.submissions.size() < maxSize) {
+                return submission.future;
+            }
+            pending.remove(key);
+            batch.timeout.cancel(false);
+            full = batch;
+        }
+        flush(key, full.submissions);
+        return submission.future;
+    }
+
+    /**
+     * Stops the timers and flush threads. Results still buffered or waiting for a flush thread fail with an
+     * [IllegalStateException]; those whose flow has started complete when it does.
+     */
+    void stop() {
+        final List<Batch> buffered;
+        synchronized (this) {
+            stopped = true;
+            buffered = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        timer.shutdownNow();
+        final List<Runnable> unflushed = flushes.shutdownNow();
+        for (Batch batch : buffered) {
+            failAll(batch.submissions, stoppedException());
+        }
+        for (Runnable task : unflushed) {
+            if (task instanceof Flush) {
+                failAll(((Flush) task).submissions, stoppedException());
+            }
+        }
+    }
+
+    /**
+     * Starts the flow recording [rows] on [shard].
+     *
+     * @return the future id of the recording transaction.
+     */
+    CompletableFuture<SecureHash> start(Shard shard, Party otherParty, Party notary, List<ResultRow> rows,
+                                        String batchId) {
+        return shard.getRpc()
+                .start(ops -> notary == null
+                        ? ops.startFlowDynamic(ResultBatchFlow.Initiator.class, rows, otherParty, batchId)
+                        : ops.startFlowDynamic(ResultBatchFlow.Initiator.class, rows, otherParty, notary, batchId))
+                .getReturnValue()
+                .toCompletableFuture()
+                .thenApply(SignedTransaction::getId);
+    }
+
+    private void flush(Key key, List<Submission> submissions) {
+        try {
+            flushes.execute(new Flush(key, submissions));
+        } catch (RejectedExecutionException ex) {
+            failAll(submissions, stoppedException());
+        }
+    }
+
+    private void flushIfPending(Key key, Batch batch) {
+        synchronized (this) {
+            if (pending.get(key) != batch) {
+                return;
+            }
+            pending.remove(key);
+        }
+        record(key, batch.submissions);
+    }
+
+    private void record(Key key, List<Submission> submissions) {
+        final List<ResultRow> rows = new ArrayList<>(submissions.size());
+        for (Submission submission : submissions) {
+            rows.add(submission.row);
+        }
+        final String batchId = TimingLog.correlationId(null);
+        final CompletableFuture<SecureHash> recorded;
+        try {
+            final String nodeName = node.get().toString();
+            for (Submission submission : submissions) {
+                TimingLog.batched(submission.correlationId, batchId, nodeName, "Batcher", "batched", submission.submitted);
+            }
+            recorded = start(key.shard, key.otherParty, key.notary, rows, batchId);
+        } catch (RuntimeException ex) {
+            fail(key, submissions, ex);
+            return;
+        }
+        recorded.whenComplete((txId, ex) -> {
+            if (ex != null) {
+                fail(key, submissions, ex);
+                return;
+            }
+            for (int i = 0; i < submissions.size(); i++) {
+                submissions.get(i).future.complete(new StateRef(txId, i));
+            }
+        });
+    }
+
+    private void fail(Key key, List<Submission> submissions, Throwable ex) {
+        final Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        // Only a rejection may be down to one of the results; retrying anything else one by one would only repeat it.
+        if (submissions.size() == 1 || !(cause instanceof FlowException)) {
+            failAll(submissions, cause);
+            return;
+        }
+        logger.warn("Batch of {} results was rejected, recording them one by one", submissions.size(), cause);
+        for (Submission submission : submissions) {
+            final List<Submission> single = new ArrayList<>(1);
+            single.add(submission);
+            flush(key, single);
+        }
+    }
+
+    private static void failAll(List<Submission> submissions, Throwable cause) {
+        for (Submission submission : submissions) {
+            submission.future.completeExceptionally(cause);
+        }
+    }
+
+    private static IllegalStateException stoppedException() {
+        return new IllegalStateException("The submission batcher was stopped before the result was recorded.");
+    }
+
+    /**
+     * Records [submissions] on a flush thread, kept as a class so that [stop] can fail those it never ran.
+     */
+    private class Flush implements Runnable {
+        private final Key key;
+        private final List<Submission> submissions;
+
+        private Flush(Key key, List<Submission> submissions) {
+            this.key = key;
+            this.submissions = submissions;
+        }
+
+        @Override
+        public void run() {
+            record(key, submissions);
+        }
+    }
+
+    /**
+     * Refuses a bib already waiting to be recorded.
+     */
+    static class DuplicateSubmissionException extends IllegalStateException {
+        DuplicateSubmissionException(ResultRow row) {
+            super(String.format("Bib %d is already being recorded for %s %d.", row.getBibNumber(), row.getChallengeName(),
+                    row.getChallengeYear()));
+        }
+    }
+
+    private static class Submission {
+        private final ResultRow row;
+        private final String correlationId;
+        private final long submitted = System.currentTimeMillis();
+        private final CompletableFuture<StateRef> future = new CompletableFuture<>();
+
+        private Submission(ResultRow row, String correlationId) {
+            this.row = row;
+            this.correlationId = correlationId;
+        }
+    }
+
+    private static class Batch {
+        private final List<Submission> submissions = new ArrayList<>();
+        private ScheduledFuture<?> timeout;
+
+        private boolean holds(ResultRow row) {
+            for (Submission submission : submissions) {
+                final ResultRow queued = submission.row;
+                if (queued.getBibNumber() == row.getBibNumber() && queued.getChallengeYear() == row.getChallengeYear()
+                        && queued.getChallengeName().equals(row.getChallengeName())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Key {
+        private final Shard shard;
+        private final Party otherParty;
+        private final Party notary;
+
+        private Key(Shard shard, Party otherParty, Party notary) {
+            this.shard = shard;
+            this.otherParty = otherParty;
+            this.notary = notary;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            return shard == key.shard && otherParty.equals(key.otherParty) && Objects.equals(notary, key.notary);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(shard), otherParty, notary);
+        }
+    }
+}
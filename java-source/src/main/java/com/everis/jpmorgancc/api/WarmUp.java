@@ -0,0 +1,161 @@
+package com.everis.jpmorgancc.api;
+
+import com.everis.jpmorgancc.shard.Shard;
+import com.everis.jpmorgancc.shard.ShardRouter;
+import com.everis.jpmorgancc.state.RaceResult;
+import com.everis.jpmorgancc.state.RunnerKey;
+import com.everis.jpmorgancc.store.ResultQueries;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.corda.client.jackson.JacksonSupport;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.node.services.vault.PageSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exercises the API on a background thread before [HealthMonitor] lets it report ready, so that the first real
+ * requests do not pay for class loading, interpreted code, cold Jackson serializers, uncached identities or the
+ * node's first query plans.
+ *
+ * The warm-up resolves this node's and every shard's identities, waits for the result stores, then calls the read
+ * endpoints -Djpmorgancc.warmup.iterations times with a challenge, year and runner taken from the vault, serialising
+ * each answer with a mapper configured like the webserver's. Nothing is written to the ledger. The time spent in each
+ * phase is logged and reported by the health endpoint.
+ */
+class WarmUp {
+    private static final Logger logger = LoggerFactory.getLogger(WarmUp.class);
+    private static final int ITERATIONS = Integer.getInteger("jpmorgancc.warmup.iterations", 10);
+    private static final Duration STORE_WAIT = Duration.ofSeconds(Long.getLong("jpmorgancc.warmup.storeWaitSeconds", 300));
+
+    private final JPMorganApi api;
+    private final CordaRPCOps rpcOps;
+    private final ShardRouter shards;
+    private final Map<String, Long> phaseMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile long totalMillis = -1;
+
+    WarmUp(JPMorganApi api, CordaRPCOps rpcOps, ShardRouter shards) {
+        this.api = api;
+        this.rpcOps = rpcOps;
+        this.shards = shards;
+    }
+
+    void start() {
+        final Thread thread = new Thread(this::run, "api-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    boolean isDone() { return totalMillis >= 0; }
+
+    /**
+     * @return the duration of the whole warm-up, or -1 while it runs.
+     */
+    long getTotalMillis() { return totalMillis; }
+
+    Map<String, Long> getPhaseMillis() {
+        synchronized (phaseMillis) {
+            return new LinkedHashMap<>(phaseMillis);
+        }
+    }
+
+    private void run() {
+        final long started = System.nanoTime();
+        try {
+            phase("identities", this::resolveIdentities);
+            phase("stores", this::awaitStores);
+            final ObjectMapper mapper = JacksonSupport.createDefaultMapper(rpcOps);
+            final StateAndRef<ContractState> sample = sampleResult();
+            for (int i = 0; i < ITERATIONS; i++) {
+                phase("requests", () -> exercise(mapper, sample));
+            }
+        } catch (Exception ex) {
+            // A failed warm-up only leaves the server colder; the health checks decide whether it can take traffic.
+            logger.warn("Warm-up failed, continuing without it", ex);
+        } finally {
+            totalMillis = (System.nanoTime() - started) / 1_000_000;
+            logger.info("Warm-up took {} ms: {}", totalMillis, getPhaseMillis());
+        }
+    }
+
+    private void resolveIdentities() {
+        api.whoami();
+        api.getPeers();
+        for (Shard shard : shards.getShards()) {
+            shard.getRpc().call(CordaRPCOps::notaryIdentities);
+            if (shard.getCounterparty() != null) {
+                shard.getRpc().call(ops -> ops.wellKnownPartyFromX500Name(shard.getCounterparty()));
+            }
+            if (shard.getNotary() != null) {
+                shard.getRpc().call(ops -> ops.wellKnownPartyFromX500Name(shard.getNotary()));
+            }
+        }
+    }
+
+    private void awaitStores() throws InterruptedException {
+        final long deadline = System.nanoTime() + STORE_WAIT.toNanos();
+        while (!shards.getShards().stream().allMatch(shard -> shard.store().isReady())) {
+            if (System.nanoTime() > deadline) {
+                logger.warn("Result stores still loading after {}, warming up without them", STORE_WAIT);
+                return;
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private StateAndRef<ContractState> sampleResult() {
+        final List<StateAndRef<ContractState>> states = rpcOps.vaultQueryBy(ResultQueries.allResults(),
+                new PageSpecification(1, 1), ResultQueries.RECORDED_ORDER, ContractState.class).getStates();
+        return states.isEmpty() ? null : states.get(0);
+    }
+
+    private void exercise(ObjectMapper mapper, StateAndRef<ContractState> sample) throws Exception {
+        serialise(mapper, api.getHealth());
+        serialise(mapper, api.getResultChanges(null, 100));
+        if (sample == null) {
+            return;
+        }
+        serialise(mapper, sample);
+
+        final ContractState data = sample.getState().getData();
+        if (!(data instanceof RaceResult)) {
+            return;
+        }
+        final RaceResult result = (RaceResult) data;
+        final String challengeName = result.challengeName();
+        final int challengeYear = result.challengeYear();
+        final double time = result.time();
+        final String runnerKey = RunnerKey.of(result.firstName(), result.lastName());
+
+        serialise(mapper, api.getDistribution(challengeName, challengeYear, null, 60));
+        serialise(mapper, api.getRank(challengeName, challengeYear, null, time));
+        serialise(mapper, api.getYears(challengeName, null));
+        serialise(mapper, api.getStandings(challengeName, challengeYear, null, 0, 100));
+        serialise(mapper, api.getRunnerHistory(runnerKey));
+    }
+
+    private static void serialise(ObjectMapper mapper, Object value) throws Exception {
+        mapper.writeValueAsBytes(value instanceof Response ? ((Response) value).getEntity() : value);
+    }
+
+    private void phase(String name, Step step) throws Exception {
+        final long started = System.nanoTime();
+        try {
+            step.run();
+        } finally {
+            phaseMillis.merge(name, (System.nanoTime() - started) / 1_000_000, Long::sum);
+        }
+    }
+
+    private interface Step {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,36 @@
+package com.everis.jpmorgancc.cli;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The --name=value options shared by the command-line tools.
+ */
+public class Options {
+    private Options() { }
+
+    /**
+     * @return the options in [args] from index [from] on, by name in the order first given; a repeated option keeps
+     * its last value.
+     * @throws IllegalArgumentException if an argument is not of the form --name=value.
+     */
+    public static Map<String, String> parse(String[] args, int from) {
+        final Map<String, String> options = new LinkedHashMap<>();
+        for (int i = from; i < args.length; i++) {
+            final String arg = args[i];
+            final int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            options.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    /**
+     * @return the error for an option [name] the tool does not know.
+     */
+    public static IllegalArgumentException unknown(String name) {
+        return new IllegalArgumentException("Unknown option --" + name);
+    }
+}
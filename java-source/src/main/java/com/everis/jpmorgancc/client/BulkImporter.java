@@ -0,0 +1,481 @@
+package com.everis.jpmorgancc.client;
+
+import com.everis.jpmorgancc.cli.Options;
+import com.everis.jpmorgancc.csv.ResultCsv;
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.flow.JPMorganFlow;
+import com.everis.jpmorgancc.state.RaceResult;
+import com.everis.jpmorgancc.store.BibFilter;
+import com.everis.jpmorgancc.store.ResultQueries;
+import net.corda.client.rpc.RPCException;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.utilities.NetworkHostAndPort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Records every row of an official result file on the ledger, running up to [parallelism] [JPMorganFlow.Initiator]s
+ * at a time.
+ *
+ * Progress is kept in a checkpoint file next to the results: the byte offset and number of the first row not yet
+ * confirmed, the rows confirmed beyond it, and how far rows may have been submitted. A restarted import seeks straight
+ * to that offset, skips the rows already confirmed and, for the rows that may have been in flight when it stopped,
+ * checks the vault before submitting them again. Rows the node rejects are written to a ".rejected" file. No row is
+ * submitted more than [maxAhead] rows past the first unconfirmed one, which bounds the confirmations the checkpoint
+ * holds, and so the cost of saving it.
+ *
+ * If the node is lost, the import stops submitting, waits for the flows in flight and saves its checkpoint, leaving the
+ * rows it could not confirm to be re-checked by the next run.
+ *
+ * Rows whose bib is already recorded for their challenge year are skipped as well. The vault is only queried for
+ * the bibs a [BibFilter] reports as possible hits; the filter is filled with a year's bibs, a page at a time, when
+ * the first row of that year is read.
+ *
+ * Usage: BulkImporter <node address> <results.csv> --counterparty=<X500 name> [--name=value ...]
+ */
+public class BulkImporter {
+    private static final Logger logger = LoggerFactory.getLogger(BulkImporter.class);
+    private static final int BIB_PAGE_SIZE = 5000;
+
+    private final Settings settings;
+    private final RpcConnectionPool pool;
+    private final Checkpoint checkpoint;
+    private final Semaphore slots;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final BibFilter bibs = new BibFilter();
+    private final Set<String> loadedYears = new HashSet<>();
+    private volatile Throwable lost;
+    private Writer rejects;
+
+    public BulkImporter(Settings settings, RpcConnectionPool pool) throws IOException {
+        this.settings = settings;
+        this.pool = pool;
+        this.checkpoint = Checkpoint.load(settings.checkpoint, settings.parallelism * 4);
+        this.slots = new Semaphore(settings.parallelism);
+    }
+
+    public void run() throws IOException, InterruptedException {
+        final Party counterparty = pool.call(proxy -> proxy.wellKnownPartyFromX500Name(settings.counterparty));
+        if (counterparty == null) {
+            throw new IllegalArgumentException("Party named " + settings.counterparty + " cannot be found.");
+        }
+        if (checkpoint.getNextRow() > 0) {
+            logger.info("Resuming {} at row {} (byte {})", settings.results, checkpoint.getNextRow(), checkpoint.getNextOffset());
+        }
+
+        final long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(settings.results, StandardOpenOption.READ);
+             Writer rejectsWriter = Files.newBufferedWriter(settings.rejects, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            rejects = rejectsWriter;
+            channel.position(checkpoint.getNextOffset());
+            final LineReader lines = new LineReader(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16),
+                    checkpoint.getNextOffset());
+            long row = checkpoint.getNextRow();
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (lines.getLineStart() == 0 && ResultCsv.isHeader(line)) {
+                    checkpoint.skipHeader(lines.getOffset());
+                    continue;
+                }
+                final long rowNumber = row++;
+                if (line.isEmpty() || checkpoint.isConfirmed(rowNumber)) {
+                    checkpoint.confirm(rowNumber, lines.getOffset());
+                    continue;
+                }
+                if (!checkpoint.awaitWithin(rowNumber, settings.maxAhead, () -> lost != null)) {
+                    break;
+                }
+                slots.acquire();
+                if (lost != null) {
+                    slots.release();
+                    break;
+                }
+                submit(rowNumber, lines.getOffset(), line, counterparty);
+            }
+            // Wait for the last flows.
+            slots.acquire(settings.parallelism);
+            slots.release(settings.parallelism);
+        } finally {
+            checkpoint.save();
+        }
+        if (lost != null) {
+            throw new IOException("Lost the node while importing " + settings.results + " at row "
+                    + checkpoint.getNextRow() + "; run the import again to resume", lost);
+        }
+
+        final double seconds = Duration.ofNanos(System.nanoTime() - started).toMillis() / 1000.0;
+        logger.info("Imported {}: {} submitted, {} already on ledger, {} rejected in {} s ({} rows/s)",
+                settings.results, submitted.sum(), skipped.sum(), rejected.sum(), seconds,
+                String.format("%.1f", submitted.sum() / Math.max(seconds, 0.001)));
+    }
+
+    private void submit(long rowNumber, long endOffset, String line, Party counterparty) {
+        final ResultRow row;
+        try {
+            row = ResultCsv.parse(line);
+        } catch (IllegalArgumentException ex) {
+            reject(rowNumber, endOffset, line, ex);
+            return;
+        }
+
+        try {
+            // A row that may have been submitted before a crash, or whose bib may be taken, is only submitted if it is
+            // not on the ledger.
+            loadBibs(row.getChallengeName(), row.getChallengeYear());
+            if ((checkpoint.maybeSubmitted(rowNumber) || bibs.mightContain(row.getChallengeName(), row.getChallengeYear(), row.getBibNumber()))
+                    && isRecorded(row)) {
+                skipped.increment();
+                confirm(rowNumber, endOffset);
+                return;
+            }
+            bibs.put(row.getChallengeName(), row.getChallengeYear(), row.getBibNumber());
+            checkpoint.beforeSubmit(rowNumber);
+            pool.start(proxy -> proxy.startFlowDynamic(JPMorganFlow.Initiator.class,
+                    row.getChallengeName(), row.getChallengeYear(), row.getPlaceCity(), row.getPlaceGender(),
+                    row.getBibNumber(), row.getFirstName(), row.getLastName(), row.getTime(), row.getGender(),
+                    counterparty))
+                    .getReturnValue()
+                    .toCompletableFuture()
+                    .whenComplete((signedTx, error) -> {
+                        if (error == null) {
+                            submitted.increment();
+                            confirm(rowNumber, endOffset);
+                        } else if (isConnectionFailure(error)) {
+                            // The flow may or may not have run: leave the row unconfirmed so a restart re-checks it.
+                            stop(rowNumber, error);
+                        } else {
+                            reject(rowNumber, endOffset, line, error);
+                        }
+                    });
+        } catch (RuntimeException ex) {
+            stop(rowNumber, ex);
+        }
+    }
+
+    /**
+     * Stops the import after [rowNumber] could not be submitted or confirmed, leaving it unconfirmed.
+     */
+    private void stop(long rowNumber, Throwable error) {
+        if (lost == null) {
+            lost = error;
+            logger.error("Could not import row {}; stopping after the flows in flight", rowNumber, error);
+        }
+        checkpoint.wakeUp();
+        slots.release();
+    }
+
+    private void loadBibs(String challengeName, int challengeYear) {
+        if (!loadedYears.add(challengeName + " " + challengeYear)) {
+            return;
+        }
+        int loaded = 0;
+        for (int pageNumber = 1; ; pageNumber++) {
+            final int page = pageNumber;
+            final List<StateAndRef<ContractState>> states = pool.call(proxy -> proxy.vaultQueryBy(
+                    ResultQueries.byChallenge(challengeName, challengeYear), new PageSpecification(page, BIB_PAGE_SIZE),
+                    ResultQueries.RECORDED_ORDER, ContractState.class)).getStates();
+            for (StateAndRef<ContractState> state : states) {
+                final ContractState result = state.getState().getData();
+                if (result instanceof RaceResult) {
+                    bibs.put(challengeName, challengeYear, ((RaceResult) result).bibNumber());
+                }
+            }
+            loaded += states.size();
+            if (states.size() < BIB_PAGE_SIZE) {
+                break;
+            }
+        }
+        logger.info("Loaded {} recorded bibs of {} {}", loaded, challengeName, challengeYear);
+    }
+
+    private boolean isRecorded(ResultRow row) {
+        return pool.call(proxy -> proxy.vaultQueryBy(
+                ResultQueries.byBib(row.getChallengeName(), row.getChallengeYear(), row.getBibNumber()),
+                new PageSpecification(1, 1), ResultQueries.RECORDED_ORDER, ContractState.class))
+                .getTotalStatesAvailable() > 0;
+    }
+
+    private void reject(long rowNumber, long endOffset, String line, Throwable error) {
+        rejected.increment();
+        synchronized (this) {
+            try {
+                rejects.write(rowNumber + "\t" + line + "\t" + error.getMessage() + System.lineSeparator());
+                rejects.flush();
+            } catch (IOException ex) {
+                logger.error("Could not record rejected row {}", rowNumber, ex);
+            }
+        }
+        confirm(rowNumber, endOffset);
+    }
+
+    private void confirm(long rowNumber, long endOffset) {
+        checkpoint.confirm(rowNumber, endOffset);
+        slots.release();
+    }
+
+    private static boolean isConnectionFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof RPCException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: BulkImporter <node address> <results.csv> --counterparty=<X500 name> [--name=value ...]");
+        }
+        final Settings settings = Settings.parse(NetworkHostAndPort.parse(args[0]), new File(args[1]).toPath(), args);
+        try (RpcConnectionPool pool = RpcConnectionPool.connect(settings.nodeAddress, settings.username, settings.password, settings.connections)) {
+            new BulkImporter(settings, pool).run();
+        }
+    }
+
+    /**
+     * The import position, persisted as a properties file.
+     *
+     * "nextRow"/"nextOffset" locate the first unconfirmed row; every row before it is confirmed. "confirmed" lists the
+     * rows confirmed beyond it. "submitLimit" bounds the rows that may have been submitted: it is raised, and saved, a
+     * [window] of rows ahead of the submissions.
+     */
+    static class Checkpoint {
+        private final Path file;
+        private final int window;
+        private long nextRow;
+        private long nextOffset;
+        private long submitLimit;
+        private final long resumedSubmitLimit;
+        private final TreeMap<Long, Long> confirmedAhead = new TreeMap<>();
+
+        private Checkpoint(Path file, int window, long nextRow, long nextOffset, long submitLimit) {
+            this.file = file;
+            this.window = window;
+            this.nextRow = nextRow;
+            this.nextOffset = nextOffset;
+            this.submitLimit = submitLimit;
+            this.resumedSubmitLimit = submitLimit;
+        }
+
+        static Checkpoint load(Path file, int window) throws IOException {
+            if (!Files.exists(file)) {
+                return new Checkpoint(file, window, 0, 0, 0);
+            }
+            final Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            final Checkpoint checkpoint = new Checkpoint(file, window,
+                    Long.parseLong(properties.getProperty("nextRow")),
+                    Long.parseLong(properties.getProperty("nextOffset")),
+                    Long.parseLong(properties.getProperty("submitLimit")));
+            final String confirmed = properties.getProperty("confirmed", "");
+            for (String entry : confirmed.split(",")) {
+                if (!entry.isEmpty()) {
+                    final String[] rowAndOffset = entry.split(":");
+                    checkpoint.confirmedAhead.put(Long.parseLong(rowAndOffset[0]), Long.parseLong(rowAndOffset[1]));
+                }
+            }
+            return checkpoint;
+        }
+
+        synchronized long getNextRow() { return nextRow; }
+        synchronized long getNextOffset() { return nextOffset; }
+
+        synchronized boolean isConfirmed(long row) {
+            return row < nextRow || confirmedAhead.containsKey(row);
+        }
+
+        /**
+         * @return true if [row] may have been submitted by an earlier run that did not see it confirmed.
+         */
+        boolean maybeSubmitted(long row) {
+            return row < resumedSubmitLimit;
+        }
+
+        synchronized void skipHeader(long offset) {
+            if (nextRow == 0) {
+                nextOffset = offset;
+            }
+        }
+
+        synchronized void beforeSubmit(long row) {
+            if (row >= submitLimit) {
+                submitLimit = row + window;
+                save();
+            }
+        }
+
+        synchronized void confirm(long row, long endOffset) {
+            confirmedAhead.put(row, endOffset);
+            final long before = nextRow;
+            while (!confirmedAhead.isEmpty() && confirmedAhead.firstKey() <= nextRow) {
+                final Map.Entry<Long, Long> first = confirmedAhead.pollFirstEntry();
+                if (first.getKey() == nextRow) {
+                    nextRow++;
+                    nextOffset = first.getValue();
+                }
+            }
+            if (nextRow != before) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Waits until [row] is fewer than [maxAhead] rows past the first unconfirmed one.
+         *
+         * @return false if [stopped] became true first.
+         */
+        synchronized boolean awaitWithin(long row, int maxAhead, BooleanSupplier stopped) throws InterruptedException {
+            while (row - nextRow >= maxAhead) {
+                if (stopped.getAsBoolean()) {
+                    return false;
+                }
+                wait();
+            }
+            return !stopped.getAsBoolean();
+        }
+
+        /**
+         * Wakes up [awaitWithin], e.g. once the import is stopping.
+         */
+        synchronized void wakeUp() {
+            notifyAll();
+        }
+
+        synchronized int confirmedAheadCount() { return confirmedAhead.size(); }
+
+        synchronized void save() {
+            final Properties properties = new Properties();
+            properties.setProperty("nextRow", Long.toString(nextRow));
+            properties.setProperty("nextOffset", Long.toString(nextOffset));
+            properties.setProperty("submitLimit", Long.toString(submitLimit));
+            properties.setProperty("confirmed", confirmedAhead.entrySet().stream()
+                    .map(entry -> entry.getKey() + ":" + entry.getValue())
+                    .collect(Collectors.joining(",")));
+            final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                try (BufferedWriter out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                    properties.store(out, "BulkImporter checkpoint");
+                }
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                logger.error("Could not save import checkpoint {}", file, ex);
+            }
+        }
+    }
+
+    /**
+     * Reads UTF-8 lines while keeping track of the byte offset just past each one.
+     */
+    static class LineReader {
+        private final InputStream in;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        private long offset;
+        private long lineStart;
+
+        LineReader(InputStream in, long offset) {
+            this.in = in;
+            this.offset = offset;
+        }
+
+        /**
+         * @return the next line without its terminator, or null at the end of the input.
+         */
+        String readLine() throws IOException {
+            line.reset();
+            lineStart = offset;
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b == '\n') {
+                    return toLine();
+                }
+                line.write(b);
+            }
+            return line.size() == 0 ? null : toLine();
+        }
+
+        private String toLine() {
+            final String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+            return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+        }
+
+        long getOffset() { return offset; }
+        long getLineStart() { return lineStart; }
+    }
+
+    static class Settings {
+        private NetworkHostAndPort nodeAddress;
+        private Path results;
+        private Path checkpoint;
+        private Path rejects;
+        private CordaX500Name counterparty;
+        private String username = "user1";
+        private String password = "test";
+        private int parallelism = 16;
+        private int connections = 4;
+        private int maxAhead = 0;
+
+        static Settings parse(NetworkHostAndPort nodeAddress, Path results, String[] args) {
+            final Settings settings = new Settings();
+            settings.nodeAddress = nodeAddress;
+            settings.results = results;
+            settings.checkpoint = results.resolveSibling(results.getFileName() + ".checkpoint");
+            settings.rejects = results.resolveSibling(results.getFileName() + ".rejected");
+            for (Map.Entry<String, String> option : Options.parse(args, 2).entrySet()) {
+                final String value = option.getValue();
+                switch (option.getKey()) {
+                    case "counterparty": settings.counterparty = CordaX500Name.parse(value); break;
+                    case "user": settings.username = value; break;
+                    case "password": settings.password = value; break;
+                    case "parallelism": settings.parallelism = Integer.parseInt(value); break;
+                    case "connections": settings.connections = Integer.parseInt(value); break;
+                    case "checkpoint": settings.checkpoint = new File(value).toPath(); break;
+                    case "maxAhead": settings.maxAhead = Integer.parseInt(value); break;
+                    default: throw Options.unknown(option.getKey());
+                }
+            }
+            if (settings.counterparty == null) {
+                throw new IllegalArgumentException("Option --counterparty is required.");
+            }
+            if (settings.maxAhead <= 0) {
+                settings.maxAhead = settings.parallelism * 64;
+            }
+            return settings;
+        }
+    }
+}
@@ -1,23 +1,25 @@
 package com.everis.jpmorgancc.client;
 
 import com.everis.jpmorgancc.state.JPMorganState;
-import net.corda.client.rpc.CordaRPCClient;
-import net.corda.client.rpc.CordaRPCClientConfiguration;
 import net.corda.core.contracts.StateAndRef;
-import net.corda.core.messaging.CordaRPCOps;
 import net.corda.core.messaging.DataFeed;
 import net.corda.core.node.services.Vault;
 import net.corda.core.utilities.NetworkHostAndPort;
 import org.apache.activemq.artemis.api.core.ActiveMQException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import rx.Observable;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 
 /**
  * Demonstration of using the CordaRPCClient to connect to a Corda Node and
  * steam some State data from the node.
+ *
+ * Started as "ExampleClientRPC <node address> load --counterparty=<X500 name> [options]" it instead runs the
+ * [LoadGenerator] against the node.
  */
 public class ExampleClientRPC {
     private static final Logger logger = LoggerFactory.getLogger(ExampleClientRPC.class);
@@ -26,24 +28,29 @@ public class ExampleClientRPC {
         logger.info("{}", state.getState().getData());
     }
 
-    public static void main(String[] args) throws ActiveMQException, InterruptedException, ExecutionException {
-        if (args.length != 1) {
-            throw new IllegalArgumentException("Usage: ExampleClientRPC <node address>");
+    public static void main(String[] args) throws ActiveMQException, InterruptedException, ExecutionException, IOException {
+        if (args.length == 0 || (args.length > 1 && !args[1].equals("load"))) {
+            throw new IllegalArgumentException("Usage: ExampleClientRPC <node address> [load --counterparty=<X500 name> [--name=value ...]]");
         }
 
         final NetworkHostAndPort nodeAddress = NetworkHostAndPort.parse(args[0]);
-        final CordaRPCClient client = new CordaRPCClient(nodeAddress, CordaRPCClientConfiguration.DEFAULT);
-
-        // Can be amended in the com.example.Main file.
-        final CordaRPCOps proxy = client.start("user1", "test").getProxy();
-
-        // Grab all existing and future JPM states in the vault.
-        final DataFeed<Vault.Page<JPMorganState>, Vault.Update<JPMorganState>> dataFeed = proxy.vaultTrack(JPMorganState.class);
-        final Vault.Page<JPMorganState> snapshot = dataFeed.getSnapshot();
-        final Observable<Vault.Update<JPMorganState>> updates = dataFeed.getUpdates();
-
-        // Log the 'placed' JPMs and listen for new ones.
-        snapshot.getStates().forEach(ExampleClientRPC::logState);
-        updates.toBlocking().subscribe(update -> update.getProduced().forEach(ExampleClientRPC::logState));
+        if (args.length > 1) {
+            LoadGenerator.main(nodeAddress, Arrays.copyOfRange(args, 2, args.length));
+            return;
+        }
+        final RpcConnectionPool pool = RpcConnectionPool.connect(nodeAddress, "user1", "test", 1);
+
+        // Grab all existing and future JPM states in the vault with one vaultTrack call, so that nothing recorded
+        // between the snapshot and the updates is missed. Log the 'placed' JPMs and listen for new ones. If the
+        // connection drops, the pool reconnects and tracks the vault again, logging its snapshot once more.
+        pool.track(proxy -> {
+                    final DataFeed<Vault.Page<JPMorganState>, Vault.Update<JPMorganState>> feed = proxy.vaultTrack(JPMorganState.class);
+                    feed.getSnapshot().getStates().forEach(ExampleClientRPC::logState);
+                    return feed.getUpdates();
+                },
+                (Vault.Update<JPMorganState> update) -> update.getProduced().forEach(ExampleClientRPC::logState),
+                () -> logger.info("Reconnected; the vault was logged again"));
+
+        new CountDownLatch(1).await();
     }
 }
@@ -0,0 +1,323 @@
+package com.everis.jpmorgancc.client;
+
+import com.everis.jpmorgancc.cli.Options;
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.dataset.RaceDatasetGenerator;
+import com.everis.jpmorgancc.flow.JPMorganFlow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.core.utilities.NetworkHostAndPort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives [JPMorganFlow.Initiator] against a node at a target rate and reports the start rate actually achieved, the
+ * sustained throughput, latency percentiles and error rate as JSON.
+ *
+ * The load is open-loop: flow i is scheduled to start at i / rate seconds, whether or not earlier flows have finished,
+ * and its latency is measured from that scheduled time. A slow node therefore shows up as latency and as an achieved
+ * rate below the target, instead of silently slowing the senders down. A number of client threads share the starts,
+ * through a [RpcConnectionPool] shared by all of them. Only flows scheduled in the measured period are counted, and
+ * they are given -Djpmorgancc.load.drainSeconds to finish after it. The results come from a [RaceDatasetGenerator],
+ * so runs with the same seed submit the same results.
+ */
+public class LoadGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final Duration DRAIN = Duration.ofSeconds(Long.getLong("jpmorgancc.load.drainSeconds", 120));
+
+    private final Settings settings;
+    private final Iterator<ResultRow> rows;
+    private final LongAdder started = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final LongAccumulator maxLag = new LongAccumulator(Math::max, 0);
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LatencyRecorder latencies = new LatencyRecorder();
+
+    public LoadGenerator(Settings settings) {
+        this.settings = settings;
+        this.rows = new RaceDatasetGenerator(settings.seed, settings.challengeName, settings.challengeYear,
+                settings.years, settings.fieldSize).iterator();
+    }
+
+    /**
+     * Runs the load for the warm-up period and then the measured period, and returns the report.
+     */
+    public Map<String, Object> run() throws InterruptedException {
+        try (RpcConnectionPool pool = RpcConnectionPool.connect(settings.nodeAddress, settings.username, settings.password, settings.connections)) {
+            return run(pool);
+        }
+    }
+
+    private Map<String, Object> run(RpcConnectionPool pool) throws InterruptedException {
+        final Party counterparty = pool.call(proxy -> proxy.wellKnownPartyFromX500Name(settings.counterparty));
+        if (counterparty == null) {
+            throw new IllegalArgumentException("Party named " + settings.counterparty + " cannot be found.");
+        }
+        final long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / settings.rate);
+        final long origin = System.nanoTime();
+        final long measureStart = origin + settings.warmUp.toNanos();
+        final long measureEnd = measureStart + settings.duration.toNanos();
+        final AtomicLong nextSlot = new AtomicLong();
+        final CountDownLatch finished = new CountDownLatch(settings.clients);
+        for (int i = 0; i < settings.clients; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    while (true) {
+                        final long scheduled = origin + nextSlot.getAndIncrement() * intervalNanos;
+                        final ResultRow row;
+                        if (scheduled - measureEnd >= 0 || (row = nextRow()) == null) {
+                            break;
+                        }
+                        sleepUntil(scheduled);
+                        submit(pool, counterparty, row, scheduled, measureStart, measureEnd);
+                    }
+                } catch (Exception ex) {
+                    logger.error("Load client stopped", ex);
+                } finally {
+                    finished.countDown();
+                }
+            }, "load-client-" + i);
+            thread.start();
+        }
+
+        logger.info("Warming up for {} s with {} clients at {} flows/s", settings.warmUp.getSeconds(), settings.clients, settings.rate);
+        sleepUntil(measureStart);
+        logger.info("Measuring for {} s", settings.duration.getSeconds());
+        finished.await();
+        final long drainDeadline = System.nanoTime() + DRAIN.toNanos();
+        while (pending.get() > 0 && System.nanoTime() - drainDeadline < 0) {
+            Thread.sleep(100);
+        }
+
+        return report(measureEnd - measureStart, pending.get());
+    }
+
+    /**
+     * @return the next result to submit, or null once the dataset is used up.
+     */
+    private ResultRow nextRow() {
+        synchronized (rows) {
+            if (rows.hasNext()) {
+                return rows.next();
+            }
+        }
+        logger.warn("The dataset is used up; raise --years or --fieldSize for longer runs");
+        return null;
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        final long remaining = nanoTime - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    /**
+     * Starts the flow for [row] without waiting for it. It is counted if it was [scheduled] in the measured period,
+     * and its start counts towards the achieved rate if it actually happened in it.
+     */
+    private void submit(RpcConnectionPool pool, Party counterparty, ResultRow row, long scheduled, long measureStart,
+                        long measureEnd) {
+        final long now = System.nanoTime();
+        final boolean counted = scheduled - measureStart >= 0;
+        if (counted) {
+            maxLag.accumulate(now - scheduled);
+        }
+        if (now - measureStart >= 0 && now - measureEnd < 0) {
+            started.increment();
+        }
+        final CompletableFuture<?> flow;
+        try {
+            flow = pool.start(proxy -> proxy.startFlowDynamic(JPMorganFlow.Initiator.class,
+                    row.getChallengeName(), row.getChallengeYear(), row.getPlaceCity(), row.getPlaceGender(),
+                    row.getBibNumber(), row.getFirstName(), row.getLastName(), row.getTime(), row.getGender(), counterparty))
+                    .getReturnValue()
+                    .toCompletableFuture();
+        } catch (Exception ex) {
+            finish(row, scheduled, counted, ex);
+            return;
+        }
+        if (counted) {
+            pending.incrementAndGet();
+        }
+        flow.whenComplete((stx, ex) -> {
+            finish(row, scheduled, counted, ex);
+            if (counted) {
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    private void finish(ResultRow row, long scheduled, boolean counted, Throwable ex) {
+        if (ex != null) {
+            logger.debug("Flow for bib {} failed", row.getBibNumber(), ex);
+        }
+        if (!counted) {
+            return;
+        }
+        if (ex == null) {
+            succeeded.increment();
+            latencies.record(System.nanoTime() - scheduled);
+        } else {
+            failed.increment();
+            errors.computeIfAbsent(rootCause(ex).getClass().getName(), key -> new LongAdder()).increment();
+        }
+    }
+
+    private Map<String, Object> report(long measuredNanos, int unfinished) {
+        final double seconds = measuredNanos / 1e9;
+        final long total = succeeded.sum() + failed.sum();
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("node", settings.nodeAddress.toString());
+        report.put("counterparty", settings.counterparty.toString());
+        report.put("clients", settings.clients);
+        report.put("connections", settings.connections);
+        report.put("targetRate", settings.rate);
+        report.put("warmUpSeconds", settings.warmUp.getSeconds());
+        report.put("measuredSeconds", seconds);
+        report.put("achievedRate", started.sum() / seconds);
+        report.put("maxStartLagMillis", maxLag.get() / 1e6);
+        report.put("started", started.sum());
+        report.put("succeeded", succeeded.sum());
+        report.put("failed", failed.sum());
+        report.put("unfinished", unfinished);
+        report.put("throughputPerSecond", succeeded.sum() / seconds);
+        report.put("errorRate", total == 0 ? 0.0 : (double) failed.sum() / total);
+        report.put("latencyMillis", latencies.percentiles());
+        final Map<String, Long> errorCounts = new LinkedHashMap<>();
+        errors.forEach((type, count) -> errorCounts.put(type, count.sum()));
+        report.put("errors", errorCounts);
+        return report;
+    }
+
+    private static Throwable rootCause(Throwable ex) {
+        Throwable cause = ex;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Entry point of the "load" mode of [ExampleClientRPC].
+     */
+    static void main(NetworkHostAndPort nodeAddress, String[] args) throws InterruptedException, IOException {
+        final Settings settings = Settings.parse(nodeAddress, args);
+        final Map<String, Object> report = new LoadGenerator(settings).run();
+        final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        mapper.writeValue(settings.report, report);
+        logger.info("Load report written to {}:\n{}", settings.report, mapper.writeValueAsString(report));
+    }
+
+    /**
+     * Collects flow latencies from all clients.
+     */
+    static class LatencyRecorder {
+        private long[] nanos = new long[1 << 16];
+        private int count = 0;
+
+        synchronized void record(long latency) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = latency;
+        }
+
+        /**
+         * @return the 50th, 90th, 95th, 99th and 99.9th percentile and the maximum, in milliseconds.
+         */
+        synchronized Map<String, Double> percentiles() {
+            final long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            final Map<String, Double> result = new LinkedHashMap<>();
+            result.put("p50", percentile(sorted, 50));
+            result.put("p90", percentile(sorted, 90));
+            result.put("p95", percentile(sorted, 95));
+            result.put("p99", percentile(sorted, 99));
+            result.put("p99.9", percentile(sorted, 99.9));
+            result.put("max", percentile(sorted, 100));
+            return result;
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            final int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    /**
+     * The load parameters, given on the command line as --name=value options.
+     */
+    public static class Settings {
+        private NetworkHostAndPort nodeAddress;
+        private CordaX500Name counterparty;
+        private String username = "user1";
+        private String password = "test";
+        private int clients = 4;
+        private int connections = 0;
+        private double rate = 10;
+        private Duration warmUp = Duration.ofSeconds(30);
+        private Duration duration = Duration.ofSeconds(120);
+        private String challengeName = "J.P.Morgan Corporate Challenge";
+        private int challengeYear = 2018;
+        private long seed = 42;
+        private int years = 1;
+        private int fieldSize = 100000;
+        private File report = new File("load-report.json");
+
+        static Settings parse(NetworkHostAndPort nodeAddress, String[] args) {
+            final Settings settings = new Settings();
+            settings.nodeAddress = nodeAddress;
+            for (Map.Entry<String, String> option : Options.parse(args, 0).entrySet()) {
+                final String value = option.getValue();
+                switch (option.getKey()) {
+                    case "counterparty": settings.counterparty = CordaX500Name.parse(value); break;
+                    case "user": settings.username = value; break;
+                    case "password": settings.password = value; break;
+                    case "clients": settings.clients = Integer.parseInt(value); break;
+                    case "connections": settings.connections = Integer.parseInt(value); break;
+                    case "rate": settings.rate = Double.parseDouble(value); break;
+                    case "warmup": settings.warmUp = Duration.ofSeconds(Long.parseLong(value)); break;
+                    case "duration": settings.duration = Duration.ofSeconds(Long.parseLong(value)); break;
+                    case "challengeName": settings.challengeName = value; break;
+                    case "challengeYear": settings.challengeYear = Integer.parseInt(value); break;
+                    case "seed": settings.seed = Long.parseLong(value); break;
+                    case "years": settings.years = Integer.parseInt(value); break;
+                    case "fieldSize": settings.fieldSize = Integer.parseInt(value); break;
+                    case "report": settings.report = new File(value); break;
+                    default: throw Options.unknown(option.getKey());
+                }
+            }
+            if (settings.counterparty == null) {
+                throw new IllegalArgumentException("Option --counterparty is required.");
+            }
+            if (settings.connections <= 0) {
+                settings.connections = settings.clients;
+            }
+            return settings;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.everis.jpmorgancc.client;
+
+import net.corda.client.rpc.CordaRPCClient;
+import net.corda.client.rpc.CordaRPCClientConfiguration;
+import net.corda.client.rpc.CordaRPCConnection;
+import net.corda.client.rpc.RPCException;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.utilities.NetworkHostAndPort;
+import org.apache.activemq.artemis.api.core.ActiveMQException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Observable;
+import rx.Subscription;
+import rx.functions.Action1;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Spreads RPC traffic to a node over several [CordaRPCClient] connections.
+ *
+ * Each call goes to the healthy connection with the fewest calls in flight. A connection that fails is reconnected in
+ * the background with exponential backoff, the failed [call] is retried on another connection, and the feeds
+ * registered through [track] are re-established on a live connection. Flow starts go through [start] instead, which
+ * never retries: a start whose connection failed may still have reached the node, and running it again could record
+ * a result twice.
+ *
+ * A pool can also [wrap] an existing proxy, e.g. the one the webserver hands to its plugins. It then behaves like a
+ * single connection that is never reconnected.
+ */
+public class RpcConnectionPool implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(RpcConnectionPool.class);
+
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+
+    private final List<PooledConnection> connections;
+    private final List<TrackedFeed<?>> feeds = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService reconnector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rpc-pool-reconnector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private RpcConnectionPool(List<PooledConnection> connections) {
+        this.connections = Collections.unmodifiableList(connections);
+    }
+
+    /**
+     * Opens [size] connections to the node at [nodeAddress].
+     */
+    public static RpcConnectionPool connect(NetworkHostAndPort nodeAddress, String username, String password, int size) {
+        final CordaRPCClient client = new CordaRPCClient(nodeAddress, CordaRPCClientConfiguration.DEFAULT);
+        final List<PooledConnection> connections = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            connections.add(new PooledConnection(i, () -> client.start(username, password)));
+        }
+        final RpcConnectionPool pool = new RpcConnectionPool(connections);
+        for (PooledConnection connection : connections) {
+            try {
+                connection.open();
+            } catch (RuntimeException ex) {
+                logger.warn("RPC connection {} to {} failed, retrying in the background", connection.id, nodeAddress, ex);
+                pool.scheduleReconnect(connection, MIN_BACKOFF);
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Opens the pool described by the "jpmorgancc.rpc.*" system properties, or wraps [fallback] if no
+     * "jpmorgancc.rpc.address" is set.
+     */
+    public static RpcConnectionPool fromSystemProperties(CordaRPCOps fallback) {
+        final String address = System.getProperty("jpmorgancc.rpc.address");
+        if (address == null) {
+            return wrap(fallback);
+        }
+        return connect(NetworkHostAndPort.parse(address),
+                System.getProperty("jpmorgancc.rpc.user", "user1"),
+                System.getProperty("jpmorgancc.rpc.password", "test"),
+                Integer.getInteger("jpmorgancc.rpc.poolSize", 4));
+    }
+
+    /**
+     * Wraps a proxy whose connection is managed elsewhere.
+     */
+    public static RpcConnectionPool wrap(CordaRPCOps proxy) {
+        return new RpcConnectionPool(Collections.singletonList(new PooledConnection(0, proxy)));
+    }
+
+    /**
+     * Runs [call] on the least busy live connection, retrying on another connection if the one chosen has failed. Only
+     * for calls that are safe to repeat, such as vault queries; see [start].
+     */
+    public <T> T call(Function<CordaRPCOps, T> call) {
+        RuntimeException lastFailure = null;
+        for (int attempt = 0; attempt < connections.size(); attempt++) {
+            final PooledConnection connection = leastBusy();
+            if (connection == null) {
+                break;
+            }
+            try {
+                return attempt(connection, call);
+            } catch (RuntimeException ex) {
+                if (!isConnectionFailure(ex)) {
+                    throw ex;
+                }
+                lastFailure = ex;
+            }
+        }
+        throw new RPCException("No live RPC connection is available", lastFailure);
+    }
+
+    /**
+     * Runs [start], which starts a flow, once on the least busy live connection. A connection failure is passed on to
+     * the caller, since the flow may have started anyway.
+     */
+    public <T> T start(Function<CordaRPCOps, T> start) {
+        final PooledConnection connection = leastBusy();
+        if (connection == null) {
+            throw new RPCException("No live RPC connection is available");
+        }
+        return attempt(connection, start);
+    }
+
+    /**
+     * Subscribes [onNext] to the feed opened by [feed], and opens it again on a live connection whenever the one it
+     * runs on fails. [onResubscribed] is called after every re-subscription, since updates may have been missed.
+     */
+    public <T> Subscription track(Function<CordaRPCOps, Observable<T>> feed, Action1<T> onNext, Runnable onResubscribed) {
+        final TrackedFeed<T> tracked = new TrackedFeed<>(feed, onNext, onResubscribed);
+        feeds.add(tracked);
+        tracked.subscribe(false);
+        return new Subscription() {
+            @Override public void unsubscribe() {
+                feeds.remove(tracked);
+                tracked.unsubscribe();
+            }
+
+            @Override public boolean isUnsubscribed() {
+                return !feeds.contains(tracked);
+            }
+        };
+    }
+
+    /**
+     * @return the number of connections currently usable.
+     */
+    public int liveConnections() {
+        int live = 0;
+        for (PooledConnection connection : connections) {
+            if (connection.proxy != null) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    public int size() { return connections.size(); }
+
+    @Override
+    public void close() {
+        reconnector.shutdownNow();
+        for (TrackedFeed<?> feed : feeds) {
+            feed.unsubscribe();
+        }
+        feeds.clear();
+        for (PooledConnection connection : connections) {
+            connection.close();
+        }
+    }
+
+    private <T> T attempt(PooledConnection connection, Function<CordaRPCOps, T> call) {
+        connection.inFlight.incrementAndGet();
+        try {
+            return call.apply(connection.proxy);
+        } catch (RuntimeException ex) {
+            if (isConnectionFailure(ex)) {
+                connectionFailed(connection, ex);
+            }
+            throw ex;
+        } finally {
+            connection.inFlight.decrementAndGet();
+        }
+    }
+
+    private PooledConnection leastBusy() {
+        PooledConnection best = null;
+        for (PooledConnection connection : connections) {
+            if (connection.proxy != null && (best == null || connection.inFlight.get() < best.inFlight.get())) {
+                best = connection;
+            }
+        }
+        return best;
+    }
+
+    private void connectionFailed(PooledConnection connection, Throwable cause) {
+        if (!connection.canReconnect()) {
+            logger.error("RPC connection {} failed and is not managed by this pool", connection.id, cause);
+        } else if (connection.markBroken()) {
+            logger.warn("RPC connection {} failed, reconnecting", connection.id, cause);
+            scheduleReconnect(connection, MIN_BACKOFF);
+            for (TrackedFeed<?> feed : feeds) {
+                if (feed.connection == connection) {
+                    feed.subscribe(true);
+                }
+            }
+        }
+    }
+
+    private void scheduleReconnect(PooledConnection connection, Duration backoff) {
+        if (reconnector.isShutdown() || !connection.canReconnect()) {
+            return;
+        }
+        final long jitter = ThreadLocalRandom.current().nextLong(backoff.toMillis() / 4 + 1);
+        reconnector.schedule(() -> {
+            try {
+                connection.open();
+                logger.info("RPC connection {} re-established", connection.id);
+                for (TrackedFeed<?> feed : feeds) {
+                    if (feed.connection == null) {
+                        feed.subscribe(true);
+                    }
+                }
+            } catch (RuntimeException ex) {
+                final Duration next = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+                logger.debug("RPC connection {} still down, retrying in {}", connection.id, next, ex);
+                scheduleReconnect(connection, next);
+            }
+        }, backoff.toMillis() + jitter, TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isConnectionFailure(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof RPCException || cause instanceof ActiveMQException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Opens a [CordaRPCConnection].
+     */
+    private interface Connector {
+        CordaRPCConnection connect();
+    }
+
+    private static class PooledConnection {
+        private final int id;
+        private final Connector connector;
+        private final AtomicInteger inFlight = new AtomicInteger(0);
+        private volatile CordaRPCConnection connection;
+        private volatile CordaRPCOps proxy;
+
+        private PooledConnection(int id, Connector connector) {
+            this.id = id;
+            this.connector = connector;
+        }
+
+        private PooledConnection(int id, CordaRPCOps proxy) {
+            this.id = id;
+            this.connector = null;
+            this.proxy = proxy;
+        }
+
+        private void open() {
+            final CordaRPCConnection opened = connector.connect();
+            connection = opened;
+            proxy = opened.getProxy();
+        }
+
+        private boolean canReconnect() { return connector != null; }
+
+        /**
+         * @return true if this call took the connection out of service.
+         */
+        private synchronized boolean markBroken() {
+            if (proxy == null) {
+                return false;
+            }
+            proxy = null;
+            close();
+            return true;
+        }
+
+        private void close() {
+            final CordaRPCConnection toClose = connection;
+            connection = null;
+            if (toClose != null) {
+                try {
+                    toClose.forceClose();
+                } catch (RuntimeException ex) {
+                    logger.debug("Ignoring failure closing RPC connection {}", id, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * A feed registered through [track], and the connection it currently runs on.
+     */
+    private class TrackedFeed<T> {
+        private final Function<CordaRPCOps, Observable<T>> feed;
+        private final Action1<T> onNext;
+        private final Runnable onResubscribed;
+        private volatile PooledConnection connection;
+        private volatile Subscription subscription;
+
+        private TrackedFeed(Function<CordaRPCOps, Observable<T>> feed, Action1<T> onNext, Runnable onResubscribed) {
+            this.feed = feed;
+            this.onNext = onNext;
+            this.onResubscribed = onResubscribed;
+        }
+
+        private synchronized void subscribe(boolean resubscription) {
+            unsubscribe();
+            final PooledConnection target = leastBusy();
+            if (target == null) {
+                // Picked up again once a connection is re-established.
+                return;
+            }
+            try {
+                connection = target;
+                subscription = feed.apply(target.proxy).subscribe(onNext, error -> connectionFailed(target, error));
+                if (resubscription) {
+                    onResubscribed.run();
+                }
+            } catch (RuntimeException ex) {
+                connection = null;
+                if (!isConnectionFailure(ex)) {
+                    throw ex;
+                }
+                connectionFailed(target, ex);
+            }
+        }
+
+        private synchronized void unsubscribe() {
+            if (subscription != null) {
+                subscription.unsubscribe();
+                subscription = null;
+            }
+            connection = null;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.everis.jpmorgancc.client;
+
+import com.everis.jpmorgancc.cli.Options;
+import com.everis.jpmorgancc.csv.ResultCsv;
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.csv.ResultSheet;
+import com.everis.jpmorgancc.state.RaceResult;
+import com.everis.jpmorgancc.state.ResultSheetState;
+import com.everis.jpmorgancc.store.ResultQueries;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.Party;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.utilities.NetworkHostAndPort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Dumps every result in a node's vault to CSV or JSON files, including each row of every result sheet.
+ *
+ * The vault is walked page by page in recorded order, each page continuing from the recorded time of the last one
+ * (see [ResultQueries]), and every page is written out before the next is fetched. A result sheet is downloaded and
+ * written out when it is reached. Memory use is therefore bounded by the page size and the largest sheet, whatever
+ * the size of the vault. The output can be gzip-compressed and split into one file per
+ * challenge year.
+ *
+ * Usage: VaultExporter <node address> <output directory> [--format=csv|json] [--compress=true] [--splitByYear=true]
+ *                      [--pageSize=n] [--user=name] [--password=secret]
+ */
+public class VaultExporter {
+    private static final Logger logger = LoggerFactory.getLogger(VaultExporter.class);
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Settings settings;
+    private final RpcConnectionPool pool;
+    private final Map<Integer, Output> outputs = new HashMap<>();
+    private long exported = 0;
+
+    public VaultExporter(Settings settings, RpcConnectionPool pool) {
+        this.settings = settings;
+        this.pool = pool;
+    }
+
+    public void run() throws IOException {
+        Files.createDirectories(settings.directory);
+        final long started = System.nanoTime();
+        try {
+            Instant from = Instant.EPOCH;
+            int pageNumber = 1;
+            // The references already exported that were recorded at [from], which the next page reads again.
+            Set<StateRef> seenAtFrom = new HashSet<>();
+            while (true) {
+                final Instant pageFrom = from;
+                final int pageNumberNow = pageNumber;
+                final Vault.Page<ContractState> page = pool.call(proxy -> proxy.vaultQueryBy(
+                        ResultQueries.storedSince(pageFrom), new PageSpecification(pageNumberNow, settings.pageSize),
+                        ResultQueries.RECORDED_ORDER, ContractState.class));
+                final List<StateAndRef<ContractState>> states = page.getStates();
+                final List<Vault.StateMetadata> metadata = page.getStatesMetadata();
+
+                final Instant last = states.isEmpty() ? from : metadata.get(metadata.size() - 1).getRecordedTime();
+                final Set<StateRef> seenAtLast = new HashSet<>();
+                for (int i = 0; i < states.size(); i++) {
+                    final StateAndRef<ContractState> state = states.get(i);
+                    final Instant recordedTime = metadata.get(i).getRecordedTime();
+                    if (recordedTime.equals(from) && seenAtFrom.contains(state.getRef())) {
+                        continue;
+                    }
+                    if (recordedTime.equals(last)) {
+                        seenAtLast.add(state.getRef());
+                    }
+                    write(state, recordedTime);
+                }
+
+                if (states.size() < settings.pageSize) {
+                    break;
+                }
+                if (last.equals(from)) {
+                    pageNumber++;
+                    seenAtFrom.addAll(seenAtLast);
+                } else {
+                    from = last;
+                    pageNumber = 1;
+                    seenAtFrom = seenAtLast;
+                }
+            }
+        } finally {
+            for (Output output : outputs.values()) {
+                output.close();
+            }
+        }
+
+        final double seconds = Duration.ofNanos(System.nanoTime() - started).toMillis() / 1000.0;
+        long bytes = 0;
+        for (Output output : outputs.values()) {
+            bytes += Files.size(output.file);
+        }
+        logger.info("Exported {} results into {} file(s), {} bytes, in {} s ({} results/s, {} MB/s)",
+                exported, outputs.size(), bytes, seconds,
+                String.format("%.1f", exported / Math.max(seconds, 0.001)),
+                String.format("%.2f", bytes / 1e6 / Math.max(seconds, 0.001)));
+    }
+
+    private void write(StateAndRef<ContractState> state, Instant recordedTime) throws IOException {
+        final ContractState data = state.getState().getData();
+        if (data instanceof ResultSheetState) {
+            final ResultSheetState sheet = (ResultSheetState) data;
+            for (ResultRow row : download(sheet.getSheetHash()).getRows()) {
+                write(row, sheet.getLender(), sheet.getBorrower(), state.getRef(), recordedTime);
+            }
+            return;
+        }
+        if (!(data instanceof RaceResult)) {
+            return;
+        }
+        final RaceResult result = (RaceResult) data;
+        final ResultRow row = new ResultRow(result.challengeName(), result.challengeYear(), result.placeCity(),
+                result.placeGender(), result.bibNumber(), result.firstName(), result.lastName(), result.time(),
+                result.genderCode());
+        write(row, result.lender(), result.borrower(), state.getRef(), recordedTime);
+    }
+
+    private void write(ResultRow row, Party lender, Party borrower, StateRef ref, Instant recordedTime)
+            throws IOException {
+        final int key = settings.splitByYear ? row.getChallengeYear() : 0;
+        Output output = outputs.get(key);
+        if (output == null) {
+            output = open(key);
+            outputs.put(key, output);
+        }
+        output.write(row, lender, borrower, ref, recordedTime);
+        exported++;
+        if (exported % 100_000 == 0) {
+            logger.info("Exported {} results", exported);
+        }
+    }
+
+    private ResultSheet download(SecureHash hash) throws IOException {
+        try {
+            return pool.call(proxy -> {
+                try (InputStream in = proxy.openAttachment(hash)) {
+                    return ResultSheet.read(in);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw new IOException("Could not download result sheet " + hash, ex.getCause());
+        }
+    }
+
+    private Output open(int year) throws IOException {
+        final String name = "results" + (year == 0 ? "" : "-" + year) + "." + settings.format
+                + (settings.compress ? ".gz" : "");
+        final Path file = settings.directory.resolve(name);
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)), BUFFER_SIZE);
+        if (settings.compress) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return settings.format.equals("json") ? new JsonOutput(file, out) : new CsvOutput(file, out);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: VaultExporter <node address> <output directory> [--name=value ...]");
+        }
+        final Settings settings = Settings.parse(NetworkHostAndPort.parse(args[0]), new File(args[1]).toPath(), args);
+        try (RpcConnectionPool pool = RpcConnectionPool.connect(settings.nodeAddress, settings.username, settings.password, 1)) {
+            new VaultExporter(settings, pool).run();
+        }
+    }
+
+    /**
+     * One export file.
+     */
+    private abstract static class Output implements Closeable {
+        final Path file;
+
+        Output(Path file) {
+            this.file = file;
+        }
+
+        abstract void write(ResultRow row, Party lender, Party borrower, StateRef ref, Instant recordedTime) throws IOException;
+    }
+
+    /**
+     * The [ResultCsv] layout, so that an export can be fed back to the [BulkImporter].
+     */
+    private static class CsvOutput extends Output {
+        private final Writer writer;
+
+        CsvOutput(Path file, OutputStream out) throws IOException {
+            super(file);
+            this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(ResultCsv.HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        void write(ResultRow row, Party lender, Party borrower, StateRef ref, Instant recordedTime) throws IOException {
+            writer.write(ResultCsv.format(row));
+            writer.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * A JSON array of results, streamed one object at a time, including the ledger details the CSV leaves out.
+     */
+    private static class JsonOutput extends Output {
+        private static final JsonFactory factory = new JsonFactory();
+        private final JsonGenerator json;
+
+        JsonOutput(Path file, OutputStream out) throws IOException {
+            super(file);
+            this.json = factory.createGenerator(out, JsonEncoding.UTF8);
+            json.writeStartArray();
+        }
+
+        @Override
+        void write(ResultRow row, Party lender, Party borrower, StateRef ref, Instant recordedTime) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("challengeName", row.getChallengeName());
+            json.writeNumberField("challengeYear", row.getChallengeYear());
+            json.writeNumberField("placeCity", row.getPlaceCity());
+            json.writeNumberField("placeGender", row.getPlaceGender());
+            json.writeNumberField("bibNumber", row.getBibNumber());
+            json.writeStringField("firstName", row.getFirstName());
+            json.writeStringField("lastName", row.getLastName());
+            json.writeNumberField("time", row.getTime());
+            json.writeStringField("gender", row.getGender());
+            json.writeStringField("lender", lender.getName().toString());
+            json.writeStringField("borrower", borrower.getName().toString());
+            json.writeStringField("stateRef", ref.toString());
+            json.writeStringField("recordedTime", recordedTime.toString());
+            json.writeEndObject();
+        }
+
+        @Override
+        public void close() throws IOException {
+            json.writeEndArray();
+            json.close();
+        }
+    }
+
+    static class Settings {
+        private NetworkHostAndPort nodeAddress;
+        private Path directory;
+        private String format = "csv";
+        private boolean compress = false;
+        private boolean splitByYear = false;
+        private int pageSize = 1000;
+        private String username = "user1";
+        private String password = "test";
+
+        static Settings parse(NetworkHostAndPort nodeAddress, Path directory, String[] args) {
+            final Settings settings = new Settings();
+            settings.nodeAddress = nodeAddress;
+            settings.directory = directory;
+            for (Map.Entry<String, String> option : Options.parse(args, 2).entrySet()) {
+                final String value = option.getValue();
+                switch (option.getKey()) {
+                    case "format": settings.format = value; break;
+                    case "compress": settings.compress = Boolean.parseBoolean(value); break;
+                    case "splitByYear": settings.splitByYear = Boolean.parseBoolean(value); break;
+                    case "pageSize": settings.pageSize = Integer.parseInt(value); break;
+                    case "user": settings.username = value; break;
+                    case "password": settings.password = value; break;
+                    default: throw Options.unknown(option.getKey());
+                }
+            }
+            if (!settings.format.equals("csv") && !settings.format.equals("json")) {
+                throw new IllegalArgumentException("Option --format must be csv or json.");
+            }
+            return settings;
+        }
+    }
+}
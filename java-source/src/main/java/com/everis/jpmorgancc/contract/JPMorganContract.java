@@ -1,12 +1,23 @@
 package com.everis.jpmorgancc.contract;
 
+import com.everis.jpmorgancc.csv.ResultSheet;
+import com.everis.jpmorgancc.state.CompactJPMorganState;
 import com.everis.jpmorgancc.state.JPMorganState;
+import com.everis.jpmorgancc.state.RaceResult;
+import com.everis.jpmorgancc.state.ResultSheetState;
+import net.corda.core.contracts.Attachment;
 import net.corda.core.contracts.CommandData;
 import net.corda.core.contracts.CommandWithParties;
 import net.corda.core.contracts.Contract;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.TransactionState;
 import net.corda.core.identity.AbstractParty;
 import net.corda.core.transactions.LedgerTransaction;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static net.corda.core.contracts.ContractsDSL.requireSingleCommand;
@@ -19,8 +30,15 @@ import static net.corda.core.contracts.ContractsDSL.requireThat;
  *
  * For a new [JPM] to be issued onto the ledger, a transaction is required which takes:
  * - Zero input states.
- * - One output state: the new [JPM].
- * - An Create() command with the public keys of both the lender and the borrower.
+ * - One or more output states: the new [JPM]s, each either a [JPMorganState] or in its [CompactJPMorganState]
+ *   encoding, read through [RaceResult], with a time below [CompactJPMorganState.MAX_TIME] and no bib issued twice
+ *   for the same challenge year.
+ * - A Create() command signed by every participant of every output: the party recording the results and its
+ *   counterparty, which must be different parties.
+ *
+ * A whole result sheet is issued as a single [ResultSheetState] by a PublishSheet() command instead. The transaction
+ * must carry the sheet as an attachment, whose rows are streamed through [ResultSheet.verify] and must add up to the
+ * totals on the state.
  *
  * All contracts must sub-class the [Contract] interface.
  */
@@ -33,38 +51,88 @@ public class JPMorganContract implements Contract {
      */
     @Override
     public void verify(LedgerTransaction tx) {
-        final CommandWithParties<Commands.Create> command = requireSingleCommand(tx.getCommands(), Commands.Create.class);
+        final CommandWithParties<Commands> command = requireSingleCommand(tx.getCommands(), Commands.class);
+        if (command.getValue() instanceof Commands.PublishSheet) {
+            verifySheet(tx, command);
+            return;
+        }
         requireThat(require -> {
             // Generic constraints around the JPM transaction.
             require.using("No inputs should be consumed when issuing an JPM.",
                     tx.getInputs().isEmpty());
+            require.using("At least one output state should be created.",
+                    !tx.getOutputs().isEmpty());
+            final Set<String> bibs = new HashSet<>();
+            for (TransactionState<ContractState> state : tx.getOutputs()) {
+                final ContractState output = state.getData();
+                require.using("The output must be a JPMorganState or a CompactJPMorganState.",
+                        output instanceof JPMorganState || output instanceof CompactJPMorganState);
+                final RaceResult out = (RaceResult) output;
+                require.using("The lender and the borrower cannot be the same entity.",
+                        out.lender() != out.borrower());
+                require.using("All of the participants must be signers.",
+                        command.getSigners().containsAll(out.getParticipants().stream().map(AbstractParty::getOwningKey).collect(Collectors.toList())));
+
+                // JPM-specific constraints.
+                require.using("The Challenge Name must be non-blank.", !out.challengeName().isEmpty());
+                require.using("The Year value must be non-negative.", out.challengeYear() > 0);
+                require.using("The PLC value must be non-negative.", out.placeCity() > 0);
+                require.using("The GPIc value must be non-negative.", out.placeGender() > 0);
+                require.using("The Bib value must be non-negative.", out.bibNumber() > 0);
+                require.using("The First Name must be non-blank.", !out.firstName().isEmpty());
+                require.using("The Last Name must be non-blank.", !out.lastName().isEmpty());
+                require.using("The Time value must be non-negative.", out.timeHundredths() > 0);
+                require.using("The Time value must be below CompactJPMorganState.MAX_TIME.",
+                        out.time() < CompactJPMorganState.MAX_TIME);
+                require.using("The Gender value must be non-blank.",
+                        out.genderCode() != null && !out.genderCode().isEmpty());
+                require.using("A bib must not be issued twice in one transaction.",
+                        bibs.add(out.challengeName() + "/" + out.challengeYear() + "/" + out.bibNumber()));
+            }
+
+            return null;
+        });
+    }
+
+    private static void verifySheet(LedgerTransaction tx, CommandWithParties<Commands> command) {
+        requireThat(require -> {
+            require.using("No inputs should be consumed when publishing a result sheet.",
+                    tx.getInputs().isEmpty());
             require.using("Only one output state should be created.",
                     tx.getOutputs().size() == 1);
-            final JPMorganState out = tx.outputsOfType(JPMorganState.class).get(0);
+            final ContractState output = tx.getOutputs().get(0).getData();
+            require.using("The output must be a ResultSheetState.", output instanceof ResultSheetState);
+            final ResultSheetState out = (ResultSheetState) output;
             require.using("The lender and the borrower cannot be the same entity.",
                     out.getLender() != out.getBorrower());
             require.using("All of the participants must be signers.",
                     command.getSigners().containsAll(out.getParticipants().stream().map(AbstractParty::getOwningKey).collect(Collectors.toList())));
-
-            // JPM-specific constraints.
             require.using("The Challenge Name must be non-blank.", !out.getChallengeName().isEmpty());
             require.using("The Year value must be non-negative.", out.getChallengeYear() > 0);
-            require.using("The PLC value must be non-negative.", out.getPlaceCity() > 0);
-            require.using("The GPIc value must be non-negative.", out.getPlaceGender() > 0);
-            require.using("The Bib value must be non-negative.", out.getBibNumber() > 0);
-            require.using("The First Name must be non-blank.", !out.getFirstName().isEmpty());
-            require.using("The Last Name must be non-blank.", !out.getLastName().isEmpty());
-            require.using("The Time value must be non-negative.", out.getTime() > 0);
-            require.using("The Gender value must be non-blank.", !out.getGender().isEmpty());
 
+            final Attachment sheet = tx.getAttachments().stream()
+                    .filter(attachment -> attachment.getId().equals(out.getSheetHash()))
+                    .findFirst()
+                    .orElse(null);
+            require.using("The result sheet must be attached.", sheet != null);
+            final ResultSheet.Totals totals;
+            try (InputStream in = sheet.open()) {
+                totals = ResultSheet.verify(in, out.getChallengeName(), out.getChallengeYear());
+            } catch (IOException | IllegalArgumentException ex) {
+                throw new IllegalArgumentException("The result sheet is invalid: " + ex.getMessage(), ex);
+            }
+            require.using("The finishers must match the sheet.", totals.getFinishers() == out.getFinishers());
+            require.using("The best time must match the sheet.", totals.getBestTimeHundredths() == out.getBestTimeHundredths());
+            require.using("The total time must match the sheet.", totals.getTotalTimeHundredths() == out.getTotalTimeHundredths());
             return null;
         });
     }
 
     /**
-     * This contract only implements one command, Create.
+     * Create issues one or more results; PublishSheet issues a whole result sheet.
      */
     public interface Commands extends CommandData {
         class Create implements Commands {}
+        class PublishSheet implements Commands {}
     }
 }
\ No newline at end of file
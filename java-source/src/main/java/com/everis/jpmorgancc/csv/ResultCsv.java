@@ -0,0 +1,101 @@
+package com.everis.jpmorgancc.csv;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The CSV layout of a result sheet, shared by the importer, the exporter and the dataset generator:
+ *
+ * challengeName,challengeYear,placeCity,placeGender,bibNumber,firstName,lastName,time,gender
+ *
+ * Fields containing a comma, a quote or a line break are quoted, with embedded quotes doubled.
+ */
+public class ResultCsv {
+    public static final String HEADER = "challengeName,challengeYear,placeCity,placeGender,bibNumber,firstName,lastName,time,gender";
+    private static final int COLUMNS = 9;
+
+    private ResultCsv() { }
+
+    public static boolean isHeader(String line) {
+        return line.startsWith("challengeName,");
+    }
+
+    /**
+     * @throws IllegalArgumentException if [line] does not hold exactly one well-formed row.
+     */
+    public static ResultRow parse(String line) {
+        final List<String> fields = split(line);
+        if (fields.size() != COLUMNS) {
+            throw new IllegalArgumentException("Expected " + COLUMNS + " fields but found " + fields.size() + ": " + line);
+        }
+        try {
+            return new ResultRow(
+                    fields.get(0),
+                    Integer.parseInt(fields.get(1)),
+                    Integer.parseInt(fields.get(2)),
+                    Integer.parseInt(fields.get(3)),
+                    Integer.parseInt(fields.get(4)),
+                    fields.get(5),
+                    fields.get(6),
+                    Double.parseDouble(fields.get(7)),
+                    fields.get(8));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Malformed number in row: " + line, ex);
+        }
+    }
+
+    public static String format(ResultRow row) {
+        return format(row.getChallengeName(), row.getChallengeYear(), row.getPlaceCity(), row.getPlaceGender(),
+                row.getBibNumber(), row.getFirstName(), row.getLastName(), row.getTime(), row.getGender());
+    }
+
+    public static String format(String challengeName, int challengeYear, int placeCity, int placeGender, int bibNumber,
+                                String firstName, String lastName, double time, String gender) {
+        return new StringBuilder(96)
+                .append(quote(challengeName)).append(',')
+                .append(challengeYear).append(',')
+                .append(placeCity).append(',')
+                .append(placeGender).append(',')
+                .append(bibNumber).append(',')
+                .append(quote(firstName)).append(',')
+                .append(quote(lastName)).append(',')
+                .append(time).append(',')
+                .append(quote(gender))
+                .toString();
+    }
+
+    private static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    private static List<String> split(String line) {
+        final List<String> fields = new ArrayList<>(COLUMNS);
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
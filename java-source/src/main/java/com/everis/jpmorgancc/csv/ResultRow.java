@@ -0,0 +1,72 @@
+package com.everis.jpmorgancc.csv;
+
+import com.everis.jpmorgancc.state.CompactJPMorganState;
+import com.everis.jpmorgancc.state.Gender;
+import com.everis.jpmorgancc.state.JPMorganState;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.identity.Party;
+import net.corda.core.serialization.CordaSerializable;
+
+/**
+ * One finisher of an official result sheet, before it is recorded on the ledger.
+ */
+@CordaSerializable
+public class ResultRow {
+    private final String challengeName;
+    private final int challengeYear;
+    private final int placeCity;
+    private final int placeGender;
+    private final int bibNumber;
+    private final String firstName;
+    private final String lastName;
+    private final double time;
+    private final String gender;
+
+    public ResultRow(String challengeName, int challengeYear, int placeCity, int placeGender, int bibNumber,
+                     String firstName, String lastName, double time, String gender) {
+        this.challengeName = challengeName;
+        this.challengeYear = challengeYear;
+        this.placeCity = placeCity;
+        this.placeGender = placeGender;
+        this.bibNumber = bibNumber;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.time = time;
+        this.gender = gender;
+    }
+
+    public String getChallengeName() { return challengeName; }
+    public int getChallengeYear() { return challengeYear; }
+    public int getPlaceCity() { return placeCity; }
+    public int getPlaceGender() { return placeGender; }
+    public int getBibNumber() { return bibNumber; }
+    public String getFirstName() { return firstName; }
+    public String getLastName() { return lastName; }
+    public double getTime() { return time; }
+    public String getGender() { return gender; }
+
+    /**
+     * @return this result as a new state issued by [lender] to [borrower].
+     */
+    public JPMorganState toState(Party lender, Party borrower) {
+        return new JPMorganState(challengeName, challengeYear, placeCity, placeGender, bibNumber, firstName, lastName,
+                time, gender, lender, borrower, new UniqueIdentifier());
+    }
+
+    /**
+     * @return this result as a new [CompactJPMorganState] issued by [lender] to [borrower].
+     * @throws IllegalArgumentException if the gender is not a [Gender] code.
+     */
+    public CompactJPMorganState toCompactState(Party lender, Party borrower) {
+        return new CompactJPMorganState(challengeName, challengeYear, placeCity, placeGender, bibNumber, firstName,
+                lastName, CompactJPMorganState.toHundredths(time), Gender.fromCode(gender), lender, borrower,
+                new UniqueIdentifier());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResultRow(challengeName=%s, challengeYear=%s, placeCity=%s, placeGender=%s" +
+                ", bibNumber=%s, firstName=%s, lastName=%s, time=%s, gender=%s)",
+                challengeName, challengeYear, placeCity, placeGender, bibNumber, firstName, lastName, time, gender);
+    }
+}
@@ -0,0 +1,174 @@
+package com.everis.jpmorgancc.csv;
+
+import com.everis.jpmorgancc.state.CompactJPMorganState;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A complete official result sheet of one challenge year, as uploaded in a single attachment: a zip holding the rows
+ * in the [ResultCsv] layout in an entry named [ENTRY].
+ *
+ * [verify] checks a sheet while streaming it, holding nothing but a bit per bib up to [MAX_BIB], so that contracts
+ * can check sheets of any length in bounded memory. [read] keeps the rows, in finishing order and indexed by bib, for the web layer.
+ */
+public class ResultSheet {
+    public static final String ENTRY = "results.csv";
+    /** The largest bib a sheet may use, which keeps the bits [verify] holds under 128KB. */
+    public static final int MAX_BIB = 1_000_000;
+
+    private final List<ResultRow> rows;
+    private final Map<Integer, ResultRow> byBib;
+
+    private ResultSheet(List<ResultRow> rows) {
+        rows.sort(Comparator.comparingDouble(ResultRow::getTime));
+        this.rows = Collections.unmodifiableList(rows);
+        this.byBib = new HashMap<>(rows.size() * 2);
+        for (ResultRow row : rows) {
+            byBib.put(row.getBibNumber(), row);
+        }
+    }
+
+    public static ResultSheet read(InputStream zip) throws IOException {
+        final List<ResultRow> rows = new ArrayList<>();
+        forEachRow(zip, rows::add);
+        return new ResultSheet(rows);
+    }
+
+    /**
+     * Checks that every row of the sheet is a valid result of [challengeName] in [challengeYear], and that no bib is
+     * used twice.
+     *
+     * @return the sheet's totals.
+     * @throws IllegalArgumentException if the sheet is malformed or a row is invalid.
+     */
+    public static Totals verify(InputStream zip, String challengeName, int challengeYear) throws IOException {
+        final BitSet bibs = new BitSet();
+        final long[] totals = { 0, Integer.MAX_VALUE, 0 };
+        forEachRow(zip, row -> {
+            check(row.getChallengeName().equals(challengeName) && row.getChallengeYear() == challengeYear,
+                    "Every row must belong to " + challengeName + " " + challengeYear, row);
+            check(row.getPlaceCity() > 0 && row.getPlaceGender() > 0, "Places must be positive", row);
+            check(row.getBibNumber() > 0 && row.getBibNumber() <= MAX_BIB, "The bib must be between 1 and " + MAX_BIB, row);
+            check(!bibs.get(row.getBibNumber()), "Bibs must be unique", row);
+            check(!row.getFirstName().isEmpty() && !row.getLastName().isEmpty(), "Names must be non-blank", row);
+            check(row.getTime() > 0 && row.getTime() < CompactJPMorganState.MAX_TIME,
+                    "The time must be positive and below " + CompactJPMorganState.MAX_TIME, row);
+            check(row.getGender().equals("M") || row.getGender().equals("F"), "The gender must be M or F", row);
+            bibs.set(row.getBibNumber());
+            final int time = CompactJPMorganState.toHundredths(row.getTime());
+            totals[0]++;
+            totals[1] = Math.min(totals[1], time);
+            totals[2] += time;
+        });
+        if (totals[0] == 0) {
+            throw new IllegalArgumentException("The sheet holds no results.");
+        }
+        return new Totals(Math.toIntExact(totals[0]), (int) totals[1], totals[2]);
+    }
+
+    /**
+     * Writes [rows] as a sheet, ready to be uploaded as an attachment.
+     */
+    public static void write(Iterable<ResultRow> rows, OutputStream out) throws IOException {
+        final ZipOutputStream zip = new ZipOutputStream(out);
+        zip.putNextEntry(new ZipEntry(ENTRY));
+        final Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+        writer.write(ResultCsv.HEADER);
+        writer.write('\n');
+        for (ResultRow row : rows) {
+            writer.write(ResultCsv.format(row));
+            writer.write('\n');
+        }
+        writer.flush();
+        zip.closeEntry();
+        zip.finish();
+    }
+
+    public int size() { return rows.size(); }
+
+    /**
+     * @return the rows in finishing order.
+     */
+    public List<ResultRow> getRows() { return rows; }
+
+    /**
+     * @return up to [limit] rows from place [offset] + 1 on.
+     */
+    public List<ResultRow> page(int offset, int limit) {
+        return rows.subList(Math.min(offset, rows.size()), Math.min(offset + limit, rows.size()));
+    }
+
+    /**
+     * @return the row of [bibNumber], or null.
+     */
+    public ResultRow byBib(int bibNumber) {
+        return byBib.get(bibNumber);
+    }
+
+    private static void forEachRow(InputStream in, Consumer<ResultRow> action) throws IOException {
+        final ZipInputStream zip = new ZipInputStream(in);
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            if (!entry.getName().equals(ENTRY)) {
+                continue;
+            }
+            // Not closed, so that the caller's stream stays open.
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(zip, StandardCharsets.UTF_8), 1 << 16);
+            boolean first = true;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (first && ResultCsv.isHeader(line)) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                if (!line.isEmpty()) {
+                    action.accept(ResultCsv.parse(line));
+                }
+            }
+            return;
+        }
+        throw new IllegalArgumentException("The sheet has no " + ENTRY + " entry.");
+    }
+
+    private static void check(boolean condition, String message, ResultRow row) {
+        if (!condition) {
+            throw new IllegalArgumentException(message + ": " + row);
+        }
+    }
+
+    /**
+     * The aggregates a [ResultSheetState] carries for its sheet.
+     */
+    public static class Totals {
+        private final int finishers;
+        private final int bestTimeHundredths;
+        private final long totalTimeHundredths;
+
+        public Totals(int finishers, int bestTimeHundredths, long totalTimeHundredths) {
+            this.finishers = finishers;
+            this.bestTimeHundredths = bestTimeHundredths;
+            this.totalTimeHundredths = totalTimeHundredths;
+        }
+
+        public int getFinishers() { return finishers; }
+        public int getBestTimeHundredths() { return bestTimeHundredths; }
+        public long getTotalTimeHundredths() { return totalTimeHundredths; }
+    }
+}
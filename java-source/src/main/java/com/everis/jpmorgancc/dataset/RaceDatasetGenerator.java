@@ -0,0 +1,283 @@
+package com.everis.jpmorgancc.dataset;
+
+import com.everis.jpmorgancc.cli.Options;
+import com.everis.jpmorgancc.csv.ResultCsv;
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.csv.ResultSheet;
+import com.everis.jpmorgancc.flow.JPMorganFlow;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.identity.Party;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Generates realistic, reproducible race results, so that every test and benchmark runs against the same inputs.
+ *
+ * Each challenge year has [fieldSize] finishers. Finishing times are log-normal, with separate distributions for men
+ * and women, and the rows of a year come out in finishing order with overall and per-gender placings that agree with
+ * the times. Bib numbers are a random permutation of 1..fieldSize, so they are unique within a year. The same seed
+ * always yields the same rows, and each year depends only on the seed and the year, so a dataset can be regenerated
+ * one year at a time.
+ *
+ * Only one year is held in memory at a time, at 12 bytes per finisher.
+ *
+ * The sheet format writes a single year as a [ResultSheet], ready for the sheets endpoint.
+ *
+ * Usage: RaceDatasetGenerator <output file> [--format=csv|ndjson|sheet] [--seed=n] [--challengeName=name] [--firstYear=y]
+ *                             [--years=n] [--fieldSize=n]
+ */
+public class RaceDatasetGenerator implements Iterable<ResultRow> {
+    private static final Logger logger = LoggerFactory.getLogger(RaceDatasetGenerator.class);
+
+    /** Share of women in the field. */
+    private static final double FEMALE_SHARE = 0.45;
+    /** Log-normal parameters of the finishing time in seconds, around 33 minutes for men and 38.5 for women. */
+    private static final double MALE_MU = Math.log(33 * 60);
+    private static final double FEMALE_MU = Math.log(38.5 * 60);
+    private static final double SIGMA = 0.2;
+    /** No one finishes faster than this. */
+    private static final int FASTEST_HUNDREDTHS = 14 * 60 * 100;
+
+    private static final List<String> MALE_NAMES = ImmutableList.of("James", "John", "Robert", "Michael", "David",
+            "William", "Richard", "Joseph", "Thomas", "Carlos", "Daniel", "Matthew", "Anthony", "Mark", "Paul", "Steven",
+            "Andrew", "Kenneth", "Javier", "George", "Kevin", "Brian", "Edward", "Ronald", "Timothy", "Jason", "Jeffrey");
+    private static final List<String> FEMALE_NAMES = ImmutableList.of("Mary", "Patricia", "Jennifer", "Linda", "Laura",
+            "Elizabeth", "Barbara", "Susan", "Jessica", "Sarah", "Karen", "Nancy", "Lisa", "Margaret", "Sandra", "Ashley",
+            "Emily", "Donna", "Michelle", "Carmen", "Amanda", "Melissa", "Deborah", "Stephanie", "Rebecca", "Lucia");
+    private static final List<String> LAST_NAMES = ImmutableList.of("Smith", "Johnson", "Williams", "Brown", "Jones",
+            "Garcia", "Miller", "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson",
+            "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris", "Sanchez",
+            "Clark", "Ramirez", "Lewis", "Robinson", "Walker", "Young", "Allen", "King", "Wright", "Scott", "Torres",
+            "Nguyen", "Hill", "Flores", "Green", "Adams", "Nelson", "Baker", "Hall", "Rivera", "Campbell", "Mitchell");
+
+    private final long seed;
+    private final String challengeName;
+    private final int firstYear;
+    private final int years;
+    private final int fieldSize;
+
+    /**
+     * @param seed fixes every generated value.
+     * @param challengeName the challenge every row belongs to.
+     * @param firstYear the first challenge year generated.
+     * @param years the number of consecutive challenge years.
+     * @param fieldSize the number of finishers in each year.
+     */
+    public RaceDatasetGenerator(long seed, String challengeName, int firstYear, int years, int fieldSize) {
+        if (years < 1 || fieldSize < 1) {
+            throw new IllegalArgumentException("A dataset needs at least one year and one finisher.");
+        }
+        this.seed = seed;
+        this.challengeName = challengeName;
+        this.firstYear = firstYear;
+        this.years = years;
+        this.fieldSize = fieldSize;
+    }
+
+    public long size() {
+        return (long) years * fieldSize;
+    }
+
+    /**
+     * @return the rows of every year, oldest year first, each year in finishing order.
+     */
+    @Override
+    public Iterator<ResultRow> iterator() {
+        return new Iterator<ResultRow>() {
+            private int year = firstYear;
+            private YearSheet sheet = null;
+
+            @Override
+            public boolean hasNext() {
+                return (sheet != null && sheet.hasNext()) || year < firstYear + years;
+            }
+
+            @Override
+            public ResultRow next() {
+                if (sheet == null || !sheet.hasNext()) {
+                    if (year >= firstYear + years) {
+                        throw new NoSuchElementException();
+                    }
+                    sheet = new YearSheet(year++);
+                }
+                return sheet.next();
+            }
+        };
+    }
+
+    public Stream<ResultRow> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), size(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    /**
+     * Writes the dataset in the [ResultCsv] layout, header included, so that it can be fed to the bulk importer.
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write(ResultCsv.HEADER);
+        writer.write('\n');
+        for (ResultRow row : this) {
+            writer.write(ResultCsv.format(row));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes the dataset as newline-delimited JSON, one result object per line.
+     */
+    public void writeNdjson(OutputStream out) throws IOException {
+        final JsonGenerator json = new JsonFactory().createGenerator(out, JsonEncoding.UTF8);
+        for (ResultRow row : this) {
+            json.writeStartObject();
+            json.writeStringField("challengeName", row.getChallengeName());
+            json.writeNumberField("challengeYear", row.getChallengeYear());
+            json.writeNumberField("placeCity", row.getPlaceCity());
+            json.writeNumberField("placeGender", row.getPlaceGender());
+            json.writeNumberField("bibNumber", row.getBibNumber());
+            json.writeStringField("firstName", row.getFirstName());
+            json.writeStringField("lastName", row.getLastName());
+            json.writeNumberField("time", row.getTime());
+            json.writeStringField("gender", row.getGender());
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+        json.flush();
+    }
+
+    /**
+     * @return a flow recording [row] with [counterparty].
+     */
+    public static JPMorganFlow.Initiator initiator(ResultRow row, Party counterparty) {
+        return initiator(row, counterparty, null);
+    }
+
+    /**
+     * @return a flow recording [row] with [counterparty], notarised by [notary], or by the first notary if null.
+     */
+    public static JPMorganFlow.Initiator initiator(ResultRow row, Party counterparty, Party notary) {
+        return new JPMorganFlow.Initiator(row.getChallengeName(), row.getChallengeYear(), row.getPlaceCity(),
+                row.getPlaceGender(), row.getBibNumber(), row.getFirstName(), row.getLastName(), row.getTime(),
+                row.getGender(), counterparty, notary, null);
+    }
+
+    /**
+     * The finishers of one year, generated up front so that they can be placed, then handed out in finishing order.
+     */
+    private class YearSheet {
+        private final int year;
+        private final Random random;
+        /** Finishing time in hundredths, shifted left by one, with the low bit set for women; sorted. */
+        private final long[] finishers;
+        private final int[] bibs;
+        private int next = 0;
+        private int men = 0;
+        private int women = 0;
+
+        YearSheet(int year) {
+            this.year = year;
+            this.random = new Random(seed * 31 + year);
+            this.finishers = new long[fieldSize];
+            for (int i = 0; i < fieldSize; i++) {
+                final boolean female = random.nextDouble() < FEMALE_SHARE;
+                final double seconds = Math.exp((female ? FEMALE_MU : MALE_MU) + SIGMA * random.nextGaussian());
+                final long hundredths = Math.max(FASTEST_HUNDREDTHS, Math.round(seconds * 100));
+                finishers[i] = (hundredths << 1) | (female ? 1 : 0);
+            }
+            Arrays.sort(finishers);
+            this.bibs = new int[fieldSize];
+            for (int i = 0; i < fieldSize; i++) {
+                bibs[i] = i + 1;
+            }
+            for (int i = fieldSize - 1; i > 0; i--) {
+                final int j = random.nextInt(i + 1);
+                final int bib = bibs[i];
+                bibs[i] = bibs[j];
+                bibs[j] = bib;
+            }
+        }
+
+        boolean hasNext() {
+            return next < fieldSize;
+        }
+
+        ResultRow next() {
+            final long finisher = finishers[next];
+            final boolean female = (finisher & 1) == 1;
+            final int placeGender = female ? ++women : ++men;
+            final List<String> firstNames = female ? FEMALE_NAMES : MALE_NAMES;
+            final ResultRow row = new ResultRow(challengeName, year, next + 1, placeGender, bibs[next],
+                    firstNames.get(random.nextInt(firstNames.size())), LAST_NAMES.get(random.nextInt(LAST_NAMES.size())),
+                    (finisher >>> 1) / 100.0, female ? "F" : "M");
+            next++;
+            return row;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            throw new IllegalArgumentException("Usage: RaceDatasetGenerator <output file> [--name=value ...]");
+        }
+        final Path file = Paths.get(args[0]);
+        String format = "csv";
+        long seed = 42;
+        String challengeName = "J.P.Morgan Corporate Challenge";
+        int firstYear = 2018;
+        int years = 1;
+        int fieldSize = 10000;
+        for (Map.Entry<String, String> option : Options.parse(args, 1).entrySet()) {
+            final String value = option.getValue();
+            switch (option.getKey()) {
+                case "format": format = value; break;
+                case "seed": seed = Long.parseLong(value); break;
+                case "challengeName": challengeName = value; break;
+                case "firstYear": firstYear = Integer.parseInt(value); break;
+                case "years": years = Integer.parseInt(value); break;
+                case "fieldSize": fieldSize = Integer.parseInt(value); break;
+                default: throw Options.unknown(option.getKey());
+            }
+        }
+        if (!format.equals("csv") && !format.equals("ndjson") && !format.equals("sheet")) {
+            throw new IllegalArgumentException("Option --format must be csv, ndjson or sheet.");
+        }
+        if (format.equals("sheet") && years != 1) {
+            throw new IllegalArgumentException("A result sheet holds a single year; use --years=1.");
+        }
+
+        final RaceDatasetGenerator generator = new RaceDatasetGenerator(seed, challengeName, firstYear, years, fieldSize);
+        final long started = System.nanoTime();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            if (format.equals("csv")) {
+                generator.writeCsv(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            } else if (format.equals("sheet")) {
+                ResultSheet.write(generator, out);
+            } else {
+                generator.writeNdjson(out);
+            }
+        }
+        logger.info("Wrote {} results to {} in {} ms", generator.size(), file, (System.nanoTime() - started) / 1_000_000);
+    }
+}
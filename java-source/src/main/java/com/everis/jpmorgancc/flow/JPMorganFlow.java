@@ -2,11 +2,14 @@ package com.everis.jpmorgancc.flow;
 
 import co.paralleluniverse.fibers.Suspendable;
 import com.everis.jpmorgancc.contract.JPMorganContract;
+import com.everis.jpmorgancc.state.CompactJPMorganState;
 import com.everis.jpmorgancc.state.JPMorganState;
+import com.everis.jpmorgancc.state.RaceResult;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import net.corda.core.contracts.Command;
 import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.TransactionState;
 import net.corda.core.contracts.UniqueIdentifier;
 import net.corda.core.flows.*;
 import net.corda.core.identity.Party;
@@ -29,7 +32,8 @@ import static net.corda.core.contracts.ContractsDSL.requireThat;
  * All methods called within the [FlowLogic] sub-class need to be annotated with the @Suspendable annotation.
  */
 public class JPMorganFlow {
-    @InitiatingFlow
+    // Version 2 sends the correlation id to the counterparty before collecting its signature.
+    @InitiatingFlow(version = 2)
     @StartableByRPC
     public static class Initiator extends FlowLogic<SignedTransaction> {
 
@@ -43,6 +47,8 @@ public class JPMorganFlow {
         private final Double time;
         private final String gender;
         private final Party otherParty;
+        private final Party notary;
+        private final String correlationId;
 
         private final Step GENERATING_TRANSACTION = new Step("Generating transaction based on new JPM.");
         private final Step VERIFYING_TRANSACTION = new Step("Verifying contract constraints.");
@@ -72,6 +78,14 @@ public class JPMorganFlow {
         );
 
         public Initiator(String challengeName, int challengeYear, int placeCity, int placeGender, int bibNumber, String firstName, String lastName, Double time, String gender, Party otherParty) {
+            this(challengeName, challengeYear, placeCity, placeGender, bibNumber, firstName, lastName, time, gender, otherParty, null, null);
+        }
+
+        /**
+         * @param notary the notary of the shard owning the challenge, or null for the first notary on the network.
+         * @param correlationId ties the flow's [TimingLog] lines to the API call that started it, or null for a new id.
+         */
+        public Initiator(String challengeName, int challengeYear, int placeCity, int placeGender, int bibNumber, String firstName, String lastName, Double time, String gender, Party otherParty, Party notary, String correlationId) {
             this.challengeName = challengeName;
             this.challengeYear = challengeYear;
             this.placeCity = placeCity;
@@ -82,6 +96,8 @@ public class JPMorganFlow {
             this.time = time;
             this.gender = gender;
             this.otherParty = otherParty;
+            this.notary = notary;
+            this.correlationId = TimingLog.correlationId(correlationId);
         }
 
         @Override
@@ -95,13 +111,17 @@ public class JPMorganFlow {
         @Suspendable
         @Override
         public SignedTransaction call() throws FlowException {
+            final long started = System.currentTimeMillis();
+            Party me = getServiceHub().getMyInfo().getLegalIdentities().get(0);
+            final String node = me.getName().toString();
+            TimingLog.stage(correlationId, node, "Initiator", "started", started);
+
             // Obtain a reference to the notary we want to use.
-            final Party notary = getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+            final Party notary = this.notary != null ? this.notary : getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
 
             // Stage 1.
             progressTracker.setCurrentStep(GENERATING_TRANSACTION);
             // Generate an unsigned transaction.
-            Party me = getServiceHub().getMyInfo().getLegalIdentities().get(0);
             JPMorganState JPMorganState = new JPMorganState(challengeName, challengeYear, placeCity, placeGender, bibNumber, firstName, lastName, time, gender, me, otherParty, new UniqueIdentifier());
             final Command<JPMorganContract.Commands.Create> txCommand = new Command<>(
                     new JPMorganContract.Commands.Create(),
@@ -114,23 +134,32 @@ public class JPMorganFlow {
             progressTracker.setCurrentStep(VERIFYING_TRANSACTION);
             // Verify that the transaction is valid.
             txBuilder.verify(getServiceHub());
+            TimingLog.stage(correlationId, node, "Initiator", "verified", started);
 
             // Stage 3.
             progressTracker.setCurrentStep(SIGNING_TRANSACTION);
             // Sign the transaction.
             final SignedTransaction partSignedTx = getServiceHub().signInitialTransaction(txBuilder);
+            TimingLog.stage(correlationId, node, "Initiator", "signed", started);
 
             // Stage 4.
             progressTracker.setCurrentStep(GATHERING_SIGS);
             // Send the state to the counterparty, and receive it back with their signature.
             FlowSession otherPartySession = initiateFlow(otherParty);
+            // Acceptors before version 2 do not expect a correlation id.
+            if (otherPartySession.getCounterpartyFlowInfo().getFlowVersion() >= 2) {
+                otherPartySession.send(correlationId);
+            }
             final SignedTransaction fullySignedTx = subFlow(
                     new CollectSignaturesFlow(partSignedTx, ImmutableSet.of(otherPartySession), CollectSignaturesFlow.Companion.tracker()));
+            TimingLog.stage(correlationId, node, "Initiator", "countersigned", started);
 
             // Stage 5.
             progressTracker.setCurrentStep(FINALISING_TRANSACTION);
             // Notarise and record the transaction in both parties' vaults.
-            return subFlow(new FinalityFlow(fullySignedTx));
+            final SignedTransaction recordedTx = subFlow(new FinalityFlow(fullySignedTx));
+            TimingLog.stage(correlationId, node, "Initiator", "recorded", started);
+            return recordedTx;
         }
     }
 
@@ -146,6 +175,14 @@ public class JPMorganFlow {
         @Suspendable
         @Override
         public SignedTransaction call() throws FlowException {
+            final long started = System.currentTimeMillis();
+            final String node = getServiceHub().getMyInfo().getLegalIdentities().get(0).getName().toString();
+            // Initiators before version 2 do not send a correlation id.
+            final String correlationId = otherPartyFlow.getCounterpartyFlowInfo().getFlowVersion() >= 2
+                    ? TimingLog.correlationId(otherPartyFlow.receive(String.class).unwrap(id -> id))
+                    : TimingLog.correlationId(null);
+            TimingLog.stage(correlationId, node, "Acceptor", "started", started);
+
             class SignTxFlow extends SignTransactionFlow {
                 private SignTxFlow(FlowSession otherPartyFlow, ProgressTracker progressTracker) {
                     super(otherPartyFlow, progressTracker);
@@ -153,27 +190,42 @@ public class JPMorganFlow {
 
                 @Override
                 protected void checkTransaction(SignedTransaction stx) {
-                    requireThat(require -> {
-                        ContractState output = stx.getTx().getOutputs().get(0).getData();
-                        require.using("This must be an JPM transaction.", output instanceof JPMorganState);
-                        JPMorganState jpm = (JPMorganState) output;
-
-                        require.using("I won't accept Challenge Name with a blank value.", !jpm.getChallengeName().isEmpty());
-                        require.using("I won't accept Year values with a negative value.", jpm.getChallengeYear() > 0);
-                        require.using("I won't accept PLC values with a negative value.", jpm.getPlaceCity() > 0);
-                        require.using("I won't accept GPIc values with a negative value.", jpm.getPlaceGender() > 0);
-                        require.using("I won't accept Bib values with a negative value.", jpm.getBibNumber() > 0);
-                        require.using("I won't accept First Name with a blank value.", !jpm.getFirstName().isEmpty());
-                        require.using("I won't accept Last Name with a blank value.", !jpm.getLastName().isEmpty());
-                        require.using("I won't accept time values with a negative value.", jpm.getTime() > 0);
-                        require.using("I won't accept user gender with a blank value.", !jpm.getGender().isEmpty());
-
-                        return null;
-                    });
+                    checkResult(stx);
+                    TimingLog.stage(correlationId, node, "Acceptor", "checked", started);
                 }
             }
 
-            return subFlow(new SignTxFlow(otherPartyFlow, SignTransactionFlow.Companion.tracker()));
+            final SignedTransaction signedTx = subFlow(new SignTxFlow(otherPartyFlow, SignTransactionFlow.Companion.tracker()));
+            TimingLog.stage(correlationId, node, "Acceptor", "signed", started);
+            return signedTx;
+        }
+
+        /**
+         * The checks the [Acceptor] makes on a transaction before signing it, applied to every output so that they also
+         * cover the batches of [ResultBatchFlow].
+         */
+        public static void checkResult(SignedTransaction stx) {
+            requireThat(require -> {
+                for (TransactionState<ContractState> state : stx.getTx().getOutputs()) {
+                    ContractState output = state.getData();
+                    require.using("This must be an JPM transaction.",
+                            output instanceof JPMorganState || output instanceof CompactJPMorganState);
+                    RaceResult jpm = (RaceResult) output;
+
+                    require.using("I won't accept Challenge Name with a blank value.", !jpm.challengeName().isEmpty());
+                    require.using("I won't accept Year values with a negative value.", jpm.challengeYear() > 0);
+                    require.using("I won't accept PLC values with a negative value.", jpm.placeCity() > 0);
+                    require.using("I won't accept GPIc values with a negative value.", jpm.placeGender() > 0);
+                    require.using("I won't accept Bib values with a negative value.", jpm.bibNumber() > 0);
+                    require.using("I won't accept First Name with a blank value.", !jpm.firstName().isEmpty());
+                    require.using("I won't accept Last Name with a blank value.", !jpm.lastName().isEmpty());
+                    require.using("I won't accept time values with a negative value.", jpm.timeHundredths() > 0);
+                    require.using("I won't accept user gender with a blank value.",
+                            jpm.genderCode() != null && !jpm.genderCode().isEmpty());
+                }
+
+                return null;
+            });
         }
     }
 }
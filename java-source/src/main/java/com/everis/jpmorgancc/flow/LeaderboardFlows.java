@@ -0,0 +1,105 @@
+package com.everis.jpmorgancc.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.everis.jpmorgancc.service.LeaderboardService;
+import com.everis.jpmorgancc.state.RunnerKey;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.StartableByRPC;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reads the standings and runner histories kept by [LeaderboardService]. These flows neither send messages nor
+ * suspend. The flows filtering by gender have a constructor without one, which covers both.
+ */
+public class LeaderboardFlows {
+    /**
+     * Returns up to [limit] results of a challenge and year from place [offset] + 1 on.
+     */
+    @StartableByRPC
+    public static class Standings extends FlowLogic<List<LeaderboardService.Standing>> {
+        private final String challengeName;
+        private final int challengeYear;
+        private final String gender;
+        private final int offset;
+        private final int limit;
+
+        public Standings(String challengeName, int challengeYear, String gender, int offset, int limit) {
+            this.challengeName = challengeName;
+            this.challengeYear = challengeYear;
+            this.gender = gender;
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        public Standings(String challengeName, int challengeYear, int offset, int limit) {
+            this(challengeName, challengeYear, null, offset, limit);
+        }
+
+        @Suspendable
+        @Override
+        public List<LeaderboardService.Standing> call() throws FlowException {
+            if (offset < 0 || limit <= 0) {
+                throw new FlowException("The offset must not be negative and the limit must be positive.");
+            }
+            try {
+                return getServiceHub().cordaService(LeaderboardService.class)
+                        .standings(challengeName, challengeYear, gender, offset, limit);
+            } catch (SQLException e) {
+                throw new FlowException("Could not read the leaderboard", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the finishers, best and mean time of every year of a challenge.
+     */
+    @StartableByRPC
+    public static class Years extends FlowLogic<List<LeaderboardService.YearStanding>> {
+        private final String challengeName;
+        private final String gender;
+
+        public Years(String challengeName, String gender) {
+            this.challengeName = challengeName;
+            this.gender = gender;
+        }
+
+        public Years(String challengeName) {
+            this(challengeName, null);
+        }
+
+        @Suspendable
+        @Override
+        public List<LeaderboardService.YearStanding> call() throws FlowException {
+            try {
+                return getServiceHub().cordaService(LeaderboardService.class).years(challengeName, gender);
+            } catch (SQLException e) {
+                throw new FlowException("Could not read the leaderboard summary", e);
+            }
+        }
+    }
+
+    /**
+     * Returns a runner's results over the years and their personal best.
+     */
+    @StartableByRPC
+    public static class History extends FlowLogic<LeaderboardService.RunnerHistory> {
+        private final String runnerKey;
+
+        public History(String runnerKey) {
+            this.runnerKey = runnerKey;
+        }
+
+        @Suspendable
+        @Override
+        public LeaderboardService.RunnerHistory call() throws FlowException {
+            try {
+                return getServiceHub().cordaService(LeaderboardService.class).history(RunnerKey.normalise(runnerKey));
+            } catch (SQLException e) {
+                throw new FlowException("Could not read the runner history", e);
+            }
+        }
+    }
+}
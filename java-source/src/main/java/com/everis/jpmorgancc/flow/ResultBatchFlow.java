@@ -0,0 +1,159 @@
+package com.everis.jpmorgancc.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.everis.jpmorgancc.contract.JPMorganContract;
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.contracts.Command;
+import net.corda.core.flows.*;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+import net.corda.core.utilities.ProgressTracker.Step;
+
+import java.util.List;
+
+/**
+ * Records several results agreed with the same counterparty in one transaction, output i holding [rows] i as a
+ * [CompactJPMorganState], so that signing, notarisation and recording are paid once for the batch. The counterparty
+ * checks every output as the [JPMorganFlow.Acceptor] checks a single one.
+ *
+ * The [correlationId] is the batch's own; the API logs which submissions joined it.
+ */
+public class ResultBatchFlow {
+    @InitiatingFlow
+    @StartableByRPC
+    public static class Initiator extends FlowLogic<SignedTransaction> {
+
+        private final List<ResultRow> rows;
+        private final Party otherParty;
+        private final Party notary;
+        private final String correlationId;
+
+        private final Step GENERATING_TRANSACTION = new Step("Generating transaction based on the batch.");
+        private final Step VERIFYING_TRANSACTION = new Step("Verifying contract constraints.");
+        private final Step SIGNING_TRANSACTION = new Step("Signing transaction with our private key.");
+        private final Step GATHERING_SIGS = new Step("Gathering the counterparty's signature.") {
+            @Override
+            public ProgressTracker childProgressTracker() {
+                return CollectSignaturesFlow.Companion.tracker();
+            }
+        };
+        private final Step FINALISING_TRANSACTION = new Step("Obtaining notary signature and recording transaction.") {
+            @Override
+            public ProgressTracker childProgressTracker() {
+                return FinalityFlow.Companion.tracker();
+            }
+        };
+
+        private final ProgressTracker progressTracker = new ProgressTracker(
+                GENERATING_TRANSACTION,
+                VERIFYING_TRANSACTION,
+                SIGNING_TRANSACTION,
+                GATHERING_SIGS,
+                FINALISING_TRANSACTION
+        );
+
+        public Initiator(List<ResultRow> rows, Party otherParty, String correlationId) {
+            this(rows, otherParty, null, correlationId);
+        }
+
+        /**
+         * @param notary the notary of the shard owning the results, or null for the first notary on the network.
+         */
+        public Initiator(List<ResultRow> rows, Party otherParty, Party notary, String correlationId) {
+            this.rows = rows;
+            this.otherParty = otherParty;
+            this.notary = notary;
+            this.correlationId = TimingLog.correlationId(correlationId);
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            if (rows.isEmpty()) {
+                throw new FlowException("A batch needs at least one result.");
+            }
+            final long started = System.currentTimeMillis();
+            final Party me = getServiceHub().getMyInfo().getLegalIdentities().get(0);
+            final String node = me.getName().toString();
+            TimingLog.stage(correlationId, node, "BatchInitiator", "started", started);
+
+            final Party notary = this.notary != null ? this.notary : getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+
+            progressTracker.setCurrentStep(GENERATING_TRANSACTION);
+            final TransactionBuilder txBuilder = new TransactionBuilder(notary)
+                    .addCommand(new Command<>(new JPMorganContract.Commands.Create(),
+                            ImmutableList.of(me.getOwningKey(), otherParty.getOwningKey())));
+            for (ResultRow row : rows) {
+                try {
+                    txBuilder.addOutputState(row.toCompactState(me, otherParty), JPMorganContract.JPM_CONTRACT_ID);
+                } catch (IllegalArgumentException ex) {
+                    throw new FlowException("Bib " + row.getBibNumber() + ": " + ex.getMessage());
+                }
+            }
+
+            progressTracker.setCurrentStep(VERIFYING_TRANSACTION);
+            txBuilder.verify(getServiceHub());
+            TimingLog.stage(correlationId, node, "BatchInitiator", "verified", started);
+
+            progressTracker.setCurrentStep(SIGNING_TRANSACTION);
+            final SignedTransaction partSignedTx = getServiceHub().signInitialTransaction(txBuilder);
+            TimingLog.stage(correlationId, node, "BatchInitiator", "signed", started);
+
+            progressTracker.setCurrentStep(GATHERING_SIGS);
+            final FlowSession otherPartySession = initiateFlow(otherParty);
+            otherPartySession.send(correlationId);
+            final SignedTransaction fullySignedTx = subFlow(
+                    new CollectSignaturesFlow(partSignedTx, ImmutableSet.of(otherPartySession), CollectSignaturesFlow.Companion.tracker()));
+            TimingLog.stage(correlationId, node, "BatchInitiator", "countersigned", started);
+
+            progressTracker.setCurrentStep(FINALISING_TRANSACTION);
+            final SignedTransaction recordedTx = subFlow(new FinalityFlow(fullySignedTx));
+            TimingLog.stage(correlationId, node, "BatchInitiator", "recorded", started);
+            return recordedTx;
+        }
+    }
+
+    @InitiatedBy(Initiator.class)
+    public static class Acceptor extends FlowLogic<SignedTransaction> {
+
+        private final FlowSession otherPartyFlow;
+
+        public Acceptor(FlowSession otherPartyFlow) {
+            this.otherPartyFlow = otherPartyFlow;
+        }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            final long started = System.currentTimeMillis();
+            final String node = getServiceHub().getMyInfo().getLegalIdentities().get(0).getName().toString();
+            final String correlationId = TimingLog.correlationId(otherPartyFlow.receive(String.class).unwrap(id -> id));
+            TimingLog.stage(correlationId, node, "BatchAcceptor", "started", started);
+
+            class SignTxFlow extends SignTransactionFlow {
+                private SignTxFlow(FlowSession otherPartyFlow, ProgressTracker progressTracker) {
+                    super(otherPartyFlow, progressTracker);
+                }
+
+                @Override
+                protected void checkTransaction(SignedTransaction stx) {
+                    JPMorganFlow.Acceptor.checkResult(stx);
+                    TimingLog.stage(correlationId, node, "BatchAcceptor", "checked", started);
+                }
+            }
+
+            final SignedTransaction signedTx = subFlow(new SignTxFlow(otherPartyFlow, SignTransactionFlow.Companion.tracker()));
+            TimingLog.stage(correlationId, node, "BatchAcceptor", "signed", started);
+            return signedTx;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.everis.jpmorgancc.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.everis.jpmorgancc.contract.JPMorganContract;
+import com.everis.jpmorgancc.csv.ResultSheet;
+import com.everis.jpmorgancc.state.ResultSheetState;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.contracts.Command;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.*;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.core.utilities.ProgressTracker;
+import net.corda.core.utilities.ProgressTracker.Step;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static net.corda.core.contracts.ContractsDSL.requireThat;
+
+/**
+ * Records a complete result sheet, already uploaded as the attachment [sheetHash], as one [ResultSheetState] agreed
+ * with [otherParty]. The counterparty fetches the attachment while resolving the transaction, and both sides check the
+ * state's totals against it through the contract.
+ */
+public class ResultSheetFlow {
+    @InitiatingFlow
+    @StartableByRPC
+    public static class Initiator extends FlowLogic<SignedTransaction> {
+
+        private final SecureHash sheetHash;
+        private final String challengeName;
+        private final int challengeYear;
+        private final Party otherParty;
+        private final Party notary;
+
+        private final Step READING_SHEET = new Step("Reading the result sheet.");
+        private final Step GENERATING_TRANSACTION = new Step("Generating transaction based on the result sheet.");
+        private final Step VERIFYING_TRANSACTION = new Step("Verifying contract constraints.");
+        private final Step SIGNING_TRANSACTION = new Step("Signing transaction with our private key.");
+        private final Step GATHERING_SIGS = new Step("Gathering the counterparty's signature.") {
+            @Override
+            public ProgressTracker childProgressTracker() {
+                return CollectSignaturesFlow.Companion.tracker();
+            }
+        };
+        private final Step FINALISING_TRANSACTION = new Step("Obtaining notary signature and recording transaction.") {
+            @Override
+            public ProgressTracker childProgressTracker() {
+                return FinalityFlow.Companion.tracker();
+            }
+        };
+
+        private final ProgressTracker progressTracker = new ProgressTracker(
+                READING_SHEET,
+                GENERATING_TRANSACTION,
+                VERIFYING_TRANSACTION,
+                SIGNING_TRANSACTION,
+                GATHERING_SIGS,
+                FINALISING_TRANSACTION
+        );
+
+        public Initiator(SecureHash sheetHash, String challengeName, int challengeYear, Party otherParty) {
+            this(sheetHash, challengeName, challengeYear, otherParty, null);
+        }
+
+        /**
+         * @param notary the notary of the shard owning the challenge, or null for the first notary on the network.
+         */
+        public Initiator(SecureHash sheetHash, String challengeName, int challengeYear, Party otherParty, Party notary) {
+            this.sheetHash = sheetHash;
+            this.challengeName = challengeName;
+            this.challengeYear = challengeYear;
+            this.otherParty = otherParty;
+            this.notary = notary;
+        }
+
+        @Override
+        public ProgressTracker getProgressTracker() {
+            return progressTracker;
+        }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            final Party me = getServiceHub().getMyInfo().getLegalIdentities().get(0);
+            final Party notary = this.notary != null ? this.notary : getServiceHub().getNetworkMapCache().getNotaryIdentities().get(0);
+
+            progressTracker.setCurrentStep(READING_SHEET);
+            final ResultSheet.Totals totals = readTotals();
+
+            progressTracker.setCurrentStep(GENERATING_TRANSACTION);
+            final ResultSheetState sheet = new ResultSheetState(challengeName, challengeYear, sheetHash,
+                    totals.getFinishers(), totals.getBestTimeHundredths(), totals.getTotalTimeHundredths(), me,
+                    otherParty, new UniqueIdentifier());
+            final Command<JPMorganContract.Commands.PublishSheet> txCommand = new Command<>(
+                    new JPMorganContract.Commands.PublishSheet(),
+                    ImmutableList.of(sheet.getLender().getOwningKey(), sheet.getBorrower().getOwningKey()));
+            final TransactionBuilder txBuilder = new TransactionBuilder(notary)
+                    .addOutputState(sheet, JPMorganContract.JPM_CONTRACT_ID)
+                    .addCommand(txCommand)
+                    .addAttachment(sheetHash);
+
+            progressTracker.setCurrentStep(VERIFYING_TRANSACTION);
+            txBuilder.verify(getServiceHub());
+
+            progressTracker.setCurrentStep(SIGNING_TRANSACTION);
+            final SignedTransaction partSignedTx = getServiceHub().signInitialTransaction(txBuilder);
+
+            progressTracker.setCurrentStep(GATHERING_SIGS);
+            final FlowSession otherPartySession = initiateFlow(otherParty);
+            final SignedTransaction fullySignedTx = subFlow(
+                    new CollectSignaturesFlow(partSignedTx, ImmutableSet.of(otherPartySession), CollectSignaturesFlow.Companion.tracker()));
+
+            progressTracker.setCurrentStep(FINALISING_TRANSACTION);
+            return subFlow(new FinalityFlow(fullySignedTx));
+        }
+
+        private ResultSheet.Totals readTotals() throws FlowException {
+            if (!getServiceHub().getAttachments().hasAttachment(sheetHash)) {
+                throw new FlowException("No attachment " + sheetHash + " has been uploaded.");
+            }
+            try (InputStream in = getServiceHub().getAttachments().openAttachment(sheetHash).open()) {
+                return ResultSheet.verify(in, challengeName, challengeYear);
+            } catch (IOException | IllegalArgumentException ex) {
+                throw new FlowException("The result sheet " + sheetHash + " is invalid: " + ex.getMessage(), ex);
+            }
+        }
+    }
+
+    @InitiatedBy(Initiator.class)
+    public static class Acceptor extends FlowLogic<SignedTransaction> {
+
+        private final FlowSession otherPartyFlow;
+
+        public Acceptor(FlowSession otherPartyFlow) {
+            this.otherPartyFlow = otherPartyFlow;
+        }
+
+        @Suspendable
+        @Override
+        public SignedTransaction call() throws FlowException {
+            class SignTxFlow extends SignTransactionFlow {
+                private SignTxFlow(FlowSession otherPartyFlow, ProgressTracker progressTracker) {
+                    super(otherPartyFlow, progressTracker);
+                }
+
+                @Override
+                protected void checkTransaction(SignedTransaction stx) {
+                    // The contract has already checked the sheet against the attachment.
+                    requireThat(require -> {
+                        ContractState output = stx.getTx().getOutputs().get(0).getData();
+                        require.using("This must be a result sheet transaction.", output instanceof ResultSheetState);
+                        require.using("The sheet must be attached.",
+                                stx.getTx().getAttachments().contains(((ResultSheetState) output).getSheetHash()));
+                        return null;
+                    });
+                }
+            }
+
+            return subFlow(new SignTxFlow(otherPartyFlow, SignTransactionFlow.Companion.tracker()));
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.everis.jpmorgancc.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.everis.jpmorgancc.service.DisclosureService;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.contracts.Command;
+import net.corda.core.contracts.ComponentGroupEnum;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.contracts.TransactionState;
+import net.corda.core.crypto.CryptoUtils;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.crypto.TransactionSignature;
+import net.corda.core.flows.*;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.Party;
+import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.transactions.FilteredTransaction;
+import net.corda.core.transactions.SignedTransaction;
+
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shares recorded transactions with an observer, such as a sponsor or a timing auditor, as [FilteredTransaction]s
+ * holding only the requested [Component]s, by default the output states and the notary. The observer checks each
+ * transaction's Merkle proofs, that every participant of its outputs signed its id and, unless it provably has no
+ * inputs and no time window, as issuances are not notarised, that its notary did too. The partial data is then as
+ * trustworthy as the full transaction, and the observer keeps what it verified in its [DisclosureService].
+ *
+ * Tear-offs work on whole components: an output state is shared with all its fields or not at all. Leaving out the
+ * commands hides the signers, leaving out the attachments keeps the rows of a [ResultSheetState]'s sheet, and so
+ * every runner's name, private while its totals are shared.
+ *
+ * Transactions are sent -Djpmorgancc.share.batchSize at a time over one session, and the observer acknowledges each
+ * batch before the next is sent.
+ */
+public class ShareResultsFlow {
+    private static final int BATCH_SIZE = Integer.getInteger("jpmorgancc.share.batchSize", 100);
+
+    /**
+     * The parts of a transaction that can be shared. The notary is always shared, since the observer needs it to
+     * check the notary's signature.
+     */
+    @CordaSerializable
+    public enum Component { INPUTS, OUTPUTS, COMMANDS, ATTACHMENTS, TIME_WINDOW }
+
+    /**
+     * A filtered transaction with every signature over its id.
+     */
+    @CordaSerializable
+    public static class Disclosure {
+        private final FilteredTransaction tx;
+        private final List<TransactionSignature> signatures;
+
+        public Disclosure(FilteredTransaction tx, List<TransactionSignature> signatures) {
+            this.tx = tx;
+            this.signatures = signatures;
+        }
+
+        public FilteredTransaction getTx() { return tx; }
+        public List<TransactionSignature> getSignatures() { return signatures; }
+    }
+
+    /**
+     * Shares the transactions [txIds] with [observer] and returns the number shared.
+     */
+    @InitiatingFlow
+    @StartableByRPC
+    public static class Initiator extends FlowLogic<Integer> {
+        private final List<SecureHash> txIds;
+        private final Party observer;
+        private final Set<Component> components;
+
+        public Initiator(List<SecureHash> txIds, Party observer) {
+            this(txIds, observer, ImmutableSet.of(Component.OUTPUTS));
+        }
+
+        public Initiator(List<SecureHash> txIds, Party observer, Set<Component> components) {
+            this.txIds = txIds;
+            this.observer = observer;
+            this.components = components;
+        }
+
+        @Suspendable
+        @Override
+        public Integer call() throws FlowException {
+            final FlowSession session = initiateFlow(observer);
+            List<Disclosure> batch = new ArrayList<>();
+            int shared = 0;
+            for (SecureHash txId : txIds) {
+                final SignedTransaction stx = getServiceHub().getValidatedTransactions().getTransaction(txId);
+                if (stx == null) {
+                    throw new FlowException("Transaction " + txId + " is not recorded by this node.");
+                }
+                batch.add(disclose(stx));
+                if (batch.size() == BATCH_SIZE) {
+                    shared += send(session, batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                shared += send(session, batch);
+            }
+            session.send(Collections.emptyList());
+            return shared;
+        }
+
+        @Suspendable
+        private int send(FlowSession session, List<Disclosure> batch) throws FlowException {
+            final int accepted = session.sendAndReceive(Integer.class, batch).unwrap(count -> count);
+            if (accepted != batch.size()) {
+                throw new FlowException("The observer accepted " + accepted + " of " + batch.size() + " transactions.");
+            }
+            return accepted;
+        }
+
+        private Disclosure disclose(SignedTransaction stx) {
+            final FilteredTransaction ftx = stx.buildFilteredTransaction(component ->
+                    (component instanceof StateRef && components.contains(Component.INPUTS))
+                            || (component instanceof TransactionState && components.contains(Component.OUTPUTS))
+                            || (component instanceof Command && components.contains(Component.COMMANDS))
+                            || (component instanceof SecureHash && components.contains(Component.ATTACHMENTS))
+                            || (component instanceof TimeWindow && components.contains(Component.TIME_WINDOW))
+                            || component instanceof Party);
+            return new Disclosure(ftx, stx.getSigs());
+        }
+    }
+
+    /**
+     * Returns up to [limit] of the transactions disclosed to this node from the [offset]th on, oldest first. Only
+     * disclosures received since the node started are held; see [DisclosureService].
+     */
+    @StartableByRPC
+    public static class Received extends FlowLogic<List<DisclosureService.Disclosed>> {
+        private final int offset;
+        private final int limit;
+
+        public Received(int offset, int limit) {
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        @Suspendable
+        @Override
+        public List<DisclosureService.Disclosed> call() throws FlowException {
+            if (offset < 0 || limit <= 0) {
+                throw new FlowException("The offset must not be negative and the limit must be positive.");
+            }
+            return getServiceHub().cordaService(DisclosureService.class).list(offset, limit);
+        }
+    }
+
+    @InitiatedBy(Initiator.class)
+    public static class Observer extends FlowLogic<Integer> {
+        private final FlowSession otherPartyFlow;
+
+        public Observer(FlowSession otherPartyFlow) {
+            this.otherPartyFlow = otherPartyFlow;
+        }
+
+        @Suspendable
+        @Override
+        public Integer call() throws FlowException {
+            final DisclosureService disclosures = getServiceHub().cordaService(DisclosureService.class);
+            int received = 0;
+            while (true) {
+                @SuppressWarnings("unchecked")
+                final List<Disclosure> batch = otherPartyFlow.receive(List.class).unwrap(data -> (List<Disclosure>) data);
+                if (batch.isEmpty()) {
+                    return received;
+                }
+                for (Disclosure disclosure : batch) {
+                    check(disclosure);
+                }
+                for (Disclosure disclosure : batch) {
+                    disclosures.record(otherPartyFlow.getCounterparty().getName(), disclosure.getTx());
+                }
+                received += batch.size();
+                otherPartyFlow.send(batch.size());
+            }
+        }
+
+        private void check(Disclosure disclosure) throws FlowException {
+            final FilteredTransaction ftx = disclosure.getTx();
+            try {
+                ftx.verify();
+            } catch (Exception ex) {
+                throw new FlowException("Transaction " + ftx.getId() + " failed its Merkle proof.", ex);
+            }
+            final Party notary = ftx.getNotary();
+            if (notary == null || !getServiceHub().getNetworkMapCache().isNotary(notary)) {
+                throw new FlowException("Transaction " + ftx.getId() + " does not name a known notary.");
+            }
+            if (disclosure.getSignatures().isEmpty()) {
+                throw new FlowException("Transaction " + ftx.getId() + " is not signed.");
+            }
+            final List<PublicKey> signers = new ArrayList<>();
+            for (TransactionSignature signature : disclosure.getSignatures()) {
+                try {
+                    if (!signature.isValid(ftx.getId())) {
+                        throw new FlowException("Transaction " + ftx.getId() + " carries an invalid signature.");
+                    }
+                } catch (SignatureException ex) {
+                    throw new FlowException("Transaction " + ftx.getId() + " carries an invalid signature.", ex);
+                }
+                signers.add(signature.getBy());
+            }
+            for (TransactionState<ContractState> output : ftx.getOutputs()) {
+                for (AbstractParty participant : output.getData().getParticipants()) {
+                    if (!CryptoUtils.isFulfilledBy(participant.getOwningKey(), signers)) {
+                        throw new FlowException("Transaction " + ftx.getId() + " is not signed by " + participant + ".");
+                    }
+                }
+            }
+            if (!isIssuance(ftx) && !CryptoUtils.isFulfilledBy(notary.getOwningKey(), signers)) {
+                throw new FlowException("Transaction " + ftx.getId() + " is not signed by its notary.");
+            }
+        }
+
+        /**
+         * @return whether [ftx] has no inputs and no time window, which FinalityFlow does not notarise. A hidden input
+         * or time window group cannot be told apart from one in use, so only a group proved empty counts.
+         */
+        private static boolean isIssuance(FilteredTransaction ftx) {
+            try {
+                ftx.checkAllComponentsVisible(ComponentGroupEnum.INPUTS_GROUP);
+                ftx.checkAllComponentsVisible(ComponentGroupEnum.TIMEWINDOW_GROUP);
+            } catch (Exception ex) {
+                return false;
+            }
+            return ftx.getInputs().isEmpty() && ftx.getTimeWindow() == null;
+        }
+    }
+}
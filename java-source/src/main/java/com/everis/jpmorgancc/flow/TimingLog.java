@@ -0,0 +1,70 @@
+package com.everis.jpmorgancc.flow;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Writes one JSON line per stage of a result's journey, from the API call through the [JPMorganFlow.Initiator] to the
+ * counterparty's [JPMorganFlow.Acceptor], all carrying the correlation id created at the API. Grouping the lines of
+ * every node by correlation id rebuilds the latency breakdown of a single request:
+ *
+ *   {"ts":"2018-06-01T10:15:30.123Z","correlationId":"…","node":"O=PartyA, L=London, C=GB","component":"Initiator",
+ *    "stage":"recorded","elapsedMillis":412}
+ *
+ * The lines go to the "jpmorgancc.timing" logger, which the log4j2 configuration writes to its own file.
+ */
+public class TimingLog {
+    private static final Logger timing = LoggerFactory.getLogger("jpmorgancc.timing");
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private TimingLog() { }
+
+    /**
+     * @return [requested] if it is a usable correlation id, such as one passed by a caller in a header, or a new one.
+     */
+    public static String correlationId(String requested) {
+        return requested != null && VALID_ID.matcher(requested).matches() ? requested : UUID.randomUUID().toString();
+    }
+
+    /**
+     * Logs that [component] on [node] reached [stage], [startMillis] being when the component started.
+     */
+    public static void stage(String correlationId, String node, String component, String stage, long startMillis) {
+        write(correlationId, null, node, component, stage, startMillis);
+    }
+
+    /**
+     * As [stage], for a submission recorded as part of the batch [batchId], whose own lines carry the batch's id.
+     */
+    public static void batched(String correlationId, String batchId, String node, String component, String stage,
+                               long startMillis) {
+        write(correlationId, batchId, node, component, stage, startMillis);
+    }
+
+    private static void write(String correlationId, String batchId, String node, String component, String stage,
+                              long startMillis) {
+        if (!timing.isInfoEnabled()) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        final StringBuilder line = new StringBuilder(240)
+                .append("{\"ts\":\"").append(Instant.ofEpochMilli(now))
+                .append("\",\"correlationId\":\"").append(encoder.quoteAsString(correlationId));
+        if (batchId != null) {
+            line.append("\",\"batchId\":\"").append(encoder.quoteAsString(batchId));
+        }
+        timing.info(line
+                .append("\",\"node\":\"").append(encoder.quoteAsString(node))
+                .append("\",\"component\":\"").append(component)
+                .append("\",\"stage\":\"").append(stage)
+                .append("\",\"elapsedMillis\":").append(now - startMillis)
+                .append('}')
+                .toString());
+    }
+}
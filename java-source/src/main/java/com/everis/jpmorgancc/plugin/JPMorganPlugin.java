@@ -1,6 +1,8 @@
 package com.everis.jpmorgancc.plugin;
 
+import com.everis.jpmorgancc.api.CompressionInterceptor;
 import com.everis.jpmorgancc.api.JPMorganApi;
+import com.everis.jpmorgancc.api.StaticAssets;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -13,12 +15,16 @@ import java.util.function.Function;
 
 public class JPMorganPlugin implements WebServerPluginRegistry {
     /**
-     * A list of classes that expose web APIs.
+     * A list of classes that expose web APIs, and the JAX-RS providers applied to them.
      */
-    private final List<Function<CordaRPCOps, ?>> webApis = ImmutableList.of(JPMorganApi::new);
+    private final List<Function<CordaRPCOps, ?>> webApis = ImmutableList.of(
+            JPMorganApi::new,
+            rpcOps -> new StaticAssets(),
+            rpcOps -> new CompressionInterceptor());
 
     /**
-     * A list of directories in the resources directory that will be served by Jetty under /web.
+     * A list of directories in the resources directory that will be served by Jetty under /web. Jetty serves them
+     * uncompressed and uncached; [StaticAssets] serves the same files compressed under /api/web.
      */
     private final Map<String, String> staticServeDirs = ImmutableMap.of(
             // This will serve the exampleWeb directory in resources to /web/example
@@ -0,0 +1,17 @@
+package com.everis.jpmorgancc.plugin;
+
+import com.everis.jpmorgancc.state.CompactJPMorganState;
+import com.everis.jpmorgancc.state.Gender;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.serialization.SerializationWhitelist;
+
+import java.util.List;
+
+/**
+ * Registers the types carried inside our states with the node's serialisation framework.
+ */
+public class JPMorganSerializationWhitelist implements SerializationWhitelist {
+    private final List<Class<?>> whitelist = ImmutableList.of(CompactJPMorganState.class, Gender.class);
+
+    @Override public List<Class<?>> getWhitelist() { return whitelist; }
+}
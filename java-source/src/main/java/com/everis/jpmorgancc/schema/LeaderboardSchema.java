@@ -0,0 +1,6 @@
+package com.everis.jpmorgancc.schema;
+
+/**
+ * The family of schemas for the leaderboard tables kept by [LeaderboardService].
+ */
+public class LeaderboardSchema { }
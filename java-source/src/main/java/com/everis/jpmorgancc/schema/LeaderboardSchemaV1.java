@@ -0,0 +1,223 @@
+package com.everis.jpmorgancc.schema;
+
+import com.google.common.collect.ImmutableList;
+import net.corda.core.schemas.MappedSchema;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The leaderboard tables. They are not mapped from any state; [LeaderboardService] writes them as results are
+ * recorded, and the node creates them because the schema is part of the CorDapp.
+ *
+ * [Entry] holds one row per unconsumed result and per row of each unconsumed result sheet, indexed so that a
+ * challenge, year and gender can be read in finishing order, or a runner's results by [RunnerKey]. [Summary] holds
+ * the finishers, best and total time of each challenge, year and gender, and [RunnerBest] the number of results and
+ * personal best of each runner.
+ */
+public class LeaderboardSchemaV1 extends MappedSchema {
+    public LeaderboardSchemaV1() {
+        super(LeaderboardSchema.class, 1, ImmutableList.of(Entry.class, Summary.class, RunnerBest.class));
+    }
+
+    @Entity
+    @Table(name = "jpm_leaderboard", indexes = {
+            @Index(name = "jpm_leaderboard_gender_idx", columnList = "challenge_name,challenge_year,gender,time_hundredths"),
+            @Index(name = "jpm_leaderboard_year_idx", columnList = "challenge_name,challenge_year,time_hundredths"),
+            @Index(name = "jpm_leaderboard_runner_idx", columnList = "runner_key,challenge_year")})
+    public static class Entry {
+        @EmbeddedId private final EntryKey key;
+        @Column(name = "challenge_name") private final String challengeName;
+        @Column(name = "challenge_year") private final int challengeYear;
+        @Column(name = "gender") private final String gender;
+        @Column(name = "time_hundredths") private final int timeHundredths;
+        @Column(name = "bib_number") private final int bibNumber;
+        @Column(name = "first_name") private final String firstName;
+        @Column(name = "last_name") private final String lastName;
+        @Column(name = "runner_key") private final String runnerKey;
+
+        public Entry(EntryKey key, String challengeName, int challengeYear, String gender,
+                     int timeHundredths, int bibNumber, String firstName, String lastName, String runnerKey) {
+            this.key = key;
+            this.challengeName = challengeName;
+            this.challengeYear = challengeYear;
+            this.gender = gender;
+            this.timeHundredths = timeHundredths;
+            this.bibNumber = bibNumber;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.runnerKey = runnerKey;
+        }
+
+        // Default constructor required by hibernate.
+        public Entry() {
+            this(null, null, 0, null, 0, 0, null, null, null);
+        }
+
+        public EntryKey getKey() { return key; }
+
+        public String getChallengeName() { return challengeName; }
+
+        public int getChallengeYear() { return challengeYear; }
+
+        public String getGender() { return gender; }
+
+        public int getTimeHundredths() { return timeHundredths; }
+
+        public int getBibNumber() { return bibNumber; }
+
+        public String getFirstName() { return firstName; }
+
+        public String getLastName() { return lastName; }
+
+        public String getRunnerKey() { return runnerKey; }
+    }
+
+    @Entity
+    @Table(name = "jpm_leaderboard_summary")
+    public static class Summary {
+        @EmbeddedId private final SummaryKey key;
+        @Column(name = "finishers") private final long finishers;
+        @Column(name = "best_hundredths") private final int bestHundredths;
+        @Column(name = "total_hundredths") private final long totalHundredths;
+
+        public Summary(SummaryKey key, long finishers, int bestHundredths, long totalHundredths) {
+            this.key = key;
+            this.finishers = finishers;
+            this.bestHundredths = bestHundredths;
+            this.totalHundredths = totalHundredths;
+        }
+
+        // Default constructor required by hibernate.
+        public Summary() {
+            this(null, 0, 0, 0);
+        }
+
+        public SummaryKey getKey() { return key; }
+
+        public long getFinishers() { return finishers; }
+
+        public int getBestHundredths() { return bestHundredths; }
+
+        public long getTotalHundredths() { return totalHundredths; }
+    }
+
+    @Entity
+    @Table(name = "jpm_runner_best")
+    public static class RunnerBest {
+        @Id @Column(name = "runner_key") private final String runnerKey;
+        @Column(name = "first_name") private final String firstName;
+        @Column(name = "last_name") private final String lastName;
+        @Column(name = "results") private final long results;
+        @Column(name = "best_hundredths") private final int bestHundredths;
+
+        public RunnerBest(String runnerKey, String firstName, String lastName, long results, int bestHundredths) {
+            this.runnerKey = runnerKey;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.results = results;
+            this.bestHundredths = bestHundredths;
+        }
+
+        // Default constructor required by hibernate.
+        public RunnerBest() {
+            this(null, null, null, 0, 0);
+        }
+
+        public String getRunnerKey() { return runnerKey; }
+
+        public String getFirstName() { return firstName; }
+
+        public String getLastName() { return lastName; }
+
+        public long getResults() { return results; }
+
+        public int getBestHundredths() { return bestHundredths; }
+    }
+
+    /**
+     * The state an [Entry] comes from, and for a result sheet the row of the sheet, in finishing order; 0 for a result
+     * recorded on its own.
+     */
+    @Embeddable
+    public static class EntryKey implements Serializable {
+        @Column(name = "transaction_id", length = 64) private final String txId;
+        @Column(name = "output_index") private final int index;
+        @Column(name = "sheet_row") private final int sheetRow;
+
+        public EntryKey(String txId, int index, int sheetRow) {
+            this.txId = txId;
+            this.index = index;
+            this.sheetRow = sheetRow;
+        }
+
+        // Default constructor required by hibernate.
+        public EntryKey() {
+            this(null, 0, 0);
+        }
+
+        public String getTxId() { return txId; }
+
+        public int getIndex() { return index; }
+
+        public int getSheetRow() { return sheetRow; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof EntryKey)) return false;
+            EntryKey that = (EntryKey) o;
+            return index == that.index && sheetRow == that.sheetRow && Objects.equals(txId, that.txId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(txId, index, sheetRow);
+        }
+    }
+
+    @Embeddable
+    public static class SummaryKey implements Serializable {
+        @Column(name = "challenge_name") private final String challengeName;
+        @Column(name = "challenge_year") private final int challengeYear;
+        @Column(name = "gender") private final String gender;
+
+        public SummaryKey(String challengeName, int challengeYear, String gender) {
+            this.challengeName = challengeName;
+            this.challengeYear = challengeYear;
+            this.gender = gender;
+        }
+
+        // Default constructor required by hibernate.
+        public SummaryKey() {
+            this(null, 0, null);
+        }
+
+        public String getChallengeName() { return challengeName; }
+
+        public int getChallengeYear() { return challengeYear; }
+
+        public String getGender() { return gender; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SummaryKey)) return false;
+            SummaryKey that = (SummaryKey) o;
+            return challengeYear == that.challengeYear && Objects.equals(challengeName, that.challengeName)
+                    && Objects.equals(gender, that.gender);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(challengeName, challengeYear, gender);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.everis.jpmorgancc.service;
+
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import net.corda.core.transactions.FilteredTransaction;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the [FilteredTransaction]s other nodes have disclosed to this one through [ShareResultsFlow], once their
+ * proofs and notary signatures have been checked. They are kept in memory, oldest first, up to
+ * -Djpmorgancc.share.maxKept transactions; a disclosure of a transaction already held replaces it.
+ *
+ * The store is best-effort: nothing is written to the node's database, so the disclosures are lost when the node
+ * restarts, and the oldest are dropped once the limit is reached. An observer that must keep them should read them
+ * with [ShareResultsFlow.Received] and store them itself, or ask the sender to share them again.
+ */
+@CordaService
+public class DisclosureService extends SingletonSerializeAsToken {
+    private static final int MAX_KEPT = Integer.getInteger("jpmorgancc.share.maxKept", 100_000);
+
+    private final Map<SecureHash, Disclosed> disclosed = new LinkedHashMap<SecureHash, Disclosed>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SecureHash, Disclosed> eldest) {
+            return size() > MAX_KEPT;
+        }
+    };
+
+    public DisclosureService(AppServiceHub services) { }
+
+    public synchronized void record(CordaX500Name sender, FilteredTransaction tx) {
+        disclosed.remove(tx.getId());
+        disclosed.put(tx.getId(), new Disclosed(sender, tx));
+    }
+
+    /**
+     * @return up to [limit] disclosures from the [offset]th on, oldest first.
+     */
+    public synchronized List<Disclosed> list(int offset, int limit) {
+        final List<Disclosed> page = new ArrayList<>();
+        int i = 0;
+        for (Disclosed entry : disclosed.values()) {
+            if (i++ < offset) {
+                continue;
+            }
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(entry);
+        }
+        return page;
+    }
+
+    /**
+     * A verified transaction disclosed by [sender].
+     */
+    @CordaSerializable
+    public static class Disclosed {
+        private final CordaX500Name sender;
+        private final FilteredTransaction tx;
+
+        public Disclosed(CordaX500Name sender, FilteredTransaction tx) {
+            this.sender = sender;
+            this.tx = tx;
+        }
+
+        public CordaX500Name getSender() { return sender; }
+        public FilteredTransaction getTx() { return tx; }
+    }
+}
@@ -0,0 +1,651 @@
+package com.everis.jpmorgancc.service;
+
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.csv.ResultSheet;
+import com.everis.jpmorgancc.state.CompactJPMorganState;
+import com.everis.jpmorgancc.state.RaceResult;
+import com.everis.jpmorgancc.state.ResultSheetState;
+import com.everis.jpmorgancc.state.RunnerKey;
+import com.everis.jpmorgancc.store.ResultQueries;
+import net.corda.core.contracts.Attachment;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.node.AppServiceHub;
+import net.corda.core.node.services.CordaService;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.serialization.CordaSerializable;
+import net.corda.core.serialization.SingletonSerializeAsToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the [LeaderboardSchemaV1] tables in step with the vault, so that standings and runner histories are read from
+ * an index instead of being recomputed from jpm_states. A [ResultSheetState] adds an entry for every row of its sheet,
+ * read from the attachment the node already holds, so sheet results rank alongside results recorded on their own.
+ *
+ * The tables are written from the vault's raw updates, which are delivered inside the transaction recording the
+ * results: a result and its leaderboard row are committed together. The writes of each update run under a savepoint,
+ * so a failed leaderboard write is rolled back and logged rather than failing the recording, even on databases such
+ * as PostgreSQL that refuse to commit a transaction after an error. The tables are then marked stale and rebuilt from
+ * the vault before the next read, as they are on the first read after start-up if the vault holds results they are
+ * missing.
+ */
+@CordaService
+public class LeaderboardService extends SingletonSerializeAsToken {
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+
+    private static final String INSERT_ENTRY = "INSERT INTO jpm_leaderboard (transaction_id, output_index, sheet_row,"
+            + " challenge_name, challenge_year, gender, time_hundredths, bib_number, first_name, last_name, runner_key)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String OF_STATE = " transaction_id = ? AND output_index = ?";
+    private static final String INSERT_RUNNER_BESTS = "INSERT INTO jpm_runner_best (runner_key, first_name, last_name,"
+            + " results, best_hundredths) SELECT runner_key, MIN(first_name), MIN(last_name), COUNT(*),"
+            + " MIN(time_hundredths) FROM jpm_leaderboard";
+    private static final String UNCONSUMED_JOIN = " JOIN vault_states v ON v.transaction_id = s.transaction_id"
+            + " AND v.output_index = s.output_index WHERE v.state_status = " + Vault.StateStatus.UNCONSUMED.ordinal();
+    private static final int REBUILD_BATCH = 1000;
+    private static final int SHEET_PAGE = 200;
+
+    private final AppServiceHub services;
+    private volatile boolean stale = true;
+
+    public LeaderboardService(AppServiceHub services) {
+        this.services = services;
+        services.getVaultService().getRawUpdates().subscribe(this::apply);
+    }
+
+    /**
+     * @return up to [limit] results of [challengeName] in [challengeYear] from place [offset] + 1 on, fastest first,
+     * restricted to [gender] unless it is null. Equal times share a place.
+     */
+    public List<Standing> standings(String challengeName, int challengeYear, String gender, int offset, int limit)
+            throws SQLException {
+        ensureCurrent();
+        final String genderClause = gender == null ? "" : " AND gender = ?";
+        final List<Standing> standings = new ArrayList<>();
+        try (PreparedStatement statement = connection().prepareStatement(
+                "SELECT bib_number, first_name, last_name, gender, time_hundredths FROM jpm_leaderboard"
+                        + " WHERE challenge_name = ? AND challenge_year = ?" + genderClause
+                        + " ORDER BY time_hundredths LIMIT ? OFFSET ?")) {
+            int i = bind(statement, challengeName, challengeYear, gender);
+            statement.setInt(i++, limit);
+            statement.setInt(i, offset);
+            try (ResultSet rs = statement.executeQuery()) {
+                int place = 0;
+                int previousTime = -1;
+                for (int row = 0; rs.next(); row++) {
+                    final int time = rs.getInt(5);
+                    if (row == 0) {
+                        place = offset == 0 ? 1 : countFaster(challengeName, challengeYear, gender, time) + 1;
+                    } else if (time != previousTime) {
+                        place = offset + row + 1;
+                    }
+                    previousTime = time;
+                    standings.add(new Standing(place, rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                            (double) time / CompactJPMorganState.TIME_SCALE));
+                }
+            }
+        }
+        return standings;
+    }
+
+    /**
+     * @return the finishers, best and mean time of every year and gender of [challengeName], restricted to [gender]
+     * unless it is null.
+     */
+    public List<YearStanding> years(String challengeName, String gender) throws SQLException {
+        ensureCurrent();
+        final String genderClause = gender == null ? "" : " AND gender = ?";
+        final List<YearStanding> years = new ArrayList<>();
+        try (PreparedStatement statement = connection().prepareStatement(
+                "SELECT challenge_year, gender, finishers, best_hundredths, total_hundredths FROM jpm_leaderboard_summary"
+                        + " WHERE challenge_name = ?" + genderClause + " ORDER BY challenge_year, gender")) {
+            statement.setString(1, challengeName);
+            if (gender != null) {
+                statement.setString(2, gender);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    final long finishers = rs.getLong(3);
+                    years.add(new YearStanding(challengeName, rs.getInt(1), rs.getString(2), finishers,
+                            (double) rs.getInt(4) / CompactJPMorganState.TIME_SCALE,
+                            (double) rs.getLong(5) / finishers / CompactJPMorganState.TIME_SCALE));
+                }
+            }
+        }
+        return years;
+    }
+
+    /**
+     * @return every result recorded for the runner with [runnerKey], oldest year first, and their personal best. The
+     * history is empty if no result has that key.
+     */
+    public RunnerHistory history(String runnerKey) throws SQLException {
+        ensureCurrent();
+        final String firstName;
+        final String lastName;
+        final double bestTime;
+        try (PreparedStatement statement = connection().prepareStatement(
+                "SELECT first_name, last_name, best_hundredths FROM jpm_runner_best WHERE runner_key = ?")) {
+            statement.setString(1, runnerKey);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    return new RunnerHistory(runnerKey, null, null, 0, new ArrayList<>());
+                }
+                firstName = rs.getString(1);
+                lastName = rs.getString(2);
+                bestTime = (double) rs.getInt(3) / CompactJPMorganState.TIME_SCALE;
+            }
+        }
+        final List<RunnerResult> results = new ArrayList<>();
+        try (PreparedStatement statement = connection().prepareStatement(
+                "SELECT challenge_name, challenge_year, bib_number, gender, time_hundredths FROM jpm_leaderboard"
+                        + " WHERE runner_key = ? ORDER BY challenge_year, challenge_name")) {
+            statement.setString(1, runnerKey);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    results.add(new RunnerResult(rs.getString(1), rs.getInt(2), rs.getInt(3), rs.getString(4),
+                            (double) rs.getInt(5) / CompactJPMorganState.TIME_SCALE));
+                }
+            }
+        }
+        return new RunnerHistory(runnerKey, firstName, lastName, bestTime, results);
+    }
+
+    // Anything thrown from here would reach the transaction recording the results, so every failure is caught.
+    private void apply(Vault.Update<ContractState> update) {
+        Savepoint savepoint = null;
+        try {
+            savepoint = connection().setSavepoint();
+            for (StateAndRef<ContractState> consumed : update.getConsumed()) {
+                remove(consumed.getRef());
+            }
+            for (StateAndRef<ContractState> produced : update.getProduced()) {
+                add(produced.getRef(), produced.getState().getData());
+            }
+            connection().releaseSavepoint(savepoint);
+        } catch (SQLException | RuntimeException ex) {
+            stale = true;
+            if (savepoint != null) {
+                try {
+                    connection().rollback(savepoint);
+                } catch (SQLException rollbackEx) {
+                    ex.addSuppressed(rollbackEx);
+                }
+            }
+            logger.error("Could not update the leaderboard, it will be rebuilt before the next read", ex);
+        }
+    }
+
+    private void add(StateRef ref, ContractState state) throws SQLException {
+        if (state instanceof ResultSheetState) {
+            insertSheetEntries(ref, (ResultSheetState) state);
+            recompute(ref, false);
+            return;
+        }
+        if (!(state instanceof RaceResult)) {
+            return;
+        }
+        final RaceResult result = (RaceResult) state;
+        final String challengeName = result.challengeName();
+        final int challengeYear = result.challengeYear();
+        final String gender = result.genderCode();
+        final int time = result.timeHundredths();
+        final int bibNumber = result.bibNumber();
+        final String firstName = result.firstName();
+        final String lastName = result.lastName();
+
+        try (PreparedStatement statement = connection().prepareStatement(INSERT_ENTRY)) {
+            bindEntry(statement, ref.getTxhash().toString(), ref.getIndex(), 0, challengeName, challengeYear, gender, time,
+                    bibNumber, firstName, lastName);
+            statement.executeUpdate();
+        }
+        upsert(() -> addToSummary(challengeName, challengeYear, gender, time),
+                () -> insertSummary(challengeName, challengeYear, gender, time));
+        final String runnerKey = RunnerKey.of(firstName, lastName);
+        upsert(() -> addToRunnerBest(runnerKey, time), () -> insertRunnerBest(runnerKey, firstName, lastName, time));
+    }
+
+    /**
+     * Runs [update], or [insert] if it matched no row. If another transaction inserted the row in between, the insert
+     * is rolled back to a savepoint, which keeps the transaction usable, and [update] is run again.
+     */
+    private void upsert(SqlUpdate update, SqlUpdate insert) throws SQLException {
+        if (update.run() > 0) {
+            return;
+        }
+        final Savepoint savepoint = connection().setSavepoint();
+        try {
+            insert.run();
+            connection().releaseSavepoint(savepoint);
+        } catch (SQLException ex) {
+            connection().rollback(savepoint);
+            if (update.run() == 0) {
+                throw ex;
+            }
+        }
+    }
+
+    private static void bindEntry(PreparedStatement statement, String txhash, int index, int sheetRow,
+                                  String challengeName, int challengeYear, String gender, int time, int bibNumber,
+                                  String firstName, String lastName) throws SQLException {
+        statement.setString(1, txhash);
+        statement.setInt(2, index);
+        statement.setInt(3, sheetRow);
+        statement.setString(4, challengeName);
+        statement.setInt(5, challengeYear);
+        statement.setString(6, gender);
+        statement.setInt(7, time);
+        statement.setInt(8, bibNumber);
+        statement.setString(9, firstName);
+        statement.setString(10, lastName);
+        statement.setString(11, RunnerKey.of(firstName, lastName));
+    }
+
+    /**
+     * Adds an entry for every row of the sheet, in batches.
+     */
+    private void insertSheetEntries(StateRef ref, ResultSheetState state) throws SQLException {
+        final Attachment attachment = services.getAttachments().openAttachment(state.getSheetHash());
+        if (attachment == null) {
+            throw new SQLException("The node does not hold result sheet " + state.getSheetHash());
+        }
+        final ResultSheet sheet;
+        try (InputStream in = attachment.open()) {
+            sheet = ResultSheet.read(in);
+        } catch (IOException ex) {
+            throw new SQLException("Could not read result sheet " + state.getSheetHash(), ex);
+        }
+        try (PreparedStatement insert = connection().prepareStatement(INSERT_ENTRY)) {
+            final List<ResultRow> rows = sheet.getRows();
+            for (int row = 0; row < rows.size(); row++) {
+                final ResultRow result = rows.get(row);
+                bindEntry(insert, ref.getTxhash().toString(), ref.getIndex(), row, result.getChallengeName(),
+                        result.getChallengeYear(), result.getGender(), CompactJPMorganState.toHundredths(result.getTime()),
+                        result.getBibNumber(), result.getFirstName(), result.getLastName());
+                insert.addBatch();
+                if ((row + 1) % REBUILD_BATCH == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private int addToSummary(String challengeName, int challengeYear, String gender, int time) throws SQLException {
+        try (PreparedStatement statement = connection().prepareStatement(
+                "UPDATE jpm_leaderboard_summary SET finishers = finishers + 1, total_hundredths = total_hundredths + ?,"
+                        + " best_hundredths = CASE WHEN best_hundredths > ? THEN ? ELSE best_hundredths END"
+                        + " WHERE challenge_name = ? AND challenge_year = ? AND gender = ?")) {
+            statement.setInt(1, time);
+            statement.setInt(2, time);
+            statement.setInt(3, time);
+            statement.setString(4, challengeName);
+            statement.setInt(5, challengeYear);
+            statement.setString(6, gender);
+            return statement.executeUpdate();
+        }
+    }
+
+    private int insertSummary(String challengeName, int challengeYear, String gender, int time) throws SQLException {
+        try (PreparedStatement statement = connection().prepareStatement(
+                "INSERT INTO jpm_leaderboard_summary (challenge_name, challenge_year, gender, finishers,"
+                        + " best_hundredths, total_hundredths) VALUES (?, ?, ?, 1, ?, ?)")) {
+            statement.setString(1, challengeName);
+            statement.setInt(2, challengeYear);
+            statement.setString(3, gender);
+            statement.setInt(4, time);
+            statement.setInt(5, time);
+            return statement.executeUpdate();
+        }
+    }
+
+    private int addToRunnerBest(String runnerKey, int time) throws SQLException {
+        try (PreparedStatement statement = connection().prepareStatement(
+                "UPDATE jpm_runner_best SET results = results + 1,"
+                        + " best_hundredths = CASE WHEN best_hundredths > ? THEN ? ELSE best_hundredths END"
+                        + " WHERE runner_key = ?")) {
+            statement.setInt(1, time);
+            statement.setInt(2, time);
+            statement.setString(3, runnerKey);
+            return statement.executeUpdate();
+        }
+    }
+
+    private int insertRunnerBest(String runnerKey, String firstName, String lastName, int time) throws SQLException {
+        try (PreparedStatement statement = connection().prepareStatement(
+                "INSERT INTO jpm_runner_best (runner_key, first_name, last_name, results, best_hundredths)"
+                        + " VALUES (?, ?, ?, 1, ?)")) {
+            statement.setString(1, runnerKey);
+            statement.setString(2, firstName);
+            statement.setString(3, lastName);
+            statement.setInt(4, time);
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Results are never consumed by this CorDapp's contract, so removal simply recomputes the affected summaries and
+     * personal bests.
+     */
+    private void remove(StateRef ref) throws SQLException {
+        recompute(ref, true);
+        try (PreparedStatement statement = connection().prepareStatement("DELETE FROM jpm_leaderboard WHERE" + OF_STATE)) {
+            bindState(statement, 1, ref);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Recomputes the summaries and personal bests the entries of [ref], a result or a whole sheet, count towards, from
+     * every entry, or from every other entry if [excluding].
+     */
+    private void recompute(StateRef ref, boolean excluding) throws SQLException {
+        final String others = excluding ? " AND NOT (" + OF_STATE + ")" : "";
+        final List<Object[]> groups = new ArrayList<>();
+        try (PreparedStatement statement = connection().prepareStatement(
+                "SELECT DISTINCT challenge_name, challenge_year, gender FROM jpm_leaderboard WHERE" + OF_STATE)) {
+            bindState(statement, 1, ref);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    groups.add(new Object[]{ rs.getString(1), rs.getInt(2), rs.getString(3) });
+                }
+            }
+        }
+        for (Object[] group : groups) {
+            try (PreparedStatement statement = connection().prepareStatement(
+                    "DELETE FROM jpm_leaderboard_summary WHERE challenge_name = ? AND challenge_year = ? AND gender = ?")) {
+                bind(statement, (String) group[0], (Integer) group[1], (String) group[2]);
+                statement.executeUpdate();
+            }
+            try (PreparedStatement statement = connection().prepareStatement(
+                    "INSERT INTO jpm_leaderboard_summary (challenge_name, challenge_year, gender, finishers, best_hundredths,"
+                            + " total_hundredths) SELECT challenge_name, challenge_year, gender, COUNT(*), MIN(time_hundredths),"
+                            + " SUM(time_hundredths) FROM jpm_leaderboard"
+                            + " WHERE challenge_name = ? AND challenge_year = ? AND gender = ?" + others
+                            + " GROUP BY challenge_name, challenge_year, gender")) {
+                final int next = bind(statement, (String) group[0], (Integer) group[1], (String) group[2]);
+                if (excluding) {
+                    bindState(statement, next, ref);
+                }
+                statement.executeUpdate();
+            }
+        }
+
+        final String runnersOfState = " runner_key IN (SELECT runner_key FROM jpm_leaderboard WHERE" + OF_STATE + ")";
+        try (PreparedStatement statement = connection().prepareStatement(
+                "DELETE FROM jpm_runner_best WHERE" + runnersOfState)) {
+            bindState(statement, 1, ref);
+            statement.executeUpdate();
+        }
+        try (PreparedStatement statement = connection().prepareStatement(
+                INSERT_RUNNER_BESTS + " WHERE" + runnersOfState + others + " GROUP BY runner_key")) {
+            final int next = bindState(statement, 1, ref);
+            if (excluding) {
+                bindState(statement, next, ref);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Rebuilds the tables if they may have missed results: on the first read, and after a failed update. Runner keys
+     * are computed here rather than in SQL, so the rebuild streams the results through the node, and reads back every
+     * result sheet.
+     */
+    private synchronized void ensureCurrent() throws SQLException {
+        if (!stale) {
+            return;
+        }
+        try (Statement statement = connection().createStatement()) {
+            final long entries = count(statement, "SELECT COUNT(*) FROM jpm_leaderboard");
+            final long unkeyed = count(statement, "SELECT COUNT(*) FROM jpm_leaderboard WHERE runner_key IS NULL");
+            final List<StateAndRef<ResultSheetState>> sheets = sheets();
+            final long results = count(statement, "SELECT COUNT(*) FROM jpm_states s" + UNCONSUMED_JOIN)
+                    + sheets.stream().mapToLong(sheet -> sheet.getState().getData().getFinishers()).sum();
+            if (entries != results || unkeyed > 0) {
+                final long started = System.nanoTime();
+                statement.executeUpdate("DELETE FROM jpm_runner_best");
+                statement.executeUpdate("DELETE FROM jpm_leaderboard_summary");
+                statement.executeUpdate("DELETE FROM jpm_leaderboard");
+                try (ResultSet rs = statement.executeQuery("SELECT s.transaction_id, s.output_index, s.challengeName,"
+                        + " s.challengeYear, s.gender, s.time, s.bibNumber, s.firstName, s.lastName FROM jpm_states s"
+                        + UNCONSUMED_JOIN);
+                     PreparedStatement insert = connection().prepareStatement(INSERT_ENTRY)) {
+                    for (int batched = 1; rs.next(); batched++) {
+                        bindEntry(insert, rs.getString(1), rs.getInt(2), 0, rs.getString(3), rs.getInt(4), rs.getString(5),
+                                CompactJPMorganState.toHundredths(rs.getDouble(6)), rs.getInt(7), rs.getString(8),
+                                rs.getString(9));
+                        insert.addBatch();
+                        if (batched % REBUILD_BATCH == 0) {
+                            insert.executeBatch();
+                        }
+                    }
+                    insert.executeBatch();
+                }
+                for (StateAndRef<ResultSheetState> sheet : sheets) {
+                    insertSheetEntries(sheet.getRef(), sheet.getState().getData());
+                }
+                statement.executeUpdate("INSERT INTO jpm_leaderboard_summary (challenge_name, challenge_year, gender,"
+                        + " finishers, best_hundredths, total_hundredths) SELECT challenge_name, challenge_year, gender,"
+                        + " COUNT(*), MIN(time_hundredths), SUM(time_hundredths) FROM jpm_leaderboard"
+                        + " GROUP BY challenge_name, challenge_year, gender");
+                statement.executeUpdate(INSERT_RUNNER_BESTS + " GROUP BY runner_key");
+                logger.info("Rebuilt the leaderboard from {} results in {} ms", results,
+                        (System.nanoTime() - started) / 1_000_000);
+            }
+        }
+        stale = false;
+    }
+
+    /**
+     * @return every unconsumed result sheet, paged through the vault.
+     */
+    private List<StateAndRef<ResultSheetState>> sheets() {
+        final List<StateAndRef<ResultSheetState>> sheets = new ArrayList<>();
+        for (int pageNumber = 1; ; pageNumber++) {
+            final List<StateAndRef<ResultSheetState>> page = services.getVaultService().queryBy(ResultSheetState.class,
+                    ResultQueries.allSheets(), new PageSpecification(pageNumber, SHEET_PAGE)).getStates();
+            sheets.addAll(page);
+            if (page.size() < SHEET_PAGE) {
+                return sheets;
+            }
+        }
+    }
+
+    private int countFaster(String challengeName, int challengeYear, String gender, int time) throws SQLException {
+        try (PreparedStatement statement = connection().prepareStatement(
+                "SELECT COUNT(*) FROM jpm_leaderboard WHERE challenge_name = ? AND challenge_year = ?"
+                        + (gender == null ? "" : " AND gender = ?") + " AND time_hundredths < ?")) {
+            statement.setInt(bind(statement, challengeName, challengeYear, gender), time);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Binds the challenge, the year and, unless it is null, the gender.
+     *
+     * @return the index of the next parameter.
+     */
+    private static int bind(PreparedStatement statement, String challengeName, int challengeYear, String gender)
+            throws SQLException {
+        statement.setString(1, challengeName);
+        statement.setInt(2, challengeYear);
+        if (gender == null) {
+            return 3;
+        }
+        statement.setString(3, gender);
+        return 4;
+    }
+
+    /**
+     * Binds the transaction id and output index of [ref] from parameter [index] on.
+     *
+     * @return the index of the next parameter.
+     */
+    private static int bindState(PreparedStatement statement, int index, StateRef ref) throws SQLException {
+        statement.setString(index, ref.getTxhash().toString());
+        statement.setInt(index + 1, ref.getIndex());
+        return index + 2;
+    }
+
+    private static long count(Statement statement, String sql) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private Connection connection() {
+        return services.jdbcSession();
+    }
+
+    private interface SqlUpdate {
+        int run() throws SQLException;
+    }
+
+    /**
+     * A result's place in its challenge, year and gender, or overall.
+     */
+    @CordaSerializable
+    public static class Standing {
+        private final int place;
+        private final int bibNumber;
+        private final String firstName;
+        private final String lastName;
+        private final String gender;
+        private final double time;
+
+        public Standing(int place, int bibNumber, String firstName, String lastName, String gender, double time) {
+            this.place = place;
+            this.bibNumber = bibNumber;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.gender = gender;
+            this.time = time;
+        }
+
+        public int getPlace() { return place; }
+        public int getBibNumber() { return bibNumber; }
+        public String getFirstName() { return firstName; }
+        public String getLastName() { return lastName; }
+        public String getGender() { return gender; }
+        public double getTime() { return time; }
+    }
+
+    /**
+     * The finishers, best and mean time of one year and gender of a challenge.
+     */
+    @CordaSerializable
+    public static class YearStanding {
+        private final String challengeName;
+        private final int challengeYear;
+        private final String gender;
+        private final long finishers;
+        private final double bestTime;
+        private final double meanTime;
+
+        public YearStanding(String challengeName, int challengeYear, String gender, long finishers, double bestTime,
+                            double meanTime) {
+            this.challengeName = challengeName;
+            this.challengeYear = challengeYear;
+            this.gender = gender;
+            this.finishers = finishers;
+            this.bestTime = bestTime;
+            this.meanTime = meanTime;
+        }
+
+        public String getChallengeName() { return challengeName; }
+        public int getChallengeYear() { return challengeYear; }
+        public String getGender() { return gender; }
+        public long getFinishers() { return finishers; }
+        public double getBestTime() { return bestTime; }
+        public double getMeanTime() { return meanTime; }
+    }
+
+    /**
+     * One result of a runner.
+     */
+    @CordaSerializable
+    public static class RunnerResult {
+        private final String challengeName;
+        private final int challengeYear;
+        private final int bibNumber;
+        private final String gender;
+        private final double time;
+
+        public RunnerResult(String challengeName, int challengeYear, int bibNumber, String gender, double time) {
+            this.challengeName = challengeName;
+            this.challengeYear = challengeYear;
+            this.bibNumber = bibNumber;
+            this.gender = gender;
+            this.time = time;
+        }
+
+        public String getChallengeName() { return challengeName; }
+        public int getChallengeYear() { return challengeYear; }
+        public int getBibNumber() { return bibNumber; }
+        public String getGender() { return gender; }
+        public double getTime() { return time; }
+    }
+
+    /**
+     * A runner's results over the years and their personal best, which is zero if they have no results.
+     */
+    @CordaSerializable
+    public static class RunnerHistory {
+        private final String runnerKey;
+        private final String firstName;
+        private final String lastName;
+        private final double bestTime;
+        private final List<RunnerResult> results;
+
+        public RunnerHistory(String runnerKey, String firstName, String lastName, double bestTime,
+                             List<RunnerResult> results) {
+            this.runnerKey = runnerKey;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.bestTime = bestTime;
+            this.results = results;
+        }
+
+        public String getRunnerKey() { return runnerKey; }
+        public String getFirstName() { return firstName; }
+        public String getLastName() { return lastName; }
+        public double getBestTime() { return bestTime; }
+        public List<RunnerResult> getResults() { return results; }
+
+        /**
+         * @return the history of the same runner held by two nodes, e.g. two shards owning different years.
+         */
+        public RunnerHistory combine(RunnerHistory other) {
+            if (other.results.isEmpty()) {
+                return this;
+            }
+            if (results.isEmpty()) {
+                return other;
+            }
+            final List<RunnerResult> combined = new ArrayList<>(results);
+            combined.addAll(other.results);
+            combined.sort(Comparator.comparingInt(RunnerResult::getChallengeYear).thenComparing(RunnerResult::getChallengeName));
+            return new RunnerHistory(runnerKey, firstName, lastName, Math.min(bestTime, other.bestTime), combined);
+        }
+    }
+}
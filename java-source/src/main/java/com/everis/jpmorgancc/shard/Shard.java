@@ -0,0 +1,93 @@
+package com.everis.jpmorgancc.shard;
+
+import com.everis.jpmorgancc.client.RpcConnectionPool;
+import com.everis.jpmorgancc.store.ResultStore;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.identity.CordaX500Name;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+
+/**
+ * The nodes that record the results of a set of challenges and years: the node that initiates the flows, reached over
+ * [rpc], the counterparty that co-signs them and the notary their transactions name.
+ */
+public class Shard {
+    private final String name;
+    private final String challengeName;
+    private final Set<Integer> years;
+    private final RpcConnectionPool rpc;
+    private final CordaX500Name counterparty;
+    private final CordaX500Name notary;
+    private ResultStore store;
+
+    /**
+     * @param challengeName the challenge the shard owns, or null for every challenge.
+     * @param years the years the shard owns, or an empty set for every year.
+     * @param counterparty the node co-signing the shard's results, or null to let the caller choose.
+     * @param notary the shard's notary, or null for the first notary on the network.
+     */
+    public Shard(String name, String challengeName, Set<Integer> years, RpcConnectionPool rpc,
+                 CordaX500Name counterparty, CordaX500Name notary) {
+        this.name = name;
+        this.challengeName = challengeName;
+        this.years = ImmutableSet.copyOf(years);
+        this.rpc = rpc;
+        this.counterparty = counterparty;
+        this.notary = notary;
+    }
+
+    public String getName() { return name; }
+    public RpcConnectionPool getRpc() { return rpc; }
+    public CordaX500Name getCounterparty() { return counterparty; }
+    public CordaX500Name getNotary() { return notary; }
+
+    /**
+     * @return whether new results of [challengeName] in [challengeYear] are recorded by this shard.
+     */
+    public boolean owns(String challengeName, int challengeYear) {
+        return (this.challengeName == null || this.challengeName.equals(challengeName))
+                && (years.isEmpty() || years.contains(challengeYear));
+    }
+
+    /**
+     * @return whether this shard may hold results matching a read filter, where a null [challengeName] or a zero
+     * [challengeYear] matches anything.
+     */
+    public boolean mayHold(String challengeName, int challengeYear) {
+        return (challengeName == null || this.challengeName == null || this.challengeName.equals(challengeName))
+                && (challengeYear == 0 || years.isEmpty() || years.contains(challengeYear));
+    }
+
+    /**
+     * @return whether this shard, tried before [later], records every new result [later] may hold of a read filter, so
+     * that [later] holds none of them.
+     */
+    boolean shadows(Shard later, String challengeName, int challengeYear) {
+        final String challenge = challengeName != null ? challengeName : later.challengeName;
+        return (this.challengeName == null || this.challengeName.equals(challenge))
+                && (years.isEmpty() || (challengeYear != 0 && years.contains(challengeYear)));
+    }
+
+    /**
+     * @return the [ResultStore] following the shard's initiating node, started on first use.
+     */
+    public synchronized ResultStore store() {
+        if (store == null) {
+            store = ResultStore.start(rpc, snapshotFile());
+        }
+        return store;
+    }
+
+    private Path snapshotFile() {
+        final String file = System.getProperty("jpmorgancc.store.snapshotFile", "result-store.snapshot");
+        return name.equals(ShardRouter.LOCAL) ? Paths.get(file) : Paths.get(file + "." + name);
+    }
+
+    @Override
+    public String toString() {
+        return "Shard(" + name + ", challenge=" + (challengeName == null ? "*" : challengeName)
+                + ", years=" + (years.isEmpty() ? "*" : years) + ")";
+    }
+}
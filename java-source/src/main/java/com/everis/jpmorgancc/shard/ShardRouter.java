@@ -0,0 +1,163 @@
+package com.everis.jpmorgancc.shard;
+
+import com.everis.jpmorgancc.client.RpcConnectionPool;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.utilities.NetworkHostAndPort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Sends each result to the [Shard] that owns its challenge and year, and each read to the shards that may hold
+ * matching results.
+ *
+ * Shards are described in the properties file named by -Djpmorgancc.shards, by default shards.properties in the
+ * working directory, with one block of keys per shard:
+ *
+ *   shard.east.rpc=localhost:10008
+ *   shard.east.counterparty=O=PartyB,L=New York,C=US
+ *   shard.east.notary=O=NotaryA,L=London,C=GB
+ *   shard.east.challenge=J.P.Morgan Corporate Challenge
+ *   shard.east.years=2015,2016
+ *
+ * Leaving out challenge or years makes the shard own every challenge or every year; leaving out rpc makes it the
+ * webserver's own node. Shards are tried in name order, so a catch-all shard can take the remaining years. Without a
+ * shards file the node is a single shard owning everything, as before sharding.
+ */
+public class ShardRouter implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ShardRouter.class);
+    static final String LOCAL = "local";
+
+    private final List<Shard> shards;
+    /** The connections the router opened itself, and closes. */
+    private final List<RpcConnectionPool> opened;
+
+    public ShardRouter(List<Shard> shards) {
+        this(shards, ImmutableList.of());
+    }
+
+    private ShardRouter(List<Shard> shards, List<RpcConnectionPool> opened) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("A router needs at least one shard.");
+        }
+        this.shards = ImmutableList.copyOf(shards);
+        this.opened = ImmutableList.copyOf(opened);
+    }
+
+    /**
+     * @return a router sending everything to the node behind [rpc].
+     */
+    public static ShardRouter local(RpcConnectionPool rpc) {
+        return new ShardRouter(ImmutableList.of(new Shard(LOCAL, null, ImmutableSet.of(), rpc, null, null)));
+    }
+
+    /**
+     * @return the router described by the shards file, or [local] if there is none.
+     */
+    public static ShardRouter fromSystemProperties(RpcConnectionPool localRpc) {
+        final Path file = Paths.get(System.getProperty("jpmorgancc.shards", "shards.properties"));
+        if (!Files.exists(file)) {
+            return local(localRpc);
+        }
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read shards file " + file, ex);
+        }
+        final ShardRouter router = parse(properties, localRpc);
+        logger.info("Routing results to {} from {}", router.shards, file);
+        return router;
+    }
+
+    static ShardRouter parse(Properties properties, RpcConnectionPool localRpc) {
+        final Set<String> names = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            final String[] parts = key.split("\\.");
+            if (parts.length != 3 || !parts[0].equals("shard")) {
+                throw new IllegalArgumentException("Unexpected key " + key + " in shards file");
+            }
+            names.add(parts[1]);
+        }
+        final List<Shard> shards = new ArrayList<>();
+        final List<RpcConnectionPool> opened = new ArrayList<>();
+        for (String name : names) {
+            final String prefix = "shard." + name + ".";
+            final String address = properties.getProperty(prefix + "rpc");
+            final RpcConnectionPool rpc = address == null ? localRpc : RpcConnectionPool.connect(
+                    NetworkHostAndPort.parse(address),
+                    properties.getProperty(prefix + "user", "user1"),
+                    properties.getProperty(prefix + "password", "test"),
+                    Integer.getInteger("jpmorgancc.rpc.poolSize", 4));
+            if (rpc != localRpc) {
+                opened.add(rpc);
+            }
+            final String years = properties.getProperty(prefix + "years");
+            shards.add(new Shard(name,
+                    properties.getProperty(prefix + "challenge"),
+                    years == null ? ImmutableSet.of() : Arrays.stream(years.split(","))
+                            .map(String::trim).map(Integer::valueOf).collect(Collectors.toSet()),
+                    rpc,
+                    parseName(properties.getProperty(prefix + "counterparty")),
+                    parseName(properties.getProperty(prefix + "notary"))));
+        }
+        return new ShardRouter(shards, opened);
+    }
+
+    private static CordaX500Name parseName(String name) {
+        return name == null ? null : CordaX500Name.parse(name);
+    }
+
+    public List<Shard> getShards() { return shards; }
+
+    /**
+     * @return the shard that records new results of [challengeName] in [challengeYear].
+     * @throws IllegalArgumentException if no shard owns them.
+     */
+    public Shard route(String challengeName, int challengeYear) {
+        for (Shard shard : shards) {
+            if (shard.owns(challengeName, challengeYear)) {
+                return shard;
+            }
+        }
+        throw new IllegalArgumentException("No shard owns " + challengeName + " " + challengeYear + ".");
+    }
+
+    /**
+     * @return the shards that may hold results of [challengeName] in [challengeYear], where a null name or a zero
+     * year stands for all of them. A shard is left out when an earlier one owns everything it may hold, so reads of a
+     * year owned by a named shard skip the catch-all shard after it. This assumes the shards file has not moved years
+     * between shards since their results were recorded.
+     */
+    public List<Shard> candidates(String challengeName, int challengeYear) {
+        final List<Shard> candidates = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            final Shard shard = shards.get(i);
+            if (shard.mayHold(challengeName, challengeYear)
+                    && shards.subList(0, i).stream().noneMatch(earlier -> earlier.shadows(shard, challengeName, challengeYear))) {
+                candidates.add(shard);
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    public void close() {
+        opened.forEach(RpcConnectionPool::close);
+    }
+}
@@ -0,0 +1,176 @@
+package com.everis.jpmorgancc.state;
+
+import com.everis.jpmorgancc.schema.JPMorganSchemaV1;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import net.corda.core.contracts.LinearState;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.Party;
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+import net.corda.core.schemas.QueryableState;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact encoding of [JPMorganState].
+ *
+ * Every numeric field is a primitive int, the finish time is held as fixed-point hundredths of a unit rather than a
+ * [Double] and the gender is a coded [Gender] enum. The state maps onto the same [JPMorganSchemaV1] table as
+ * [JPMorganState], so vault queries see both encodings alike.
+ */
+public class CompactJPMorganState implements LinearState, QueryableState, RaceResult {
+    /**
+     * Fixed-point scale of [timeHundredths].
+     */
+    public static final int TIME_SCALE = 100;
+
+    /**
+     * The longest time [timeHundredths] can hold; the contract refuses longer ones.
+     */
+    public static final double MAX_TIME = (double) Integer.MAX_VALUE / TIME_SCALE;
+
+    private final String challengeName;
+    private final int challengeYear;
+    private final int placeCity;
+    private final int placeGender;
+    private final int bibNumber;
+    private final String firstName;
+    private final String lastName;
+    private final int timeHundredths;
+    private final Gender gender;
+    private final Party lender;
+    private final Party borrower;
+    private final UniqueIdentifier linearId;
+
+    /**
+     * @param challengeName the value of the Challenge.
+     * @param challengeYear the year of the Challenge.
+     * @param placeCity the position of the user in the Challenge.
+     * @param placeGender the position of the user in the Challenge considering the gender.
+     * @param bibNumber the bib number of the user in the Challenge.
+     * @param firstName the first name of the user.
+     * @param lastName the last name of the user.
+     * @param timeHundredths the time result in the challenge, in hundredths.
+     * @param gender the gender of the user.
+     * @param lender the party issuing the JPM.
+     * @param borrower the party receiving and approving the JPM.
+     */
+    public CompactJPMorganState(String challengeName,
+                                int challengeYear,
+                                int placeCity,
+                                int placeGender,
+                                int bibNumber,
+                                String firstName,
+                                String lastName,
+                                int timeHundredths,
+                                Gender gender,
+                                Party lender,
+                                Party borrower,
+                                UniqueIdentifier linearId)
+    {
+        this.challengeName = challengeName;
+        this.challengeYear = challengeYear;
+        this.placeCity = placeCity;
+        this.placeGender = placeGender;
+        this.bibNumber = bibNumber;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.timeHundredths = timeHundredths;
+        this.gender = gender;
+        this.lender = lender;
+        this.borrower = borrower;
+        this.linearId = linearId;
+    }
+
+    /**
+     * Re-encodes a [JPMorganState], rounding its time to the nearest hundredth.
+     */
+    public static CompactJPMorganState of(JPMorganState state) {
+        return new CompactJPMorganState(
+                state.getChallengeName(),
+                state.getChallengeYear(),
+                state.getPlaceCity(),
+                state.getPlaceGender(),
+                state.getBibNumber(),
+                state.getFirstName(),
+                state.getLastName(),
+                toHundredths(state.getTime()),
+                Gender.fromCode(state.getGender()),
+                state.getLender(),
+                state.getBorrower(),
+                state.getLinearId());
+    }
+
+    /**
+     * @return [time] in hundredths, saturated to the int range so that a time recorded before the contract bounded it
+     * cannot break its readers.
+     */
+    public static int toHundredths(double time) {
+        return Ints.saturatedCast(Math.round(time * TIME_SCALE));
+    }
+
+    public String getChallengeName() { return challengeName; }
+    public int getChallengeYear() { return challengeYear; }
+    public int getPlaceCity() { return placeCity; }
+    public int getPlaceGender() { return placeGender; }
+    public int getBibNumber() { return bibNumber; }
+    public String getFirstName() { return firstName; }
+    public String getLastName() { return lastName; }
+    public int getTimeHundredths() { return timeHundredths; }
+    public double getTime() { return (double) timeHundredths / TIME_SCALE; }
+    public Gender getGender() { return gender; }
+    public Party getLender() { return lender; }
+    public Party getBorrower() { return borrower; }
+
+    @Override public String challengeName() { return challengeName; }
+    @Override public int challengeYear() { return challengeYear; }
+    @Override public int placeCity() { return placeCity; }
+    @Override public int placeGender() { return placeGender; }
+    @Override public int bibNumber() { return bibNumber; }
+    @Override public String firstName() { return firstName; }
+    @Override public String lastName() { return lastName; }
+    @Override public double time() { return getTime(); }
+    @Override public int timeHundredths() { return timeHundredths; }
+    @Override public String genderCode() { return gender == null ? null : gender.getCode(); }
+    @Override public Party lender() { return lender; }
+    @Override public Party borrower() { return borrower; }
+
+    @Override public UniqueIdentifier getLinearId() { return linearId; }
+    @Override public List<AbstractParty> getParticipants() {
+        return Arrays.asList(lender, borrower);
+    }
+
+    @Override public PersistentState generateMappedObject(MappedSchema schema) {
+        if (schema instanceof JPMorganSchemaV1) {
+            return new JPMorganSchemaV1.PersistentJPM(
+                    this.lender.getName().toString(),
+                    this.borrower.getName().toString(),
+                    this.challengeName,
+                    this.challengeYear,
+                    this.placeCity,
+                    this.placeGender,
+                    this.bibNumber,
+                    this.firstName,
+                    this.lastName,
+                    getTime(),
+                    this.gender.getCode(),
+                    this.linearId.getId());
+        } else {
+            throw new IllegalArgumentException("Unrecognised schema $schema");
+        }
+    }
+
+    @Override public Iterable<MappedSchema> supportedSchemas() {
+        return ImmutableList.of(new JPMorganSchemaV1());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompactJPMorganState(challengeName=%s, challengeYear=%s, placeCity=%s, placeGender=%s" +
+                ", bibNumber=%s, firstName=%s, lastName=%s, timeHundredths=%s, gender=%s, lender=%s, borrower=%s" +
+                ", linearId=%s)", challengeName, challengeYear, placeCity, placeGender, bibNumber, firstName, lastName, timeHundredths, gender, lender, borrower, linearId);
+    }
+}
@@ -0,0 +1,40 @@
+package com.everis.jpmorgancc.state;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import net.corda.core.serialization.CordaSerializable;
+
+/**
+ * The gender of a runner, coded so that it is carried on the ledger as a single enum constant instead of a
+ * free-form string.
+ */
+@CordaSerializable
+public enum Gender {
+    MALE("M"),
+    FEMALE("F");
+
+    private final String code;
+
+    Gender(String code) {
+        this.code = code;
+    }
+
+    /**
+     * The one-letter code used by the web front-end and the [JPMorganSchemaV1] table. JSON carries the code too, so a
+     * [CompactJPMorganState] reaches the front-end as a [JPMorganState] does.
+     */
+    @JsonValue
+    public String getCode() { return code; }
+
+    /**
+     * @param code the one-letter code ("M" or "F"), case-insensitive.
+     * @return the matching [Gender].
+     */
+    public static Gender fromCode(String code) {
+        for (Gender gender : values()) {
+            if (gender.code.equalsIgnoreCase(code)) {
+                return gender;
+            }
+        }
+        throw new IllegalArgumentException("Unrecognised gender code " + code);
+    }
+}
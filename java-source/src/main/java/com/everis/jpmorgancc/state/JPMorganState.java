@@ -18,7 +18,7 @@ import java.util.List;
  *
  * A state must implement [ContractState] or one of its descendants.
  */
-public class JPMorganState implements LinearState, QueryableState {
+public class JPMorganState implements LinearState, QueryableState, RaceResult {
     private final String challengeName;
     private final Integer challengeYear;
     private final Integer placeCity;
@@ -84,6 +84,19 @@ public class JPMorganState implements LinearState, QueryableState {
     public Party getLender() { return lender; }
     public Party getBorrower() { return borrower; }
 
+    @Override public String challengeName() { return challengeName; }
+    @Override public int challengeYear() { return challengeYear; }
+    @Override public int placeCity() { return placeCity; }
+    @Override public int placeGender() { return placeGender; }
+    @Override public int bibNumber() { return bibNumber; }
+    @Override public String firstName() { return firstName; }
+    @Override public String lastName() { return lastName; }
+    @Override public double time() { return time; }
+    @Override public int timeHundredths() { return CompactJPMorganState.toHundredths(time); }
+    @Override public String genderCode() { return gender; }
+    @Override public Party lender() { return lender; }
+    @Override public Party borrower() { return borrower; }
+
     @Override public UniqueIdentifier getLinearId() { return linearId; }
     @Override public List<AbstractParty> getParticipants() {
         return Arrays.asList(lender, borrower);
@@ -0,0 +1,37 @@
+package com.everis.jpmorgancc.state;
+
+import net.corda.core.contracts.ContractState;
+import net.corda.core.identity.Party;
+
+/**
+ * The fields of one finisher's result, whichever encoding holds them: [JPMorganState] or [CompactJPMorganState].
+ *
+ * The accessors are not bean getters, so they add no property to either state's serialised or JSON form.
+ */
+public interface RaceResult extends ContractState {
+    String challengeName();
+    int challengeYear();
+    int placeCity();
+    int placeGender();
+    int bibNumber();
+    String firstName();
+    String lastName();
+
+    /**
+     * @return the finish time in units.
+     */
+    double time();
+
+    /**
+     * @return the finish time in fixed-point hundredths; see [CompactJPMorganState.toHundredths].
+     */
+    int timeHundredths();
+
+    /**
+     * @return the one-letter gender code, or null if there is none.
+     */
+    String genderCode();
+
+    Party lender();
+    Party borrower();
+}
@@ -0,0 +1,65 @@
+package com.everis.jpmorgancc.state;
+
+import net.corda.core.contracts.LinearState;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.AbstractParty;
+import net.corda.core.identity.Party;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A complete official result sheet of a challenge year, recorded as one state instead of one [JPMorganState] per
+ * finisher. The rows live in the attachment [sheetHash], in the [ResultSheet] layout; the state carries their totals,
+ * which the contract checks against the attachment.
+ */
+public class ResultSheetState implements LinearState {
+    private final String challengeName;
+    private final int challengeYear;
+    private final SecureHash sheetHash;
+    private final int finishers;
+    private final int bestTimeHundredths;
+    private final long totalTimeHundredths;
+    private final Party lender;
+    private final Party borrower;
+    private final UniqueIdentifier linearId;
+
+    public ResultSheetState(String challengeName, int challengeYear, SecureHash sheetHash, int finishers,
+                            int bestTimeHundredths, long totalTimeHundredths, Party lender, Party borrower,
+                            UniqueIdentifier linearId) {
+        this.challengeName = challengeName;
+        this.challengeYear = challengeYear;
+        this.sheetHash = sheetHash;
+        this.finishers = finishers;
+        this.bestTimeHundredths = bestTimeHundredths;
+        this.totalTimeHundredths = totalTimeHundredths;
+        this.lender = lender;
+        this.borrower = borrower;
+        this.linearId = linearId;
+    }
+
+    public String getChallengeName() { return challengeName; }
+    public int getChallengeYear() { return challengeYear; }
+    public SecureHash getSheetHash() { return sheetHash; }
+    public int getFinishers() { return finishers; }
+    public int getBestTimeHundredths() { return bestTimeHundredths; }
+    public long getTotalTimeHundredths() { return totalTimeHundredths; }
+    public double getBestTime() { return (double) bestTimeHundredths / CompactJPMorganState.TIME_SCALE; }
+    public double getMeanTime() { return (double) totalTimeHundredths / finishers / CompactJPMorganState.TIME_SCALE; }
+    public Party getLender() { return lender; }
+    public Party getBorrower() { return borrower; }
+
+    @Override public UniqueIdentifier getLinearId() { return linearId; }
+    @Override public List<AbstractParty> getParticipants() {
+        return Arrays.asList(lender, borrower);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResultSheetState(challengeName=%s, challengeYear=%s, sheetHash=%s, finishers=%s" +
+                ", bestTimeHundredths=%s, totalTimeHundredths=%s, lender=%s, borrower=%s, linearId=%s)",
+                challengeName, challengeYear, sheetHash, finishers, bestTimeHundredths, totalTimeHundredths, lender,
+                borrower, linearId);
+    }
+}
@@ -0,0 +1,29 @@
+package com.everis.jpmorgancc.state;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Derives a stable key for a runner from the free-form names carried on results, so that one runner's results of
+ * different years can be found together.
+ *
+ * The key is "lastname-firstname", lower case, with accents removed and every run of other characters collapsed to
+ * a single '-': "José  María", "Pérez-Gil" becomes "perez-gil-jose-maria". It is safe to use in a URL path.
+ */
+public final class RunnerKey {
+    private RunnerKey() { }
+
+    public static String of(String firstName, String lastName) {
+        return normalise(lastName + " " + firstName);
+    }
+
+    /**
+     * Applies the same normalisation to a key typed by a user, so that e.g. "Perez-Gil-Jose-Maria" finds the runner.
+     */
+    public static String normalise(String text) {
+        final String stripped = Normalizer.normalize(text == null ? "" : text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        return stripped.replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+    }
+}
@@ -0,0 +1,77 @@
+package com.everis.jpmorgancc.store;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the bib numbers used in each challenge year in about ten bits per bib, so that submissions can be checked
+ * for duplicates without a vault query in the common case.
+ *
+ * [mightContain] never misses a bib that was [put], and wrongly reports roughly [FALSE_POSITIVE_RATE] of the others;
+ * only those possible hits need confirming against the vault. Each year is a chain of Guava [BloomFilter]s: once one
+ * holds its capacity a twice larger one is started, so years of any size keep a low rate without knowing their size
+ * up front.
+ */
+public class BibFilter {
+    static final int INITIAL_CAPACITY = Integer.getInteger("jpmorgancc.bibs.initialCapacity", 4096);
+    static final double FALSE_POSITIVE_RATE = 0.005;
+
+    private final Map<String, Map<Integer, Chain>> challenges = new HashMap<>();
+
+    public synchronized void put(String challengeName, int challengeYear, int bibNumber) {
+        challenges.computeIfAbsent(challengeName, name -> new HashMap<>())
+                .computeIfAbsent(challengeYear, year -> new Chain())
+                .put(bibNumber);
+    }
+
+    /**
+     * @return false if [bibNumber] is certainly unused in the challenge year, true if it may be used.
+     */
+    public synchronized boolean mightContain(String challengeName, int challengeYear, int bibNumber) {
+        final Map<Integer, Chain> years = challenges.get(challengeName);
+        final Chain chain = years == null ? null : years.get(challengeYear);
+        return chain != null && chain.mightContain(bibNumber);
+    }
+
+    public synchronized void clear() {
+        challenges.clear();
+    }
+
+    private static class Chain {
+        private final List<BloomFilter<Integer>> filters = new ArrayList<>();
+        private int capacity = INITIAL_CAPACITY;
+        private int inLast = 0;
+
+        private Chain() {
+            filters.add(BloomFilter.create(Funnels.integerFunnel(), capacity, FALSE_POSITIVE_RATE));
+        }
+
+        private boolean mightContain(int bibNumber) {
+            for (BloomFilter<Integer> filter : filters) {
+                if (filter.mightContain(bibNumber)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void put(int bibNumber) {
+            // Bibs seen before, e.g. replayed by a catch-up, would only use up capacity.
+            if (mightContain(bibNumber)) {
+                return;
+            }
+            if (inLast == capacity) {
+                capacity *= 2;
+                inLast = 0;
+                filters.add(BloomFilter.create(Funnels.integerFunnel(), capacity, FALSE_POSITIVE_RATE));
+            }
+            filters.get(filters.size() - 1).put(bibNumber);
+            inLast++;
+        }
+    }
+}
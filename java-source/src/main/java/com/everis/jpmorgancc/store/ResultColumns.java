@@ -0,0 +1,385 @@
+package com.everis.jpmorgancc.store;
+
+import com.everis.jpmorgancc.state.CompactJPMorganState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A column-oriented, append-only copy of the results held in the vault.
+ *
+ * Each attribute used by the analytics lives in its own primitive int array, times are fixed-point hundredths (see
+ * [CompactJPMorganState]) and challenge names and genders are interned through a [StringDictionary]. A million results
+ * take roughly 28MB and a full scan touches no object other than the arrays themselves.
+ *
+ * Appends come from a single loader thread; any number of readers may scan concurrently.
+ */
+public class ResultColumns {
+    private static final int INITIAL_CAPACITY = 1024;
+    /** The most buckets a [distribution] returns, whatever the times and the bucket width. */
+    public static final int MAX_BUCKETS = 10_000;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final StringDictionary challenges = new StringDictionary();
+    private final StringDictionary genders = new StringDictionary();
+
+    private int size = 0;
+    private int[] challengeIds = new int[INITIAL_CAPACITY];
+    private int[] years = new int[INITIAL_CAPACITY];
+    private int[] placeCities = new int[INITIAL_CAPACITY];
+    private int[] placeGenders = new int[INITIAL_CAPACITY];
+    private int[] bibNumbers = new int[INITIAL_CAPACITY];
+    private int[] timeHundredths = new int[INITIAL_CAPACITY];
+    private int[] genderIds = new int[INITIAL_CAPACITY];
+
+    public void append(String challengeName, int challengeYear, int placeCity, int placeGender, int bibNumber,
+                       int time, String gender) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + 1);
+            challengeIds[size] = challenges.intern(challengeName);
+            years[size] = challengeYear;
+            placeCities[size] = placeCity;
+            placeGenders[size] = placeGender;
+            bibNumbers[size] = bibNumber;
+            timeHundredths[size] = time;
+            genderIds[size] = genders.intern(gender);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the matching results per time bucket.
+     *
+     * @param bucketWidth the width of each bucket, in hundredths.
+     * @return the number of results in each bucket, index 0 being [0, bucketWidth). The last of at most
+     * [MAX_BUCKETS] buckets also counts every slower result, so a narrow bucket cannot size the array by the slowest
+     * time.
+     */
+    public long[] distribution(Filter filter, int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("The bucket width must be positive.");
+        }
+        lock.readLock().lock();
+        try {
+            long[] buckets = new long[0];
+            Filter.Resolved match = filter.resolve(this);
+            for (int row = 0; row < size; row++) {
+                if (match.test(row)) {
+                    int bucket = Math.min(timeHundredths[row] / bucketWidth, MAX_BUCKETS - 1);
+                    if (bucket >= buckets.length) {
+                        buckets = Arrays.copyOf(buckets, bucket + 1);
+                    }
+                    buckets[bucket]++;
+                }
+            }
+            return buckets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the place [time] would take among the matching results, ties sharing the better place.
+     */
+    public int rank(Filter filter, int time) {
+        lock.readLock().lock();
+        try {
+            int faster = 0;
+            Filter.Resolved match = filter.resolve(this);
+            for (int row = 0; row < size; row++) {
+                if (timeHundredths[row] < time && match.test(row)) {
+                    faster++;
+                }
+            }
+            return faster + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of matching results.
+     */
+    public int count(Filter filter) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            Filter.Resolved match = filter.resolve(this);
+            for (int row = 0; row < size; row++) {
+                if (match.test(row)) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the finisher count, best and mean time of every year with at least one matching result, oldest first.
+     */
+    public List<YearSummary> perYear(Filter filter) {
+        lock.readLock().lock();
+        try {
+            Filter.Resolved match = filter.resolve(this);
+            int minYear = Integer.MAX_VALUE;
+            int maxYear = Integer.MIN_VALUE;
+            for (int row = 0; row < size; row++) {
+                if (match.test(row)) {
+                    minYear = Math.min(minYear, years[row]);
+                    maxYear = Math.max(maxYear, years[row]);
+                }
+            }
+            List<YearSummary> summaries = new ArrayList<>();
+            if (minYear > maxYear) {
+                return summaries;
+            }
+
+            int span = maxYear - minYear + 1;
+            int[] finishers = new int[span];
+            int[] best = new int[span];
+            long[] total = new long[span];
+            Arrays.fill(best, Integer.MAX_VALUE);
+            for (int row = 0; row < size; row++) {
+                if (match.test(row)) {
+                    int slot = years[row] - minYear;
+                    finishers[slot]++;
+                    best[slot] = Math.min(best[slot], timeHundredths[row]);
+                    total[slot] += timeHundredths[row];
+                }
+            }
+            for (int slot = 0; slot < span; slot++) {
+                if (finishers[slot] > 0) {
+                    summaries.add(new YearSummary(minYear + slot, finishers[slot], best[slot], total[slot]));
+                }
+            }
+            return summaries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the [distribution] of the results counted in [counts] and in [other], held elsewhere.
+     */
+    public static long[] combineDistributions(long[] counts, long[] other) {
+        final long[] combined = Arrays.copyOf(counts, Math.max(counts.length, other.length));
+        for (int i = 0; i < other.length; i++) {
+            combined[i] += other[i];
+        }
+        return combined;
+    }
+
+    /**
+     * @return the place a time takes among two sets of results, given its [rank] in each; each rank is one more than
+     * the faster results in its set.
+     */
+    public static int combineRanks(int rank, int otherRank) {
+        return rank + otherRank - 1;
+    }
+
+    /**
+     * @return the [perYear] summaries of the results summarised in [years] and in [other], held elsewhere, oldest
+     * first.
+     */
+    public static List<YearSummary> combineYears(List<YearSummary> years, List<YearSummary> other) {
+        final Map<Integer, YearSummary> combined = new TreeMap<>();
+        for (YearSummary year : years) {
+            combined.put(year.challengeYear, year);
+        }
+        for (YearSummary year : other) {
+            combined.merge(year.challengeYear, year, YearSummary::combine);
+        }
+        return new ArrayList<>(combined.values());
+    }
+
+    /**
+     * Adds the challenge, year and bib of every result to [bibs].
+     */
+    void putBibs(BibFilter bibs) {
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < size; row++) {
+                bibs.put(challenges.valueOf(challengeIds[row]), years[row], bibNumbers[row]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the dictionaries and every column to [snapshot], as laid out by [ResultSnapshotFile].
+     */
+    void writeTo(ResultSnapshotFile.Writer snapshot) throws IOException {
+        lock.readLock().lock();
+        try {
+            snapshot.putStrings(challenges.values());
+            snapshot.putStrings(genders.values());
+            snapshot.putInt(size);
+            for (int[] column : columns()) {
+                snapshot.putInts(column, size);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fills an empty store with the dictionaries and columns mapped from a [ResultSnapshotFile].
+     */
+    void readFrom(ByteBuffer snapshot) {
+        lock.writeLock().lock();
+        try {
+            for (String challenge : ResultSnapshotFile.getStrings(snapshot)) {
+                challenges.intern(challenge);
+            }
+            for (String gender : ResultSnapshotFile.getStrings(snapshot)) {
+                genders.intern(gender);
+            }
+            int rows = snapshot.getInt();
+            ensureCapacity(rows);
+            for (int[] column : columns()) {
+                IntBuffer values = snapshot.asIntBuffer();
+                values.get(column, 0, rows);
+                snapshot.position(snapshot.position() + rows * Integer.BYTES);
+            }
+            size = rows;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Empties the store, e.g. after a snapshot failed to load half-way.
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            challenges.clear();
+            genders.clear();
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int[][] columns() {
+        return new int[][] { challengeIds, years, placeCities, placeGenders, bibNumbers, timeHundredths, genderIds };
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= challengeIds.length) {
+            return;
+        }
+        int capacity = Math.max(required, challengeIds.length * 2);
+        challengeIds = Arrays.copyOf(challengeIds, capacity);
+        years = Arrays.copyOf(years, capacity);
+        placeCities = Arrays.copyOf(placeCities, capacity);
+        placeGenders = Arrays.copyOf(placeGenders, capacity);
+        bibNumbers = Arrays.copyOf(bibNumbers, capacity);
+        timeHundredths = Arrays.copyOf(timeHundredths, capacity);
+        genderIds = Arrays.copyOf(genderIds, capacity);
+    }
+
+    /**
+     * Restricts a scan to a challenge, a year and a gender. Null (or zero for the year) matches everything.
+     */
+    public static class Filter {
+        public static final Filter ALL = new Filter(null, 0, null);
+
+        private final String challengeName;
+        private final int challengeYear;
+        private final String gender;
+
+        public Filter(String challengeName, int challengeYear, String gender) {
+            this.challengeName = challengeName;
+            this.challengeYear = challengeYear;
+            this.gender = gender;
+        }
+
+        private Resolved resolve(ResultColumns columns) {
+            return new Resolved(
+                    challengeName == null ? Resolved.ANY : columns.challenges.codeOf(challengeName),
+                    challengeYear,
+                    gender == null ? Resolved.ANY : columns.genders.codeOf(gender),
+                    columns);
+        }
+
+        /**
+         * The filter with its strings translated into dictionary codes, valid while the read lock is held.
+         */
+        private static class Resolved {
+            private static final int ANY = Integer.MIN_VALUE;
+
+            private final int challengeId;
+            private final int challengeYear;
+            private final int genderId;
+            private final ResultColumns columns;
+
+            private Resolved(int challengeId, int challengeYear, int genderId, ResultColumns columns) {
+                this.challengeId = challengeId;
+                this.challengeYear = challengeYear;
+                this.genderId = genderId;
+                this.columns = columns;
+            }
+
+            private boolean test(int row) {
+                return (challengeId == ANY || columns.challengeIds[row] == challengeId)
+                        && (challengeYear == 0 || columns.years[row] == challengeYear)
+                        && (genderId == ANY || columns.genderIds[row] == genderId);
+            }
+        }
+    }
+
+    /**
+     * The results of one year.
+     */
+    public static class YearSummary {
+        private final int challengeYear;
+        private final int finishers;
+        private final int bestTime;
+        /** The sum of the times, kept rather than the mean so that summaries held apart combine exactly. */
+        private final long totalTime;
+
+        public YearSummary(int challengeYear, int finishers, int bestTime, long totalTime) {
+            this.challengeYear = challengeYear;
+            this.finishers = finishers;
+            this.bestTime = bestTime;
+            this.totalTime = totalTime;
+        }
+
+        public int getChallengeYear() { return challengeYear; }
+        public int getFinishers() { return finishers; }
+        public double getBestTime() { return (double) bestTime / CompactJPMorganState.TIME_SCALE; }
+        public double getMeanTime() { return (double) (totalTime / finishers) / CompactJPMorganState.TIME_SCALE; }
+
+        /**
+         * @return the summary of this year's results together with [other]'s, held elsewhere.
+         */
+        public YearSummary combine(YearSummary other) {
+            return new YearSummary(challengeYear, finishers + other.finishers, Math.min(bestTime, other.bestTime),
+                    totalTime + other.totalTime);
+        }
+    }
+}
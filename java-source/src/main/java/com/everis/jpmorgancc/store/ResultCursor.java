@@ -0,0 +1,79 @@
+package com.everis.jpmorgancc.store;
+
+import net.corda.core.contracts.StateRef;
+import net.corda.core.crypto.SecureHash;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * A position in the [ResultQueries.RECORDED_ORDER] of the vault: the recorded time and reference of the last result a
+ * client has seen. It travels as an opaque URL-safe string.
+ *
+ * Resuming from a cursor only reads the results recorded at or after its time (see [ResultQueries.recordedBetween]),
+ * so the cost of a sync depends on the number of changes rather than on how far into the vault the cursor is.
+ */
+public class ResultCursor {
+    /** Before every result. */
+    public static final ResultCursor START = new ResultCursor(Instant.EPOCH, null);
+
+    private final Instant recordedTime;
+    private final StateRef ref;
+
+    public ResultCursor(Instant recordedTime, StateRef ref) {
+        this.recordedTime = recordedTime;
+        this.ref = ref;
+    }
+
+    public Instant getRecordedTime() { return recordedTime; }
+
+    /**
+     * @return whether this cursor comes before the result recorded at [time] as [other], in recorded order.
+     */
+    public boolean isBefore(Instant time, StateRef other) {
+        final int byTime = time.compareTo(recordedTime);
+        if (ref == null) {
+            return byTime >= 0;
+        }
+        if (byTime != 0) {
+            return byTime > 0;
+        }
+        // The vault sorts transaction ids by their hex form.
+        final int byTx = other.getTxhash().toString().compareTo(ref.getTxhash().toString());
+        return byTx > 0 || (byTx == 0 && other.getIndex() > ref.getIndex());
+    }
+
+    public String encode() {
+        final String plain = recordedTime.getEpochSecond() + ":" + recordedTime.getNano() +
+                (ref == null ? "" : ":" + ref.getTxhash() + ":" + ref.getIndex());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the cursor [encoded] by [encode], or [START] if it is null or empty.
+     * @throws IllegalArgumentException if [encoded] is not a cursor.
+     */
+    public static ResultCursor decode(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return START;
+        }
+        try {
+            final String[] parts = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 2 && parts.length != 4) {
+                throw new IllegalArgumentException("Malformed cursor " + encoded);
+            }
+            final Instant time = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            final StateRef ref = parts.length == 2 ? null
+                    : new StateRef(SecureHash.parse(parts[2]), Integer.parseInt(parts[3]));
+            return new ResultCursor(time, ref);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Malformed cursor " + encoded, ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCursor(recordedTime=" + recordedTime + ", ref=" + ref + ")";
+    }
+}
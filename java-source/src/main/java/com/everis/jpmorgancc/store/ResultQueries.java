@@ -0,0 +1,136 @@
+package com.everis.jpmorgancc.store;
+
+import com.everis.jpmorgancc.schema.JPMorganSchemaV1;
+import com.everis.jpmorgancc.state.CompactJPMorganState;
+import com.everis.jpmorgancc.state.JPMorganState;
+import com.everis.jpmorgancc.state.ResultSheetState;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.BinaryComparisonOperator;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.ColumnPredicate;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
+
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Vault criteria shared by everything that walks the results in the order the vault recorded them.
+ */
+public class ResultQueries {
+    /**
+     * Both encodings of a result.
+     */
+    public static final Set<Class<? extends ContractState>> RESULT_TYPES =
+            ImmutableSet.of(JPMorganState.class, CompactJPMorganState.class);
+
+    /**
+     * The results, and the [ResultSheetState]s standing for whole sheets of them.
+     */
+    public static final Set<Class<? extends ContractState>> STORED_TYPES =
+            ImmutableSet.of(JPMorganState.class, CompactJPMorganState.class, ResultSheetState.class);
+
+    /**
+     * Oldest first, with the state reference breaking ties so that the order is total.
+     */
+    public static final Sort RECORDED_ORDER = new Sort(ImmutableSet.of(
+            new Sort.SortColumn(new SortAttribute.Standard(Sort.VaultStateAttribute.RECORDED_TIME), Sort.Direction.ASC),
+            new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF_TXN_ID), Sort.Direction.ASC),
+            new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF_INDEX), Sort.Direction.ASC)));
+
+    /**
+     * Fastest finishing time first.
+     */
+    public static final Sort FASTEST_FIRST = new Sort(ImmutableSet.of(
+            new Sort.SortColumn(new SortAttribute.Custom(JPMorganSchemaV1.PersistentJPM.class, "time"), Sort.Direction.ASC)));
+
+    private ResultQueries() { }
+
+    /**
+     * @return every unconsumed result.
+     */
+    public static QueryCriteria allResults() {
+        return new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED, RESULT_TYPES);
+    }
+
+    /**
+     * @return the unconsumed results of one challenge year.
+     */
+    public static QueryCriteria byChallenge(String challengeName, int challengeYear) {
+        return allResults()
+                .and(new QueryCriteria.VaultCustomQueryCriteria(Builder.equal(field("challengeName"), challengeName)))
+                .and(new QueryCriteria.VaultCustomQueryCriteria(Builder.equal(field("challengeYear"), challengeYear)));
+    }
+
+    /**
+     * @return the unconsumed results whose runner's last name starts with [prefix].
+     */
+    public static QueryCriteria byLastNamePrefix(String prefix) {
+        return allResults()
+                .and(new QueryCriteria.VaultCustomQueryCriteria(Builder.like(field("lastName"), prefix + "%")));
+    }
+
+    /**
+     * @return the unconsumed results of a challenge year carrying [bibNumber].
+     */
+    public static QueryCriteria byBib(String challengeName, int challengeYear, int bibNumber) {
+        return byChallenge(challengeName, challengeYear)
+                .and(new QueryCriteria.VaultCustomQueryCriteria(Builder.equal(field("bibNumber"), bibNumber)));
+    }
+
+    /**
+     * @return the column [name] of [JPMorganSchemaV1.PersistentJPM], for use in custom criteria.
+     */
+    public static Field field(String name) {
+        try {
+            return JPMorganSchemaV1.PersistentJPM.class.getDeclaredField(name);
+        } catch (NoSuchFieldException ex) {
+            throw new IllegalArgumentException("No column " + name + " in PersistentJPM", ex);
+        }
+    }
+
+    /**
+     * @return the unconsumed results recorded at or after [from] and at or before [until].
+     */
+    public static QueryCriteria recordedBetween(Instant from, Instant until) {
+        return new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED, RESULT_TYPES, null, null, null,
+                new QueryCriteria.TimeCondition(QueryCriteria.TimeInstantType.RECORDED,
+                        new ColumnPredicate.Between<>(from, until)));
+    }
+
+    /**
+     * @return the unconsumed results recorded at or after [from].
+     */
+    public static QueryCriteria recordedSince(Instant from) {
+        return new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED, RESULT_TYPES, null, null, null,
+                new QueryCriteria.TimeCondition(QueryCriteria.TimeInstantType.RECORDED,
+                        new ColumnPredicate.BinaryComparison<>(BinaryComparisonOperator.GREATER_THAN_OR_EQUAL, from)));
+    }
+
+    /**
+     * @return every unconsumed result or result sheet.
+     */
+    public static QueryCriteria allStored() {
+        return new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED, STORED_TYPES);
+    }
+
+    /**
+     * @return every unconsumed result sheet.
+     */
+    public static QueryCriteria allSheets() {
+        return new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED, ImmutableSet.of(ResultSheetState.class));
+    }
+
+    /**
+     * @return the unconsumed results and result sheets recorded at or after [from].
+     */
+    public static QueryCriteria storedSince(Instant from) {
+        return new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED, STORED_TYPES, null, null, null,
+                new QueryCriteria.TimeCondition(QueryCriteria.TimeInstantType.RECORDED,
+                        new ColumnPredicate.BinaryComparison<>(BinaryComparisonOperator.GREATER_THAN_OR_EQUAL, from)));
+    }
+}
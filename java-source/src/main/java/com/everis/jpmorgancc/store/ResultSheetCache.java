@@ -0,0 +1,122 @@
+package com.everis.jpmorgancc.store;
+
+import com.everis.jpmorgancc.client.RpcConnectionPool;
+import com.everis.jpmorgancc.csv.ResultSheet;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import net.corda.core.crypto.SecureHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Parsed copies of the result sheets the node holds as attachments, so that reading a sheet's rows does not download
+ * and unzip it every time.
+ *
+ * Each attachment is downloaded over RPC once, checked against its hash and kept in -Djpmorgancc.sheets.cacheDir; up
+ * to -Djpmorgancc.sheets.maxCached parsed sheets are kept in memory, the least recently used being parsed again from
+ * disk when needed.
+ */
+public class ResultSheetCache {
+    private static final Logger logger = LoggerFactory.getLogger(ResultSheetCache.class);
+
+    static final Path CACHE_DIR = Paths.get(System.getProperty("jpmorgancc.sheets.cacheDir", "sheet-cache"));
+    static final int MAX_CACHED = Integer.getInteger("jpmorgancc.sheets.maxCached", 16);
+
+    private final RpcConnectionPool rpc;
+    private final Path cacheDir;
+    private final LoadingCache<SecureHash, ResultSheet> sheets;
+
+    public ResultSheetCache(RpcConnectionPool rpc) {
+        this(rpc, CACHE_DIR);
+    }
+
+    public ResultSheetCache(RpcConnectionPool rpc, Path cacheDir) {
+        this.rpc = rpc;
+        this.cacheDir = cacheDir;
+        this.sheets = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED)
+                .build(new CacheLoader<SecureHash, ResultSheet>() {
+                    @Override
+                    public ResultSheet load(SecureHash hash) throws IOException {
+                        return parse(hash);
+                    }
+                });
+    }
+
+    /**
+     * @return the sheet held in the attachment [hash].
+     * @throws IOException if it cannot be downloaded or is not a valid sheet.
+     */
+    public ResultSheet get(SecureHash hash) throws IOException {
+        try {
+            return sheets.get(hash);
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException("Could not read result sheet " + hash, ex.getCause());
+        }
+    }
+
+    private ResultSheet parse(SecureHash hash) throws IOException {
+        final Path file = download(hash);
+        final long started = System.nanoTime();
+        try (InputStream in = Files.newInputStream(file)) {
+            final ResultSheet sheet = ResultSheet.read(in);
+            logger.info("Parsed result sheet {} of {} rows in {} ms", hash, sheet.size(),
+                    Duration.ofNanos(System.nanoTime() - started).toMillis());
+            return sheet;
+        }
+    }
+
+    private Path download(SecureHash hash) throws IOException {
+        final Path file = cacheDir.resolve(hash + ".zip");
+        if (Files.exists(file)) {
+            return file;
+        }
+        Files.createDirectories(cacheDir);
+        final Path partial = cacheDir.resolve(hash + ".zip.part");
+        final MessageDigest digest = sha256();
+        try {
+            rpc.call(ops -> {
+                try (InputStream in = new DigestInputStream(ops.openAttachment(hash), digest)) {
+                    digest.reset();
+                    return Files.copy(in, partial, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        final SecureHash downloaded = new SecureHash.SHA256(digest.digest());
+        if (!downloaded.equals(hash)) {
+            Files.deleteIfExists(partial);
+            throw new IOException("Attachment " + hash + " downloaded with hash " + downloaded);
+        }
+        return Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.everis.jpmorgancc.store;
+
+import net.corda.core.contracts.StateRef;
+import net.corda.core.crypto.SecureHash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A [ResultStore] persisted to disk, so that a restarted webserver only replays the vault updates recorded after the
+ * snapshot was taken instead of paging through the whole vault again.
+ *
+ * The file holds, in order: a magic number and format version, the name of the node whose vault it copies, the
+ * [Watermark] (latest recorded time and the recent state references), the two [ResultColumns] dictionaries, the row count and then each int column in turn. It is read
+ * back through a read-only memory mapping, so columns are bulk-copied straight from the page cache.
+ *
+ * Snapshots are written to a temporary file and atomically moved into place, so a crash never leaves a torn file. A
+ * snapshot of another node, e.g. after the webserver was pointed elsewhere, is refused.
+ */
+class ResultSnapshotFile {
+    private static final int MAGIC = 0x4a504d53; // "JPMS"
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private ResultSnapshotFile() { }
+
+    static void write(Path file, String node, ResultColumns columns, Watermark watermark) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Writer writer = new Writer(channel);
+            writer.putInt(MAGIC);
+            writer.putInt(VERSION);
+            writer.putStrings(Collections.singletonList(node));
+            writer.putInstant(watermark.getLatest());
+            writer.putInt(watermark.getRecent().size());
+            for (Map.Entry<StateRef, Instant> entry : watermark.getRecent().entrySet()) {
+                writer.putBytes(entry.getKey().getTxhash().getBytes());
+                writer.putInt(entry.getKey().getIndex());
+                writer.putInstant(entry.getValue());
+            }
+            columns.writeTo(writer);
+            writer.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Fills an empty [columns] and [watermark] from [file].
+     *
+     * @throws IOException if the file cannot be read, was not written by this version or copies another [node].
+     */
+    static void read(Path file, String node, ResultColumns columns, Watermark watermark) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (snapshot.getInt() != MAGIC || snapshot.getInt() != VERSION) {
+                throw new IOException("Not a result snapshot of version " + VERSION + ": " + file);
+            }
+            String snapshotNode = getStrings(snapshot).get(0);
+            if (!snapshotNode.equals(node)) {
+                throw new IOException("Result snapshot " + file + " copies " + snapshotNode + ", not " + node);
+            }
+            Instant latest = getInstant(snapshot);
+            int recentCount = snapshot.getInt();
+            Map<StateRef, Instant> recent = new HashMap<>(recentCount * 2);
+            for (int i = 0; i < recentCount; i++) {
+                byte[] txhash = new byte[32];
+                snapshot.get(txhash);
+                StateRef ref = new StateRef(new SecureHash.SHA256(txhash), snapshot.getInt());
+                recent.put(ref, getInstant(snapshot));
+            }
+            columns.readFrom(snapshot);
+            watermark.restore(latest, recent);
+        } catch (RuntimeException ex) {
+            throw new IOException("Corrupt result snapshot " + file, ex);
+        }
+    }
+
+    static List<String> getStrings(ByteBuffer snapshot) {
+        int count = snapshot.getInt();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] utf8 = new byte[snapshot.getInt()];
+            snapshot.get(utf8);
+            strings.add(new String(utf8, StandardCharsets.UTF_8));
+        }
+        return strings;
+    }
+
+    private static Instant getInstant(ByteBuffer snapshot) {
+        long seconds = snapshot.getLong();
+        return Instant.ofEpochSecond(seconds, snapshot.getInt());
+    }
+
+    /**
+     * Buffers writes to the snapshot channel.
+     */
+    static class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putInts(int[] values, int length) throws IOException {
+            for (int i = 0; i < length; i++) {
+                putInt(values[i]);
+            }
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensureRemaining(1);
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        void putStrings(List<String> strings) throws IOException {
+            putInt(strings.size());
+            for (String string : strings) {
+                byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+                putInt(utf8.length);
+                putBytes(utf8);
+            }
+        }
+
+        private void putInstant(Instant instant) throws IOException {
+            ensureRemaining(Long.BYTES + Integer.BYTES);
+            buffer.putLong(instant.getEpochSecond());
+            buffer.putInt(instant.getNano());
+        }
+
+        private void ensureRemaining(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.everis.jpmorgancc.store;
+
+import com.everis.jpmorgancc.client.RpcConnectionPool;
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.csv.ResultSheet;
+import com.everis.jpmorgancc.state.CompactJPMorganState;
+import com.everis.jpmorgancc.state.RaceResult;
+import com.everis.jpmorgancc.state.ResultSheetState;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import rx.Subscription;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a [ResultColumns] copy of the node's results for the web layer's analytics, and a [BibFilter] of their bibs
+ * for its duplicate checks. A [ResultSheetState] adds every row of its sheet, read through the [ResultSheetCache],
+ * and is indexed by its hash so that the web layer can find sheets without querying the vault.
+ *
+ * The store is filled by paging through the vault in recorded order. Every vault update only schedules another
+ * catch-up from the [Watermark], so updates arriving during the initial load, or in bursts, cost a single query.
+ * All vault reads, column appends and snapshots happen on one background thread. A sheet that cannot be downloaded
+ * stops the catch-up before the watermark passes it, and the catch-up is tried again after
+ * -Djpmorgancc.store.retrySeconds.
+ *
+ * The store is periodically saved to a [ResultSnapshotFile]. On start-up the snapshot is mapped back in and the
+ * first catch-up only replays what the vault recorded after it.
+ */
+public class ResultStore {
+    private static final Logger logger = LoggerFactory.getLogger(ResultStore.class);
+
+    static final int PAGE_SIZE = Integer.getInteger("jpmorgancc.store.pageSize", 5000);
+    static final Duration OVERLAP = Duration.ofSeconds(Long.getLong("jpmorgancc.store.overlapSeconds", 10));
+    static final Path SNAPSHOT_FILE = Paths.get(System.getProperty("jpmorgancc.store.snapshotFile", "result-store.snapshot"));
+    static final Duration SNAPSHOT_INTERVAL = Duration.ofMinutes(Long.getLong("jpmorgancc.store.snapshotMinutes", 5));
+    static final Duration RETRY_INTERVAL = Duration.ofSeconds(Long.getLong("jpmorgancc.store.retrySeconds", 30));
+
+    private final RpcConnectionPool rpc;
+    private final ResultColumns columns;
+    private final BibFilter bibs = new BibFilter();
+    private final ResultSheetCache sheets;
+    private final Map<SecureHash, StateAndRef<ResultSheetState>> sheetIndex = new ConcurrentHashMap<>();
+    private final Watermark watermark;
+    private final Path snapshotFile;
+    private final ScheduledThreadPoolExecutor loader = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "result-store-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean catchUpQueued = new AtomicBoolean(false);
+    private volatile boolean ready = false;
+    private int appendedSinceSnapshot = 0;
+    private String node;
+    private Subscription subscription;
+
+    ResultStore(RpcConnectionPool rpc, ResultColumns columns, ResultSheetCache sheets, Watermark watermark, Path snapshotFile) {
+        this.rpc = rpc;
+        this.columns = columns;
+        this.sheets = sheets;
+        this.watermark = watermark;
+        this.snapshotFile = snapshotFile;
+        // A pending retry must not hold up [stop].
+        loader.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Starts loading the node's results in the background, resuming from the last snapshot if there is one.
+     */
+    public static ResultStore start(RpcConnectionPool rpc) {
+        return start(rpc, SNAPSHOT_FILE);
+    }
+
+    /**
+     * As [start], keeping the snapshot in [snapshotFile], for webservers following several nodes.
+     */
+    public static ResultStore start(RpcConnectionPool rpc, Path snapshotFile) {
+        ResultStore store = new ResultStore(rpc, new ResultColumns(), new ResultSheetCache(rpc), new Watermark(OVERLAP),
+                snapshotFile);
+        store.loader.submit(store::restoreSnapshot);
+        store.subscribe();
+        store.loader.scheduleWithFixedDelay(store::saveSnapshot,
+                SNAPSHOT_INTERVAL.toMillis(), SNAPSHOT_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(store::stop, "result-store-shutdown"));
+        return store;
+    }
+
+    public ResultColumns getColumns() { return columns; }
+
+    /**
+     * @return the bibs of every result loaded so far, for duplicate checks.
+     */
+    public BibFilter getBibs() { return bibs; }
+
+    /**
+     * @return the parsed result sheets, also used by the web layer to page through a sheet.
+     */
+    public ResultSheetCache getSheets() { return sheets; }
+
+    /**
+     * @return the result sheet [hash] if its rows have been loaded, or null.
+     */
+    public StateAndRef<ResultSheetState> findSheet(SecureHash hash) {
+        return sheetIndex.get(hash);
+    }
+
+    /**
+     * @return the result sheets loaded so far of a challenge, or of every challenge if [challengeName] is null, and of
+     * a year, or of every year if [challengeYear] is null, by challenge and year.
+     */
+    public List<StateAndRef<ResultSheetState>> listSheets(String challengeName, Integer challengeYear) {
+        return sheetIndex.values().stream()
+                .filter(sheet -> challengeName == null || sheet.getState().getData().getChallengeName().equals(challengeName))
+                .filter(sheet -> challengeYear == null || sheet.getState().getData().getChallengeYear() == challengeYear)
+                .sorted(Comparator.comparing((StateAndRef<ResultSheetState> sheet) -> sheet.getState().getData().getChallengeName())
+                        .thenComparingInt(sheet -> sheet.getState().getData().getChallengeYear()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return true if a result sheet of the challenge year holds [bibNumber]. Until the store has loaded, the sheets are
+     * found in the vault rather than in the index.
+     * @throws IOException if one of those sheets cannot be read.
+     */
+    public boolean isInSheet(String challengeName, int challengeYear, int bibNumber) throws IOException {
+        final List<StateAndRef<ResultSheetState>> candidates;
+        if (ready) {
+            candidates = listSheets(challengeName, challengeYear);
+        } else {
+            candidates = new ArrayList<>();
+            forEachSheet((sheet, metadata) -> {
+                if (sheet.getState().getData().getChallengeName().equals(challengeName)
+                        && sheet.getState().getData().getChallengeYear() == challengeYear) {
+                    candidates.add(sheet);
+                }
+            });
+        }
+        for (StateAndRef<ResultSheetState> sheet : candidates) {
+            if (sheets.get(sheet.getState().getData().getSheetHash()).byBib(bibNumber) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true once the vault contents at start-up have been loaded.
+     */
+    public boolean isReady() { return ready; }
+
+    /**
+     * Stops following the vault and saves a final snapshot.
+     */
+    public void stop() {
+        if (subscription != null) {
+            subscription.unsubscribe();
+        }
+        loader.shutdown();
+        try {
+            if (loader.awaitTermination(30, TimeUnit.SECONDS)) {
+                saveSnapshot();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void subscribe() {
+        // Subscribe before the first catch-up, so that nothing recorded in between can be missed. Updates missed while
+        // the pool re-subscribes are picked up by the catch-up it triggers.
+        subscription = rpc.track(ops -> ops.vaultTrackBy(ResultQueries.allStored(), new PageSpecification(1, 1),
+                ResultQueries.RECORDED_ORDER, ContractState.class).getUpdates(),
+                update -> requestCatchUp(),
+                this::requestCatchUp);
+        requestCatchUp();
+    }
+
+    private void requestCatchUp() {
+        if (loader.isShutdown()) {
+            return;
+        }
+        if (catchUpQueued.compareAndSet(false, true)) {
+            loader.submit(() -> {
+                catchUpQueued.set(false);
+                try {
+                    catchUp();
+                } catch (IOException ex) {
+                    logger.warn("Result store catch-up stopped at a result sheet it could not read, retrying in {} s",
+                            RETRY_INTERVAL.getSeconds(), ex);
+                    if (!loader.isShutdown()) {
+                        loader.schedule(this::requestCatchUp, RETRY_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+                    }
+                } catch (Exception ex) {
+                    logger.error("Result store catch-up failed", ex);
+                }
+            });
+        }
+    }
+
+    private void restoreSnapshot() {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            ResultSnapshotFile.read(snapshotFile, node(), columns, watermark);
+            columns.putBibs(bibs);
+            indexSheets();
+            logger.info("Result store restored {} results up to {} from {} in {} ms", columns.size(),
+                    watermark.getLatest(), snapshotFile, Duration.ofNanos(System.nanoTime() - started).toMillis());
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Ignoring unreadable result snapshot {}", snapshotFile, ex);
+            columns.clear();
+            bibs.clear();
+            sheetIndex.clear();
+            watermark.restore(Instant.EPOCH, Collections.emptyMap());
+        }
+    }
+
+    private void saveSnapshot() {
+        if (!ready || appendedSinceSnapshot == 0) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            ResultSnapshotFile.write(snapshotFile, node(), columns, watermark);
+            appendedSinceSnapshot = 0;
+            logger.info("Result store saved {} results to {} in {} ms", columns.size(), snapshotFile,
+                    Duration.ofNanos(System.nanoTime() - started).toMillis());
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Could not save result snapshot {}", snapshotFile, ex);
+        }
+    }
+
+    /**
+     * Indexes the sheets whose rows came from the snapshot, which the catch-up will not read again.
+     */
+    private void indexSheets() {
+        forEachSheet((sheet, metadata) -> {
+            // A sheet the snapshot does not cover is indexed by the catch-up, once its rows are loaded.
+            if (!watermark.isNew(sheet.getRef(), metadata.getRecordedTime())) {
+                sheetIndex.put(sheet.getState().getData().getSheetHash(), sheet);
+            }
+        });
+    }
+
+    /**
+     * Pages through every result sheet in the vault.
+     */
+    private void forEachSheet(BiConsumer<StateAndRef<ResultSheetState>, Vault.StateMetadata> visit) {
+        int pageNumber = 1;
+        while (true) {
+            final int pageNumberNow = pageNumber;
+            final Vault.Page<ResultSheetState> page = rpc.call(ops -> ops.vaultQueryBy(ResultQueries.allSheets(),
+                    new PageSpecification(pageNumberNow, PAGE_SIZE), ResultQueries.RECORDED_ORDER, ResultSheetState.class));
+            for (int i = 0; i < page.getStates().size(); i++) {
+                visit.accept(page.getStates().get(i), page.getStatesMetadata().get(i));
+            }
+            if (page.getStates().size() < PAGE_SIZE) {
+                return;
+            }
+            pageNumber++;
+        }
+    }
+
+    /**
+     * @return the legal name of the node whose vault this store copies, which the snapshot is tied to.
+     */
+    private String node() {
+        if (node == null) {
+            node = rpc.call(ops -> ops.nodeInfo().getLegalIdentities().get(0).getName().toString());
+        }
+        return node;
+    }
+
+    /**
+     * Appends what the vault recorded since the watermark.
+     * @throws IOException if a result sheet cannot be read. Everything before it has been appended and the watermark
+     * has not passed it, so the next catch-up starts with it again.
+     */
+    void catchUp() throws IOException {
+        long started = System.nanoTime();
+        int appended = 0;
+        Instant from = watermark.resumeFrom();
+        int pageNumber = 1;
+        while (true) {
+            final Instant pageFrom = from;
+            final int pageNumberNow = pageNumber;
+            Vault.Page<ContractState> page = rpc.call(ops -> ops.vaultQueryBy(ResultQueries.storedSince(pageFrom),
+                    new PageSpecification(pageNumberNow, PAGE_SIZE), ResultQueries.RECORDED_ORDER, ContractState.class));
+            List<StateAndRef<ContractState>> states = page.getStates();
+            List<Vault.StateMetadata> metadata = page.getStatesMetadata();
+            for (int i = 0; i < states.size(); i++) {
+                final StateAndRef<ContractState> state = states.get(i);
+                final Instant recordedTime = metadata.get(i).getRecordedTime();
+                if (watermark.isNew(state.getRef(), recordedTime)) {
+                    // Recorded only once appended, so that a sheet failing to download is not skipped for good.
+                    final int added = append(state);
+                    watermark.record(state.getRef(), recordedTime);
+                    appended += added;
+                    appendedSinceSnapshot += added;
+                }
+            }
+            watermark.prune();
+
+            if (states.size() < PAGE_SIZE) {
+                break;
+            }
+            Instant last = metadata.get(metadata.size() - 1).getRecordedTime();
+            if (last.equals(from)) {
+                // A whole page recorded at the same instant; move to the next page of that instant.
+                pageNumber++;
+            } else {
+                from = last;
+                pageNumber = 1;
+            }
+        }
+
+        if (!ready) {
+            ready = true;
+            logger.info("Result store loaded {} results in {} ms", columns.size(),
+                    Duration.ofNanos(System.nanoTime() - started).toMillis());
+        } else if (appended > 0) {
+            logger.debug("Result store appended {} results", appended);
+        }
+    }
+
+    private int append(StateAndRef<ContractState> stateAndRef) throws IOException {
+        final ContractState state = stateAndRef.getState().getData();
+        if (state instanceof RaceResult) {
+            RaceResult result = (RaceResult) state;
+            columns.append(result.challengeName(), result.challengeYear(), result.placeCity(), result.placeGender(),
+                    result.bibNumber(), result.timeHundredths(), result.genderCode());
+            bibs.put(result.challengeName(), result.challengeYear(), result.bibNumber());
+            return 1;
+        } else if (state instanceof ResultSheetState) {
+            return appendSheet(stateAndRef);
+        }
+        return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int appendSheet(StateAndRef<ContractState> stateAndRef) throws IOException {
+        final ResultSheetState state = (ResultSheetState) stateAndRef.getState().getData();
+        // The contract checked the sheet, so a failure here is a download failure, which the next catch-up retries.
+        final ResultSheet sheet;
+        try {
+            sheet = sheets.get(state.getSheetHash());
+        } catch (IOException ex) {
+            throw new IOException("Could not load result sheet " + state.getSheetHash() + " of "
+                    + state.getChallengeName() + " " + state.getChallengeYear(), ex);
+        }
+        for (ResultRow row : sheet.getRows()) {
+            columns.append(row.getChallengeName(), row.getChallengeYear(), row.getPlaceCity(), row.getPlaceGender(),
+                    row.getBibNumber(), CompactJPMorganState.toHundredths(row.getTime()), row.getGender());
+            bibs.put(row.getChallengeName(), row.getChallengeYear(), row.getBibNumber());
+        }
+        sheetIndex.put(state.getSheetHash(), (StateAndRef<ResultSheetState>) (StateAndRef<?>) stateAndRef);
+        return sheet.size();
+    }
+}
@@ -0,0 +1,51 @@
+package com.everis.jpmorgancc.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns repeated strings (challenge names, genders) into dense integer codes, so a column only needs to hold an
+ * int per row.
+ *
+ * Not thread-safe; [ResultColumns] guards it with its own lock.
+ */
+class StringDictionary {
+    static final int ABSENT = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * @return the code of [value], assigning the next free code if it has not been seen before.
+     */
+    int intern(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * @return the code of [value], or [ABSENT] if it has never been interned.
+     */
+    int codeOf(String value) {
+        Integer code = codes.get(value);
+        return code == null ? ABSENT : code;
+    }
+
+    String valueOf(int code) { return values.get(code); }
+
+    int size() { return values.size(); }
+
+    List<String> values() { return values; }
+
+    void clear() {
+        codes.clear();
+        values.clear();
+    }
+}
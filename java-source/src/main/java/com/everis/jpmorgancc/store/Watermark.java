@@ -0,0 +1,80 @@
+package com.everis.jpmorgancc.store;
+
+import net.corda.core.contracts.StateRef;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Remembers how far through the vault a reader has got: the latest recorded time it has seen, and the references of
+ * the results recorded in the [overlap] before it.
+ *
+ * Vault transactions do not necessarily commit in recorded-time order, so every catch-up re-reads the [overlap] window
+ * and uses the remembered references to skip what was already seen.
+ *
+ * Not thread-safe; it is owned by the loader thread of a [ResultStore].
+ */
+class Watermark {
+    private final Duration overlap;
+    private final Map<StateRef, Instant> recent = new HashMap<>();
+    private Instant latest = Instant.EPOCH;
+
+    Watermark(Duration overlap) {
+        this.overlap = overlap;
+    }
+
+    /**
+     * @return where the next catch-up has to start reading from.
+     */
+    Instant resumeFrom() {
+        return latest.equals(Instant.EPOCH) ? Instant.EPOCH : latest.minus(overlap);
+    }
+
+    /**
+     * @return true if [ref] has not been seen before, without remembering it.
+     */
+    boolean isNew(StateRef ref, Instant recordedTime) {
+        return !recordedTime.isBefore(resumeFrom()) && !recent.containsKey(ref);
+    }
+
+    /**
+     * @return true if [ref] has not been seen before, in which case it is now remembered.
+     */
+    boolean record(StateRef ref, Instant recordedTime) {
+        if (!isNew(ref, recordedTime)) {
+            return false;
+        }
+        recent.put(ref, recordedTime);
+        if (recordedTime.isAfter(latest)) {
+            latest = recordedTime;
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the references that can no longer be re-read.
+     */
+    void prune() {
+        Instant horizon = resumeFrom();
+        for (Iterator<Instant> it = recent.values().iterator(); it.hasNext(); ) {
+            if (it.next().isBefore(horizon)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Resumes from a position saved by [ResultSnapshotFile].
+     */
+    void restore(Instant latest, Map<StateRef, Instant> recent) {
+        this.latest = latest;
+        this.recent.clear();
+        this.recent.putAll(recent);
+    }
+
+    Instant getLatest() { return latest; }
+    Map<StateRef, Instant> getRecent() { return recent; }
+}
@@ -29,7 +29,7 @@ app.controller('customersCtrl', function($scope, $http) {
   });
 });
 
-app.controller('DemoAppController', function($http, $location, $uibModal) {
+app.controller('DemoAppController', function($http, $location, $uibModal, $interval) {
     const demoApp = this;
 
     // We identify the node.
@@ -66,12 +66,35 @@ app.controller('DemoAppController', function($http, $location, $uibModal) {
 //
 //    demoApp.getIOUs();
 
-    demoApp.getResults = () => $http.get(apiBaseURL + "results")
-        .then((response) => demoApp.results = Object.keys(response.data)
-            .map((key) => response.data[key].state.data)
-            .reverse());
+    // The first call fetches every result; after that only the results recorded since the returned cursor are
+    // fetched, newest shown first.
+    // A tick that lands while a sync is still following hasMore is skipped, so two syncs never share the cursor.
+    let resultsCursor = "";
+    let syncing = false;
+    demoApp.results = [];
+
+    const fetchResults = () => $http.get(apiBaseURL + "results/changes", { params: { cursor: resultsCursor } })
+        .then((response) => {
+            resultsCursor = response.data.cursor;
+            demoApp.results = response.data.changes
+                .map((result) => result.state.data)
+                .reverse()
+                .concat(demoApp.results);
+            if (response.data.hasMore) {
+                return fetchResults();
+            }
+        });
+
+    demoApp.getResults = () => {
+        if (syncing) {
+            return;
+        }
+        syncing = true;
+        fetchResults().finally(() => syncing = false);
+    };
 
     demoApp.getResults();
+    $interval(demoApp.getResults, 5000);
 
 
 //
@@ -0,0 +1,183 @@
+package com.everis.jpmorgancc.flow;
+
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.dataset.RaceDatasetGenerator;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.MockNetworkNotarySpec;
+import net.corda.testing.node.MockNetworkParameters;
+import net.corda.testing.node.StartedMockNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs thousands of [JPMorganFlow.Initiator]s on an in-process [MockNetwork] and fails if throughput drops below
+ * the baseline stored in baselines/flow-throughput.properties for the same topology.
+ *
+ * The topology and load are set with system properties: bench.initiators, bench.counterparties, bench.notaries,
+ * bench.flows and bench.inFlight. The measurements are written to build/reports/performance/flow-throughput.json.
+ */
+public class FlowThroughputTests {
+    private static final Logger logger = LoggerFactory.getLogger(FlowThroughputTests.class);
+
+    private final int initiatorCount = Integer.getInteger("bench.initiators", 2);
+    private final int counterpartyCount = Integer.getInteger("bench.counterparties", 2);
+    private final int notaryCount = Integer.getInteger("bench.notaries", 1);
+    private final int flows = Integer.getInteger("bench.flows", 2000);
+    private final int inFlight = Integer.getInteger("bench.inFlight", 64);
+    private final String topology = initiatorCount + "x" + counterpartyCount + "x" + notaryCount;
+
+    private MockNetwork network;
+    private final List<StartedMockNode> initiators = new ArrayList<>();
+    private final List<Party> counterparties = new ArrayList<>();
+    private final List<Party> notaries = new ArrayList<>();
+    // Warm-up and measured flows both draw from the shared dataset; one year each is always enough.
+    private final Iterator<ResultRow> rows = new RaceDatasetGenerator(42, "J.P.Morgan Corporate Challenge", 2017, 2, flows).iterator();
+
+    @Before
+    public void setup() {
+        final List<MockNetworkNotarySpec> notarySpecs = new ArrayList<>();
+        for (int i = 0; i < notaryCount; i++) {
+            notarySpecs.add(new MockNetworkNotarySpec(new CordaX500Name("Notary" + i, "London", "GB")));
+        }
+        network = new MockNetwork(ImmutableList.of("com.everis.jpmorgancc.contract"), new MockNetworkParameters()
+                .withNotarySpecs(notarySpecs)
+                .withThreadPerNode(true)
+                .withNetworkSendManuallyPumped(false));
+        for (StartedMockNode notary : network.getNotaryNodes()) {
+            notaries.add(notary.getInfo().getLegalIdentities().get(0));
+        }
+        for (int i = 0; i < initiatorCount; i++) {
+            initiators.add(network.createPartyNode(new CordaX500Name("Initiator" + i, "London", "GB")));
+        }
+        for (int i = 0; i < counterpartyCount; i++) {
+            StartedMockNode node = network.createPartyNode(new CordaX500Name("Counterparty" + i, "New York", "US"));
+            node.registerInitiatedFlow(JPMorganFlow.Acceptor.class);
+            counterparties.add(node.getInfo().getLegalIdentities().get(0));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @Test
+    public void flowThroughputMeetsBaseline() throws Exception {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        // Warm the flow machinery up before measuring.
+        run(Math.min(200, flows / 10), new long[0]);
+        System.gc();
+        final long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        final long[] latencies = new long[flows];
+        final long started = System.nanoTime();
+        final Throwable failure = run(flows, latencies);
+        final double seconds = (System.nanoTime() - started) / 1e9;
+        System.gc();
+        final long heapGrowth = memory.getHeapMemoryUsage().getUsed() - heapBefore;
+
+        assertNull("A flow failed: " + failure, failure);
+        Arrays.sort(latencies);
+        final double flowsPerSecond = flows / seconds;
+        final String report = String.format("{\"topology\": \"%s\", \"flows\": %d, \"seconds\": %.3f, \"flowsPerSecond\": %.1f" +
+                        ", \"latencyMillis\": {\"p50\": %.2f, \"p90\": %.2f, \"p99\": %.2f, \"max\": %.2f}, \"heapGrowthBytes\": %d}",
+                topology, flows, seconds, flowsPerSecond, percentile(latencies, 50), percentile(latencies, 90),
+                percentile(latencies, 99), percentile(latencies, 100), heapGrowth);
+        logger.info("Flow throughput: {}", report);
+        writeReport(report);
+
+        final Properties baselines = loadBaselines();
+        final String baseline = baselines.getProperty("flowsPerSecond." + topology);
+        if (baseline == null) {
+            logger.warn("No throughput baseline for topology {}; add flowsPerSecond.{} to baselines/flow-throughput.properties", topology, topology);
+            return;
+        }
+        final double minimum = Double.parseDouble(baseline) * (1 - Double.parseDouble(baselines.getProperty("tolerance", "0.2")));
+        assertTrue(String.format("Throughput %.1f flows/s fell below %.1f flows/s (baseline %s)", flowsPerSecond, minimum, baseline),
+                flowsPerSecond >= minimum);
+    }
+
+    /**
+     * Runs [count] flows, at most [inFlight] at a time, spreading them over every initiator, counterparty and notary.
+     *
+     * @return the first failure, if any.
+     */
+    private Throwable run(int count, long[] latencies) throws InterruptedException {
+        final Semaphore slots = new Semaphore(inFlight);
+        final AtomicInteger recorded = new AtomicInteger(0);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int i = 0; i < count; i++) {
+            final StartedMockNode initiator = initiators.get(i % initiatorCount);
+            final Party counterparty = counterparties.get((i / initiatorCount) % counterpartyCount);
+            final Party notary = notaries.get((i / (initiatorCount * counterpartyCount)) % notaryCount);
+            final JPMorganFlow.Initiator flow = RaceDatasetGenerator.initiator(rows.next(), counterparty, notary);
+            slots.acquire();
+            final long start = System.nanoTime();
+            initiator.startFlow(flow)
+                    .toCompletableFuture()
+                    .whenComplete((stx, error) -> {
+                        if (error != null) {
+                            failure.compareAndSet(null, error);
+                        } else if (latencies.length > 0) {
+                            latencies[recorded.getAndIncrement()] = System.nanoTime() - start;
+                        }
+                        slots.release();
+                    });
+        }
+        if (!slots.tryAcquire(inFlight, 10, TimeUnit.MINUTES)) {
+            return new IllegalStateException("Flows did not finish within 10 minutes");
+        }
+        return failure.get();
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        final int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static Properties loadBaselines() throws IOException {
+        final Properties baselines = new Properties();
+        try (InputStream in = FlowThroughputTests.class.getClassLoader().getResourceAsStream("baselines/flow-throughput.properties")) {
+            if (in != null) {
+                baselines.load(in);
+            }
+        }
+        return baselines;
+    }
+
+    private static void writeReport(String report) throws IOException {
+        final Path file = Paths.get(System.getProperty("bench.reportDir", "build/reports/performance"), "flow-throughput.json");
+        Files.createDirectories(file.getParent());
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(report);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.everis.jpmorgancc.store;
+
+import com.everis.jpmorgancc.contract.JPMorganContract;
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.dataset.RaceDatasetGenerator;
+import com.everis.jpmorgancc.state.JPMorganState;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import kotlin.Pair;
+import net.corda.core.contracts.Command;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.nodeapi.internal.persistence.CordaPersistence;
+import net.corda.testing.core.SerializationEnvironmentRule;
+import net.corda.testing.core.TestIdentity;
+import net.corda.testing.node.MockServices;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static net.corda.testing.node.MockServicesKt.makeTestIdentityService;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Seeds a node's vault to each of -Dbench.sizes results and times the access patterns the API relies on at each of
+ * -Dbench.pageSizes, producing a latency-against-size table in build/reports/performance/vault-query-scaling.csv.
+ *
+ * Results come from a [RaceDatasetGenerator], one year of the field at a time in turn, and are recorded directly into
+ * the vault in large transactions, bypassing flows, so that a million results can be seeded in minutes. The by-bib
+ * pattern looks up the first 2015 bib seeded, so every size probes a result that exists.
+ */
+public class VaultQueryScalingTests {
+    private static final Logger logger = LoggerFactory.getLogger(VaultQueryScalingTests.class);
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+    private static final int YEARS = 10;
+    private static final int RESULTS_PER_TRANSACTION = 1000;
+
+    private static final TestIdentity megaCorp = new TestIdentity(new CordaX500Name("MegaCorp", "London", "GB"));
+    private static final TestIdentity miniCorp = new TestIdentity(new CordaX500Name("MiniCorp", "London", "GB"));
+    private static final TestIdentity notary = new TestIdentity(new CordaX500Name("Notary", "London", "GB"));
+
+    private final List<Integer> sizes = parse(System.getProperty("bench.sizes", "10000,100000"));
+    private final List<Integer> pageSizes = parse(System.getProperty("bench.pageSizes", "50,200,1000"));
+    private final int repetitions = Integer.getInteger("bench.repetitions", 5);
+
+    @Rule
+    public final SerializationEnvironmentRule testSerialization = new SerializationEnvironmentRule();
+
+    private CordaPersistence database;
+    private MockServices services;
+    private final List<Iterator<ResultRow>> years = new ArrayList<>();
+    private int seeded = 0;
+    /**
+     * A bib known to be in the vault, for the by-bib pattern. It is taken from the seeded rows rather than fixed, since
+     * a fixed bib would only exist for some sizes and the pattern requires a hit.
+     */
+    private int probeBib = 0;
+
+    @Before
+    public void setup() {
+        Pair<CordaPersistence, MockServices> databaseAndServices = MockServices.makeTestDatabaseAndMockServices(
+                ImmutableList.of("com.everis.jpmorgancc.contract", "com.everis.jpmorgancc.schema"),
+                makeTestIdentityService(megaCorp.getIdentity(), miniCorp.getIdentity(), notary.getIdentity()),
+                megaCorp, miniCorp.getKeyPair());
+        database = databaseAndServices.getFirst();
+        services = databaseAndServices.getSecond();
+        final int fieldSize = (sizes.stream().mapToInt(Integer::intValue).max().orElse(0) + YEARS - 1) / YEARS;
+        for (int year = 0; year < YEARS; year++) {
+            years.add(new RaceDatasetGenerator(42, CHALLENGE, 2010 + year, 1, fieldSize).iterator());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void queryLatencyAgainstVaultSize() throws IOException {
+        final List<String> rows = new ArrayList<>();
+        for (int size : sizes) {
+            seedTo(size);
+            assertTrue("Seed at least " + (2015 - 2010 + 1) + " results so that " + CHALLENGE + " 2015 has a bib to probe",
+                    probeBib > 0);
+            final Map<String, QueryCriteria> patterns = new LinkedHashMap<>();
+            final Map<String, Sort> sorts = new LinkedHashMap<>();
+            patterns.put("all", ResultQueries.allResults());
+            patterns.put("challengeYear", ResultQueries.byChallenge(CHALLENGE, 2015));
+            patterns.put("topByTime", ResultQueries.byChallenge(CHALLENGE, 2015));
+            sorts.put("topByTime", ResultQueries.FASTEST_FIRST);
+            patterns.put("bib", ResultQueries.byBib(CHALLENGE, 2015, probeBib));
+            patterns.put("lastNamePrefix", ResultQueries.byLastNamePrefix("Wil"));
+            for (Map.Entry<String, QueryCriteria> pattern : patterns.entrySet()) {
+                final Sort sort = sorts.getOrDefault(pattern.getKey(), new Sort(ImmutableSet.of()));
+                for (int pageSize : pageSizes) {
+                    final double millis = medianMillis(pattern.getValue(), sort, pageSize);
+                    rows.add(String.format("%d,%s,%d,%.2f", size, pattern.getKey(), pageSize, millis));
+                    logger.info(String.format("%9d results | %-15s | page %5d | %9.2f ms", size, pattern.getKey(), pageSize, millis));
+                }
+            }
+        }
+        writeTable(rows);
+    }
+
+    private double medianMillis(QueryCriteria criteria, Sort sort, int pageSize) {
+        final double[] millis = new double[repetitions];
+        for (int i = -1; i < repetitions; i++) {
+            final long start = System.nanoTime();
+            final Vault.Page<JPMorganState> page = database.transaction(tx ->
+                    services.getVaultService().queryBy(JPMorganState.class, criteria, new PageSpecification(1, pageSize), sort));
+            if (i >= 0) {
+                millis[i] = (System.nanoTime() - start) / 1e6;
+            }
+            assertFalse("Query returned no results", page.getStates().isEmpty());
+        }
+        Arrays.sort(millis);
+        return millis[repetitions / 2];
+    }
+
+    private void seedTo(int size) {
+        final long start = System.nanoTime();
+        final int from = seeded;
+        while (seeded < size) {
+            final List<ContractState> results = new ArrayList<>(RESULTS_PER_TRANSACTION);
+            for (int i = 0; i < RESULTS_PER_TRANSACTION && seeded < size; i++, seeded++) {
+                final ResultRow row = years.get(seeded % YEARS).next();
+                if (row.getChallengeYear() == 2015 && probeBib == 0) {
+                    probeBib = row.getBibNumber();
+                }
+                results.add(row.toState(megaCorp.getParty(), miniCorp.getParty()));
+            }
+            final SignedTransaction stx = issue(results);
+            database.transaction(tx -> {
+                services.recordTransactions(ImmutableList.of(stx));
+                return null;
+            });
+        }
+        logger.info("Seeded {} results in {} s", seeded - from, (System.nanoTime() - start) / 1_000_000_000L);
+    }
+
+    private SignedTransaction issue(List<ContractState> states) {
+        final TransactionBuilder builder = new TransactionBuilder(notary.getParty());
+        for (ContractState state : states) {
+            builder.addOutputState(state, JPMorganContract.JPM_CONTRACT_ID);
+        }
+        builder.addCommand(new Command<>(new JPMorganContract.Commands.Create(),
+                ImmutableList.of(megaCorp.getPublicKey(), miniCorp.getPublicKey())));
+        final SignedTransaction signedByMegaCorp = services.signInitialTransaction(builder, megaCorp.getPublicKey());
+        return services.addSignature(signedByMegaCorp, miniCorp.getPublicKey());
+    }
+
+    private static void writeTable(List<String> rows) throws IOException {
+        final Path file = Paths.get(System.getProperty("bench.reportDir", "build/reports/performance"), "vault-query-scaling.csv");
+        Files.createDirectories(file.getParent());
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("results,pattern,pageSize,medianMillis");
+            rows.forEach(out::println);
+        }
+    }
+
+    private static List<Integer> parse(String list) {
+        return Arrays.stream(list.split(",")).map(String::trim).map(Integer::valueOf).collect(Collectors.toList());
+    }
+}
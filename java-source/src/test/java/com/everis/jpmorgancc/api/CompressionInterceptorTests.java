@@ -0,0 +1,81 @@
+package com.everis.jpmorgancc.api;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompressionInterceptorTests {
+    private final DeflaterPool gzipPool = new DeflaterPool(true, 6, 2);
+    private final DeflaterPool deflatePool = new DeflaterPool(false, 6, 2);
+
+    @Test
+    public void negotiatesPreferredEncoding() {
+        assertEquals("gzip", CompressionInterceptor.negotiate("deflate, gzip;q=0.8"));
+        assertEquals("deflate", CompressionInterceptor.negotiate("gzip;q=0, deflate"));
+        assertEquals("gzip", CompressionInterceptor.negotiate("*"));
+        assertNull(CompressionInterceptor.negotiate("identity"));
+        assertNull(CompressionInterceptor.negotiate(null));
+    }
+
+    @Test
+    public void smallBodiesAreLeftAlone() throws IOException {
+        final byte[] body = "{\"me\":\"O=PartyA, L=London, C=GB\"}".getBytes(StandardCharsets.UTF_8);
+        final AtomicBoolean compressed = new AtomicBoolean(false);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final CompressionInterceptor.ThresholdStream stream =
+                new CompressionInterceptor.ThresholdStream(out, () -> compressed.set(true), gzipPool);
+        stream.write(body);
+        stream.finish();
+        stream.close();
+
+        assertFalse(compressed.get());
+        assertArrayEquals(body, out.toByteArray());
+    }
+
+    @Test
+    public void largeBodiesRoundTripThroughReusedDeflaters() throws IOException {
+        final byte[] body = largeBody();
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(body, ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(encode(body, gzipPool)))));
+            assertArrayEquals(body, ByteStreams.toByteArray(new InflaterInputStream(new ByteArrayInputStream(encode(body, deflatePool)))));
+        }
+    }
+
+    private static byte[] encode(byte[] body, DeflaterPool pool) throws IOException {
+        final AtomicBoolean compressed = new AtomicBoolean(false);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final CompressionInterceptor.ThresholdStream stream =
+                new CompressionInterceptor.ThresholdStream(out, () -> compressed.set(true), pool);
+        // Written in uneven chunks, as a JSON writer would.
+        for (int offset = 0; offset < body.length; offset += 700) {
+            stream.write(body, offset, Math.min(700, body.length - offset));
+        }
+        stream.finish();
+
+        assertTrue(compressed.get());
+        assertTrue(out.size() < body.length / 5);
+        return out.toByteArray();
+    }
+
+    private static byte[] largeBody() {
+        final StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 2000; i++) {
+            json.append("{\"state\":{\"data\":{\"challengeName\":\"J.P.Morgan Corporate Challenge\",\"bibNumber\":")
+                    .append(i).append(",\"lender\":\"O=PartyA, L=London, C=GB\"}}},");
+        }
+        return json.append("{}]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
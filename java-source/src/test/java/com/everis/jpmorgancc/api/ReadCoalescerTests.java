@@ -0,0 +1,160 @@
+package com.everis.jpmorgancc.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReadCoalescerTests {
+    private final ReadCoalescer reads = new ReadCoalescer(new ObjectMapper());
+
+    @Test
+    public void concurrentReadsShareOneAnswer() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Response> first = callers.submit(() -> reads.read("standings", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return Response.ok(ImmutableMap.of("place", 1)).build();
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            final Future<Response> second = callers.submit(() -> reads.read("standings", () -> {
+                calls.incrementAndGet();
+                return Response.ok(ImmutableMap.of("place", 2)).build();
+            }));
+            // Give the second caller time to find the read in flight.
+            Thread.sleep(100);
+            release.countDown();
+
+            final byte[] body = (byte[]) first.get().getEntity();
+            assertArrayEquals("{\"place\":1}".getBytes(StandardCharsets.UTF_8), body);
+            assertArrayEquals(body, (byte[]) second.get().getEntity());
+            assertEquals(1, calls.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void finishedReadsAreNotKeptWithoutATtl() {
+        final ReadCoalescer uncached = new ReadCoalescer(new ObjectMapper(), 0);
+        final AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            uncached.read("results", () -> Response.ok(calls.incrementAndGet()).build());
+        }
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void errorsKeepTheirStatus() {
+        final Response response = reads.read("history/nobody",
+                () -> Response.status(Response.Status.NOT_FOUND).entity("No results.\n").build());
+        assertEquals(404, response.getStatus());
+        assertArrayEquals("No results.\n".getBytes(StandardCharsets.UTF_8), (byte[]) response.getEntity());
+    }
+
+    @Test
+    public void failuresReachTheCaller() {
+        final IllegalStateException failure = new IllegalStateException("RPC failed");
+        try {
+            reads.read("results", () -> { throw failure; });
+            fail();
+        } catch (IllegalStateException ex) {
+            assertSame(failure, ex);
+        }
+        assertEquals(200, reads.read("results", () -> Response.ok("again").build()).getStatus());
+    }
+
+    @Test
+    public void keptAnswersAreDroppedByAWrite() {
+        final ReadCoalescer kept = new ReadCoalescer(new ObjectMapper(), TimeUnit.MINUTES.toNanos(1));
+        final AtomicInteger calls = new AtomicInteger();
+        kept.read("standings", () -> Response.ok(calls.incrementAndGet()).build());
+        kept.read("standings", () -> Response.ok(calls.incrementAndGet()).build());
+        assertEquals(1, calls.get());
+
+        kept.invalidateAll();
+        final Response response = kept.read("standings", () -> Response.ok(calls.incrementAndGet()).build());
+        assertEquals(2, calls.get());
+        assertArrayEquals("2".getBytes(StandardCharsets.UTF_8), (byte[]) response.getEntity());
+    }
+
+    @Test
+    public void readsInFlightDuringAWriteAreNeitherJoinedNorKept() throws Exception {
+        final ReadCoalescer kept = new ReadCoalescer(new ObjectMapper(), TimeUnit.MINUTES.toNanos(1));
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Response> before = callers.submit(() -> kept.read("standings", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(release);
+                return Response.ok(ImmutableMap.of("place", "before")).build();
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            kept.invalidateAll();
+            // Returns without waiting for the older read, which is still blocked.
+            final Response after = kept.read("standings", () -> {
+                calls.incrementAndGet();
+                return Response.ok(ImmutableMap.of("place", "after")).build();
+            });
+            assertEquals(2, calls.get());
+            release.countDown();
+            assertArrayEquals("{\"place\":\"before\"}".getBytes(StandardCharsets.UTF_8),
+                    (byte[]) before.get().getEntity());
+
+            final Response later = kept.read("standings", () -> {
+                calls.incrementAndGet();
+                return Response.ok(ImmutableMap.of("place", "later")).build();
+            });
+            assertEquals(2, calls.get());
+            assertArrayEquals((byte[]) after.getEntity(), (byte[]) later.getEntity());
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void answersComputedBeforeAWriteAreNotKept() throws Exception {
+        final ReadCoalescer kept = new ReadCoalescer(new ObjectMapper(), TimeUnit.MINUTES.toNanos(1));
+        final AtomicInteger calls = new AtomicInteger();
+        kept.read("standings", () -> {
+            calls.incrementAndGet();
+            // A write lands while the read runs.
+            kept.invalidateAll();
+            return Response.ok("stale").build();
+        });
+        kept.read("standings", () -> Response.ok(calls.incrementAndGet()).build());
+        assertEquals(2, calls.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.everis.jpmorgancc.api;
+
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.shard.Shard;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.FlowException;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.identity.Party;
+import net.corda.testing.core.TestIdentity;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SubmissionBatcherTests {
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+    private static final CordaX500Name NODE = new CordaX500Name("MegaCorp", "London", "GB");
+    private static final Party counterparty = new TestIdentity(new CordaX500Name("MiniCorp", "London", "GB")).getParty();
+
+    private final Shard shard = new Shard("all", null, ImmutableSet.of(), null, null, null);
+    private final BlockingQueue<Start> starts = new LinkedBlockingQueue<>();
+    private SubmissionBatcher batcher;
+
+    @After
+    public void tearDown() {
+        if (batcher != null) {
+            batcher.stop();
+        }
+    }
+
+    @Test
+    public void fullBufferIsFlushedAtOnceAndEachCallerGetsItsOwnOutput() throws Exception {
+        batcher = batcher(3, 60_000);
+        final List<CompletableFuture<StateRef>> futures = new ArrayList<>();
+        for (int bib = 3; bib >= 1; bib--) {
+            futures.add(submit(bib));
+        }
+
+        final Start start = nextStart();
+        assertEquals(ImmutableList.of(3, 2, 1), bibs(start));
+        final SecureHash txId = SecureHash.sha256("batch");
+        start.result.complete(txId);
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(new StateRef(txId, i), futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void partialBufferIsFlushedAfterTheMaxDelay() throws Exception {
+        batcher = batcher(50, 20);
+        final CompletableFuture<StateRef> first = submit(1);
+        final CompletableFuture<StateRef> second = submit(2);
+
+        final Start start = nextStart();
+        assertEquals(ImmutableList.of(1, 2), bibs(start));
+        start.result.complete(SecureHash.sha256("batch"));
+        assertEquals(0, first.get(10, TimeUnit.SECONDS).getIndex());
+        assertEquals(1, second.get(10, TimeUnit.SECONDS).getIndex());
+        assertNull(starts.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void rejectedBatchIsRetriedOneByOneAndOnlyTheOffenderFails() throws Exception {
+        batcher = batcher(3, 60_000);
+        final CompletableFuture<StateRef> one = submit(1);
+        final CompletableFuture<StateRef> two = submit(2);
+        final CompletableFuture<StateRef> three = submit(3);
+        nextStart().result.completeExceptionally(new FlowException("Bib 2 is invalid."));
+
+        final Map<Integer, Start> retries = new HashMap<>();
+        for (int i = 0; i < 3; i++) {
+            final Start retry = nextStart();
+            assertEquals(1, retry.rows.size());
+            retries.put(retry.rows.get(0).getBibNumber(), retry);
+        }
+        retries.get(1).result.complete(SecureHash.sha256("one"));
+        retries.get(2).result.completeExceptionally(new FlowException("Bib 2 is invalid."));
+        retries.get(3).result.complete(SecureHash.sha256("three"));
+
+        assertEquals(new StateRef(SecureHash.sha256("one"), 0), one.get(10, TimeUnit.SECONDS));
+        assertEquals(new StateRef(SecureHash.sha256("three"), 0), three.get(10, TimeUnit.SECONDS));
+        assertFailsWith(two, FlowException.class);
+    }
+
+    @Test
+    public void otherFailuresFailTheWholeBatchWithoutRetrying() throws Exception {
+        batcher = batcher(2, 60_000);
+        final CompletableFuture<StateRef> one = submit(1);
+        final CompletableFuture<StateRef> two = submit(2);
+        nextStart().result.completeExceptionally(new IllegalStateException("Connection lost"));
+
+        assertFailsWith(one, IllegalStateException.class);
+        assertFailsWith(two, IllegalStateException.class);
+        assertNull(starts.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void bibAlreadyQueuedIsRefused() throws Exception {
+        batcher = batcher(50, 60_000);
+        final CompletableFuture<StateRef> first = submit(1);
+        final CompletableFuture<StateRef> again = submit(1);
+
+        assertFailsWith(again, SubmissionBatcher.DuplicateSubmissionException.class);
+        assertFalse(first.isDone());
+    }
+
+    @Test
+    public void stopFailsBufferedAndLaterSubmissions() throws Exception {
+        batcher = batcher(50, 60_000);
+        final CompletableFuture<StateRef> buffered = submit(1);
+
+        batcher.stop();
+        assertFailsWith(buffered, IllegalStateException.class);
+        assertFailsWith(submit(2), IllegalStateException.class);
+        assertTrue(starts.isEmpty());
+    }
+
+    /**
+     * @return a batcher whose flows are recorded in [starts] instead of being started, and complete when the test
+     * completes their result.
+     */
+    private SubmissionBatcher batcher(int maxSize, long maxDelayMillis) {
+        return new SubmissionBatcher(() -> NODE, maxSize, maxDelayMillis) {
+            @Override
+            CompletableFuture<SecureHash> start(Shard shard, Party otherParty, Party notary, List<ResultRow> rows,
+                                                String batchId) {
+                final Start start = new Start(rows);
+                starts.add(start);
+                return start.result;
+            }
+        };
+    }
+
+    private CompletableFuture<StateRef> submit(int bibNumber) {
+        final ResultRow row = new ResultRow(CHALLENGE, 2017, bibNumber, bibNumber, bibNumber, "Runner",
+                "Number" + bibNumber, 1500.0 + bibNumber, "M");
+        return batcher.submit(shard, counterparty, null, row, "test-" + bibNumber);
+    }
+
+    private Start nextStart() throws InterruptedException {
+        final Start start = starts.poll(10, TimeUnit.SECONDS);
+        if (start == null) {
+            fail("No flow was started");
+        }
+        return start;
+    }
+
+    private static List<Integer> bibs(Start start) {
+        return start.rows.stream().map(ResultRow::getBibNumber).collect(toList());
+    }
+
+    private static void assertFailsWith(CompletableFuture<StateRef> future, Class<? extends Throwable> type)
+            throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("The submission should have failed");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause().toString(), type.isInstance(ex.getCause()));
+        }
+    }
+
+    private static class Start {
+        private final List<ResultRow> rows;
+        private final CompletableFuture<SecureHash> result = new CompletableFuture<>();
+
+        private Start(List<ResultRow> rows) {
+            this.rows = rows;
+        }
+    }
+}
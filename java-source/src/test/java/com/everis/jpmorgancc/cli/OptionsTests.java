@@ -0,0 +1,26 @@
+package com.everis.jpmorgancc.cli;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class OptionsTests {
+    @Test
+    public void optionsAreParsedFromTheGivenIndex() {
+        final String[] args = { "localhost:10006", "results.csv", "--counterparty=O=PartyB,L=New York,C=US", "--rate=2.5",
+                "--rate=5", "--empty=" };
+        assertEquals(ImmutableMap.of("counterparty", "O=PartyB,L=New York,C=US", "rate", "5", "empty", ""),
+                Options.parse(args, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void argumentsWithoutAValueAreRefused() {
+        Options.parse(new String[] { "--compress" }, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void argumentsWithoutDashesAreRefused() {
+        Options.parse(new String[] { "rate=5" }, 0);
+    }
+}
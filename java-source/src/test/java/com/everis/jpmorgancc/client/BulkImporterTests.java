@@ -0,0 +1,158 @@
+package com.everis.jpmorgancc.client;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BulkImporterTests {
+    private static final String HEADER = "challengeName,challengeYear,placeCity,placeGender,bibNumber,firstName,lastName,time,gender";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lineReaderTracksByteOffsets() throws IOException {
+        final BulkImporter.LineReader lines = reader("ab\r\nñ\n\nlast", 0);
+        assertEquals("ab", lines.readLine());
+        assertEquals(0, lines.getLineStart());
+        assertEquals(4, lines.getOffset());
+        assertEquals("ñ", lines.readLine());
+        assertEquals(7, lines.getOffset());
+        assertEquals("", lines.readLine());
+        assertEquals(8, lines.getOffset());
+        assertEquals("last", lines.readLine());
+        assertEquals(8, lines.getLineStart());
+        assertEquals(12, lines.getOffset());
+        assertNull(lines.readLine());
+    }
+
+    @Test
+    public void lineReaderContinuesFromAGivenOffset() throws IOException {
+        final BulkImporter.LineReader lines = reader("second\n", 100);
+        assertEquals("second", lines.readLine());
+        assertEquals(100, lines.getLineStart());
+        assertEquals(107, lines.getOffset());
+    }
+
+    @Test
+    public void checkpointAdvancesOnlyPastContiguousConfirmations() throws IOException {
+        final BulkImporter.Checkpoint checkpoint = BulkImporter.Checkpoint.load(file("import.checkpoint"), 8);
+        checkpoint.confirm(1, 20);
+        checkpoint.confirm(2, 30);
+        assertEquals(0, checkpoint.getNextRow());
+        assertTrue(checkpoint.isConfirmed(2));
+        assertFalse(checkpoint.isConfirmed(0));
+
+        checkpoint.confirm(0, 10);
+        assertEquals(3, checkpoint.getNextRow());
+        assertEquals(30, checkpoint.getNextOffset());
+        assertEquals(0, checkpoint.confirmedAheadCount());
+    }
+
+    @Test
+    public void resumedCheckpointKeepsItsPositionAndSubmitLimit() throws IOException {
+        final Path file = file("import.checkpoint");
+        final BulkImporter.Checkpoint checkpoint = BulkImporter.Checkpoint.load(file, 8);
+        checkpoint.skipHeader(HEADER.length() + 1);
+        checkpoint.beforeSubmit(0);
+        checkpoint.confirm(0, 100);
+        checkpoint.confirm(2, 300);
+        checkpoint.save();
+
+        final BulkImporter.Checkpoint resumed = BulkImporter.Checkpoint.load(file, 8);
+        assertEquals(1, resumed.getNextRow());
+        assertEquals(100, resumed.getNextOffset());
+        assertFalse(resumed.isConfirmed(1));
+        assertTrue(resumed.isConfirmed(2));
+        assertTrue(resumed.maybeSubmitted(7));
+        assertFalse(resumed.maybeSubmitted(8));
+    }
+
+    @Test
+    public void resumedImportReadsFromTheFirstUnconfirmedRow() throws IOException {
+        final Path results = file("results.csv");
+        final String first = "J.P.Morgan Corporate Challenge,2017,1,1,1,Runner,One,1500.0,M";
+        final String second = "J.P.Morgan Corporate Challenge,2017,2,2,2,Runner,Two,1510.0,F";
+        Files.write(results, (HEADER + "\n" + first + "\n" + second + "\n").getBytes(StandardCharsets.UTF_8));
+
+        final BulkImporter.Checkpoint checkpoint = BulkImporter.Checkpoint.load(file("results.csv.checkpoint"), 8);
+        final BulkImporter.LineReader lines = new BulkImporter.LineReader(Files.newInputStream(results), 0);
+        lines.readLine();
+        checkpoint.skipHeader(lines.getOffset());
+        lines.readLine();
+        checkpoint.confirm(0, lines.getOffset());
+        checkpoint.save();
+
+        final BulkImporter.Checkpoint resumed = BulkImporter.Checkpoint.load(file("results.csv.checkpoint"), 8);
+        try (InputStream in = Files.newInputStream(results)) {
+            assertEquals(resumed.getNextOffset(), in.skip(resumed.getNextOffset()));
+            final BulkImporter.LineReader rest = new BulkImporter.LineReader(in, resumed.getNextOffset());
+            assertEquals(second, rest.readLine());
+            assertNull(rest.readLine());
+        }
+    }
+
+    @Test
+    public void submissionsWaitForTheOldestUnconfirmedRow() throws Exception {
+        final BulkImporter.Checkpoint checkpoint = BulkImporter.Checkpoint.load(file("import.checkpoint"), 8);
+        assertTrue(checkpoint.awaitWithin(3, 4, () -> false));
+
+        final CountDownLatch admitted = new CountDownLatch(1);
+        final Thread reader = new Thread(() -> {
+            try {
+                if (checkpoint.awaitWithin(4, 4, () -> false)) {
+                    admitted.countDown();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reader.start();
+        assertFalse(admitted.await(100, TimeUnit.MILLISECONDS));
+        checkpoint.confirm(0, 10);
+        assertTrue(admitted.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void stoppingReleasesAWaitingReader() throws Exception {
+        final BulkImporter.Checkpoint checkpoint = BulkImporter.Checkpoint.load(file("import.checkpoint"), 8);
+        final AtomicBoolean stopped = new AtomicBoolean(false);
+        final CountDownLatch refused = new CountDownLatch(1);
+        final Thread reader = new Thread(() -> {
+            try {
+                if (!checkpoint.awaitWithin(10, 4, stopped::get)) {
+                    refused.countDown();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        reader.start();
+        stopped.set(true);
+        checkpoint.wakeUp();
+        assertTrue(refused.await(10, TimeUnit.SECONDS));
+    }
+
+    private Path file(String name) {
+        return folder.getRoot().toPath().resolve(name);
+    }
+
+    private static BulkImporter.LineReader reader(String text, long offset) {
+        return new BulkImporter.LineReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), offset);
+    }
+}
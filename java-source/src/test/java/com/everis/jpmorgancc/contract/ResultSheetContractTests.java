@@ -0,0 +1,143 @@
+package com.everis.jpmorgancc.contract;
+
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.csv.ResultSheet;
+import com.everis.jpmorgancc.dataset.RaceDatasetGenerator;
+import com.everis.jpmorgancc.state.ResultSheetState;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.testing.core.TestIdentity;
+import net.corda.testing.node.MockServices;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static net.corda.testing.node.NodeTestUtils.ledger;
+
+/**
+ * The PublishSheet() rules of [JPMorganContract], checked on the ledger DSL with the sheet as a real attachment.
+ */
+public class ResultSheetContractTests {
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+
+    static private final MockServices ledgerServices = new MockServices(ImmutableList.of("com.everis.jpmorgancc.contract"));
+    static private TestIdentity megaCorp = new TestIdentity(new CordaX500Name("MegaCorp", "London", "GB"));
+    static private TestIdentity miniCorp = new TestIdentity(new CordaX500Name("MiniCorp", "London", "GB"));
+
+    private final byte[] sheet = zip(new RaceDatasetGenerator(5, CHALLENGE, 2018, 1, 200));
+    private final ResultSheet.Totals totals = totals(sheet, 2018);
+
+    @Test
+    public void sheetMatchingItsTotalsVerifies() {
+        ledger(ledgerServices, (ledger -> {
+            final SecureHash hash = ledger.attachment(new ByteArrayInputStream(sheet));
+            ledger.transaction(tx -> {
+                tx.attachment(hash);
+                tx.output(JPMorganContract.JPM_CONTRACT_ID, state(hash, 2018, totals.getFinishers()));
+                tx.command(ImmutableList.of(megaCorp.getPublicKey(), miniCorp.getPublicKey()), new JPMorganContract.Commands.PublishSheet());
+                return tx.verifies();
+            });
+            return null;
+        }));
+    }
+
+    @Test
+    public void sheetMustBeAttached() {
+        ledger(ledgerServices, (ledger -> {
+            final SecureHash hash = ledger.attachment(new ByteArrayInputStream(sheet));
+            ledger.transaction(tx -> {
+                tx.output(JPMorganContract.JPM_CONTRACT_ID, state(hash, 2018, totals.getFinishers()));
+                tx.command(ImmutableList.of(megaCorp.getPublicKey(), miniCorp.getPublicKey()), new JPMorganContract.Commands.PublishSheet());
+                return tx.failsWith("The result sheet must be attached.");
+            });
+            return null;
+        }));
+    }
+
+    @Test
+    public void totalsMustMatchTheSheet() {
+        ledger(ledgerServices, (ledger -> {
+            final SecureHash hash = ledger.attachment(new ByteArrayInputStream(sheet));
+            ledger.transaction(tx -> {
+                tx.attachment(hash);
+                tx.output(JPMorganContract.JPM_CONTRACT_ID, state(hash, 2018, totals.getFinishers() + 1));
+                tx.command(ImmutableList.of(megaCorp.getPublicKey(), miniCorp.getPublicKey()), new JPMorganContract.Commands.PublishSheet());
+                return tx.failsWith("The finishers must match the sheet.");
+            });
+            return null;
+        }));
+    }
+
+    @Test
+    public void sheetMustBelongToTheStatesYear() {
+        ledger(ledgerServices, (ledger -> {
+            final SecureHash hash = ledger.attachment(new ByteArrayInputStream(sheet));
+            ledger.transaction(tx -> {
+                tx.attachment(hash);
+                tx.output(JPMorganContract.JPM_CONTRACT_ID, state(hash, 2017, totals.getFinishers()));
+                tx.command(ImmutableList.of(megaCorp.getPublicKey(), miniCorp.getPublicKey()), new JPMorganContract.Commands.PublishSheet());
+                return tx.failsWith("The result sheet is invalid");
+            });
+            return null;
+        }));
+    }
+
+    @Test
+    public void sheetMustKeepBibsInRange() {
+        final byte[] outOfRange = zip(ImmutableList.of(
+                new ResultRow(CHALLENGE, 2018, 1, 1, ResultSheet.MAX_BIB + 1, "Runner", "One", 1500.0, "M")));
+        ledger(ledgerServices, (ledger -> {
+            final SecureHash hash = ledger.attachment(new ByteArrayInputStream(outOfRange));
+            ledger.transaction(tx -> {
+                tx.attachment(hash);
+                tx.output(JPMorganContract.JPM_CONTRACT_ID, new ResultSheetState(CHALLENGE, 2018, hash, 1, 150000,
+                        150000, megaCorp.getParty(), miniCorp.getParty(), new UniqueIdentifier()));
+                tx.command(ImmutableList.of(megaCorp.getPublicKey(), miniCorp.getPublicKey()), new JPMorganContract.Commands.PublishSheet());
+                return tx.failsWith("The bib must be between 1 and " + ResultSheet.MAX_BIB);
+            });
+            return null;
+        }));
+    }
+
+    @Test
+    public void bothPartiesMustSign() {
+        ledger(ledgerServices, (ledger -> {
+            final SecureHash hash = ledger.attachment(new ByteArrayInputStream(sheet));
+            ledger.transaction(tx -> {
+                tx.attachment(hash);
+                tx.output(JPMorganContract.JPM_CONTRACT_ID, state(hash, 2018, totals.getFinishers()));
+                tx.command(megaCorp.getPublicKey(), new JPMorganContract.Commands.PublishSheet());
+                return tx.failsWith("All of the participants must be signers.");
+            });
+            return null;
+        }));
+    }
+
+    private ResultSheetState state(SecureHash hash, int challengeYear, int finishers) {
+        return new ResultSheetState(CHALLENGE, challengeYear, hash, finishers, totals.getBestTimeHundredths(),
+                totals.getTotalTimeHundredths(), megaCorp.getParty(), miniCorp.getParty(), new UniqueIdentifier());
+    }
+
+    private static ResultSheet.Totals totals(byte[] sheet, int challengeYear) {
+        try {
+            return ResultSheet.verify(new ByteArrayInputStream(sheet), CHALLENGE, challengeYear);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static byte[] zip(Iterable<ResultRow> rows) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ResultSheet.write(rows, out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+}
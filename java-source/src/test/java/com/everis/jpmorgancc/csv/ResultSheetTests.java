@@ -0,0 +1,91 @@
+package com.everis.jpmorgancc.csv;
+
+import com.everis.jpmorgancc.dataset.RaceDatasetGenerator;
+import com.everis.jpmorgancc.state.CompactJPMorganState;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResultSheetTests {
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+
+    private final RaceDatasetGenerator generator = new RaceDatasetGenerator(3, CHALLENGE, 2018, 1, 2000);
+
+    @Test
+    public void sheetsRoundTripInFinishingOrder() throws IOException {
+        final ResultSheet sheet = ResultSheet.read(new ByteArrayInputStream(zip(generator)));
+
+        assertEquals(2000, sheet.size());
+        double previous = 0;
+        for (ResultRow row : sheet.getRows()) {
+            assertEquals(row, sheet.byBib(row.getBibNumber()));
+            assertTrue(row.getTime() >= previous);
+            previous = row.getTime();
+        }
+        assertEquals(sheet.getRows().subList(100, 150), sheet.page(100, 50));
+        assertEquals(0, sheet.page(5000, 50).size());
+        assertNull(sheet.byBib(2001));
+    }
+
+    @Test
+    public void verifyComputesTheTotals() throws IOException {
+        int best = Integer.MAX_VALUE;
+        long total = 0;
+        for (ResultRow row : generator) {
+            final int time = CompactJPMorganState.toHundredths(row.getTime());
+            best = Math.min(best, time);
+            total += time;
+        }
+
+        final ResultSheet.Totals totals = ResultSheet.verify(new ByteArrayInputStream(zip(generator)), CHALLENGE, 2018);
+
+        assertEquals(2000, totals.getFinishers());
+        assertEquals(best, totals.getBestTimeHundredths());
+        assertEquals(total, totals.getTotalTimeHundredths());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyRejectsDuplicateBibs() throws IOException {
+        final List<ResultRow> rows = new ArrayList<>();
+        generator.forEach(rows::add);
+        rows.add(rows.get(0));
+        ResultSheet.verify(new ByteArrayInputStream(zip(rows)), CHALLENGE, 2018);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyRejectsRowsOfAnotherYear() throws IOException {
+        ResultSheet.verify(new ByteArrayInputStream(zip(generator)), CHALLENGE, 2019);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyRejectsEmptySheets() throws IOException {
+        ResultSheet.verify(new ByteArrayInputStream(zip(new ArrayList<>())), CHALLENGE, 2018);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyRejectsBibsBeyondTheLimit() throws IOException {
+        final ResultRow row = new ResultRow(CHALLENGE, 2018, 1, 1, ResultSheet.MAX_BIB + 1, "Runner", "One", 1500.0, "M");
+        ResultSheet.verify(new ByteArrayInputStream(zip(ImmutableList.of(row))), CHALLENGE, 2018);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void verifyRejectsTimesBeyondTheCompactRange() throws IOException {
+        final ResultRow row = new ResultRow(CHALLENGE, 2018, 1, 1, 1, "Runner", "One", CompactJPMorganState.MAX_TIME, "M");
+        ResultSheet.verify(new ByteArrayInputStream(zip(ImmutableList.of(row))), CHALLENGE, 2018);
+    }
+
+    private static byte[] zip(Iterable<ResultRow> rows) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultSheet.write(rows, out);
+        return out.toByteArray();
+    }
+}
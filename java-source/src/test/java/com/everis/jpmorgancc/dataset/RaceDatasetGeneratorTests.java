@@ -0,0 +1,66 @@
+package com.everis.jpmorgancc.dataset;
+
+import com.everis.jpmorgancc.csv.ResultCsv;
+import com.everis.jpmorgancc.csv.ResultRow;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RaceDatasetGeneratorTests {
+    private final RaceDatasetGenerator generator = new RaceDatasetGenerator(7, "J.P.Morgan Corporate Challenge", 2016, 3, 5000);
+
+    @Test
+    public void sameSeedGivesSameRows() {
+        final Iterator<ResultRow> again = new RaceDatasetGenerator(7, "J.P.Morgan Corporate Challenge", 2016, 3, 5000).iterator();
+        for (ResultRow row : generator) {
+            assertEquals(ResultCsv.format(row), ResultCsv.format(again.next()));
+        }
+        final ResultRow other = new RaceDatasetGenerator(8, "J.P.Morgan Corporate Challenge", 2016, 3, 5000).iterator().next();
+        assertNotEquals(ResultCsv.format(generator.iterator().next()), ResultCsv.format(other));
+    }
+
+    @Test
+    public void placingsFollowTimesAndBibsAreUniquePerYear() {
+        assertEquals(15000, generator.stream().count());
+        for (int year = 2016; year <= 2018; year++) {
+            final int challengeYear = year;
+            final List<ResultRow> rows = generator.stream()
+                    .filter(row -> row.getChallengeYear() == challengeYear)
+                    .collect(Collectors.toList());
+            assertEquals(5000, rows.size());
+
+            final Set<Integer> bibs = new HashSet<>();
+            int men = 0;
+            int women = 0;
+            double previous = 0;
+            for (int i = 0; i < rows.size(); i++) {
+                final ResultRow row = rows.get(i);
+                assertTrue(bibs.add(row.getBibNumber()));
+                assertEquals(i + 1, row.getPlaceCity());
+                assertEquals(row.getGender().equals("F") ? ++women : ++men, row.getPlaceGender());
+                assertTrue(row.getTime() >= previous);
+                previous = row.getTime();
+            }
+            assertTrue("Unrealistic gender split", women > 1500 && men > 1500);
+        }
+    }
+
+    @Test
+    public void csvOutputCanBeReadBack() throws Exception {
+        final StringWriter csv = new StringWriter();
+        new RaceDatasetGenerator(7, "J.P.Morgan Corporate Challenge", 2018, 1, 100).writeCsv(csv);
+        final String[] lines = csv.toString().split("\n");
+        assertEquals(101, lines.length);
+        assertTrue(ResultCsv.isHeader(lines[0]));
+        assertEquals(1, ResultCsv.parse(lines[1]).getPlaceCity());
+    }
+}
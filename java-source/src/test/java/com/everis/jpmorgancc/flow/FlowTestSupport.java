@@ -0,0 +1,29 @@
+package com.everis.jpmorgancc.flow;
+
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.identity.Party;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.StartedMockNode;
+
+import java.util.concurrent.Future;
+
+/**
+ * Helpers shared by the flow tests.
+ */
+final class FlowTestSupport {
+    private FlowTestSupport() {
+    }
+
+    static Party party(StartedMockNode node) {
+        return node.getInfo().getLegalIdentities().get(0);
+    }
+
+    /**
+     * Starts [flow] on [node] and runs [network] until it completes.
+     */
+    static <T> T run(MockNetwork network, StartedMockNode node, FlowLogic<T> flow) throws Exception {
+        final Future<T> future = node.startFlow(flow);
+        network.runNetwork();
+        return future.get();
+    }
+}
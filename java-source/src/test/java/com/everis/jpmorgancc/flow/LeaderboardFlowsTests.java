@@ -0,0 +1,125 @@
+package com.everis.jpmorgancc.flow;
+
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.csv.ResultSheet;
+import com.everis.jpmorgancc.service.LeaderboardService;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.crypto.SecureHash;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.StartedMockNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static com.everis.jpmorgancc.flow.FlowTestSupport.party;
+import static com.everis.jpmorgancc.flow.FlowTestSupport.run;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+public class LeaderboardFlowsTests {
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+
+    private MockNetwork network;
+    private StartedMockNode a;
+    private StartedMockNode b;
+
+    @Before
+    public void setup() {
+        network = new MockNetwork(ImmutableList.of("com.everis.jpmorgancc.contract", "com.everis.jpmorgancc.schema",
+                "com.everis.jpmorgancc.service"));
+        a = network.createPartyNode(null);
+        b = network.createPartyNode(null);
+        b.registerInitiatedFlow(JPMorganFlow.Acceptor.class);
+        b.registerInitiatedFlow(ResultSheetFlow.Acceptor.class);
+        network.runNetwork();
+    }
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @Test
+    public void standingsAreReadInFinishingOrderWithSharedPlaces() throws Exception {
+        record(1, "Ana", 1500.0, "F");
+        record(2, "Bea", 1400.0, "F");
+        record(3, "Carl", 1400.0, "M");
+        record(4, "Dan", 1600.0, "M");
+
+        List<LeaderboardService.Standing> overall = run(network, b, new LeaderboardFlows.Standings(CHALLENGE, 2017, 0, 10));
+        assertEquals(ImmutableList.of(2, 3, 1, 4), overall.stream().map(LeaderboardService.Standing::getBibNumber).collect(toList()));
+        assertEquals(ImmutableList.of(1, 1, 3, 4), overall.stream().map(LeaderboardService.Standing::getPlace).collect(toList()));
+
+        List<LeaderboardService.Standing> page = run(network, a, new LeaderboardFlows.Standings(CHALLENGE, 2017, 1, 2));
+        assertEquals(ImmutableList.of(1, 3), page.stream().map(LeaderboardService.Standing::getPlace).collect(toList()));
+
+        List<LeaderboardService.Standing> women = run(network, a, new LeaderboardFlows.Standings(CHALLENGE, 2017, "F", 0, 10));
+        assertEquals(ImmutableList.of(2, 1), women.stream().map(LeaderboardService.Standing::getBibNumber).collect(toList()));
+    }
+
+    @Test
+    public void summariesTrackEveryRecordedResult() throws Exception {
+        record(1, "Ana", 1500.0, "F");
+        record(2, "Bea", 1400.0, "F");
+        record(3, "Carl", 1300.0, "M");
+
+        List<LeaderboardService.YearStanding> women = run(network, a, new LeaderboardFlows.Years(CHALLENGE, "F"));
+        assertEquals(1, women.size());
+        assertEquals(2, women.get(0).getFinishers());
+        assertEquals(1400.0, women.get(0).getBestTime(), 0.001);
+        assertEquals(1450.0, women.get(0).getMeanTime(), 0.001);
+
+        assertEquals(2, run(network, b, new LeaderboardFlows.Years(CHALLENGE)).size());
+    }
+
+    @Test
+    public void historyFindsARunnerAcrossYearsWithTheirPersonalBest() throws Exception {
+        record(2016, 7, "José", "Pérez", 1500.0, "M");
+        record(2017, 9, "Jose", "PEREZ", 1450.0, "M");
+        record(2017, 10, "Ana", "Pérez", 1400.0, "F");
+
+        LeaderboardService.RunnerHistory history = run(network, b, new LeaderboardFlows.History("Perez-Jose"));
+        assertEquals(ImmutableList.of(2016, 2017), history.getResults().stream().map(LeaderboardService.RunnerResult::getChallengeYear).collect(toList()));
+        assertEquals(1450.0, history.getBestTime(), 0.001);
+
+        assertEquals(0, run(network, a, new LeaderboardFlows.History("nobody")).getResults().size());
+    }
+
+    @Test
+    public void rowsOfAResultSheetRankAlongsideSingleResults() throws Exception {
+        record(1, "Ana", 1500.0, "F");
+        final ByteArrayOutputStream sheet = new ByteArrayOutputStream();
+        ResultSheet.write(ImmutableList.of(
+                new ResultRow(CHALLENGE, 2017, 1, 1, 2, "Bea", "Runner", 1400.0, "F"),
+                new ResultRow(CHALLENGE, 2017, 2, 1, 3, "Carl", "Runner", 1600.0, "M")), sheet);
+        final SecureHash hash = a.transaction(() -> a.getServices().getAttachments()
+                .importAttachment(new ByteArrayInputStream(sheet.toByteArray()), "test", "results.zip"));
+        run(network, a, new ResultSheetFlow.Initiator(hash, CHALLENGE, 2017, party(b)));
+
+        for (StartedMockNode node : ImmutableList.of(a, b)) {
+            List<LeaderboardService.Standing> overall = run(network, node, new LeaderboardFlows.Standings(CHALLENGE, 2017, 0, 10));
+            assertEquals(ImmutableList.of(2, 1, 3), overall.stream().map(LeaderboardService.Standing::getBibNumber).collect(toList()));
+
+            List<LeaderboardService.YearStanding> women = run(network, node, new LeaderboardFlows.Years(CHALLENGE, "F"));
+            assertEquals(2, women.get(0).getFinishers());
+            assertEquals(1400.0, women.get(0).getBestTime(), 0.001);
+
+            LeaderboardService.RunnerHistory history = run(network, node, new LeaderboardFlows.History("Runner-Carl"));
+            assertEquals(1, history.getResults().size());
+            assertEquals(1600.0, history.getBestTime(), 0.001);
+        }
+    }
+
+    private void record(int bibNumber, String firstName, double time, String gender) throws Exception {
+        record(2017, bibNumber, firstName, "Runner", time, gender);
+    }
+
+    private void record(int year, int bibNumber, String firstName, String lastName, double time, String gender) throws Exception {
+        run(network, a, new JPMorganFlow.Initiator(CHALLENGE, year, bibNumber, bibNumber, bibNumber, firstName, lastName,
+                time, gender, party(b)));
+    }
+}
@@ -0,0 +1,75 @@
+package com.everis.jpmorgancc.flow;
+
+import com.everis.jpmorgancc.csv.ResultRow;
+import com.everis.jpmorgancc.state.CompactJPMorganState;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.StartedMockNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static com.everis.jpmorgancc.flow.FlowTestSupport.party;
+import static com.everis.jpmorgancc.flow.FlowTestSupport.run;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+public class ResultBatchFlowTests {
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+
+    private MockNetwork network;
+    private StartedMockNode a;
+    private StartedMockNode b;
+
+    @Before
+    public void setup() {
+        network = new MockNetwork(ImmutableList.of("com.everis.jpmorgancc.contract"));
+        a = network.createPartyNode(null);
+        b = network.createPartyNode(null);
+        b.registerInitiatedFlow(ResultBatchFlow.Acceptor.class);
+        network.runNetwork();
+    }
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @Test
+    public void batchIsRecordedInOneTransactionInSubmissionOrder() throws Exception {
+        final List<ResultRow> rows = ImmutableList.of(row(3, 1500.0), row(1, 1400.0), row(2, 1450.0));
+
+        final SignedTransaction stx = run(network, a, new ResultBatchFlow.Initiator(rows, party(b), null));
+
+        assertEquals(ImmutableList.of(3, 1, 2), stx.getTx().getOutputs().stream()
+                .map(output -> ((CompactJPMorganState) output.getData()).getBibNumber())
+                .collect(toList()));
+        for (StartedMockNode node : ImmutableList.of(a, b)) {
+            final List<StateAndRef<CompactJPMorganState>> recorded = node.transaction(() ->
+                    node.getServices().getVaultService().queryBy(CompactJPMorganState.class).getStates());
+            assertEquals(3, recorded.size());
+            recorded.forEach(state -> assertEquals(stx.getId(), state.getRef().getTxhash()));
+        }
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void batchIssuingABibTwiceIsRejected() throws Exception {
+        run(network, a, new ResultBatchFlow.Initiator(ImmutableList.of(row(1, 1500.0), row(1, 1400.0)), party(b),
+                null));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void batchWithATimeBeyondTheCompactRangeIsRejected() throws Exception {
+        run(network, a, new ResultBatchFlow.Initiator(ImmutableList.of(row(1, CompactJPMorganState.MAX_TIME)), party(b),
+                null));
+    }
+
+    private static ResultRow row(int bibNumber, double time) {
+        return new ResultRow(CHALLENGE, 2017, bibNumber, bibNumber, bibNumber, "Runner", "Number" + bibNumber, time, "M");
+    }
+}
@@ -0,0 +1,91 @@
+package com.everis.jpmorgancc.flow;
+
+import com.everis.jpmorgancc.csv.ResultSheet;
+import com.everis.jpmorgancc.dataset.RaceDatasetGenerator;
+import com.everis.jpmorgancc.state.ResultSheetState;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.StartedMockNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static com.everis.jpmorgancc.flow.FlowTestSupport.party;
+import static com.everis.jpmorgancc.flow.FlowTestSupport.run;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResultSheetFlowTests {
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+
+    private MockNetwork network;
+    private StartedMockNode a;
+    private StartedMockNode b;
+
+    @Before
+    public void setup() {
+        network = new MockNetwork(ImmutableList.of("com.everis.jpmorgancc.contract"));
+        a = network.createPartyNode(null);
+        b = network.createPartyNode(null);
+        b.registerInitiatedFlow(ResultSheetFlow.Acceptor.class);
+        network.runNetwork();
+    }
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @Test
+    public void sheetIsRecordedByBothPartiesWithItsTotals() throws Exception {
+        final byte[] sheet = sheet(2018, 500);
+        final ResultSheet.Totals totals = ResultSheet.verify(new ByteArrayInputStream(sheet), CHALLENGE, 2018);
+        final SecureHash hash = upload(a, sheet);
+
+        final SignedTransaction stx = run(network, a, new ResultSheetFlow.Initiator(hash, CHALLENGE, 2018, party(b)));
+
+        assertTrue(stx.getTx().getAttachments().contains(hash));
+        for (StartedMockNode node : ImmutableList.of(a, b)) {
+            final List<StateAndRef<ResultSheetState>> recorded = node.transaction(() ->
+                    node.getServices().getVaultService().queryBy(ResultSheetState.class).getStates());
+            assertEquals(1, recorded.size());
+            final ResultSheetState state = recorded.get(0).getState().getData();
+            assertEquals(hash, state.getSheetHash());
+            assertEquals(totals.getFinishers(), state.getFinishers());
+            assertEquals(totals.getBestTimeHundredths(), state.getBestTimeHundredths());
+            assertEquals(totals.getTotalTimeHundredths(), state.getTotalTimeHundredths());
+        }
+        // The counterparty fetched the sheet while resolving the transaction.
+        assertTrue(b.transaction(() -> b.getServices().getAttachments().hasAttachment(hash)));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void sheetOfAnotherYearIsRejected() throws Exception {
+        final SecureHash hash = upload(a, sheet(2018, 10));
+        run(network, a, new ResultSheetFlow.Initiator(hash, CHALLENGE, 2017, party(b)));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void sheetMustHaveBeenUploaded() throws Exception {
+        run(network, a, new ResultSheetFlow.Initiator(SecureHash.sha256("missing"), CHALLENGE, 2018, party(b)));
+    }
+
+    private static byte[] sheet(int challengeYear, int finishers) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultSheet.write(new RaceDatasetGenerator(7, CHALLENGE, challengeYear, 1, finishers), out);
+        return out.toByteArray();
+    }
+
+    private static SecureHash upload(StartedMockNode node, byte[] sheet) {
+        return node.transaction(() ->
+                node.getServices().getAttachments().importAttachment(new ByteArrayInputStream(sheet), "test", "results.zip"));
+    }
+}
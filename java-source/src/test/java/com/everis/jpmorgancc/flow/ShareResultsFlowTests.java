@@ -0,0 +1,201 @@
+package com.everis.jpmorgancc.flow;
+
+import co.paralleluniverse.fibers.Suspendable;
+import com.everis.jpmorgancc.contract.JPMorganContract;
+import com.everis.jpmorgancc.service.DisclosureService;
+import com.everis.jpmorgancc.state.JPMorganState;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.TimeWindow;
+import net.corda.core.contracts.TransactionState;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.crypto.CryptoUtils;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.flows.FlowException;
+import net.corda.core.flows.FlowLogic;
+import net.corda.core.flows.FlowSession;
+import net.corda.core.flows.InitiatedBy;
+import net.corda.core.flows.InitiatingFlow;
+import net.corda.core.identity.Party;
+import net.corda.core.transactions.FilteredTransaction;
+import net.corda.core.transactions.SignedTransaction;
+import net.corda.core.transactions.TransactionBuilder;
+import net.corda.testing.node.MockNetwork;
+import net.corda.testing.node.StartedMockNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static com.everis.jpmorgancc.flow.FlowTestSupport.party;
+import static com.everis.jpmorgancc.flow.FlowTestSupport.run;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShareResultsFlowTests {
+    private MockNetwork network;
+    private StartedMockNode a;
+    private StartedMockNode b;
+    private StartedMockNode observer;
+
+    @Before
+    public void setup() {
+        network = new MockNetwork(ImmutableList.of("com.everis.jpmorgancc.contract", "com.everis.jpmorgancc.service"));
+        a = network.createPartyNode(null);
+        b = network.createPartyNode(null);
+        observer = network.createPartyNode(null);
+        b.registerInitiatedFlow(JPMorganFlow.Acceptor.class);
+        observer.registerInitiatedFlow(ShareResultsFlow.Observer.class);
+        observer.registerInitiatedFlow(ForgedObserver.class);
+        network.runNetwork();
+    }
+
+    @After
+    public void tearDown() {
+        network.stopNodes();
+    }
+
+    @Test
+    public void observerReceivesOutputsWithoutCommands() throws Exception {
+        final List<SecureHash> txIds = new ArrayList<>();
+        for (int bib = 1; bib <= 3; bib++) {
+            txIds.add(run(network, a, new JPMorganFlow.Initiator("J.P.Morgan Corporate Challenge", 2017, bib, bib, bib,
+                    "Runner", "Number" + bib, 1500.0 + bib, "M", party(b))).getId());
+        }
+
+        assertEquals(3, (int) run(network, a, new ShareResultsFlow.Initiator(txIds, party(observer))));
+
+        final List<DisclosureService.Disclosed> received = run(network, observer, new ShareResultsFlow.Received(0, 10));
+        assertEquals(3, received.size());
+        for (int i = 0; i < received.size(); i++) {
+            final FilteredTransaction ftx = received.get(i).getTx();
+            assertEquals(txIds.get(i), ftx.getId());
+            assertEquals(party(a).getName(), received.get(i).getSender());
+            assertEquals(1, ftx.getOutputs().size());
+            final ContractState output = ftx.getOutputs().get(0).getData();
+            assertEquals(i + 1, ((JPMorganState) output).getBibNumber());
+            assertTrue(ftx.getCommands().isEmpty());
+        }
+    }
+
+    @Test
+    public void requestedComponentsAreShared() throws Exception {
+        final SignedTransaction stx = run(network, a, new JPMorganFlow.Initiator("J.P.Morgan Corporate Challenge", 2017,
+                1, 1, 1, "Runner", "One", 1500.0, "M", party(b)));
+
+        run(network, a, new ShareResultsFlow.Initiator(ImmutableList.of(stx.getId()), party(observer),
+                ImmutableSet.of(ShareResultsFlow.Component.COMMANDS)));
+
+        final FilteredTransaction ftx = run(network, observer, new ShareResultsFlow.Received(0, 10)).get(0).getTx();
+        assertTrue(ftx.getOutputs().isEmpty());
+        assertEquals(1, ftx.getCommands().size());
+    }
+
+    @Test
+    public void issuancesAreAcceptedOnTheirParticipantsSignatures() throws Exception {
+        final SignedTransaction stx = run(network, a, new JPMorganFlow.Initiator("J.P.Morgan Corporate Challenge", 2017,
+                1, 1, 1, "Runner", "One", 1500.0, "M", party(b)));
+        // FinalityFlow does not notarise a transaction without inputs or a time window.
+        assertFalse(stx.getSigs().stream().anyMatch(signature ->
+                CryptoUtils.isFulfilledBy(stx.getNotary().getOwningKey(), signature.getBy())));
+
+        assertEquals(1, (int) run(network, a, new ShareResultsFlow.Initiator(ImmutableList.of(stx.getId()),
+                party(observer))));
+        assertEquals(stx.getId(), run(network, observer, new ShareResultsFlow.Received(0, 10)).get(0).getTx().getId());
+    }
+
+    @Test
+    public void transactionMissingAParticipantsSignatureIsRejected() throws Exception {
+        final SignedTransaction stx = sign(result(1), a);
+        assertRejected(new ShareResultsFlow.Disclosure(outputsOf(stx), stx.getSigs()));
+    }
+
+    @Test
+    public void signatureOverAnotherTransactionIsRejected() throws Exception {
+        final SignedTransaction stx = sign(result(1), a, b);
+        final SignedTransaction other = sign(result(2), a, b);
+        assertRejected(new ShareResultsFlow.Disclosure(outputsOf(stx), other.getSigs()));
+    }
+
+    @Test
+    public void nonIssuanceWithoutItsNotarysSignatureIsRejected() throws Exception {
+        final SignedTransaction stx = sign(result(1).setTimeWindow(TimeWindow.untilOnly(Instant.now().plusSeconds(60))),
+                a, b);
+        assertRejected(new ShareResultsFlow.Disclosure(stx.buildFilteredTransaction(component ->
+                component instanceof TransactionState || component instanceof TimeWindow || component instanceof Party),
+                stx.getSigs()));
+    }
+
+    private void assertRejected(ShareResultsFlow.Disclosure disclosure) throws Exception {
+        try {
+            run(network, a, new ForgingInitiator(disclosure, party(observer)));
+            fail("The observer should reject the disclosure");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof FlowException);
+        }
+        assertTrue(run(network, observer, new ShareResultsFlow.Received(0, 10)).isEmpty());
+    }
+
+    private TransactionBuilder result(int bibNumber) {
+        final JPMorganState state = new JPMorganState("J.P.Morgan Corporate Challenge", 2017, bibNumber, bibNumber,
+                bibNumber, "Runner", "Number" + bibNumber, 1500.0, "M", party(a), party(b), new UniqueIdentifier());
+        return new TransactionBuilder(network.getDefaultNotaryIdentity())
+                .addOutputState(state, JPMorganContract.JPM_CONTRACT_ID)
+                .addCommand(new JPMorganContract.Commands.Create(), party(a).getOwningKey(), party(b).getOwningKey());
+    }
+
+    /**
+     * Signs [builder] by each of [signers], without verifying, notarising or recording it.
+     */
+    private static SignedTransaction sign(TransactionBuilder builder, StartedMockNode... signers) {
+        SignedTransaction stx = signers[0].getServices().signInitialTransaction(builder);
+        for (int i = 1; i < signers.length; i++) {
+            stx = signers[i].getServices().addSignature(stx);
+        }
+        return stx;
+    }
+
+    private static FilteredTransaction outputsOf(SignedTransaction stx) {
+        return stx.buildFilteredTransaction(component ->
+                component instanceof TransactionState || component instanceof Party);
+    }
+
+    /**
+     * Sends one prepared [ShareResultsFlow.Disclosure] as it is, which [ShareResultsFlow.Initiator] never would.
+     */
+    @InitiatingFlow
+    public static class ForgingInitiator extends FlowLogic<Integer> {
+        private final ShareResultsFlow.Disclosure disclosure;
+        private final Party observer;
+
+        public ForgingInitiator(ShareResultsFlow.Disclosure disclosure, Party observer) {
+            this.disclosure = disclosure;
+            this.observer = observer;
+        }
+
+        @Suspendable
+        @Override
+        public Integer call() throws FlowException {
+            final FlowSession session = initiateFlow(observer);
+            final int accepted = session.sendAndReceive(Integer.class, ImmutableList.of(disclosure))
+                    .unwrap(count -> count);
+            session.send(Collections.emptyList());
+            return accepted;
+        }
+    }
+
+    @InitiatedBy(ForgingInitiator.class)
+    public static class ForgedObserver extends ShareResultsFlow.Observer {
+        public ForgedObserver(FlowSession otherPartyFlow) {
+            super(otherPartyFlow);
+        }
+    }
+}
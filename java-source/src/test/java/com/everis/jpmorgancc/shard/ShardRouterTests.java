@@ -0,0 +1,47 @@
+package com.everis.jpmorgancc.shard;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class ShardRouterTests {
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+
+    private final ShardRouter router = new ShardRouter(ImmutableList.of(
+            new Shard("early", null, ImmutableSet.of(2015, 2016), null, null, null),
+            new Shard("frankfurt", "Frankfurt", ImmutableSet.of(), null, null, null),
+            new Shard("late", null, ImmutableSet.of(), null, null, null)));
+
+    @Test
+    public void resultsGoToTheFirstOwningShard() {
+        assertEquals("early", router.route(CHALLENGE, 2016).getName());
+        assertEquals("early", router.route("Frankfurt", 2015).getName());
+        assertEquals("frankfurt", router.route("Frankfurt", 2018).getName());
+        assertEquals("late", router.route(CHALLENGE, 2018).getName());
+    }
+
+    @Test
+    public void readsOfAnOwnedYearSkipTheCatchAllShard() {
+        assertEquals(ImmutableList.of("early"), names(router.candidates(CHALLENGE, 2015)));
+        assertEquals(ImmutableList.of("early"), names(router.candidates(null, 2016)));
+        assertEquals(ImmutableList.of("early"), names(router.candidates("Frankfurt", 2016)));
+    }
+
+    @Test
+    public void readsOfOtherYearsSkipOnlyWhatIsShadowed() {
+        assertEquals(ImmutableList.of("frankfurt", "late"), names(router.candidates(null, 2018)));
+        assertEquals(ImmutableList.of("late"), names(router.candidates(CHALLENGE, 2018)));
+        assertEquals(ImmutableList.of("frankfurt"), names(router.candidates("Frankfurt", 2018)));
+        assertEquals(ImmutableList.of("early", "frankfurt", "late"), names(router.candidates(null, 0)));
+        assertEquals(ImmutableList.of("early", "frankfurt"), names(router.candidates("Frankfurt", 0)));
+    }
+
+    private static List<String> names(List<Shard> shards) {
+        return shards.stream().map(Shard::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,78 @@
+package com.everis.jpmorgancc.state;
+
+import com.everis.jpmorgancc.contract.JPMorganContract;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.serialization.SerializationAPIKt;
+import net.corda.core.serialization.SerializationFactory;
+import net.corda.core.transactions.WireTransaction;
+import net.corda.testing.core.TestIdentity;
+import net.corda.testing.dsl.EnforceVerifyOrFail;
+import net.corda.testing.dsl.TransactionDSL;
+import net.corda.testing.dsl.TransactionDSLInterpreter;
+import net.corda.testing.node.MockServices;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static net.corda.testing.node.NodeTestUtils.ledger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the serialised size of a transaction issuing a [JPMorganState] against the same result issued as a
+ * [CompactJPMorganState].
+ */
+public class JPMorganStateEncodingTests {
+    static private final Logger logger = LoggerFactory.getLogger(JPMorganStateEncodingTests.class);
+    static private final MockServices ledgerServices = new MockServices(ImmutableList.of("com.everis.jpmorgancc.contract"));
+    static private TestIdentity megaCorp = new TestIdentity(new CordaX500Name("MegaCorp", "London", "GB"));
+    static private TestIdentity miniCorp = new TestIdentity(new CordaX500Name("MiniCorp", "London", "GB"));
+
+    private final JPMorganState boxed = new JPMorganState("J.P.Morgan Corporate Challenge", 2018, 152, 37, 10423,
+            "Jane", "Doe", 1834.57, "F", megaCorp.getParty(), miniCorp.getParty(), new UniqueIdentifier());
+
+    @Test
+    public void compactStateKeepsTheSameResult() {
+        CompactJPMorganState compact = CompactJPMorganState.of(boxed);
+
+        assertEquals(183457, compact.getTimeHundredths());
+        assertEquals(boxed.getTime(), compact.getTime(), 0.0);
+        assertEquals(Gender.FEMALE, compact.getGender());
+        assertEquals(boxed.getLinearId(), compact.getLinearId());
+    }
+
+    @Test
+    public void genderIsWrittenToJsonAsItsCode() throws Exception {
+        final ObjectMapper mapper = new ObjectMapper();
+        assertEquals("\"F\"", mapper.writeValueAsString(CompactJPMorganState.of(boxed).getGender()));
+        assertEquals("\"F\"", mapper.writeValueAsString(boxed.getGender()));
+    }
+
+    @Test
+    public void compactStateProducesSmallerTransactions() {
+        ledger(ledgerServices, (ledger -> {
+            int boxedSize = serialisedSize(ledger.transaction(tx -> issue(tx, boxed)));
+            int compactSize = serialisedSize(ledger.transaction(tx -> issue(tx, CompactJPMorganState.of(boxed))));
+
+            logger.info("Serialised transaction size: JPMorganState={} bytes, CompactJPMorganState={} bytes ({}%)",
+                    boxedSize, compactSize, (100 * compactSize) / boxedSize);
+            assertTrue(compactSize < boxedSize);
+            return null;
+        }));
+    }
+
+    private static EnforceVerifyOrFail issue(TransactionDSL<TransactionDSLInterpreter> tx, ContractState state) {
+        tx.output(JPMorganContract.JPM_CONTRACT_ID, state);
+        tx.command(ImmutableList.of(megaCorp.getPublicKey(), miniCorp.getPublicKey()), new JPMorganContract.Commands.Create());
+        return tx.verifies();
+    }
+
+    private static int serialisedSize(WireTransaction wtx) {
+        SerializationFactory factory = SerializationFactory.Companion.getDefaultFactory();
+        return SerializationAPIKt.serialize(wtx, factory, factory.getDefaultContext()).getSize();
+    }
+}
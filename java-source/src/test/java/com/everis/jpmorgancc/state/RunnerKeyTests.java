@@ -0,0 +1,19 @@
+package com.everis.jpmorgancc.state;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RunnerKeyTests {
+    @Test
+    public void keyIgnoresCaseAccentsAndPunctuation() {
+        assertEquals("perez-gil-jose-maria", RunnerKey.of("José  María", "Pérez-Gil"));
+        assertEquals(RunnerKey.of("Jose Maria", "PEREZ GIL"), RunnerKey.of(" josé-maría ", "Pérez Gil."));
+    }
+
+    @Test
+    public void typedKeysNormaliseToTheSameKey() {
+        assertEquals(RunnerKey.of("Jane", "Doe"), RunnerKey.normalise("Doe-Jane"));
+        assertEquals(RunnerKey.of("Jane", "O'Brien"), RunnerKey.normalise("o-brien jane"));
+    }
+}
@@ -0,0 +1,42 @@
+package com.everis.jpmorgancc.store;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BibFilterTests {
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+
+    @Test
+    public void everyBibPutIsFoundAfterTheFilterGrows() {
+        BibFilter bibs = new BibFilter();
+        int count = BibFilter.INITIAL_CAPACITY * 5;
+        for (int bib = 0; bib < count; bib++) {
+            bibs.put(CHALLENGE, 2017, bib * 2);
+        }
+        for (int bib = 0; bib < count; bib++) {
+            assertTrue(bibs.mightContain(CHALLENGE, 2017, bib * 2));
+        }
+
+        int falsePositives = 0;
+        for (int bib = 0; bib < count; bib++) {
+            if (bibs.mightContain(CHALLENGE, 2017, bib * 2 + 1)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("False positive rate " + (double) falsePositives / count, falsePositives < count * 0.02);
+    }
+
+    @Test
+    public void yearsAndChallengesAreKeptApart() {
+        BibFilter bibs = new BibFilter();
+        bibs.put(CHALLENGE, 2017, 10423);
+        assertTrue(bibs.mightContain(CHALLENGE, 2017, 10423));
+        assertFalse(bibs.mightContain(CHALLENGE, 2018, 10423));
+        assertFalse(bibs.mightContain("Another Challenge", 2017, 10423));
+
+        bibs.clear();
+        assertFalse(bibs.mightContain(CHALLENGE, 2017, 10423));
+    }
+}
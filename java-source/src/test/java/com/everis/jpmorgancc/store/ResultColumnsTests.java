@@ -0,0 +1,145 @@
+package com.everis.jpmorgancc.store;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResultColumnsTests {
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+
+    @Test
+    public void distributionCountsEachBucketFromZero() {
+        ResultColumns columns = new ResultColumns();
+        columns.append(CHALLENGE, 2017, 1, 1, 1, 6_000, "M");
+        columns.append(CHALLENGE, 2017, 2, 2, 2, 11_999, "M");
+        columns.append(CHALLENGE, 2017, 3, 1, 3, 18_000, "F");
+
+        assertArrayEquals(new long[] { 0, 2, 0, 1 }, columns.distribution(ResultColumns.Filter.ALL, 6_000));
+        assertArrayEquals(new long[] { 0, 0, 0, 1 },
+                columns.distribution(new ResultColumns.Filter(CHALLENGE, 2017, "F"), 6_000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void distributionRefusesAnEmptyBucket() {
+        new ResultColumns().distribution(ResultColumns.Filter.ALL, 0);
+    }
+
+    @Test
+    public void slowResultsShareTheLastBucket() {
+        ResultColumns columns = new ResultColumns();
+        columns.append(CHALLENGE, 2017, 1, 1, 1, 0, "M");
+        columns.append(CHALLENGE, 2017, 2, 2, 2, Integer.MAX_VALUE, "M");
+        columns.append(CHALLENGE, 2017, 3, 3, 3, ResultColumns.MAX_BUCKETS - 1, "M");
+
+        long[] counts = columns.distribution(ResultColumns.Filter.ALL, 1);
+        assertEquals(ResultColumns.MAX_BUCKETS, counts.length);
+        assertEquals(1, counts[0]);
+        assertEquals(2, counts[ResultColumns.MAX_BUCKETS - 1]);
+    }
+
+    @Test
+    public void rankSharesTheBetterPlaceOnTies() {
+        ResultColumns columns = new ResultColumns();
+        columns.append(CHALLENGE, 2017, 1, 1, 1, 100_000, "M");
+        columns.append(CHALLENGE, 2017, 2, 2, 2, 120_000, "M");
+        columns.append(CHALLENGE, 2017, 3, 3, 3, 120_000, "M");
+
+        assertEquals(1, columns.rank(ResultColumns.Filter.ALL, 90_000));
+        assertEquals(2, columns.rank(ResultColumns.Filter.ALL, 120_000));
+        assertEquals(4, columns.rank(ResultColumns.Filter.ALL, 130_000));
+        assertEquals(3, columns.count(ResultColumns.Filter.ALL));
+    }
+
+    @Test
+    public void filtersMatchOnlyKnownValues() {
+        ResultColumns columns = new ResultColumns();
+        columns.append(CHALLENGE, 2016, 1, 1, 1, 100_000, "M");
+        columns.append(CHALLENGE, 2017, 1, 1, 1, 110_000, "F");
+
+        assertEquals(1, columns.count(new ResultColumns.Filter(CHALLENGE, 2016, null)));
+        assertEquals(1, columns.count(new ResultColumns.Filter(null, 0, "F")));
+        assertEquals(0, columns.count(new ResultColumns.Filter("Another Challenge", 0, null)));
+        assertEquals(0, columns.count(new ResultColumns.Filter(null, 0, "X")));
+    }
+
+    @Test
+    public void perYearSummarisesEveryYearOldestFirst() {
+        ResultColumns columns = new ResultColumns();
+        columns.append(CHALLENGE, 2017, 1, 1, 1, 100_000, "M");
+        columns.append(CHALLENGE, 2015, 1, 1, 1, 90_000, "M");
+        columns.append(CHALLENGE, 2017, 2, 2, 2, 120_000, "M");
+
+        List<ResultColumns.YearSummary> years = columns.perYear(ResultColumns.Filter.ALL);
+        assertEquals(ImmutableList.of(2015, 2017), ImmutableList.of(years.get(0).getChallengeYear(),
+                years.get(1).getChallengeYear()));
+        assertEquals(2, years.get(1).getFinishers());
+        assertEquals(1000.0, years.get(1).getBestTime(), 0.0);
+        assertEquals(1100.0, years.get(1).getMeanTime(), 0.0);
+        assertTrue(columns.perYear(new ResultColumns.Filter("Another Challenge", 0, null)).isEmpty());
+    }
+
+    @Test
+    public void resultsHeldApartCombineAsIfHeldTogether() {
+        ResultColumns all = new ResultColumns();
+        ResultColumns early = new ResultColumns();
+        ResultColumns late = new ResultColumns();
+        for (int bib = 1; bib <= 200; bib++) {
+            int year = 2015 + bib % 4;
+            int time = 90_000 + bib * 337 % 40_000;
+            String gender = bib % 3 == 0 ? "F" : "M";
+            all.append(CHALLENGE, year, bib, bib, bib, time, gender);
+            (year <= 2016 ? early : late).append(CHALLENGE, year, bib, bib, bib, time, gender);
+        }
+        // The later shard also holds a straggler of an early year, as a catch-all shard may.
+        all.append(CHALLENGE, 2015, 201, 201, 201, 100_001, "M");
+        late.append(CHALLENGE, 2015, 201, 201, 201, 100_001, "M");
+
+        for (ResultColumns.Filter filter : ImmutableList.of(ResultColumns.Filter.ALL,
+                new ResultColumns.Filter(CHALLENGE, 2015, null), new ResultColumns.Filter(null, 0, "F"))) {
+            assertArrayEquals(all.distribution(filter, 1_000),
+                    ResultColumns.combineDistributions(early.distribution(filter, 1_000), late.distribution(filter, 1_000)));
+            for (int time : new int[] { 80_000, 100_001, 110_000, 200_000 }) {
+                assertEquals(all.rank(filter, time),
+                        ResultColumns.combineRanks(early.rank(filter, time), late.rank(filter, time)));
+            }
+            assertSameYears(all.perYear(filter), ResultColumns.combineYears(early.perYear(filter), late.perYear(filter)));
+        }
+    }
+
+    @Test
+    public void combiningWithNothingChangesNothing() {
+        ResultColumns columns = new ResultColumns();
+        columns.append(CHALLENGE, 2017, 1, 1, 1, 6_000, "M");
+
+        assertArrayEquals(new long[] { 0, 1 },
+                ResultColumns.combineDistributions(new long[0], columns.distribution(ResultColumns.Filter.ALL, 6_000)));
+        assertEquals(2, ResultColumns.combineRanks(1, columns.rank(ResultColumns.Filter.ALL, 7_000)));
+        assertSameYears(columns.perYear(ResultColumns.Filter.ALL),
+                ResultColumns.combineYears(ImmutableList.of(), columns.perYear(ResultColumns.Filter.ALL)));
+    }
+
+    @Test
+    public void appendsBeyondTheInitialCapacityAreKept() {
+        ResultColumns columns = new ResultColumns();
+        for (int bib = 1; bib <= 5_000; bib++) {
+            columns.append(CHALLENGE, 2017, bib, bib, bib, 100_000 + bib, "M");
+        }
+        assertEquals(5_000, columns.size());
+        assertEquals(5_001, columns.rank(ResultColumns.Filter.ALL, Integer.MAX_VALUE));
+    }
+
+    private static void assertSameYears(List<ResultColumns.YearSummary> expected, List<ResultColumns.YearSummary> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getChallengeYear(), actual.get(i).getChallengeYear());
+            assertEquals(expected.get(i).getFinishers(), actual.get(i).getFinishers());
+            assertEquals(expected.get(i).getBestTime(), actual.get(i).getBestTime(), 0.0);
+            assertEquals(expected.get(i).getMeanTime(), actual.get(i).getMeanTime(), 0.0);
+        }
+    }
+}
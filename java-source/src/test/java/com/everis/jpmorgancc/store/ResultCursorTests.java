@@ -0,0 +1,84 @@
+package com.everis.jpmorgancc.store;
+
+import net.corda.core.contracts.StateRef;
+import net.corda.core.crypto.SecureHash;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ResultCursorTests {
+    private static final Instant T0 = Instant.parse("2018-06-01T12:00:00.123456789Z");
+
+    @Test
+    public void cursorReadsBackWhatWasEncoded() {
+        final ResultCursor cursor = ResultCursor.decode(new ResultCursor(T0, ref("tx", 3)).encode());
+        assertEquals(T0, cursor.getRecordedTime());
+        assertFalse(cursor.isBefore(T0, ref("tx", 3)));
+        assertTrue(cursor.isBefore(T0, ref("tx", 4)));
+
+        final ResultCursor timeOnly = ResultCursor.decode(new ResultCursor(T0, null).encode());
+        assertEquals(T0, timeOnly.getRecordedTime());
+        assertTrue(timeOnly.isBefore(T0, ref("tx", 0)));
+    }
+
+    @Test
+    public void nullOrEmptyIsTheStart() {
+        assertSame(ResultCursor.START, ResultCursor.decode(null));
+        assertSame(ResultCursor.START, ResultCursor.decode(""));
+        assertTrue(ResultCursor.START.isBefore(Instant.EPOCH, ref("tx", 0)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void garbageIsRefused() {
+        ResultCursor.decode("not a cursor!");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongNumberOfPartsIsRefused() {
+        ResultCursor.decode(encode("1:2:3"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badTransactionIdIsRefused() {
+        ResultCursor.decode(encode("1:2:nothex:0"));
+    }
+
+    @Test
+    public void laterTimesComeAfter() {
+        final ResultCursor cursor = new ResultCursor(T0, ref("tx", 3));
+        assertTrue(cursor.isBefore(T0.plusNanos(1), ref("tx", 0)));
+        assertFalse(cursor.isBefore(T0.minusNanos(1), ref("tx", 9)));
+    }
+
+    @Test
+    public void equalTimesAreOrderedByTransactionHexThenIndex() {
+        final SecureHash low = lowerHex(SecureHash.sha256("a"), SecureHash.sha256("b"));
+        final SecureHash high = low.equals(SecureHash.sha256("a")) ? SecureHash.sha256("b") : SecureHash.sha256("a");
+        final ResultCursor cursor = new ResultCursor(T0, new StateRef(low, 5));
+
+        assertTrue(cursor.isBefore(T0, new StateRef(high, 0)));
+        assertTrue(cursor.isBefore(T0, new StateRef(low, 6)));
+        assertFalse(cursor.isBefore(T0, new StateRef(low, 5)));
+        assertFalse(cursor.isBefore(T0, new StateRef(low, 4)));
+        assertFalse(new ResultCursor(T0, new StateRef(high, 0)).isBefore(T0, new StateRef(low, 9)));
+    }
+
+    private static SecureHash lowerHex(SecureHash a, SecureHash b) {
+        return a.toString().compareTo(b.toString()) < 0 ? a : b;
+    }
+
+    private static StateRef ref(String tx, int index) {
+        return new StateRef(SecureHash.sha256(tx), index);
+    }
+
+    private static String encode(String plain) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+}
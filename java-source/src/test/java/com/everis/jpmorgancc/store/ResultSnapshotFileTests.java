@@ -0,0 +1,67 @@
+package com.everis.jpmorgancc.store;
+
+import com.google.common.collect.ImmutableMap;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.crypto.SecureHash;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResultSnapshotFileTests {
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+    private static final String NODE = "O=PartyA,L=London,C=GB";
+    private static final Instant LATEST = Instant.parse("2018-06-01T12:00:00.123456789Z");
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void snapshotReadsBackWhatWasWritten() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("result-store.snapshot");
+        final ResultColumns written = new ResultColumns();
+        for (int bib = 1; bib <= 3_000; bib++) {
+            written.append(CHALLENGE, 2015 + bib % 3, bib, bib, bib, 100_000 + bib, bib % 2 == 0 ? "M" : "F");
+        }
+        final Watermark watermark = new Watermark(Duration.ofSeconds(10));
+        watermark.restore(LATEST, ImmutableMap.of(new StateRef(SecureHash.sha256("tx"), 4), LATEST.minusSeconds(1)));
+
+        ResultSnapshotFile.write(file, NODE, written, watermark);
+
+        final ResultColumns read = new ResultColumns();
+        final Watermark readWatermark = new Watermark(Duration.ofSeconds(10));
+        ResultSnapshotFile.read(file, NODE, read, readWatermark);
+        assertEquals(written.size(), read.size());
+        assertEquals(written.perYear(ResultColumns.Filter.ALL).size(), read.perYear(ResultColumns.Filter.ALL).size());
+        assertArrayEquals(written.distribution(ResultColumns.Filter.ALL, 100),
+                read.distribution(ResultColumns.Filter.ALL, 100));
+        assertEquals(written.count(new ResultColumns.Filter(CHALLENGE, 2016, "M")),
+                read.count(new ResultColumns.Filter(CHALLENGE, 2016, "M")));
+        assertEquals(LATEST, readWatermark.getLatest());
+        assertEquals(watermark.getRecent(), readWatermark.getRecent());
+    }
+
+    @Test
+    public void snapshotOfAnotherNodeIsRefused() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("result-store.snapshot");
+        final ResultColumns columns = new ResultColumns();
+        columns.append(CHALLENGE, 2017, 1, 1, 1, 100_000, "M");
+        ResultSnapshotFile.write(file, NODE, columns, new Watermark(Duration.ofSeconds(10)));
+
+        try {
+            ResultSnapshotFile.read(file, "O=PartyB,L=New York,C=US", new ResultColumns(), new Watermark(Duration.ofSeconds(10)));
+            fail();
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains(NODE));
+        }
+    }
+}
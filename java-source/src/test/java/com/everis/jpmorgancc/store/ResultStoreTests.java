@@ -0,0 +1,145 @@
+package com.everis.jpmorgancc.store;
+
+import com.everis.jpmorgancc.client.RpcConnectionPool;
+import com.everis.jpmorgancc.contract.JPMorganContract;
+import com.everis.jpmorgancc.csv.ResultSheet;
+import com.everis.jpmorgancc.dataset.RaceDatasetGenerator;
+import com.everis.jpmorgancc.state.ResultSheetState;
+import com.google.common.collect.ImmutableList;
+import net.corda.core.contracts.ContractState;
+import net.corda.core.contracts.StateAndRef;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.contracts.TransactionState;
+import net.corda.core.contracts.UniqueIdentifier;
+import net.corda.core.crypto.SecureHash;
+import net.corda.core.identity.CordaX500Name;
+import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.node.services.Vault;
+import net.corda.testing.core.TestIdentity;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResultStoreTests {
+    private static final String CHALLENGE = "J.P.Morgan Corporate Challenge";
+    private static final Instant T0 = Instant.parse("2018-06-01T12:00:00Z");
+
+    private static final TestIdentity megaCorp = new TestIdentity(new CordaX500Name("MegaCorp", "London", "GB"));
+    private static final TestIdentity miniCorp = new TestIdentity(new CordaX500Name("MiniCorp", "London", "GB"));
+    private static final TestIdentity notary = new TestIdentity(new CordaX500Name("Notary", "London", "GB"));
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final byte[] sheet;
+    private final SecureHash hash;
+    private final ResultSheet.Totals totals;
+    private final StateAndRef<ContractState> published;
+    private boolean downloadFails = true;
+    private Watermark watermark;
+    private ResultStore store;
+
+    public ResultStoreTests() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultSheet.write(new RaceDatasetGenerator(3, CHALLENGE, 2018, 1, 50), out);
+        sheet = out.toByteArray();
+        hash = SecureHash.sha256(sheet);
+        totals = ResultSheet.verify(new ByteArrayInputStream(sheet), CHALLENGE, 2018);
+        published = new StateAndRef<>(new TransactionState<>(
+                new ResultSheetState(CHALLENGE, 2018, hash, totals.getFinishers(), totals.getBestTimeHundredths(),
+                        totals.getTotalTimeHundredths(), megaCorp.getParty(), miniCorp.getParty(), new UniqueIdentifier()),
+                JPMorganContract.JPM_CONTRACT_ID, notary.getParty()), new StateRef(SecureHash.sha256("tx"), 0));
+    }
+
+    @Before
+    public void setup() {
+        final RpcConnectionPool rpc = RpcConnectionPool.wrap(node());
+        watermark = new Watermark(Duration.ofSeconds(10));
+        store = new ResultStore(rpc, new ResultColumns(), new ResultSheetCache(rpc, folder.getRoot().toPath()),
+                watermark, folder.getRoot().toPath().resolve("snapshot"));
+    }
+
+    @Test
+    public void sheetThatFailsToDownloadIsReadByTheNextCatchUp() throws Exception {
+        try {
+            store.catchUp();
+            fail("The download failure should stop the catch-up");
+        } catch (IOException expected) {
+            // The catch-up is retried later.
+        }
+        assertEquals(0, store.getColumns().size());
+        assertEquals(Instant.EPOCH, watermark.getLatest());
+        assertFalse(store.isReady());
+        assertNull(store.findSheet(hash));
+
+        downloadFails = false;
+        store.catchUp();
+        assertEquals(totals.getFinishers(), store.getColumns().size());
+        assertEquals(T0, watermark.getLatest());
+        assertTrue(store.isReady());
+        assertEquals(published, store.findSheet(hash));
+        assertEquals(ImmutableList.of(published), store.listSheets(CHALLENGE, 2018));
+        assertEquals(ImmutableList.of(), store.listSheets(CHALLENGE, 2017));
+
+        // Later catch-ups see the sheet as already appended.
+        store.catchUp();
+        assertEquals(totals.getFinishers(), store.getColumns().size());
+    }
+
+    @Test
+    public void bibsInASheetAreFoundBeforeAndAfterLoading() throws Exception {
+        downloadFails = false;
+        final int bib = ResultSheet.read(new ByteArrayInputStream(sheet)).getRows().get(0).getBibNumber();
+
+        // Before loading, the sheets come from the vault.
+        assertTrue(store.isInSheet(CHALLENGE, 2018, bib));
+        assertFalse(store.isInSheet(CHALLENGE, 2018, ResultSheet.MAX_BIB));
+        assertFalse(store.isInSheet(CHALLENGE, 2017, bib));
+
+        store.catchUp();
+        assertTrue(store.isInSheet(CHALLENGE, 2018, bib));
+        assertFalse(store.isInSheet(CHALLENGE, 2018, ResultSheet.MAX_BIB));
+        assertFalse(store.isInSheet(CHALLENGE, 2017, bib));
+        assertTrue(store.getBibs().mightContain(CHALLENGE, 2018, bib));
+    }
+
+    /**
+     * @return a node whose vault holds only [published], and whose attachment download fails while [downloadFails].
+     */
+    private CordaRPCOps node() {
+        final Vault.StateMetadata metadata = new Vault.StateMetadata(published.getRef(), ResultSheetState.class.getName(),
+                T0, null, Vault.StateStatus.UNCONSUMED, notary.getParty(), null, null);
+        return (CordaRPCOps) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{CordaRPCOps.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "vaultQueryBy":
+                            return new Vault.Page<>(ImmutableList.of(published), ImmutableList.of(metadata), 1,
+                                    Vault.StateStatus.UNCONSUMED, ImmutableList.of());
+                        case "openAttachment":
+                            return downloadFails ? new InputStream() {
+                                @Override
+                                public int read() throws IOException {
+                                    throw new IOException("Connection reset");
+                                }
+                            } : new ByteArrayInputStream(sheet);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
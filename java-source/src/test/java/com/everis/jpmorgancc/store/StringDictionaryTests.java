@@ -0,0 +1,37 @@
+package com.everis.jpmorgancc.store;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StringDictionaryTests {
+    @Test
+    public void codesAreDenseAndStable() {
+        StringDictionary dictionary = new StringDictionary();
+        assertEquals(0, dictionary.intern("M"));
+        assertEquals(1, dictionary.intern("F"));
+        assertEquals(0, dictionary.intern("M"));
+        assertEquals(2, dictionary.size());
+        assertEquals("F", dictionary.valueOf(1));
+        assertEquals(ImmutableList.of("M", "F"), dictionary.values());
+    }
+
+    @Test
+    public void unknownValuesAreAbsent() {
+        StringDictionary dictionary = new StringDictionary();
+        dictionary.intern("M");
+        assertEquals(StringDictionary.ABSENT, dictionary.codeOf("F"));
+        assertEquals(0, dictionary.codeOf("M"));
+    }
+
+    @Test
+    public void clearStartsTheCodesAgain() {
+        StringDictionary dictionary = new StringDictionary();
+        dictionary.intern("M");
+        dictionary.intern("F");
+        dictionary.clear();
+        assertEquals(StringDictionary.ABSENT, dictionary.codeOf("M"));
+        assertEquals(0, dictionary.intern("F"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.everis.jpmorgancc.store;
+
+import com.google.common.collect.ImmutableMap;
+import net.corda.core.contracts.StateRef;
+import net.corda.core.crypto.SecureHash;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WatermarkTests {
+    private static final Instant T0 = Instant.parse("2018-06-01T12:00:00Z");
+
+    private final Watermark watermark = new Watermark(Duration.ofSeconds(10));
+
+    @Test
+    public void startsFromTheBeginning() {
+        assertEquals(Instant.EPOCH, watermark.resumeFrom());
+    }
+
+    @Test
+    public void resumesAnOverlapBeforeTheLatestRecord() {
+        assertTrue(watermark.record(ref(1), T0));
+        assertTrue(watermark.record(ref(2), T0.minusSeconds(5)));
+        assertEquals(T0, watermark.getLatest());
+        assertEquals(T0.minusSeconds(10), watermark.resumeFrom());
+    }
+
+    @Test
+    public void reReadResultsAreSkipped() {
+        assertTrue(watermark.record(ref(1), T0));
+        assertFalse(watermark.record(ref(1), T0));
+        // A late commit inside the overlap is new; one before it can no longer be told apart and is refused.
+        assertTrue(watermark.record(ref(2), T0.minusSeconds(9)));
+        assertFalse(watermark.record(ref(3), T0.minusSeconds(11)));
+    }
+
+    @Test
+    public void pruneForgetsOnlyWhatCannotBeReRead() {
+        watermark.record(ref(1), T0);
+        watermark.record(ref(2), T0.plusSeconds(30));
+        watermark.prune();
+        assertEquals(ImmutableMap.of(ref(2), T0.plusSeconds(30)), watermark.getRecent());
+    }
+
+    @Test
+    public void restoreReplacesThePosition() {
+        watermark.record(ref(1), T0);
+        watermark.restore(T0.plusSeconds(60), ImmutableMap.of(ref(2), T0.plusSeconds(55)));
+        assertEquals(T0.plusSeconds(50), watermark.resumeFrom());
+        assertFalse(watermark.record(ref(2), T0.plusSeconds(55)));
+        assertTrue(watermark.record(ref(1), T0.plusSeconds(55)));
+    }
+
+    private static StateRef ref(int index) {
+        return new StateRef(SecureHash.sha256("tx"), index);
+    }
+}